@@ -71,6 +71,26 @@ public final class AstrixBeanSettings {
 	public static final IntBeanSetting QUEUE_SIZE_REJECTION_THRESHOLD = 
 			new IntBeanSetting("faultTolerance.queueSizeRejectionThreshold", DefaultBeanSettings.DEFAULT_QUEUE_SIZE_REJECTION_THRESHOLD);
 	
+	/**
+	 * Determines whether results of methods annotated with {@link com.avanza.astrix.core.AstrixNearCached}
+	 * should be cached by the consumer of the associated Astrix bean.
+	 */
+	public static final BooleanBeanSetting NEAR_CACHE_ENABLED = 
+			new BooleanBeanSetting("nearCache.enabled", true);
+	
+	/**
+	 * Defines the maximum number of cached results in the near cache of the associated bean.
+	 */
+	public static final IntBeanSetting NEAR_CACHE_MAX_SIZE = 
+			new IntBeanSetting("nearCache.maxSize", 1000);
+	
+	/**
+	 * Defines the time, in milliseconds, that a result is kept in the near cache 
+	 * of the associated bean.
+	 */
+	public static final LongBeanSetting NEAR_CACHE_TIME_TO_LIVE = 
+			new LongBeanSetting("nearCache.timeToLive", 10_000L);
+	
 	/**
 	 * @deprecated Replaced by {@link #TIMEOUT}
 	 */
@@ -50,7 +50,7 @@ public final class BeanInvocationDispatcher implements InvocationHandler {
 		CheckedCommand<Object> serviceInvocation = () -> ReflectionUtil.invokeMethod(method, targetBean, args);
 		for (BeanProxy proxy : proxys) {
 			if (proxy.isEnabled()) {
-				serviceInvocation = proxy.proxyInvocation(serviceInvocation);
+				serviceInvocation = proxy.proxyInvocation(method, args, serviceInvocation);
 			}
 		}
 		return serviceInvocation.call();
@@ -71,7 +71,7 @@ public final class BeanInvocationDispatcher implements InvocationHandler {
 		};
 		for (BeanProxy proxy : proxys) {
 			if (proxy.isEnabled()) {
-				serviceInvocation = proxy.proxyReactiveInvocation(serviceInvocation);
+				serviceInvocation = proxy.proxyReactiveInvocation(method, args, serviceInvocation);
 			}
 		}
 		
@@ -15,6 +15,7 @@
  */
 package com.avanza.astrix.beans.core;
 
+import java.lang.reflect.Method;
 import java.util.function.Supplier;
 
 import com.avanza.astrix.core.function.CheckedCommand;
@@ -45,6 +46,30 @@ public interface BeanProxy {
 	 */
 	<T> Supplier<Observable<T>> proxyReactiveInvocation(Supplier<Observable<T>> command);
 	
+	/**
+	 * Proxy a synchronous invocation of a given bean method. Proxies that depend on
+	 * the invoked method or its arguments override this method, the default implementation
+	 * delegates to {@link #proxyInvocation(CheckedCommand)}. <p>
+	 * 
+	 * @param method the invoked bean method
+	 * @param args the invocation arguments, might be null for methods without parameters
+	 * @param command
+	 * @return
+	 */
+	default <T> CheckedCommand<T> proxyInvocation(Method method, Object[] args, CheckedCommand<T> command) {
+		return proxyInvocation(command);
+	}
+	
+	/**
+	 * Proxy a reactive invocation of a given bean method. The default implementation delegates to
+	 * {@link #proxyReactiveInvocation(Supplier)}. <p>
+	 * 
+	 * @see #proxyInvocation(Method, Object[], CheckedCommand)
+	 */
+	default <T> Supplier<Observable<T>> proxyReactiveInvocation(Method method, Object[] args, Supplier<Observable<T>> command) {
+		return proxyReactiveInvocation(command);
+	}
+	
 	String name();
 	
 	boolean isEnabled();
@@ -19,6 +19,7 @@ public final class BeanProxyNames {
 
 	public static final String FAULT_TOLERANCE = "faultTolerance";
 	public static final String METRICS = "beanMetrics";
+	public static final String NEAR_CACHE = "nearCache";
 	
 	private BeanProxyNames() {};
 
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.beans.nearcache;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import com.avanza.astrix.beans.config.BeanConfiguration;
+import com.avanza.astrix.beans.core.AstrixBeanKey;
+import com.avanza.astrix.beans.core.AstrixBeanSettings;
+import com.avanza.astrix.beans.core.BeanProxy;
+import com.avanza.astrix.beans.core.BeanProxyNames;
+import com.avanza.astrix.config.DynamicBooleanProperty;
+import com.avanza.astrix.config.DynamicIntProperty;
+import com.avanza.astrix.config.DynamicLongProperty;
+import com.avanza.astrix.core.function.CheckedCommand;
+
+import rx.Observable;
+
+/**
+ * Consumer side cache for the results of the {@link com.avanza.astrix.core.AstrixNearCached} methods
+ * on a given bean. <p>
+ * 
+ * Each result is represented by a future that is shared by all invocations with the same arguments, 
+ * which makes concurrent cache misses wait for a single invocation of the underlying bean. 
+ * Reactive invocations caches the list of all emitted elements. <p>
+ * 
+ * When the cache grows beyond its maximum size the expired results, followed by the
+ * least recently loaded results, are evicted. <p>
+ * 
+ */
+final class BeanNearCache implements BeanProxy, BeanNearCacheMBean {
+	
+	private final AstrixBeanKey<?> beanKey;
+	private final Set<Method> cachedMethods;
+	private final DynamicBooleanProperty enabled;
+	private final DynamicIntProperty maxSize;
+	private final DynamicLongProperty timeToLive;
+	private final LongSupplier nanoTime;
+	private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+	private final ReentrantLock evictionLock = new ReentrantLock();
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	
+	BeanNearCache(AstrixBeanKey<?> beanKey, Set<Method> cachedMethods, BeanConfiguration beanConfiguration) {
+		this(beanKey, cachedMethods, beanConfiguration, System::nanoTime);
+	}
+	
+	BeanNearCache(AstrixBeanKey<?> beanKey, Set<Method> cachedMethods, BeanConfiguration beanConfiguration, LongSupplier nanoTime) {
+		this.beanKey = beanKey;
+		this.cachedMethods = cachedMethods;
+		this.enabled = beanConfiguration.get(AstrixBeanSettings.NEAR_CACHE_ENABLED);
+		this.maxSize = beanConfiguration.get(AstrixBeanSettings.NEAR_CACHE_MAX_SIZE);
+		this.timeToLive = beanConfiguration.get(AstrixBeanSettings.NEAR_CACHE_TIME_TO_LIVE);
+		this.nanoTime = nanoTime;
+	}
+
+	@Override
+	public <T> CheckedCommand<T> proxyInvocation(CheckedCommand<T> command) {
+		return command;
+	}
+
+	@Override
+	public <T> Supplier<Observable<T>> proxyReactiveInvocation(Supplier<Observable<T>> command) {
+		return command;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> CheckedCommand<T> proxyInvocation(Method method, Object[] args, CheckedCommand<T> command) {
+		if (!cachedMethods.contains(method)) {
+			return command;
+		}
+		return () -> {
+			Key key = new Key(method, args);
+			Entry entry = getOrCreateEntry(key);
+			if (entry.claimLoad()) {
+				try {
+					entry.complete(command.call(), expiresAt());
+				} catch (Throwable e) {
+					fail(key, entry, e);
+				}
+				evictIfFull();
+			}
+			return (T) entry.await();
+		};
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> Supplier<Observable<T>> proxyReactiveInvocation(Method method, Object[] args, Supplier<Observable<T>> command) {
+		if (!cachedMethods.contains(method)) {
+			return command;
+		}
+		return () -> {
+			Key key = new Key(method, args);
+			Entry entry = getOrCreateEntry(key);
+			if (entry.claimLoad()) {
+				try {
+					command.get().toList().subscribe(elements -> {
+						entry.complete(elements, expiresAt());
+						evictIfFull();
+					}, error -> fail(key, entry, error));
+				} catch (RuntimeException e) {
+					fail(key, entry, e);
+				}
+			}
+			return Observable.create(subscriber -> entry.result.whenComplete((elements, error) -> {
+				if (error != null) {
+					subscriber.onError(error);
+					return;
+				}
+				for (Object element : (List<Object>) elements) {
+					subscriber.onNext((T) element);
+				}
+				subscriber.onCompleted();
+			}));
+		};
+	}
+	
+	private Entry getOrCreateEntry(Key key) {
+		while (true) {
+			Entry entry = entries.get(key);
+			if (entry != null && !entry.isExpired(nanoTime.getAsLong())) {
+				hitCount.incrementAndGet();
+				return entry;
+			}
+			Entry created = new Entry();
+			if (entry == null ? entries.putIfAbsent(key, created) == null : entries.replace(key, entry, created)) {
+				missCount.incrementAndGet();
+				return created;
+			}
+		}
+	}
+	
+	private void fail(Key key, Entry entry, Throwable error) {
+		// Failures are never cached
+		entries.remove(key, entry);
+		entry.result.completeExceptionally(error);
+	}
+	
+	private long expiresAt() {
+		return nanoTime.getAsLong() + TimeUnit.MILLISECONDS.toNanos(timeToLive.get());
+	}
+	
+	private void evictIfFull() {
+		int maxEntries = maxSize.get();
+		if (entries.size() <= maxEntries || !evictionLock.tryLock()) {
+			return;
+		}
+		try {
+			long now = nanoTime.getAsLong();
+			entries.values().removeIf(entry -> entry.isExpired(now));
+			int overflow = entries.size() - maxEntries;
+			if (overflow <= 0) {
+				return;
+			}
+			List<Map.Entry<Key, Entry>> loaded = new ArrayList<>(entries.size());
+			for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+				if (entry.getValue().result.isDone()) {
+					loaded.add(entry);
+				}
+			}
+			loaded.sort(Comparator.comparingLong(entry -> entry.getValue().expiresAt - now));
+			// Evict some extra entries to avoid sorting the cache on each new entry once full
+			int evictionCount = Math.min(loaded.size(), overflow + maxEntries / 10);
+			for (Map.Entry<Key, Entry> evicted : loaded.subList(0, evictionCount)) {
+				entries.remove(evicted.getKey(), evicted.getValue());
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+	
+	void invalidate(Method method, Object[] args) {
+		entries.remove(new Key(method, args));
+	}
+	
+	AstrixBeanKey<?> getBeanKey() {
+		return beanKey;
+	}
+	
+	@Override
+	public void invalidateAll() {
+		entries.clear();
+	}
+	
+	@Override
+	public long getHitCount() {
+		return hitCount.get();
+	}
+	
+	@Override
+	public long getMissCount() {
+		return missCount.get();
+	}
+	
+	@Override
+	public int getSize() {
+		return entries.size();
+	}
+
+	@Override
+	public String name() {
+		return BeanProxyNames.NEAR_CACHE;
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled.get();
+	}
+	
+	private static final class Key {
+		
+		private final Method method;
+		private final Object[] args;
+		private final int hash;
+		
+		Key(Method method, Object[] args) {
+			this.method = method;
+			this.args = args != null ? args : new Object[0];
+			this.hash = 31 * method.hashCode() + Arrays.deepHashCode(this.args);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hash == other.hash && method.equals(other.method) && Arrays.deepEquals(args, other.args);
+		}
+	}
+	
+	private static final class Entry {
+		
+		private final CompletableFuture<Object> result = new CompletableFuture<>();
+		private final AtomicBoolean loadClaimed = new AtomicBoolean();
+		private volatile long expiresAt;
+		
+		boolean claimLoad() {
+			return !loadClaimed.get() && loadClaimed.compareAndSet(false, true);
+		}
+		
+		void complete(Object value, long expiresAt) {
+			this.expiresAt = expiresAt;
+			this.result.complete(value);
+		}
+		
+		boolean isExpired(long now) {
+			return result.isDone() && expiresAt - now <= 0;
+		}
+		
+		Object await() throws Throwable {
+			try {
+				return result.get();
+			} catch (ExecutionException e) {
+				throw e.getCause();
+			}
+		}
+	}
+
+}
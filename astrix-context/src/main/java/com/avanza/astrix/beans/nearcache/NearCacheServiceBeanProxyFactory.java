@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.beans.nearcache;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.avanza.astrix.beans.config.AstrixConfig;
+import com.avanza.astrix.beans.core.AstrixBeanKey;
+import com.avanza.astrix.beans.core.BeanProxy;
+import com.avanza.astrix.beans.service.ServiceBeanProxyFactory;
+import com.avanza.astrix.context.mbeans.MBeanExporter;
+import com.avanza.astrix.core.AstrixNearCached;
+
+final class NearCacheServiceBeanProxyFactory implements ServiceBeanProxyFactory {
+	
+	private final NearCachesImpl nearCaches;
+	private final AstrixConfig astrixConfig;
+	private final MBeanExporter mbeanExporter;
+	
+	public NearCacheServiceBeanProxyFactory(NearCachesImpl nearCaches, AstrixConfig astrixConfig, MBeanExporter mbeanExporter) {
+		this.nearCaches = nearCaches;
+		this.astrixConfig = astrixConfig;
+		this.mbeanExporter = mbeanExporter;
+	}
+
+	@Override
+	public BeanProxy create(AstrixBeanKey<?> beanKey) {
+		Set<Method> cachedMethods = Stream.of(beanKey.getBeanType().getMethods())
+										  .filter(method -> method.isAnnotationPresent(AstrixNearCached.class))
+										  .collect(Collectors.toSet());
+		if (cachedMethods.isEmpty()) {
+			return BeanProxy.NoProxy.create();
+		}
+		BeanNearCache result = new BeanNearCache(beanKey, cachedMethods, astrixConfig.getBeanConfiguration(beanKey));
+		nearCaches.register(result);
+		mbeanExporter.registerMBean(result, "ServiceBeanNearCache", beanKey.toString());
+		return result;
+	}
+
+	/**
+	 * The near cache is applied outside all other proxies, hence cache hits are
+	 * neither subject to fault tolerance nor included in the bean metrics.
+	 */
+	@Override
+	public int order() {
+		return 3;
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.beans.nearcache;
+
+import java.lang.reflect.Method;
+
+import com.avanza.astrix.beans.core.AstrixBeanKey;
+
+/**
+ * Invalidation api for the consumer side caches of {@link com.avanza.astrix.core.AstrixNearCached} 
+ * service methods. <p>
+ * 
+ * Invalidating a result that is currently being loaded does not affect the invocations already
+ * waiting for that result, but the next invocation will fetch a new result. <p>
+ * 
+ */
+public interface NearCaches {
+	
+	/**
+	 * Invalidates the cached result for a given invocation on a given bean.
+	 * 
+	 * @param beanKey
+	 * @param method the invoked method on the bean type
+	 * @param args the invocation arguments
+	 */
+	void invalidate(AstrixBeanKey<?> beanKey, Method method, Object... args);
+	
+	/**
+	 * Invalidates all cached results for a given bean.
+	 * 
+	 * @param beanKey
+	 */
+	void invalidate(AstrixBeanKey<?> beanKey);
+	
+	/**
+	 * Invalidates all cached results for all beans.
+	 */
+	void invalidateAll();
+
+}
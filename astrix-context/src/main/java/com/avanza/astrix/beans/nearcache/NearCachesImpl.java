@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.beans.nearcache;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.avanza.astrix.beans.core.AstrixBeanKey;
+
+final class NearCachesImpl implements NearCaches {
+	
+	private final ConcurrentMap<AstrixBeanKey<?>, BeanNearCache> nearCacheByBeanKey = new ConcurrentHashMap<>();
+	
+	void register(BeanNearCache nearCache) {
+		this.nearCacheByBeanKey.put(nearCache.getBeanKey(), nearCache);
+	}
+	
+	BeanNearCache getNearCache(AstrixBeanKey<?> beanKey) {
+		return this.nearCacheByBeanKey.get(beanKey);
+	}
+
+	@Override
+	public void invalidate(AstrixBeanKey<?> beanKey, Method method, Object... args) {
+		BeanNearCache nearCache = getNearCache(beanKey);
+		if (nearCache != null) {
+			nearCache.invalidate(method, args);
+		}
+	}
+
+	@Override
+	public void invalidate(AstrixBeanKey<?> beanKey) {
+		BeanNearCache nearCache = getNearCache(beanKey);
+		if (nearCache != null) {
+			nearCache.invalidateAll();
+		}
+	}
+
+	@Override
+	public void invalidateAll() {
+		nearCacheByBeanKey.values().forEach(BeanNearCache::invalidateAll);
+	}
+
+}
@@ -34,6 +34,7 @@ import com.avanza.astrix.beans.core.AstrixSettings;
 import com.avanza.astrix.beans.factory.BeanFactoryModule;
 import com.avanza.astrix.beans.factory.StandardFactoryBean;
 import com.avanza.astrix.beans.ft.*;
+import com.avanza.astrix.beans.nearcache.NearCacheModule;
 import com.avanza.astrix.beans.publish.*;
 import com.avanza.astrix.beans.registry.AstrixServiceRegistryLibraryProvider;
 import com.avanza.astrix.beans.registry.AstrixServiceRegistryServiceProvider;
@@ -124,6 +125,7 @@ public class AstrixConfigurer {
 		modulesConfigurer.register(new Jackson2SerializerModule());
 		modulesConfigurer.register(new ApiProviderBeanPublisherModule());
 		modulesConfigurer.register(new FaultToleranceModule());
+		modulesConfigurer.register(new NearCacheModule());
 		modulesConfigurer.register(new BeanFactoryModule());
 		if (this.applicationDescriptor != null) {
 			// Init server parts
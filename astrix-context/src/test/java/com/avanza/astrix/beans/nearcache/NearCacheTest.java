@@ -0,0 +1,245 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.beans.nearcache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.avanza.astrix.beans.core.AstrixBeanKey;
+import com.avanza.astrix.beans.core.AstrixBeanSettings;
+import com.avanza.astrix.beans.service.DirectComponent;
+import com.avanza.astrix.context.AstrixApplicationContext;
+import com.avanza.astrix.context.AstrixContext;
+import com.avanza.astrix.context.TestAstrixConfigurer;
+import com.avanza.astrix.core.AstrixNearCached;
+import com.avanza.astrix.provider.core.AstrixApiProvider;
+import com.avanza.astrix.provider.core.AstrixConfigDiscovery;
+import com.avanza.astrix.provider.core.Service;
+import com.avanza.astrix.test.util.AstrixTestUtil;
+
+import rx.Observable;
+
+public class NearCacheTest {
+	
+	private final CountingPing server = new CountingPing();
+	private final TestAstrixConfigurer astrixConfigurer = new TestAstrixConfigurer();
+	private AstrixContext astrixContext;
+	
+	@After
+	public void after() {
+		AstrixTestUtil.closeQuiet(astrixContext);
+	}
+	
+	@Test
+	public void cachesResultsOfNearCachedMethods() throws Exception {
+		Ping ping = createPing();
+		
+		assertEquals("foo", ping.ping("foo"));
+		assertEquals("foo", ping.ping("foo"));
+		assertEquals(1, server.invocationCount.get());
+		
+		assertEquals("bar", ping.ping("bar"));
+		assertEquals(2, server.invocationCount.get());
+	}
+	
+	@Test
+	public void doesNotCacheResultsOfOtherMethods() throws Exception {
+		Ping ping = createPing();
+		
+		assertEquals("foo", ping.uncachedPing("foo"));
+		assertEquals("foo", ping.uncachedPing("foo"));
+		assertEquals(2, server.invocationCount.get());
+	}
+	
+	@Test
+	public void cachesAllElementsEmittedByReactiveMethods() throws Exception {
+		Ping ping = createPing();
+		
+		assertEquals("foo", ping.observePing("foo").toBlocking().single());
+		assertEquals("foo", ping.observePing("foo").toBlocking().single());
+		assertEquals(1, server.invocationCount.get());
+	}
+	
+	@Test
+	public void failedInvocationsAreNotCached() throws Exception {
+		Ping ping = createPing();
+		
+		try {
+			ping.ping("fail");
+			fail("Expected exception to be thrown");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+		try {
+			ping.ping("fail");
+			fail("Expected exception to be thrown");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+		assertEquals(2, server.invocationCount.get());
+	}
+	
+	@Test(timeout = 5000)
+	public void concurrentMissesForSameArgumentsInvokesServiceOnce() throws Exception {
+		server.blockInvocations = new CountDownLatch(1);
+		Ping ping = createPing();
+		
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<String> first = executor.submit(() -> ping.ping("foo"));
+			Future<String> second = executor.submit(() -> ping.ping("foo"));
+			while (server.invocationCount.get() == 0) {
+				Thread.sleep(1);
+			}
+			server.blockInvocations.countDown();
+			
+			assertEquals("foo", first.get());
+			assertEquals("foo", second.get());
+			assertEquals(1, server.invocationCount.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void cachedResultsExpireAfterTimeToLive() throws Exception {
+		astrixConfigurer.set(AstrixBeanSettings.NEAR_CACHE_TIME_TO_LIVE.nameFor(AstrixBeanKey.create(Ping.class)), 0L);
+		Ping ping = createPing();
+		
+		ping.ping("foo");
+		ping.ping("foo");
+		assertEquals(2, server.invocationCount.get());
+	}
+	
+	@Test
+	public void cachedResultsCanBeInvalidated() throws Exception {
+		Ping ping = createPing();
+		NearCaches nearCaches = ((AstrixApplicationContext) astrixContext).getInstance(NearCaches.class);
+		
+		ping.ping("foo");
+		ping.ping("bar");
+		nearCaches.invalidate(AstrixBeanKey.create(Ping.class), Ping.class.getMethod("ping", String.class), "foo");
+		ping.ping("foo");
+		ping.ping("bar");
+		assertEquals(3, server.invocationCount.get());
+		
+		nearCaches.invalidate(AstrixBeanKey.create(Ping.class));
+		ping.ping("bar");
+		assertEquals(4, server.invocationCount.get());
+		
+		nearCaches.invalidateAll();
+		ping.ping("bar");
+		assertEquals(5, server.invocationCount.get());
+	}
+	
+	@Test
+	public void evictsResultsWhenCacheIsFull() throws Exception {
+		astrixConfigurer.set(AstrixBeanSettings.NEAR_CACHE_MAX_SIZE, AstrixBeanKey.create(Ping.class), 10);
+		Ping ping = createPing();
+		
+		for (int i = 0; i < 100; i++) {
+			ping.ping("msg-" + i);
+		}
+		BeanNearCacheMBean nearCacheMonitor = getNearCache();
+		assertEquals(100, nearCacheMonitor.getMissCount());
+		assertEquals(true, nearCacheMonitor.getSize() <= 10);
+	}
+	
+	@Test
+	public void itsPossibleToDisableNearCache() throws Exception {
+		astrixConfigurer.set(AstrixBeanSettings.NEAR_CACHE_ENABLED, AstrixBeanKey.create(Ping.class), false);
+		Ping ping = createPing();
+		
+		ping.ping("foo");
+		ping.ping("foo");
+		assertEquals(2, server.invocationCount.get());
+	}
+	
+	private BeanNearCacheMBean getNearCache() {
+		NearCachesImpl nearCaches = (NearCachesImpl) ((AstrixApplicationContext) astrixContext).getInstance(NearCaches.class);
+		return nearCaches.getNearCache(AstrixBeanKey.create(Ping.class));
+	}
+	
+	private Ping createPing() {
+		astrixConfigurer.registerApiProvider(PingApi.class);
+		astrixConfigurer.set("ping", DirectComponent.registerAndGetUri(Ping.class, server));
+		this.astrixContext = astrixConfigurer.configure();
+		return astrixContext.getBean(Ping.class);
+	}
+	
+	private static final class CountingPing implements Ping {
+		
+		private final AtomicInteger invocationCount = new AtomicInteger();
+		private volatile CountDownLatch blockInvocations = new CountDownLatch(0);
+
+		@Override
+		public String ping(String msg) {
+			invocationCount.incrementAndGet();
+			try {
+				blockInvocations.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (msg.equals("fail")) {
+				throw new IllegalArgumentException(msg);
+			}
+			return msg;
+		}
+		
+		@Override
+		public String uncachedPing(String msg) {
+			invocationCount.incrementAndGet();
+			return msg;
+		}
+		
+		@Override
+		public Observable<String> observePing(String msg) {
+			return Observable.create(subscriber -> {
+				invocationCount.incrementAndGet();
+				subscriber.onNext(msg);
+				subscriber.onCompleted();
+			});
+		}
+	}
+	
+	public interface Ping {
+		@AstrixNearCached
+		String ping(String msg);
+		
+		String uncachedPing(String msg);
+		
+		@AstrixNearCached
+		Observable<String> observePing(String msg);
+	}
+	
+	@AstrixApiProvider
+	public interface PingApi {
+		@AstrixConfigDiscovery("ping")
+		@Service
+		Ping ping();
+	}
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an idempotent service method whose responses may be cached by the server. <p>
+ * 
+ * Successful responses are cached in serialized form, keyed by the target method, the api version 
+ * and the serialized arguments. Hence a cache hit neither invokes the service nor serializes the 
+ * response. Responses for invocations that throw an exception are never cached. <p>
+ * 
+ * The cache is shared by all cacheable methods in a service activator and is bounded by the total
+ * (estimated) size of the cached responses, see astrix.remoting.server.responseCacheMaxBytes. <p>
+ * 
+ * Only services exported with a versioned object serializer can have cacheable methods. Without versioning 
+ * the arguments and responses are not serialized, and registering a service with a cacheable method fails. <p>
+ * 
+ */
+@Target(value={ElementType.METHOD})
+@Retention(value=RetentionPolicy.RUNTIME)
+@Documented
+public @interface AstrixCacheable {
+	
+	/**
+	 * The time, in milliseconds, that a cached response is valid.
+	 */
+	long timeToLive();
+	
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Collapses concurrent invocations of a routed service method into invocations of a batch method
+ * on the same service. <p>
+ * 
+ * Invocations targeting the same partition that are made within the given window are sent as a single
+ * request to the batch method, and the result is fanned back out to the individual invocations. The
+ * annotated method must accept exactly one argument. The batch method must accept a single {@link java.util.List}
+ * argument and return a {@link java.util.List} containing the result for each element, in the same order. Example: <p>
+ * 
+ * <pre>
+ * &#64;AstrixCollapsed(batchMethod = "getPositions")
+ * Position getPosition(&#64;AstrixRouting AccountId accountId);
+ * 
+ * List&lt;Position&gt; getPositions(List&lt;AccountId&gt; accountIds);
+ * </pre>
+ * 
+ * If the batch invocation fails, then each collapsed invocation fails with the same exception. <p>
+ * 
+ */
+@Target(value={ElementType.METHOD})
+@Retention(value=RetentionPolicy.RUNTIME)
+@Documented
+public @interface AstrixCollapsed {
+	
+	/**
+	 * The name of the batch method.
+	 */
+	String batchMethod();
+	
+	/**
+	 * The time, in milliseconds, to wait for other invocations to collapse with.
+	 */
+	long window() default 2;
+	
+	/**
+	 * The maximum number of invocations in a batch. A full batch is sent without waiting for the window to close.
+	 */
+	int maxBatchSize() default 100;
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a read method on a service api whose results may be cached by the consumer. <p>
+ * 
+ * Results are cached per bean and argument list, and are shared by all concurrent callers: 
+ * concurrent invocations with the same arguments on a method that is not yet cached only
+ * results in a single remote invocation. Failed invocations are never cached. <p>
+ * 
+ * The size and time-to-live of the cache is configured per bean, see the nearCache settings in
+ * com.avanza.astrix.beans.core.AstrixBeanSettings. Cached results can be invalidated explicitly
+ * using com.avanza.astrix.beans.nearcache.NearCaches. <p>
+ * 
+ */
+@Target(value={ElementType.METHOD})
+@Retention(value=RetentionPolicy.RUNTIME)
+@Documented
+public @interface AstrixNearCached {
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Allows a broadcasted ({@link AstrixBroadcast}) or partitioned ({@link AstrixPartitionedRouting}) 
+ * service method to return a partial result. <p>
+ * 
+ * Each partition is given its own deadline. A partition that does not respond within the deadline,
+ * or that fails to respond due to a transport error, is passed to the {@link RemoteResultReducer}
+ * as an {@link AstrixRemoteResult#unavailable(String, CorrelationId)} result, i.e a result whose
+ * thrown exception is a {@link ServiceUnavailableException}. Hence the reducer decides how to handle
+ * missing partitions. Note that the default reducers rethrow the exception for a missing partition,
+ * and that missing partitions are ignored for void methods. <p>
+ * 
+ */
+@Target(value={ElementType.METHOD})
+@Retention(value=RetentionPolicy.RUNTIME)
+@Documented
+public @interface AstrixPartialResult {
+	
+	/**
+	 * The deadline, in milliseconds, for the response from each partition.
+	 */
+	long partitionTimeout();
+	
+}
@@ -22,17 +22,29 @@ import java.util.List;
 /**
  *
  */
-public class DefaultAstrixRemoteResultReducer<T> implements RemoteResultReducer<List<T>> {
+public class DefaultAstrixRemoteResultReducer<T> implements IncrementalRemoteResultReducer<List<T>> {
+	
+	private final List<T> result = new ArrayList<>();
 
 	@Override
 	public List<T> reduce(List<AstrixRemoteResult<List<T>>> results) {
-		List<T> result = new ArrayList<>();
+		DefaultAstrixRemoteResultReducer<T> reducer = new DefaultAstrixRemoteResultReducer<>();
 		for (AstrixRemoteResult<List<T>> remoteResult : results) {
-			Collection<T> r = remoteResult.getResult();
-			if (result != null) {
-				result.addAll(r);
-			}
+			reducer.accumulate(remoteResult);
 		}
+		return reducer.finish();
+	}
+	
+	@Override
+	public void accumulate(AstrixRemoteResult<List<T>> remoteResult) {
+		Collection<T> r = remoteResult.getResult();
+		if (r != null) {
+			result.addAll(r);
+		}
+	}
+	
+	@Override
+	public List<T> finish() {
 		return result;
 	}
 
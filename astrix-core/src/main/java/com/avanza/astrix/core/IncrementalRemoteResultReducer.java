@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.core;
+
+import java.util.List;
+
+/**
+ * A {@link RemoteResultReducer} that folds in the result from each partition as soon as 
+ * it is received, instead of waiting for the results from all partitions before reducing
+ * them. The response from each partition can therefore be garbage collected as soon as 
+ * it is folded in, which reduces the peak memory usage for broadcasted and partitioned
+ * service invocations with large results. <p>
+ * 
+ * A new reducer instance is created for each service invocation. {@link #accumulate(AstrixRemoteResult)} 
+ * is invoked once for the result from each partition, never concurrently, followed by a single 
+ * invocation of {@link #finish()}. <p>
+ * 
+ * @param <T>
+ */
+public interface IncrementalRemoteResultReducer<T> extends RemoteResultReducer<T> {
+	
+	/**
+	 * Folds the result from a single partition into this reducer.
+	 * 
+	 * @param result
+	 */
+	void accumulate(AstrixRemoteResult<T> result);
+	
+	/**
+	 * Returns the reduced result of all accumulated results.
+	 * 
+	 * @return
+	 */
+	T finish();
+	
+	@Override
+	default T reduce(List<AstrixRemoteResult<T>> results) {
+		for (AstrixRemoteResult<T> result : results) {
+			accumulate(result);
+		}
+		return finish();
+	}
+
+}
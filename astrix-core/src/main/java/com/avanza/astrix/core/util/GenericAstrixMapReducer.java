@@ -20,20 +20,32 @@ import java.util.List;
 import java.util.Map;
 
 import com.avanza.astrix.core.AstrixRemoteResult;
-import com.avanza.astrix.core.RemoteResultReducer;
+import com.avanza.astrix.core.IncrementalRemoteResultReducer;
 
 /**
  * Reduce {@link Map}s into one {@link Map} containing the union of all input data
  * @author joasah
  */
-public class GenericAstrixMapReducer<K, V> implements RemoteResultReducer<Map<K, V>> {
+public class GenericAstrixMapReducer<K, V> implements IncrementalRemoteResultReducer<Map<K, V>> {
+	
+	private final Map<K, V> map = new HashMap<K, V>();
 
 	@Override
 	public Map<K, V> reduce(List<AstrixRemoteResult<Map<K, V>>> results) {
-		Map<K, V> map = new HashMap<K, V>();
+		GenericAstrixMapReducer<K, V> reducer = new GenericAstrixMapReducer<>();
 		for (AstrixRemoteResult<Map<K, V>> result : results) {
-			map.putAll(result.getResult());
+			reducer.accumulate(result);
 		}
+		return reducer.finish();
+	}
+	
+	@Override
+	public void accumulate(AstrixRemoteResult<Map<K, V>> result) {
+		map.putAll(result.getResult());
+	}
+	
+	@Override
+	public Map<K, V> finish() {
 		return map;
 	}
 
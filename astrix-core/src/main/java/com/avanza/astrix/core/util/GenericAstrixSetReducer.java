@@ -20,20 +20,32 @@ import java.util.List;
 import java.util.Set;
 
 import com.avanza.astrix.core.AstrixRemoteResult;
-import com.avanza.astrix.core.RemoteResultReducer;
+import com.avanza.astrix.core.IncrementalRemoteResultReducer;
 
 /**
  * Reduce {@link Set}s into one {@link Set} containing the union of all unique input data.
  * 
  */
-public class GenericAstrixSetReducer<T> implements RemoteResultReducer<Set<T>> {
+public class GenericAstrixSetReducer<T> implements IncrementalRemoteResultReducer<Set<T>> {
+	
+	private final Set<T> set = new HashSet<>();
 
 	@Override
 	public Set<T> reduce(List<AstrixRemoteResult<Set<T>>> results) {
-		Set<T> set = new HashSet<>();
+		GenericAstrixSetReducer<T> reducer = new GenericAstrixSetReducer<>();
 		for (AstrixRemoteResult<Set<T>> result : results) {
-			set.addAll(result.getResult());
+			reducer.accumulate(result);
 		}
+		return reducer.finish();
+	}
+	
+	@Override
+	public void accumulate(AstrixRemoteResult<Set<T>> result) {
+		set.addAll(result.getResult());
+	}
+	
+	@Override
+	public Set<T> finish() {
 		return set;
 	}
 
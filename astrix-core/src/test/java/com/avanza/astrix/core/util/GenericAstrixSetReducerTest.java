@@ -56,6 +56,17 @@ public class GenericAstrixSetReducerTest {
         assertTrue(reduced.containsAll(third));
     }
 
+    @Test
+    public void accumulatesUniqueElements() {
+        reducer.accumulate(AstrixRemoteResult.successful(Collections.singleton("1")));
+        reducer.accumulate(AstrixRemoteResult.successful(Collections.singleton("1")));
+        reducer.accumulate(AstrixRemoteResult.successful(Collections.singleton("2")));
+
+        Set<String> reduced = reducer.finish();
+        assertThat(reduced.size(), is(2));
+        assertTrue(reduced.containsAll(Arrays.asList("1", "2")));
+    }
+
 	@Test(expected = MyRuntimeException.class)
 	public void exceptionIsRethrown() throws Exception {
 		reducer.reduce(Arrays.asList(
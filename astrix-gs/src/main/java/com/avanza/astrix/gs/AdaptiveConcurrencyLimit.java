@@ -0,0 +1,183 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.gs;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import com.avanza.astrix.config.DynamicIntProperty;
+
+/**
+ * Limits the number of in-flight task executions against a space, and adapts the limit
+ * to the measured round-trip time of the task executions. <p>
+ * 
+ * The limit follows a gradient between a long term and a short term exponentially weighted
+ * average of the round-trip time. As long as the short term average stays close to the long term
+ * average the limit grows by roughly the square root of the current limit for each sample, and 
+ * when the short term average increases (i.e. tasks starts queueing somewhere) the limit is 
+ * reduced proportionally. Failed task executions reduces the limit multiplicatively. The limit 
+ * is always kept within [minLimit, maxLimit]. <p>
+ * 
+ * Samples taken while less than half of the limit is used does not change the limit, since they 
+ * carry no information about how the space copes with the current limit. <p>
+ */
+final class AdaptiveConcurrencyLimit {
+	
+	private static final double SHORT_RTT_WEIGHT = 0.1;
+	private static final double LONG_RTT_WEIGHT = 0.01;
+	private static final double LIMIT_SMOOTHING = 0.2;
+	private static final double MIN_GRADIENT = 0.5;
+	private static final double DROP_BACKOFF_RATIO = 0.9;
+	
+	private final DynamicIntProperty minLimit;
+	private final DynamicIntProperty maxLimit;
+	private final LongSupplier nanoTime;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	// Written while holding the monitor of this instance, read without locking
+	private volatile double limit;
+	private volatile double shortRttNanos;
+	private volatile double longRttNanos;
+	
+	AdaptiveConcurrencyLimit(int initialLimit, DynamicIntProperty minLimit, DynamicIntProperty maxLimit) {
+		this(initialLimit, minLimit, maxLimit, System::nanoTime);
+	}
+	
+	AdaptiveConcurrencyLimit(int initialLimit, DynamicIntProperty minLimit, DynamicIntProperty maxLimit, LongSupplier nanoTime) {
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.nanoTime = nanoTime;
+		this.limit = bounded(initialLimit);
+	}
+	
+	/**
+	 * Reserves a slot for an in-flight task execution. 
+	 * 
+	 * @return a Permit that must be released when the task execution terminates, or null if the limit is reached
+	 */
+	Permit tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+			if (current >= getLimit()) {
+				return null;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return new Permit(current + 1, nanoTime.getAsLong());
+			}
+		}
+	}
+	
+	private synchronized void onSample(long rttNanos, int inFlightWhenAcquired) {
+		if (shortRttNanos == 0) {
+			shortRttNanos = rttNanos;
+			longRttNanos = rttNanos;
+		} else {
+			shortRttNanos += SHORT_RTT_WEIGHT * (rttNanos - shortRttNanos);
+			longRttNanos += LONG_RTT_WEIGHT * (rttNanos - longRttNanos);
+		}
+		if (longRttNanos > 2 * shortRttNanos) {
+			// Latency dropped significantly, let the long term average catch up faster
+			longRttNanos *= 0.95;
+		}
+		double currentLimit = limit;
+		if (inFlightWhenAcquired < currentLimit / 2) {
+			return;
+		}
+		double gradient = Math.max(MIN_GRADIENT, Math.min(1D, longRttNanos / shortRttNanos));
+		double newLimit = currentLimit * gradient + Math.sqrt(currentLimit);
+		limit = bounded(currentLimit * (1 - LIMIT_SMOOTHING) + newLimit * LIMIT_SMOOTHING);
+	}
+	
+	private synchronized void onDropped() {
+		limit = bounded(limit * DROP_BACKOFF_RATIO);
+	}
+	
+	private double bounded(double newLimit) {
+		return Math.min(maxLimit.get(), Math.max(minLimit.get(), newLimit));
+	}
+	
+	int getLimit() {
+		return (int) bounded(limit);
+	}
+	
+	int getInFlight() {
+		return inFlight.get();
+	}
+	
+	double getShortRtt() {
+		return toMillis(shortRttNanos);
+	}
+	
+	double getLongRtt() {
+		return toMillis(longRttNanos);
+	}
+	
+	private static double toMillis(double nanos) {
+		return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+	
+	/**
+	 * A reserved slot for an in-flight task execution. Only the first call to 
+	 * any of the methods releasing the permit has any effect.
+	 */
+	final class Permit {
+		
+		private final AtomicBoolean released = new AtomicBoolean();
+		private final int inFlightWhenAcquired;
+		private final long acquiredAt;
+		
+		private Permit(int inFlightWhenAcquired, long acquiredAt) {
+			this.inFlightWhenAcquired = inFlightWhenAcquired;
+			this.acquiredAt = acquiredAt;
+		}
+		
+		/**
+		 * Releases the permit and uses the round-trip time of the task execution to update the limit.
+		 */
+		void success() {
+			if (release()) {
+				onSample(nanoTime.getAsLong() - acquiredAt, inFlightWhenAcquired);
+			}
+		}
+		
+		/**
+		 * Releases the permit and reduces the limit.
+		 */
+		void dropped() {
+			if (release()) {
+				onDropped();
+			}
+		}
+		
+		/**
+		 * Releases the permit without updating the limit. Used when the task execution is rejected
+		 * locally, since the queue is full, and never reached the space.
+		 */
+		void ignore() {
+			release();
+		}
+		
+		private boolean release() {
+			if (released.compareAndSet(false, true)) {
+				inFlight.decrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	}
+
+}
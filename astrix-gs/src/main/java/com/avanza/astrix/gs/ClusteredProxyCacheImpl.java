@@ -15,6 +15,8 @@
  */
 package com.avanza.astrix.gs;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -30,25 +32,52 @@ import org.slf4j.LoggerFactory;
 
 import com.avanza.astrix.beans.core.AstrixConfigAware;
 import com.avanza.astrix.beans.service.ServiceProperties;
+import com.avanza.astrix.config.BooleanSetting;
 import com.avanza.astrix.config.DynamicConfig;
+import com.avanza.astrix.config.IntSetting;
+import com.avanza.astrix.context.mbeans.MBeanExporter;
 import com.avanza.astrix.modules.KeyLock;
 import com.avanza.astrix.modules.ObjectCache;
 import com.avanza.astrix.modules.ObjectCache.ObjectFactory;
 import com.j_spaces.core.IJSpace;
 /**
- * Manages lifecycle for each clustered-proxy created by Astrix.
+ * Manages lifecycle for each clustered-proxy created by Astrix. <p>
+ * 
+ * The readiness of the proxy against each space is exported as a ClusteredProxyStatusMBean. The time
+ * spent looking up a space can be bounded using astrix.gs.clusteredProxy.lookupTimeout, see {@link #LOOKUP_TIMEOUT},
+ * and the {@link SpaceTaskDispatcher} associated with each proxy is created (and its threads started) together 
+ * with the proxy unless astrix.gs.clusteredProxy.eagerSpaceTaskDispatcher is disabled. <p>
  *  
  * @author Elias Lindholm (elilin)
  *
  */
 public class ClusteredProxyCacheImpl implements AstrixConfigAware, ClusteredProxyCache {
 
+	/**
+	 * Bounds the time, in milliseconds, spent looking up the space each time a clustered proxy is created.
+	 * Note that this is not a budget for the startup as a whole. It applies to every proxy creation,
+	 * at startup as well as when a proxy is created again after being destroyed, for instance when a
+	 * bean is rebound. A value of zero or less uses the default lookup timeout of GigaSpaces.
+	 */
+	public static final IntSetting LOOKUP_TIMEOUT = IntSetting.create("astrix.gs.clusteredProxy.lookupTimeout", 0);
+	public static final BooleanSetting EAGER_SPACE_TASK_DISPATCHER = BooleanSetting.create("astrix.gs.clusteredProxy.eagerSpaceTaskDispatcher", true);
 	
 	private static final Logger log = LoggerFactory.getLogger(ClusteredProxyCacheImpl.class);
 	private final ObjectCache objectCache = new ObjectCache();
 	private final KeyLock<String> proxyByUrlLock = new KeyLock<>();
+	/*
+	 * The monitors outlive the clustered proxies, since a proxy against a given space
+	 * might be destroyed and created again while the mbean stays registered.
+	 */
+	private final ConcurrentMap<String, SpaceTaskDispatcherMonitor> spaceTaskDispatcherMonitorBySpaceName = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, ClusteredProxyStatus> proxyStatusBySpaceName = new ConcurrentHashMap<>();
+	private final MBeanExporter mbeanExporter;
 	private DynamicConfig config;
 	
+	public ClusteredProxyCacheImpl(MBeanExporter mbeanExporter) {
+		this.mbeanExporter = mbeanExporter;
+	}
+	
 	/**
 	 * Retreives a given proxy from the cache and creates the proxy if it does not exits.
 	 * 
@@ -63,13 +92,14 @@ public class ClusteredProxyCacheImpl implements AstrixConfigAware, ClusteredProx
 	@Override
 	public GigaSpaceInstance getProxy(final ServiceProperties serviceProperties) {
 		final String spaceUrl = serviceProperties.getProperty(GsBinder.SPACE_URL_PROPERTY);
+		final String spaceName = serviceProperties.getProperty(GsBinder.SPACE_NAME_PROPERTY);
 		proxyByUrlLock.lock(spaceUrl);
 		try {
 			GigaSpaceInstance spaceInstance = objectCache.getInstance(spaceUrl, new ObjectFactory<GigaSpaceInstance>() {
 				@Override
 				public GigaSpaceInstance create() throws Exception {
 					log.info("Creating clustered proxy against: " + spaceUrl);
-					return new GigaSpaceInstance(spaceUrl, config);
+					return new GigaSpaceInstance(spaceUrl, getProxyStatus(spaceName), config);
 				}
 			});
 			spaceInstance.incConsumerCount();
@@ -94,13 +124,36 @@ public class ClusteredProxyCacheImpl implements AstrixConfigAware, ClusteredProx
 		private volatile SpaceTaskDispatcher spaceTaskDispatcher;
 		private final Lock spaceTaskDispatcherStateLock = new ReentrantLock();
 		private final DynamicConfig config;
+		private final ClusteredProxyStatus status;
 		
-		public GigaSpaceInstance(String spaceUrl, DynamicConfig dynamicConfig) {
+		public GigaSpaceInstance(String spaceUrl, ClusteredProxyStatus status, DynamicConfig dynamicConfig) {
 			this.spaceUrl = spaceUrl;
+			this.status = status;
 			this.config = dynamicConfig;
-			this.urlSpaceConfigurer = new UrlSpaceConfigurer(spaceUrl);
-			IJSpace space = urlSpaceConfigurer.create();
-			this.proxy = new GigaSpaceConfigurer(space).create();
+			long creationStart = System.nanoTime();
+			UrlSpaceConfigurer urlSpaceConfigurer = new UrlSpaceConfigurer(spaceUrl);
+			try {
+				int lookupTimeout = LOOKUP_TIMEOUT.getFrom(config).get();
+				if (lookupTimeout > 0) {
+					urlSpaceConfigurer.lookupTimeout(lookupTimeout);
+				}
+				IJSpace space = urlSpaceConfigurer.create();
+				this.proxy = new GigaSpaceConfigurer(space).create();
+			} catch (RuntimeException e) {
+				status.creationFailed(spaceUrl, System.nanoTime() - creationStart);
+				try {
+					urlSpaceConfigurer.close();
+				} catch (Exception closeFailure) {
+					e.addSuppressed(closeFailure);
+				}
+				throw e;
+			}
+			this.urlSpaceConfigurer = urlSpaceConfigurer;
+			if (EAGER_SPACE_TASK_DISPATCHER.getFrom(config).get()) {
+				getSpaceTaskDispatcher();
+			}
+			status.created(spaceUrl, System.nanoTime() - creationStart);
+			log.info(String.format("Created clustered proxy against: %s creationTime=%sms", spaceUrl, status.getCreationTime()));
 		}
 
 		public void incConsumerCount() {
@@ -115,7 +168,7 @@ public class ClusteredProxyCacheImpl implements AstrixConfigAware, ClusteredProx
 			spaceTaskDispatcherStateLock.lock();
 			try {
 				if (spaceTaskDispatcher == null) {
-					this.spaceTaskDispatcher = new SpaceTaskDispatcher(proxy, config); 
+					this.spaceTaskDispatcher = new SpaceTaskDispatcher(proxy, config, getSpaceTaskDispatcherMonitor(proxy.getName()));
 				}
 				return spaceTaskDispatcher;
 			} finally {
@@ -139,6 +192,7 @@ public class ClusteredProxyCacheImpl implements AstrixConfigAware, ClusteredProx
 		@PreDestroy
 		public void destroy() throws Exception {
 			log.info("Destroying clustered proxy against: " + spaceUrl);
+			this.status.destroyed();
 			if (this.spaceTaskDispatcher != null) {
 				this.spaceTaskDispatcher.destroy();
 			}
@@ -146,6 +200,22 @@ public class ClusteredProxyCacheImpl implements AstrixConfigAware, ClusteredProx
 		}
 	}
 
+	private SpaceTaskDispatcherMonitor getSpaceTaskDispatcherMonitor(String spaceName) {
+		return spaceTaskDispatcherMonitorBySpaceName.computeIfAbsent(spaceName, name -> {
+			SpaceTaskDispatcherMonitor monitor = new SpaceTaskDispatcherMonitor();
+			mbeanExporter.registerMBean(monitor, "SpaceTaskDispatcher", name);
+			return monitor;
+		});
+	}
+
+	private ClusteredProxyStatus getProxyStatus(String spaceName) {
+		return proxyStatusBySpaceName.computeIfAbsent(spaceName, name -> {
+			ClusteredProxyStatus status = new ClusteredProxyStatus();
+			mbeanExporter.registerMBean(status, "ClusteredProxies", name);
+			return status;
+		});
+	}
+
 	@Override
 	public void setConfig(DynamicConfig config) {
 		this.config = config;
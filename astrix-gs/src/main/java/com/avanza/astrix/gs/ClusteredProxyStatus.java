@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.gs;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Readiness of the clustered proxy against a given space, see {@link ClusteredProxyCacheImpl}. <p>
+ */
+final class ClusteredProxyStatus implements ClusteredProxyStatusMBean {
+	
+	private volatile boolean ready;
+	private volatile String spaceUrl;
+	private volatile long creationTimeNanos;
+	private final AtomicLong creationFailureCount = new AtomicLong();
+	
+	void created(String spaceUrl, long creationTimeNanos) {
+		this.spaceUrl = spaceUrl;
+		this.creationTimeNanos = creationTimeNanos;
+		this.ready = true;
+	}
+	
+	void creationFailed(String spaceUrl, long creationTimeNanos) {
+		this.spaceUrl = spaceUrl;
+		this.creationTimeNanos = creationTimeNanos;
+		this.ready = false;
+		this.creationFailureCount.incrementAndGet();
+	}
+	
+	void destroyed() {
+		this.ready = false;
+	}
+
+	@Override
+	public boolean isReady() {
+		return ready;
+	}
+
+	@Override
+	public String getSpaceUrl() {
+		return spaceUrl;
+	}
+
+	@Override
+	public long getCreationTime() {
+		return TimeUnit.NANOSECONDS.toMillis(creationTimeNanos);
+	}
+
+	@Override
+	public long getCreationFailureCount() {
+		return creationFailureCount.get();
+	}
+
+}
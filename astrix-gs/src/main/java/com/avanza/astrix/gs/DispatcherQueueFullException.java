@@ -0,0 +1,31 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.gs;
+
+import com.avanza.astrix.core.ServiceUnavailableException;
+/**
+ * Thrown when a task execution is rejected since the queue of 
+ * the {@link SpaceTaskDispatcher} is full. 
+ * 
+ * The task execution never reached the space when this exception
+ * is thrown.
+ */
+final class DispatcherQueueFullException extends ServiceUnavailableException {
+	private static final long serialVersionUID = 1L;
+	public DispatcherQueueFullException(String msg) {
+		super(msg);
+	}
+}
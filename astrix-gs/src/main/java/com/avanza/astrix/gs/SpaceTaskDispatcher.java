@@ -29,6 +29,7 @@ import org.openspaces.core.executor.Task;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.avanza.astrix.config.DynamicBooleanProperty;
 import com.avanza.astrix.config.DynamicConfig;
 import com.avanza.astrix.config.DynamicIntProperty;
 import com.avanza.astrix.core.ServiceUnavailableException;
@@ -55,26 +56,59 @@ public final class SpaceTaskDispatcher {
 	 * resources are available to process the request. In order to ensure a non-blocking programming model
 	 * we associate each clustered proxy with a dedicated thread pool to submit task executions, which ensures
 	 * that a service invocation will never block, see com.avanza.astrix.gs.remoting.GsRemotingTransport
+	 * 
+	 * The number of tasks waiting for the thread pool is bounded by spaceTaskDispatcher.maxQueueSize, tasks
+	 * submitted when the queue is full are rejected with a ServiceUnavailableException rather than adding to 
+	 * the queueing latency. Setting spaceTaskDispatcher.directSubmit bypasses the thread pool altogether and 
+	 * submits each task on the subscribing thread, which avoids the handoff at the risk of blocking the subscriber 
+	 * in the conditions described above.
+	 * 
+	 * When spaceTaskDispatcher.adaptiveLimit.enabled is set the number of in-flight task executions (queued
+	 * or waiting for a result from the space) is bounded by an AdaptiveConcurrencyLimit. The limit adapts to the 
+	 * measured round-trip time of the task executions within the bounds given by spaceTaskDispatcher.adaptiveLimit.minLimit 
+	 * and spaceTaskDispatcher.adaptiveLimit.maxLimit. Tasks exceeding the limit are rejected with a ServiceUnavailableException. 
+	 * Task executions that fail, or that are unsubscribed from before they terminate (i.e. times out), reduces the limit. 
+	 * Tasks rejected because the queue is full never reach the space and does not affect the limit.
 	 */
 	
 	private static final Logger log = LoggerFactory.getLogger(SpaceTaskDispatcher.class);
 	private final GigaSpace gigaSpace;
 	private final ThreadPoolExecutor executorService;
+	private final DynamicBooleanProperty directSubmit;
+	private final DynamicIntProperty maxQueueSize;
+	private final SpaceTaskDispatcherMonitor monitor;
+	private final DynamicBooleanProperty adaptiveLimitEnabled;
+	private final AdaptiveConcurrencyLimit concurrencyLimit;
 
 	public SpaceTaskDispatcher(GigaSpace gigaSpace, DynamicConfig config) {
+		this(gigaSpace, config, new SpaceTaskDispatcherMonitor());
+	}
+	
+	SpaceTaskDispatcher(GigaSpace gigaSpace, DynamicConfig config, SpaceTaskDispatcherMonitor monitor) {
 		this.gigaSpace = gigaSpace;
+		this.monitor = monitor;
 		/* 
 		 * TODO 
 		 * 	(1) Improve configuration mechanism used to configure thread pool. 
 		 */
 		String spaceInstanceName = gigaSpace.getName();
-		DynamicIntProperty poolSize = config.getIntProperty("astrix.beans.gigaspace." + spaceInstanceName + ".spaceTaskDispatcher.poolsize", 10);
+		String settingsPrefix = "astrix.beans.gigaspace." + spaceInstanceName + ".spaceTaskDispatcher.";
+		DynamicIntProperty poolSize = config.getIntProperty(settingsPrefix + "poolsize", 10);
+		this.maxQueueSize = config.getIntProperty(settingsPrefix + "maxQueueSize", 1000);
+		this.directSubmit = config.getBooleanProperty(settingsPrefix + "directSubmit", false);
+		this.adaptiveLimitEnabled = config.getBooleanProperty(settingsPrefix + "adaptiveLimit.enabled", false);
+		this.concurrencyLimit = new AdaptiveConcurrencyLimit(config.getIntProperty(settingsPrefix + "adaptiveLimit.initialLimit", 50).get(),
+															 config.getIntProperty(settingsPrefix + "adaptiveLimit.minLimit", 10), 
+															 config.getIntProperty(settingsPrefix + "adaptiveLimit.maxLimit", 500));
+		this.monitor.setConcurrencyLimit(concurrencyLimit);
 		this.executorService = new ThreadPoolExecutor(poolSize.get(), 
 											 poolSize.get(), 
 											 0, 
 											 TimeUnit.SECONDS,
 											 new LinkedBlockingQueue<Runnable>(),
 											 new NamedThreadFactory(String.format("SpaceTaskDispatcher[%s]", spaceInstanceName)));
+		// Avoid paying for thread creation on the first task executions
+		this.executorService.prestartAllCoreThreads();
 		poolSize.addListener(newValue -> {
 			log.info(String.format("Changing pool-size for SpaceTaskDistpatcher. space=%s newSize=%s, oldSize=%s", 
 									SpaceTaskDispatcher.this.gigaSpace.getName(), 
@@ -105,14 +139,11 @@ public final class SpaceTaskDispatcher {
 	 * @return
 	 */
 	public <T extends Serializable> Observable<T> observe(final Task<T> task, final Object routingKey) {
-		return Observable.create(subscriber -> {
+		return limited(Observable.create(subscriber -> {
 			usingErrorReporter(subscriber, serviceUnavailable()).accept(() -> {
-				// Use ExecutorService to ensure non-blocking programming model when subscribing to remote task invocation
-				executorService.execute(() -> {
-					submitRoutedTaskExecution(subscriber, task, routingKey);
-				});
+				dispatch(subscriber, () -> submitRoutedTaskExecution(subscriber, task, routingKey));
 			});
-		});
+		}));
 	}
 
 	private <T extends Serializable> void submitRoutedTaskExecution(Subscriber<? super T> subscriber, final Task<T> task, final Object routingKey) {
@@ -132,15 +163,67 @@ public final class SpaceTaskDispatcher {
 	 * @return
 	 */
 	public <T extends Serializable, R> Observable<R> observe(final DistributedTask<T, R> distributedTask) {
-		return Observable.create(t1 -> {
+		return limited(Observable.create(t1 -> {
 			usingErrorReporter(t1, serviceUnavailable()).accept(() -> {
-				executorService.execute(() -> {
-					submitDistributedTaskExecution(distributedTask, t1);
-				});
+				dispatch(t1, () -> submitDistributedTaskExecution(distributedTask, t1));
 			});
+		}));
+	}
+	
+	private <T> Observable<T> limited(Observable<T> taskExecution) {
+		return Observable.defer(() -> {
+			if (!adaptiveLimitEnabled.get()) {
+				return taskExecution;
+			}
+			AdaptiveConcurrencyLimit.Permit permit = concurrencyLimit.tryAcquire();
+			if (permit == null) {
+				monitor.recordRejected();
+				return Observable.error(new ServiceUnavailableException(String.format("SpaceTaskDispatcher concurrency limit reached. space=%s limit=%s", 
+																					  gigaSpace.getName(), concurrencyLimit.getLimit())));
+			}
+			return releasing(permit, taskExecution);
 		});
 	}
 	
+	static <T> Observable<T> releasing(AdaptiveConcurrencyLimit.Permit permit, Observable<T> taskExecution) {
+		return taskExecution.doOnCompleted(permit::success)
+							.doOnError(e -> {
+								if (e instanceof DispatcherQueueFullException) {
+									// Rejected locally, carries no information about how the space copes with the limit
+									permit.ignore();
+								} else {
+									permit.dropped();
+								}
+							})
+							// Unsubscribing before the task execution terminates means that the subscriber timed out
+							.doOnUnsubscribe(permit::dropped);
+	}
+	
+	private void dispatch(Subscriber<?> subscriber, Runnable taskSubmission) {
+		if (directSubmit.get()) {
+			monitor.recordDispatch(0);
+			taskSubmission.run();
+			return;
+		}
+		long subscribedAt = System.nanoTime();
+		if (!monitor.tryEnqueue(maxQueueSize.get())) {
+			subscriber.onError(new DispatcherQueueFullException(String.format("SpaceTaskDispatcher queue is full. space=%s maxQueueSize=%s", 
+																			  gigaSpace.getName(), maxQueueSize.get())));
+			return;
+		}
+		try {
+			// Use ExecutorService to ensure non-blocking programming model when subscribing to remote task invocation
+			executorService.execute(() -> {
+				monitor.dequeued();
+				monitor.recordDispatch(System.nanoTime() - subscribedAt);
+				taskSubmission.run();
+			});
+		} catch (RuntimeException e) {
+			monitor.dequeued();
+			throw e;
+		}
+	}
+	
 	private <R, T extends Serializable> void submitDistributedTaskExecution(final DistributedTask<T, R> distributedTask, Subscriber<? super R> t1) {
 		usingErrorReporter(t1, serviceUnavailable()).accept(() -> {
 			// Submit task on current thread in executorService
@@ -179,4 +262,8 @@ public final class SpaceTaskDispatcher {
 	public String getSpaceName() {
 		return gigaSpace.getName();
 	}
+	
+	public SpaceTaskDispatcherMonitorMBean getMonitor() {
+		return monitor;
+	}
 }
\ No newline at end of file
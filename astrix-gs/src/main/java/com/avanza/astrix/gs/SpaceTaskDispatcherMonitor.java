@@ -0,0 +1,133 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.gs;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queue depth and dispatch latency for the {@link SpaceTaskDispatcher} associated with a given space. <p>
+ * 
+ * The queue depth is also used for admission control, see {@link #tryEnqueue(int)}. <p>
+ */
+final class SpaceTaskDispatcherMonitor implements SpaceTaskDispatcherMonitorMBean {
+	
+	private final AtomicInteger queueDepth = new AtomicInteger();
+	private final AtomicLong dispatchedCount = new AtomicLong();
+	private final AtomicLong rejectedCount = new AtomicLong();
+	private final AtomicLong totalDispatchLatencyNanos = new AtomicLong();
+	private final AtomicLong maxDispatchLatencyNanos = new AtomicLong();
+	private volatile AdaptiveConcurrencyLimit concurrencyLimit;
+	
+	/**
+	 * Reserves a slot in the dispatch queue.
+	 * 
+	 * @return false if the queue already holds maxQueueSize tasks, in which case the task is rejected
+	 */
+	boolean tryEnqueue(int maxQueueSize) {
+		while (true) {
+			int current = queueDepth.get();
+			if (current >= maxQueueSize) {
+				rejectedCount.incrementAndGet();
+				return false;
+			}
+			if (queueDepth.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+	
+	/**
+	 * Records a task that was rejected by the adaptive concurrency limit.
+	 */
+	void recordRejected() {
+		rejectedCount.incrementAndGet();
+	}
+	
+	/**
+	 * Sets the concurrency limit reported by this monitor, the limit is replaced
+	 * when the SpaceTaskDispatcher for the given space is recreated.
+	 */
+	void setConcurrencyLimit(AdaptiveConcurrencyLimit concurrencyLimit) {
+		this.concurrencyLimit = concurrencyLimit;
+	}
+	
+	void dequeued() {
+		queueDepth.decrementAndGet();
+	}
+	
+	void recordDispatch(long latencyNanos) {
+		dispatchedCount.incrementAndGet();
+		totalDispatchLatencyNanos.addAndGet(latencyNanos);
+		maxDispatchLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+	}
+
+	@Override
+	public int getQueueDepth() {
+		return queueDepth.get();
+	}
+
+	@Override
+	public long getDispatchedCount() {
+		return dispatchedCount.get();
+	}
+
+	@Override
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	@Override
+	public double getMeanDispatchLatency() {
+		long count = dispatchedCount.get();
+		return count == 0 ? 0D : toMillis(totalDispatchLatencyNanos.get()) / count;
+	}
+
+	@Override
+	public double getMaxDispatchLatency() {
+		return toMillis(maxDispatchLatencyNanos.get());
+	}
+	
+	@Override
+	public int getConcurrencyLimit() {
+		AdaptiveConcurrencyLimit current = concurrencyLimit;
+		return current != null ? current.getLimit() : 0;
+	}
+	
+	@Override
+	public int getInFlightCount() {
+		AdaptiveConcurrencyLimit current = concurrencyLimit;
+		return current != null ? current.getInFlight() : 0;
+	}
+	
+	@Override
+	public double getShortTermRtt() {
+		AdaptiveConcurrencyLimit current = concurrencyLimit;
+		return current != null ? current.getShortRtt() : 0D;
+	}
+	
+	@Override
+	public double getLongTermRtt() {
+		AdaptiveConcurrencyLimit current = concurrencyLimit;
+		return current != null ? current.getLongRtt() : 0D;
+	}
+	
+	private static double toMillis(long nanos) {
+		return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+}
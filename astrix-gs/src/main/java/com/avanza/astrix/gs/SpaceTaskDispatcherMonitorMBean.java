@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.gs;
+
+public interface SpaceTaskDispatcherMonitorMBean {
+	
+	int getQueueDepth();
+	
+	long getDispatchedCount();
+	
+	long getRejectedCount();
+	
+	/**
+	 * @return mean time, in milliseconds, a task execution waits in the dispatch queue before it is submitted to the space
+	 */
+	double getMeanDispatchLatency();
+	
+	/**
+	 * @return max time, in milliseconds, a task execution waits in the dispatch queue before it is submitted to the space
+	 */
+	double getMaxDispatchLatency();
+	
+	/**
+	 * @return the current limit of in-flight task executions, or 0 if the adaptive concurrency limit is not used
+	 */
+	int getConcurrencyLimit();
+	
+	/**
+	 * @return the number of task executions holding a slot in the adaptive concurrency limit
+	 */
+	int getInFlightCount();
+	
+	/**
+	 * @return short term average round-trip time, in milliseconds, for task executions using the adaptive concurrency limit
+	 */
+	double getShortTermRtt();
+	
+	/**
+	 * @return long term average round-trip time, in milliseconds, for task executions using the adaptive concurrency limit
+	 */
+	double getLongTermRtt();
+
+}
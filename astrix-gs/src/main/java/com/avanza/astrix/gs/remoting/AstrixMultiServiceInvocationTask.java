@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.gs.remoting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.Resource;
+
+import org.openspaces.core.executor.AutowireTask;
+import org.openspaces.core.executor.Task;
+
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
+import com.avanza.astrix.remoting.server.AstrixServiceActivator;
+import com.avanza.astrix.spring.AstrixSpringContext;
+/**
+ * Carries several AstrixServiceInvocationRequest's targeting the same partition from client
+ * to server in a single task execution. The requests are invoked one at a time on the
+ * server side and the responses are returned in the same order as the requests. <p>
+ * 
+ * Each invocation is performed through the {@link AstrixServiceActivator}, hence a failing invocation
+ * is reported in its corresponding response and does not affect the other invocations. <p>
+ */
+@AutowireTask
+public class AstrixMultiServiceInvocationTask implements Task<ArrayList<AstrixServiceInvocationResponse>> {
+
+	private static final long serialVersionUID = 1L;
+
+	@Resource
+	private transient AstrixSpringContext astrixSpringContext;
+	private final List<AstrixServiceInvocationRequest> invocationRequests;
+	
+	public AstrixMultiServiceInvocationTask(List<AstrixServiceInvocationRequest> invocationRequests) {
+		this.invocationRequests = new ArrayList<>(Objects.requireNonNull(invocationRequests));
+	}
+
+	@Override
+	public ArrayList<AstrixServiceInvocationResponse> execute() throws Exception {
+		AstrixServiceActivator serviceActivator = astrixSpringContext.getInstance(AstrixServiceActivator.class);
+		ArrayList<AstrixServiceInvocationResponse> responses = new ArrayList<>(invocationRequests.size());
+		for (AstrixServiceInvocationRequest invocationRequest : invocationRequests) {
+			responses.add(serviceActivator.invokeService(invocationRequest));
+		}
+		return responses;
+	}
+
+}
@@ -17,17 +17,21 @@ package com.avanza.astrix.gs.remoting;
 
 import org.openspaces.core.GigaSpace;
 
+import com.avanza.astrix.beans.config.AstrixConfig;
 import com.avanza.astrix.beans.core.ReactiveTypeConverter;
 import com.avanza.astrix.beans.service.BoundServiceBeanInstance;
 import com.avanza.astrix.beans.service.ServiceComponent;
 import com.avanza.astrix.beans.service.ServiceDefinition;
 import com.avanza.astrix.beans.service.ServiceProperties;
+import com.avanza.astrix.config.DynamicBooleanProperty;
+import com.avanza.astrix.context.mbeans.MBeanExporter;
 import com.avanza.astrix.core.util.ReflectionUtil;
 import com.avanza.astrix.gs.BoundProxyServiceBeanInstance;
 import com.avanza.astrix.gs.ClusteredProxyCache;
 import com.avanza.astrix.gs.ClusteredProxyCacheImpl.GigaSpaceInstance;
 import com.avanza.astrix.gs.GsBinder;
 import com.avanza.astrix.provider.component.AstrixServiceComponentNames;
+import com.avanza.astrix.remoting.client.PartitionMarshaller;
 import com.avanza.astrix.remoting.client.RemotingProxy;
 import com.avanza.astrix.remoting.client.RemotingTransport;
 import com.avanza.astrix.remoting.server.AstrixServiceActivator;
@@ -48,16 +52,23 @@ public class GsRemotingComponent implements ServiceComponent {
 	private final ObjectSerializerFactory objectSerializerFactory;
 	private final ClusteredProxyCache proxyCache;
 	private final ReactiveTypeConverter reactiveTypeConverter;
+	private final PartitionMarshaller partitionMarshaller;
+	private final MBeanExporter mbeanExporter;
+	private final DynamicBooleanProperty packRoutedRequests;
 	
 	public GsRemotingComponent(GsBinder gsBinder, AstrixSpringContext astrixSpringContext,
 			AstrixServiceActivator serviceActivator, ObjectSerializerFactory objectSerializerFactory,
-			ClusteredProxyCache proxyCache, ReactiveTypeConverter reactiveTypeConverter) {
+			ClusteredProxyCache proxyCache, ReactiveTypeConverter reactiveTypeConverter, PartitionMarshaller partitionMarshaller,
+			MBeanExporter mbeanExporter, AstrixConfig config) {
 		this.gsBinder = gsBinder;
 		this.astrixSpringContext = astrixSpringContext;
 		this.serviceActivator = serviceActivator;
 		this.objectSerializerFactory = objectSerializerFactory;
 		this.proxyCache = proxyCache;
 		this.reactiveTypeConverter = reactiveTypeConverter;
+		this.partitionMarshaller = partitionMarshaller;
+		this.mbeanExporter = mbeanExporter;
+		this.packRoutedRequests = config.get(GsRemotingTransport.PACK_ROUTED_REQUESTS);
 	}
 
 	@Override
@@ -65,10 +76,10 @@ public class GsRemotingComponent implements ServiceComponent {
 		AstrixObjectSerializer objectSerializer = objectSerializerFactory.create(serviceDefinition.getObjectSerializerDefinition());
 		
 		GigaSpaceInstance proxyInstance = proxyCache.getProxy(serviceProperties);
-		GsRemotingTransport gsRemotingTransport = new GsRemotingTransport(proxyInstance.getSpaceTaskDispatcher());
+		GsRemotingTransport gsRemotingTransport = new GsRemotingTransport(proxyInstance.getSpaceTaskDispatcher(), packRoutedRequests);
 		RemotingTransport remotingTransport = RemotingTransport.create(gsRemotingTransport);
 		T proxy = RemotingProxy.create(serviceDefinition.getServiceType(), ReflectionUtil.classForName(serviceProperties.getProperty(ServiceProperties.API))
-				, remotingTransport, objectSerializer, new GsRoutingStrategy(), reactiveTypeConverter);
+				, remotingTransport, objectSerializer, new GsRoutingStrategy(), reactiveTypeConverter, partitionMarshaller, mbeanExporter);
 		return BoundProxyServiceBeanInstance.create(proxy, proxyInstance);
 	}
 	
@@ -15,10 +15,15 @@
  */
 package com.avanza.astrix.gs.remoting;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import com.avanza.astrix.config.BooleanSetting;
+import com.avanza.astrix.config.DynamicBooleanProperty;
 import com.avanza.astrix.core.remoting.RoutingKey;
 import com.avanza.astrix.gs.SpaceTaskDispatcher;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
@@ -33,15 +38,26 @@ import rx.functions.Func1;
 /**
  * RemotingTransport implementation based on GigaSpaces task execution. <p> 
  * 
+ * When {@link #PACK_ROUTED_REQUESTS} is enabled, routed requests that are submitted together and 
+ * target the same partition are packed into a single {@link AstrixMultiServiceInvocationTask}. 
+ * The task type is executed by the server, hence packing must only be enabled by consumers once 
+ * all processing units providing the consumed services are upgraded to a version that contains 
+ * {@link AstrixMultiServiceInvocationTask}. Servers do not require any configuration, and the setting 
+ * can be turned off again at any time, for instance before rolling back a server. <p>
+ * 
  * @author Elias Lindholm
  *
  */
 public class GsRemotingTransport implements RemotingTransportSpi {
+	
+	public static final BooleanSetting PACK_ROUTED_REQUESTS = BooleanSetting.create("astrix.gs.remoting.packRoutedRequests", false);
 
 	private final SpaceTaskDispatcher spaceTaskDispatcher;
+	private final DynamicBooleanProperty packRoutedRequests;
 	
-	public GsRemotingTransport(SpaceTaskDispatcher spaceTaskDispatcher) {
+	public GsRemotingTransport(SpaceTaskDispatcher spaceTaskDispatcher, DynamicBooleanProperty packRoutedRequests) {
 		this.spaceTaskDispatcher = spaceTaskDispatcher;
+		this.packRoutedRequests = packRoutedRequests;
 	}
 	
 	@Override
@@ -54,6 +70,11 @@ public class GsRemotingTransport implements RemotingTransportSpi {
 		if (requests.isEmpty()) {
 			return Observable.just(Collections.<AstrixServiceInvocationResponse>emptyList());
 		}
+		return observeRoutedReqeuests(requests).toList();
+	}
+	
+	@Override
+	public Observable<AstrixServiceInvocationResponse> streamRoutedRequests(Collection<RoutedServiceInvocationRequest> requests) {
 		return observeRoutedReqeuests(requests);
 	}
 	
@@ -67,12 +88,41 @@ public class GsRemotingTransport implements RemotingTransportSpi {
 		return spaceTaskDispatcher.observe(new AstrixServiceInvocationTask(request), routingKey);
 	}
 	
-	private Observable<List<AstrixServiceInvocationResponse>> observeRoutedReqeuests(Collection<RoutedServiceInvocationRequest> requests) {
-		Observable<AstrixServiceInvocationResponse> result = Observable.empty();
+	private Observable<AstrixServiceInvocationResponse> observeRoutedReqeuests(Collection<RoutedServiceInvocationRequest> requests) {
+		if (requests.size() == 1) {
+			RoutedServiceInvocationRequest request = requests.iterator().next();
+			return observeRoutedRequest(request.getRequest(), request.getRoutingkey());
+		}
+		if (!packRoutedRequests.get()) {
+			List<Observable<AstrixServiceInvocationResponse>> responses = new ArrayList<>(requests.size());
+			for (RoutedServiceInvocationRequest request : requests) {
+				responses.add(observeRoutedRequest(request.getRequest(), request.getRoutingkey()));
+			}
+			return Observable.merge(responses);
+		}
+		/*
+		 * Requests targeting the same partition are packed into one task to
+		 * avoid paying a task round-trip for each request.
+		 */
+		int partitionCount = partitionCount();
+		Map<Integer, List<AstrixServiceInvocationRequest>> requestsByPartition = new HashMap<>();
 		for (RoutedServiceInvocationRequest request : requests) {
-			result = result.mergeWith(spaceTaskDispatcher.observe(new AstrixServiceInvocationTask(request.getRequest()), request.getRoutingkey()));
+			int partition = request.getRoutingkey().hashCode() % partitionCount;
+			requestsByPartition.computeIfAbsent(partition, p -> new ArrayList<>()).add(request.getRequest());
+		}
+		List<Observable<AstrixServiceInvocationResponse>> partitionResponses = new ArrayList<>(requestsByPartition.size());
+		for (Map.Entry<Integer, List<AstrixServiceInvocationRequest>> partitionRequests : requestsByPartition.entrySet()) {
+			partitionResponses.add(observePartitionRequests(partitionRequests.getValue(), RoutingKey.create(partitionRequests.getKey())));
+		}
+		return Observable.merge(partitionResponses);
+	}
+	
+	private Observable<AstrixServiceInvocationResponse> observePartitionRequests(List<AstrixServiceInvocationRequest> requests, RoutingKey routingKey) {
+		if (requests.size() == 1) {
+			return observeRoutedRequest(requests.get(0), routingKey);
 		}
-		return result.toList();
+		return spaceTaskDispatcher.observe(new AstrixMultiServiceInvocationTask(requests), routingKey)
+								  .flatMapIterable(responses -> responses);
 	}
 	
 	private Observable<List<AstrixServiceInvocationResponse>> observeBroadcastRequest(AstrixServiceInvocationRequest request) {
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.gs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.avanza.astrix.config.DynamicIntProperty;
+
+public class AdaptiveConcurrencyLimitTest {
+	
+	private final AtomicLong nanoTime = new AtomicLong();
+	private final DynamicIntProperty minLimit = new DynamicIntProperty(5);
+	private final DynamicIntProperty maxLimit = new DynamicIntProperty(100);
+	
+	@Test
+	public void rejectsAcquireWhenLimitIsReached() throws Exception {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, minLimit, maxLimit, nanoTime::get);
+		List<AdaptiveConcurrencyLimit.Permit> permits = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			permits.add(limit.tryAcquire());
+		}
+		assertNull(limit.tryAcquire());
+		
+		permits.get(0).ignore();
+		permits.get(0).ignore();
+		
+		assertEquals(9, limit.getInFlight());
+		assertNotNull(limit.tryAcquire());
+	}
+	
+	@Test
+	public void limitGrowsWhileRoundTripTimeIsStable() throws Exception {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, minLimit, maxLimit, nanoTime::get);
+		
+		for (int i = 0; i < 50; i++) {
+			executeFullLimit(limit, TimeUnit.MILLISECONDS.toNanos(10));
+		}
+		
+		assertEquals(100, limit.getLimit());
+		assertEquals(10D, limit.getShortRtt(), 0.01D);
+	}
+	
+	@Test
+	public void limitDecreasesWhenRoundTripTimeIncreases() throws Exception {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(50, minLimit, maxLimit, nanoTime::get);
+		for (int i = 0; i < 20; i++) {
+			executeFullLimit(limit, TimeUnit.MILLISECONDS.toNanos(10));
+		}
+		int limitBeforeLatencyIncrease = limit.getLimit();
+		
+		executeFullLimit(limit, TimeUnit.MILLISECONDS.toNanos(100));
+		
+		assertTrue("Expected limit to decrease from " + limitBeforeLatencyIncrease + ", was: " + limit.getLimit(), limit.getLimit() < limitBeforeLatencyIncrease);
+		assertTrue(limit.getShortRtt() > limit.getLongRtt());
+	}
+	
+	@Test
+	public void droppedTaskExecutionsReducesLimitDownToMinLimit() throws Exception {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, minLimit, maxLimit, nanoTime::get);
+		
+		limit.tryAcquire().dropped();
+		assertEquals(9, limit.getLimit());
+		
+		for (int i = 0; i < 20; i++) {
+			limit.tryAcquire().dropped();
+		}
+		assertEquals(5, limit.getLimit());
+		assertEquals(0, limit.getInFlight());
+	}
+	
+	@Test
+	public void samplesWhileLimitIsUnderutilizedDoesNotChangeLimit() throws Exception {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, minLimit, maxLimit, nanoTime::get);
+		
+		for (int i = 0; i < 100; i++) {
+			AdaptiveConcurrencyLimit.Permit permit = limit.tryAcquire();
+			nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+			permit.success();
+		}
+		
+		assertEquals(20, limit.getLimit());
+	}
+	
+	private void executeFullLimit(AdaptiveConcurrencyLimit limit, long rttNanos) {
+		List<AdaptiveConcurrencyLimit.Permit> permits = new ArrayList<>();
+		AdaptiveConcurrencyLimit.Permit permit;
+		while ((permit = limit.tryAcquire()) != null) {
+			permits.add(permit);
+		}
+		nanoTime.addAndGet(rttNanos);
+		permits.forEach(AdaptiveConcurrencyLimit.Permit::success);
+	}
+
+}
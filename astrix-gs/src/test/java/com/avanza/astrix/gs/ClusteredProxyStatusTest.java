@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.gs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ClusteredProxyStatusTest {
+	
+	private final ClusteredProxyStatus status = new ClusteredProxyStatus();
+	
+	@Test
+	public void notReadyBeforeProxyIsCreated() throws Exception {
+		assertFalse(status.isReady());
+		assertNull(status.getSpaceUrl());
+		assertEquals(0, status.getCreationFailureCount());
+	}
+	
+	@Test
+	public void readyWhenProxyIsCreated() throws Exception {
+		status.created("jini://*/*/my-space", TimeUnit.MILLISECONDS.toNanos(150));
+		
+		assertTrue(status.isReady());
+		assertEquals("jini://*/*/my-space", status.getSpaceUrl());
+		assertEquals(150, status.getCreationTime());
+		assertEquals(0, status.getCreationFailureCount());
+	}
+	
+	@Test
+	public void failedCreationIsCountedAndNotReady() throws Exception {
+		status.creationFailed("jini://*/*/my-space", TimeUnit.MILLISECONDS.toNanos(1000));
+		status.creationFailed("jini://*/*/my-space", TimeUnit.MILLISECONDS.toNanos(1000));
+		
+		assertFalse(status.isReady());
+		assertEquals("jini://*/*/my-space", status.getSpaceUrl());
+		assertEquals(1000, status.getCreationTime());
+		assertEquals(2, status.getCreationFailureCount());
+	}
+	
+	@Test
+	public void readyWhenProxyIsCreatedAfterFailedCreation() throws Exception {
+		status.creationFailed("jini://*/*/my-space", TimeUnit.MILLISECONDS.toNanos(1000));
+		status.created("jini://*/*/my-space", TimeUnit.MILLISECONDS.toNanos(200));
+		
+		assertTrue(status.isReady());
+		assertEquals(200, status.getCreationTime());
+		assertEquals("Failures are not reset by a successful creation", 1, status.getCreationFailureCount());
+	}
+	
+	@Test
+	public void notReadyWhenProxyIsDestroyed() throws Exception {
+		status.created("jini://*/*/my-space", TimeUnit.MILLISECONDS.toNanos(150));
+		status.destroyed();
+		
+		assertFalse(status.isReady());
+		assertEquals("Keeps url of last created proxy", "jini://*/*/my-space", status.getSpaceUrl());
+		
+		status.created("jini://*/*/my-space", TimeUnit.MILLISECONDS.toNanos(100));
+		assertTrue(status.isReady());
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.gs;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.avanza.astrix.config.DynamicIntProperty;
+import com.avanza.astrix.core.ServiceUnavailableException;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+public class SpaceTaskDispatcherTest {
+	
+	private final AtomicLong nanoTime = new AtomicLong();
+	private final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, new DynamicIntProperty(5), new DynamicIntProperty(100), nanoTime::get);
+	
+	@Test
+	public void successfulTaskExecutionReleasesPermitAndSamplesRoundTripTime() throws Exception {
+		AdaptiveConcurrencyLimit.Permit permit = limit.tryAcquire();
+		TestSubscriber<String> subscriber = new TestSubscriber<>();
+		
+		SpaceTaskDispatcher.releasing(permit, Observable.just("result").doOnSubscribe(() -> nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(10))))
+						   .subscribe(subscriber);
+		
+		subscriber.assertValue("result");
+		assertEquals(0, limit.getInFlight());
+		assertEquals(10D, limit.getShortRtt(), 0.01D);
+		assertEquals(10, limit.getLimit());
+	}
+	
+	@Test
+	public void failedTaskExecutionReleasesPermitAndReducesLimit() throws Exception {
+		AdaptiveConcurrencyLimit.Permit permit = limit.tryAcquire();
+		TestSubscriber<String> subscriber = new TestSubscriber<>();
+		
+		SpaceTaskDispatcher.releasing(permit, Observable.<String>error(new ServiceUnavailableException("space unavailable")))
+						   .subscribe(subscriber);
+		
+		subscriber.assertError(ServiceUnavailableException.class);
+		assertEquals(0, limit.getInFlight());
+		assertEquals(9, limit.getLimit());
+	}
+	
+	@Test
+	public void taskExecutionThatTimesOutReleasesPermitAndReducesLimit() throws Exception {
+		TestScheduler scheduler = new TestScheduler();
+		AdaptiveConcurrencyLimit.Permit permit = limit.tryAcquire();
+		TestSubscriber<String> subscriber = new TestSubscriber<>();
+		
+		SpaceTaskDispatcher.releasing(permit, Observable.<String>never())
+						   .timeout(1, TimeUnit.SECONDS, scheduler)
+						   .subscribe(subscriber);
+		assertEquals(1, limit.getInFlight());
+		scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+		
+		subscriber.assertError(TimeoutException.class);
+		assertEquals(0, limit.getInFlight());
+		assertEquals(9, limit.getLimit());
+	}
+	
+	@Test
+	public void unsubscribeBeforeTaskExecutionTerminatesReducesLimit() throws Exception {
+		AdaptiveConcurrencyLimit.Permit permit = limit.tryAcquire();
+		
+		Subscription subscription = SpaceTaskDispatcher.releasing(permit, Observable.<String>never()).subscribe();
+		subscription.unsubscribe();
+		
+		assertEquals(0, limit.getInFlight());
+		assertEquals(9, limit.getLimit());
+	}
+	
+	@Test
+	public void taskExecutionRejectedByFullQueueReleasesPermitWithoutChangingLimit() throws Exception {
+		AdaptiveConcurrencyLimit.Permit permit = limit.tryAcquire();
+		TestSubscriber<String> subscriber = new TestSubscriber<>();
+		
+		SpaceTaskDispatcher.releasing(permit, Observable.<String>error(new DispatcherQueueFullException("queue is full")))
+						   .subscribe(subscriber);
+		
+		subscriber.assertError(ServiceUnavailableException.class);
+		assertEquals(0, limit.getInFlight());
+		assertEquals(10, limit.getLimit());
+		assertEquals("Rejected task execution should not be sampled", 0D, limit.getShortRtt(), 0D);
+	}
+
+}
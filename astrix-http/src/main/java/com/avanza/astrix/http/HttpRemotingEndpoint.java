@@ -1,9 +1,3 @@
-package com.avanza.astrix.http;
-
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-
 /*
  * Copyright 2014 Avanza Bank AB
  *
@@ -19,26 +13,37 @@ import java.io.ObjectOutputStream;
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+package com.avanza.astrix.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationCodec;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
 import com.avanza.astrix.remoting.server.AstrixServiceActivator;
 /**
+ * Servlet that invokes services on behalf of a {@link HttpRemotingTransport}. <p>
+ * 
+ * Requests and responses are encoded using {@link AstrixServiceInvocationCodec}. The response
+ * is buffered and sent with a Content-Length header to allow the connection to be kept alive. 
  * 
  * @author Elias Lindholm
  *
  */
 public class HttpRemotingEndpoint extends HttpServlet {
 	
-	/*
-	 * This is only a draft for remoting over http
-	 */
+	private static final long serialVersionUID = 1L;
 	
-	private final AstrixServiceActivator serviceActivator;
+	private final transient AstrixServiceActivator serviceActivator;
+	private final transient AstrixServiceInvocationCodec codec = new AstrixServiceInvocationCodec();
 	
 	public HttpRemotingEndpoint(AstrixServiceActivator serviceActivator) {
 		this.serviceActivator = serviceActivator;
@@ -46,14 +51,20 @@ public class HttpRemotingEndpoint extends HttpServlet {
 
 	@Override
 	protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+		AstrixServiceInvocationRequest invocationRequest;
 		try {
-			ObjectInputStream input = new ObjectInputStream(req.getInputStream());
-			AstrixServiceInvocationRequest invocationRequest = (AstrixServiceInvocationRequest) input.readObject();
-			AstrixServiceInvocationResponse invocationResponse = serviceActivator.invokeService(invocationRequest);
-			new ObjectOutputStream(resp.getOutputStream()).writeObject(invocationResponse);
-		} catch (Exception e) {
-			throw new ServletException(e);
+			invocationRequest = codec.readRequest(new DataInputStream(req.getInputStream()));
+		} catch (IOException e) {
+			resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Failed to decode service invocation request");
+			return;
 		}
+		AstrixServiceInvocationResponse invocationResponse = serviceActivator.invokeService(invocationRequest);
+		ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+		codec.writeResponse(invocationResponse, new DataOutputStream(body));
+		resp.setStatus(HttpServletResponse.SC_OK);
+		resp.setContentType(HttpRemotingTransport.CONTENT_TYPE);
+		resp.setContentLength(body.size());
+		body.writeTo(resp.getOutputStream());
 	}
 
 }
@@ -15,101 +15,172 @@
  */
 package com.avanza.astrix.http;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
-import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.concurrent.FutureCallback;
-import org.apache.http.entity.SerializableEntity;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
 
-import rx.Observable;
-import rx.Observable.OnSubscribe;
-import rx.Subscriber;
-
+import com.avanza.astrix.config.DynamicConfig;
+import com.avanza.astrix.config.IntSetting;
+import com.avanza.astrix.config.LongSetting;
 import com.avanza.astrix.core.ServiceUnavailableException;
 import com.avanza.astrix.core.remoting.RoutingKey;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationCodec;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
 import com.avanza.astrix.remoting.client.RemotingTransportSpi;
 import com.avanza.astrix.remoting.client.RoutedServiceInvocationRequest;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.subscriptions.Subscriptions;
 /**
+ * RemotingTransportSpi that invokes services exported using a {@link HttpRemotingEndpoint}. <p>
+ * 
+ * Each invocation is sent as a POST request with a body encoded using {@link AstrixServiceInvocationCodec},
+ * delimited by the Content-Length header. Connections are pooled and kept alive between invocations, 
+ * each cluster member has its own pool with at most {@link #MAX_CONNECTIONS_PER_MEMBER} connections. <p>
+ * 
+ * The timeout settings applies to each cluster member individually, i.e. when a request is 
+ * fanned out to several members a slow member fails with a {@link ServiceUnavailableException}
+ * without affecting the requests sent to the other members.
  * 
  * @author Elias Lindholm
  *
  */
 public final class HttpRemotingTransport implements RemotingTransportSpi {
+	
+	public static final String CONTENT_TYPE = "application/x-astrix-invocation";
+	
+	public static final IntSetting MAX_CONNECTIONS_PER_MEMBER = IntSetting.create("astrix.http.client.maxConnectionsPerMember", 20);
+	public static final IntSetting CONNECT_TIMEOUT = IntSetting.create("astrix.http.client.connectTimeout", 1_000);
+	public static final IntSetting REQUEST_TIMEOUT = IntSetting.create("astrix.http.client.requestTimeout", 10_000);
+	public static final LongSetting KEEP_ALIVE_TIMEOUT = LongSetting.create("astrix.http.client.keepAliveTimeout", 60_000L);
+	
+	private static final ContentType INVOCATION_CONTENT_TYPE = ContentType.create(CONTENT_TYPE);
 
-	private final CloseableHttpAsyncClient httpclient = HttpAsyncClients.createDefault();
+	private final CloseableHttpAsyncClient httpclient;
+	private final AstrixServiceInvocationCodec codec = new AstrixServiceInvocationCodec();
 	private final Map<Integer, ClusterMember> clusterMembers = new ConcurrentHashMap<>();
 	private final int clusterSize; // may be larger than clusterMembers.size in case not all members are discovered yet.
+	private final RequestConfig requestConfig;
 	
-	public HttpRemotingTransport(Collection<ClusterMember> clusterMembers, int clusterSize) {
+	public HttpRemotingTransport(Collection<ClusterMember> clusterMembers, int clusterSize, DynamicConfig config) {
 		this.clusterSize = clusterSize;
 		for (ClusterMember clusterMember : clusterMembers) {
 			this.clusterMembers.put(clusterMember.getClusterInstanceId(), clusterMember);
 		}
+		int connectTimeout = CONNECT_TIMEOUT.getFrom(config).get();
+		int requestTimeout = REQUEST_TIMEOUT.getFrom(config).get();
+		int maxConnectionsPerMember = MAX_CONNECTIONS_PER_MEMBER.getFrom(config).get();
+		long keepAliveTimeout = KEEP_ALIVE_TIMEOUT.getFrom(config).get();
+		this.requestConfig = RequestConfig.custom()
+										  .setConnectTimeout(connectTimeout)
+										  .setConnectionRequestTimeout(requestTimeout)
+										  .setSocketTimeout(requestTimeout)
+										  .build();
+		PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(createIoReactor(connectTimeout, requestTimeout));
+		// Each cluster member is a separate route, hence the per-route limit is the pool size for each member
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerMember);
+		connectionManager.setMaxTotal(maxConnectionsPerMember * Math.max(1, clusterSize));
+		this.httpclient = HttpAsyncClients.custom()
+										  .setConnectionManager(connectionManager)
+										  .setDefaultRequestConfig(requestConfig)
+										  .setKeepAliveStrategy((response, context) -> {
+											  long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+											  return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveTimeout) : keepAliveTimeout;
+										  })
+										  .build();
+	}
+
+	private static DefaultConnectingIOReactor createIoReactor(int connectTimeout, int requestTimeout) {
+		try {
+			return new DefaultConnectingIOReactor(IOReactorConfig.custom()
+																 .setConnectTimeout(connectTimeout)
+																 .setSoTimeout(requestTimeout)
+																 .setTcpNoDelay(true)
+																 .setSoKeepAlive(true)
+																 .build());
+		} catch (IOReactorException e) {
+			throw new IllegalStateException("Failed to create http io reactor", e);
+		}
 	}
 	
 	@Override
-	public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(
-			final AstrixServiceInvocationRequest request, final RoutingKey routingKey) {
+	public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
 		ClusterMember clusterMember = getTargetMember(routingKey);
-		final HttpPost postRequest = new HttpPost(clusterMember.getRemoteEndpointUri());
-		postRequest.setEntity(new SerializableEntity(request));
-		return Observable.create(new OnSubscribe<AstrixServiceInvocationResponse>() {
-			@Override
-			public void call(final Subscriber<? super AstrixServiceInvocationResponse> t1) {
-				try {
-					httpclient.execute(postRequest, serviceResponseCallback(t1));
-				} catch (Exception e) {
-					t1.onError(e);
-				}
-			}
-
-		});
+		if (clusterMember == null) {
+			return Observable.error(new ServiceUnavailableException("Failed to find cluster member with id: " + targetPartition(routingKey)));
+		}
+		return submit(clusterMember, encode(request));
 	}
 	
 	@Override
-	public Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequests(
-			Collection<RoutedServiceInvocationRequest> requests) {
-		Observable<AstrixServiceInvocationResponse> result = Observable.empty();
+	public Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequests(Collection<RoutedServiceInvocationRequest> requests) {
+		return streamRoutedRequests(requests).toList();
+	}
+	
+	@Override
+	public Observable<AstrixServiceInvocationResponse> streamRoutedRequests(Collection<RoutedServiceInvocationRequest> requests) {
+		List<Observable<AstrixServiceInvocationResponse>> responses = new ArrayList<>(requests.size());
 		for (RoutedServiceInvocationRequest request : requests) {
-			result = result.mergeWith(submitRoutedRequest(request.getRequest(), request.getRoutingkey()));
+			responses.add(submitRoutedRequest(request.getRequest(), request.getRoutingkey()));
 		}
-		return result.toList();
+		return Observable.merge(responses);
 	}
 
 	@Override
-	public Observable<List<AstrixServiceInvocationResponse>> submitBroadcastRequest(
-			AstrixServiceInvocationRequest request) {
-		Observable<AstrixServiceInvocationResponse> result = Observable.empty();
+	public Observable<List<AstrixServiceInvocationResponse>> submitBroadcastRequest(AstrixServiceInvocationRequest request) {
+		return streamBroadcastRequest(request).toList();
+	}
+	
+	@Override
+	public Observable<AstrixServiceInvocationResponse> streamBroadcastRequest(AstrixServiceInvocationRequest request) {
+		// The request body is encoded once and shared by all members
+		byte[] body = encode(request);
+		List<Observable<AstrixServiceInvocationResponse>> responses = new ArrayList<>(clusterMembers.size());
 		for (ClusterMember clusterMember : getAllClusterMembers()) {
-			final HttpPost postRequest = new HttpPost(clusterMember.getRemoteEndpointUri());
-			postRequest.setEntity(new SerializableEntity(request));
-			result = result.mergeWith(Observable.create(new OnSubscribe<AstrixServiceInvocationResponse>() {
-				@Override
-				public void call(final Subscriber<? super AstrixServiceInvocationResponse> t1) {
-					try {
-						httpclient.execute(postRequest, serviceResponseCallback(t1));
-					} catch (Exception e) {
-						t1.onError(e);
-					}
-				}
-
-			}));
+			responses.add(submit(clusterMember, body));
 		}
-		return result.toList();
+		return Observable.merge(responses);
+	}
+	
+	private Observable<AstrixServiceInvocationResponse> submit(ClusterMember clusterMember, byte[] body) {
+		return Observable.create(subscriber -> {
+			HttpPost postRequest = new HttpPost(clusterMember.getRemoteEndpointUri());
+			postRequest.setEntity(new ByteArrayEntity(body, INVOCATION_CONTENT_TYPE));
+			try {
+				Future<HttpResponse> response = httpclient.execute(postRequest, serviceResponseCallback(clusterMember, subscriber));
+				subscriber.add(Subscriptions.from(response));
+			} catch (Exception e) {
+				subscriber.onError(e);
+			}
+		});
 	}
 	
 	private Collection<ClusterMember> getAllClusterMembers() {
@@ -117,41 +188,61 @@ public final class HttpRemotingTransport implements RemotingTransportSpi {
 	}
 	
 	private ClusterMember getTargetMember(RoutingKey routingKey) {
-		int targetPartition = routingKey.hashCode() % partitionCount();
-		ClusterMember target = this.clusterMembers.get(targetPartition);
-		if (target == null) {
-			throw new ServiceUnavailableException("Failed to find cluster member with id: " + targetPartition);
+		return this.clusterMembers.get(targetPartition(routingKey));
+	}
+
+	private int targetPartition(RoutingKey routingKey) {
+		return routingKey.hashCode() % partitionCount();
+	}
+	
+	private byte[] encode(AstrixServiceInvocationRequest request) {
+		ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+		try {
+			codec.writeRequest(request, new DataOutputStream(body));
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Failed to encode service invocation request: " + request, e);
 		}
-		return target;
+		return body.toByteArray();
 	}
 
-	private FutureCallback<HttpResponse> serviceResponseCallback(
-			final Subscriber<? super AstrixServiceInvocationResponse> t1) {
+	private FutureCallback<HttpResponse> serviceResponseCallback(ClusterMember clusterMember, Subscriber<? super AstrixServiceInvocationResponse> subscriber) {
 		return new FutureCallback<HttpResponse>() {
+			@Override
 			public void completed(final HttpResponse response) {
+				AstrixServiceInvocationResponse invocationResponse;
 				try {
-					t1.onNext(getResponse(response));
-					t1.onCompleted();
+					invocationResponse = getResponse(clusterMember, response);
 				} catch (Exception e) {
-					t1.onError(e);
+					subscriber.onError(e);
+					return;
 				}
+				subscriber.onNext(invocationResponse);
+				subscriber.onCompleted();
 			}
+			@Override
 			public void failed(final Exception ex) {
-				t1.onError(ex);
+				if (ex instanceof IOException) {
+					// Covers connect, pool lease and socket timeouts as well as refused or broken connections 
+					String reason = ex instanceof ConnectionPoolTimeoutException ? "No connection available in pool for " : "Request failed to ";
+					subscriber.onError(new ServiceUnavailableException(reason + clusterMember.getRemoteEndpointUri(), ex));
+					return;
+				}
+				subscriber.onError(ex);
 			}
+			@Override
 			public void cancelled() {
-				t1.onError(new RuntimeException("Request cancelled"));
+				subscriber.onError(new ServiceUnavailableException("Request cancelled: " + clusterMember.getRemoteEndpointUri()));
 			}
 		};
 	}
 	
-	private AstrixServiceInvocationResponse getResponse(final HttpResponse response){
-		try {
-			HttpEntity entity = response.getEntity();
-			ObjectInputStream inputStream = new ObjectInputStream(entity.getContent());
-			return (AstrixServiceInvocationResponse) inputStream.readObject();
-		} catch (ClassNotFoundException | IOException e) {
-			throw new RuntimeException(e);
+	private AstrixServiceInvocationResponse getResponse(ClusterMember clusterMember, HttpResponse response) throws IOException {
+		int statusCode = response.getStatusLine().getStatusCode();
+		if (statusCode != 200) {
+			throw new ServiceUnavailableException("Remote endpoint " + clusterMember.getRemoteEndpointUri() + " responded with: " + response.getStatusLine());
+		}
+		try (InputStream content = response.getEntity().getContent()) {
+			return codec.readResponse(new DataInputStream(content));
 		}
 	}
 
@@ -170,9 +261,10 @@ public final class HttpRemotingTransport implements RemotingTransportSpi {
 		httpclient.close();
 	}
 	
-	private static class ClusterMember {
-		private String remoteEndpoint;
-		private int clusterInstanceId;
+	public static final class ClusterMember {
+		private final String remoteEndpoint;
+		private final int clusterInstanceId;
+		
 		public ClusterMember(String remoteEndpoint, int clusterInstanceId) {
 			this.remoteEndpoint = remoteEndpoint;
 			this.clusterInstanceId = clusterInstanceId;
@@ -185,8 +277,6 @@ public final class HttpRemotingTransport implements RemotingTransportSpi {
 		public int getClusterInstanceId() {
 			return clusterInstanceId;
 		}
-		
-		
 	}
 
 }
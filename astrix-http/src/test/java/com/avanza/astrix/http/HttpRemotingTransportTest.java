@@ -0,0 +1,177 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.avanza.astrix.config.DynamicConfig;
+import com.avanza.astrix.config.MapConfigSource;
+import com.avanza.astrix.core.ServiceUnavailableException;
+import com.avanza.astrix.core.remoting.RoutingKey;
+import com.avanza.astrix.http.HttpRemotingTransport.ClusterMember;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
+import com.avanza.astrix.remoting.server.AstrixServiceActivator;
+import com.avanza.astrix.versioning.core.AstrixObjectSerializer;
+
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+public class HttpRemotingTransportTest {
+	
+	private final CountDownLatch releaseSlowInvocation = new CountDownLatch(1);
+	private final MapConfigSource settings = new MapConfigSource();
+	private Server server;
+	private HttpRemotingTransport transport;
+	
+	@Before
+	public void startServer() throws Exception {
+		server = new Server(0);
+		ServletContextHandler context = new ServletContextHandler();
+		context.addServlet(new ServletHolder(new HttpRemotingEndpoint(new EchoServiceActivator())), "/astrix");
+		context.addServlet(new ServletHolder(new HttpServlet() {
+			@Override
+			protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+				resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			}
+		}), "/unavailable");
+		server.setHandler(context);
+		server.start();
+		settings.set(HttpRemotingTransport.REQUEST_TIMEOUT, 250);
+	}
+	
+	@After
+	public void after() throws Exception {
+		releaseSlowInvocation.countDown();
+		if (transport != null) {
+			transport.destroy();
+		}
+		server.stop();
+	}
+	
+	@Test
+	public void invokesServiceThroughHttpEndpoint() throws Exception {
+		transport = createTransport("/astrix");
+		
+		TestSubscriber<AstrixServiceInvocationResponse> subscriber = new TestSubscriber<>();
+		transport.submitRoutedRequest(request("ping"), RoutingKey.create(0)).subscribe(subscriber);
+		subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+		
+		subscriber.assertNoErrors();
+		subscriber.assertValueCount(1);
+		AstrixServiceInvocationResponse response = subscriber.getOnNextEvents().get(0);
+		assertEquals("ping", response.getResponseBody());
+		assertEquals("bar", response.getHeader("foo"));
+	}
+	
+	@Test
+	public void nonOkStatusIsReportedAsServiceUnavailable() throws Exception {
+		transport = createTransport("/unavailable");
+		
+		TestSubscriber<AstrixServiceInvocationResponse> subscriber = new TestSubscriber<>();
+		transport.submitRoutedRequest(request("ping"), RoutingKey.create(0)).subscribe(subscriber);
+		subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+		
+		subscriber.assertError(ServiceUnavailableException.class);
+		assertTrue(subscriber.getOnErrorEvents().get(0).getMessage().contains("503"));
+	}
+	
+	@Test
+	public void requestThatExceedsRequestTimeoutFailsWithServiceUnavailable() throws Exception {
+		transport = createTransport("/astrix");
+		
+		TestSubscriber<AstrixServiceInvocationResponse> subscriber = new TestSubscriber<>();
+		long start = System.nanoTime();
+		transport.submitRoutedRequest(request("sleep"), RoutingKey.create(0)).subscribe(subscriber);
+		subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		
+		subscriber.assertError(ServiceUnavailableException.class);
+		assertTrue("Expected request to time out after requestTimeout, elapsed: " + elapsedMillis, elapsedMillis < 4_000);
+	}
+	
+	private HttpRemotingTransport createTransport(String path) {
+		String uri = "http://localhost:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort() + path;
+		HttpRemotingTransport result = new HttpRemotingTransport(Collections.singleton(new ClusterMember(uri, 0)), 1, new DynamicConfig(settings));
+		result.init();
+		return result;
+	}
+	
+	private static AstrixServiceInvocationRequest request(String argument) {
+		AstrixServiceInvocationRequest request = new AstrixServiceInvocationRequest();
+		request.setArguments(new Object[] { argument });
+		request.setHeader("foo", "bar");
+		return request;
+	}
+	
+	private final class EchoServiceActivator implements AstrixServiceActivator {
+
+		@Override
+		public AstrixServiceInvocationResponse invokeService(AstrixServiceInvocationRequest invocationRequest) {
+			Object argument = invocationRequest.getArguments()[0];
+			if ("sleep".equals(argument)) {
+				try {
+					releaseSlowInvocation.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			AstrixServiceInvocationResponse response = new AstrixServiceInvocationResponse();
+			response.setResponseBody(argument);
+			response.setHeader("foo", invocationRequest.getHeader("foo"));
+			return response;
+		}
+
+		@Override
+		public boolean isStreamingInvocation(AstrixServiceInvocationRequest invocationRequest) {
+			return false;
+		}
+
+		@Override
+		public Observable<AstrixServiceInvocationResponse> invokeServiceStream(AstrixServiceInvocationRequest invocationRequest) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public AstrixServiceInvocationResponse rejectInvocation(AstrixServiceInvocationRequest invocationRequest, String reason) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void register(Object provider, AstrixObjectSerializer objectSerializer, Class<?> publishedApi) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.integration.tests;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.avanza.astrix.beans.registry.InMemoryServiceRegistry;
+import com.avanza.astrix.config.DynamicBooleanProperty;
+import com.avanza.astrix.config.DynamicConfig;
+import com.avanza.astrix.config.MapConfigSource;
+import com.avanza.astrix.context.AstrixApplicationContext;
+import com.avanza.astrix.context.TestAstrixConfigurer;
+import com.avanza.astrix.core.remoting.RoutingKey;
+import com.avanza.astrix.core.util.ReflectionUtil;
+import com.avanza.astrix.gs.SpaceTaskDispatcher;
+import com.avanza.astrix.gs.remoting.GsRemotingTransport;
+import com.avanza.astrix.gs.test.util.PuConfigurers;
+import com.avanza.astrix.gs.test.util.RunningPu;
+import com.avanza.astrix.integration.tests.common.Ping;
+import com.avanza.astrix.integration.tests.domain.apiruntime.LunchApiObjectSerializerConfigurer;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
+import com.avanza.astrix.remoting.client.RoutedServiceInvocationRequest;
+import com.avanza.astrix.remoting.client.ServiceMethodDescriptor;
+import com.avanza.astrix.test.util.AutoCloseableRule;
+import com.avanza.astrix.versioning.core.AstrixObjectSerializer;
+import com.avanza.astrix.versioning.core.ObjectSerializerDefinition;
+import com.avanza.astrix.versioning.core.ObjectSerializerFactory;
+
+public class GsRemotingTransportTest {
+	
+	private static final String SPACE_NAME = "gs-remoting-transport-test";
+	private static final int API_VERSION = 2;
+	
+	private final InMemoryServiceRegistry serviceRegistry = new InMemoryServiceRegistry();
+	private AstrixObjectSerializer objectSerializer;
+	
+	@Rule
+	public AutoCloseableRule autoClosables = new AutoCloseableRule();
+	
+	@Rule
+	public RunningPu pu = PuConfigurers.partitionedPu("classpath:/META-INF/spring/lunch-pu.xml")
+									   .numberOfPrimaries(2)
+									   .numberOfBackups(0)
+									   .spaceName(SPACE_NAME)
+									   .contextProperty("configSourceId", serviceRegistry.getConfigSourceId())
+									   .startAsync(false)
+									   .configure();
+	
+	@Before
+	public void createObjectSerializer() {
+		AstrixApplicationContext context = (AstrixApplicationContext) autoClosables.add(new TestAstrixConfigurer().configure());
+		objectSerializer = context.getInstance(ObjectSerializerFactory.class)
+								  .create(ObjectSerializerDefinition.versionedService(API_VERSION, LunchApiObjectSerializerConfigurer.class));
+	}
+	
+	@Test
+	public void routedRequestsTargetingSamePartitionArePackedIntoOneTask() throws Exception {
+		SpaceTaskDispatcher dispatcher = new SpaceTaskDispatcher(pu.getClusteredGigaSpace(), DynamicConfig.create(new MapConfigSource()));
+		try {
+			GsRemotingTransport transport = new GsRemotingTransport(dispatcher, new DynamicBooleanProperty(true));
+			
+			List<String> responses = ping(transport, routedPing("a", 0), routedPing("b", 0), routedPing("c", 0), routedPing("d", 1));
+			
+			assertThat(responses, containsInAnyOrder("a", "b", "c", "d"));
+			assertEquals("One task for each partition", 2, dispatcher.getMonitor().getDispatchedCount());
+		} finally {
+			dispatcher.destroy();
+		}
+	}
+	
+	@Test
+	public void routedRequestsAreSentAsSeparateTasksUnlessPackingIsEnabled() throws Exception {
+		SpaceTaskDispatcher dispatcher = new SpaceTaskDispatcher(pu.getClusteredGigaSpace(), DynamicConfig.create(new MapConfigSource()));
+		try {
+			GsRemotingTransport transport = new GsRemotingTransport(dispatcher, new DynamicBooleanProperty(false));
+			
+			List<String> responses = ping(transport, routedPing("a", 0), routedPing("b", 0), routedPing("c", 1));
+			
+			assertThat(responses, containsInAnyOrder("a", "b", "c"));
+			assertEquals("One task for each request", 3, dispatcher.getMonitor().getDispatchedCount());
+		} finally {
+			dispatcher.destroy();
+		}
+	}
+	
+	private List<String> ping(GsRemotingTransport transport, RoutedServiceInvocationRequest... requests) {
+		List<RoutedServiceInvocationRequest> routedRequests = new ArrayList<>();
+		for (RoutedServiceInvocationRequest request : requests) {
+			routedRequests.add(request);
+		}
+		List<String> result = new ArrayList<>();
+		for (AstrixServiceInvocationResponse response : transport.submitRoutedRequests(routedRequests).toBlocking().single()) {
+			result.add(objectSerializer.deserialize(response.getResponseBody(), String.class, API_VERSION));
+		}
+		return result;
+	}
+	
+	private RoutedServiceInvocationRequest routedPing(String msg, int partition) throws Exception {
+		AstrixServiceInvocationRequest request = new AstrixServiceInvocationRequest(ServiceMethodDescriptor.create(Ping.class.getName(), API_VERSION, 
+				ReflectionUtil.methodSignatureWithoutReturnType(Ping.class.getMethod("ping", String.class))));
+		request.setArguments(new Object[] { objectSerializer.serialize(msg, API_VERSION) });
+		return new RoutedServiceInvocationRequest(request, RoutingKey.create(partition));
+	}
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.integration.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openspaces.core.executor.Task;
+
+import com.avanza.astrix.beans.registry.InMemoryServiceRegistry;
+import com.avanza.astrix.config.DynamicConfig;
+import com.avanza.astrix.config.MapConfigSource;
+import com.avanza.astrix.core.ServiceUnavailableException;
+import com.avanza.astrix.gs.SpaceTaskDispatcher;
+import com.avanza.astrix.gs.SpaceTaskDispatcherMonitorMBean;
+import com.avanza.astrix.gs.test.util.PuConfigurers;
+import com.avanza.astrix.gs.test.util.RunningPu;
+
+import rx.Observable;
+
+public class SpaceTaskDispatcherLoadTest {
+	
+	private static final String SPACE_NAME = "space-task-dispatcher-load-test";
+	private static final int TASK_COUNT = 5_000;
+	
+	private final InMemoryServiceRegistry serviceRegistry = new InMemoryServiceRegistry();
+	private final MapConfigSource settings = new MapConfigSource();
+	
+	@Rule
+	public RunningPu pu = PuConfigurers.partitionedPu("classpath:/META-INF/spring/lunch-pu.xml")
+									   .numberOfPrimaries(2)
+									   .numberOfBackups(0)
+									   .spaceName(SPACE_NAME)
+									   .contextProperty("configSourceId", serviceRegistry.getConfigSourceId())
+									   .startAsync(false)
+									   .configure();
+	
+	@Test
+	public void boundedQueueDispatchesPartOfBurstAndRejectsTheRest() throws Exception {
+		// Queue holds a tenth of the burst, i.e. the rest of the burst must be rejected rather than queued
+		set("poolsize", "2");
+		set("maxQueueSize", Integer.toString(TASK_COUNT / 10));
+		SpaceTaskDispatcher dispatcher = createDispatcher();
+		try {
+			AtomicInteger rejectedCount = new AtomicInteger();
+			List<Integer> results = executeBurst(dispatcher, rejectedCount);
+			
+			SpaceTaskDispatcherMonitorMBean monitor = dispatcher.getMonitor();
+			assertTrue("Expected some tasks to be rejected", rejectedCount.get() > 0);
+			assertTrue("Expected some tasks to be dispatched", results.size() > 0);
+			assertEquals(TASK_COUNT, results.size() + rejectedCount.get());
+			assertEquals(rejectedCount.get(), monitor.getRejectedCount());
+			assertEquals(results.size(), monitor.getDispatchedCount());
+			assertEquals(0, monitor.getQueueDepth());
+			assertTrue("Expected dispatch latency to be recorded", monitor.getMeanDispatchLatency() > 0);
+			assertTrue(monitor.getMaxDispatchLatency() >= monitor.getMeanDispatchLatency());
+		} finally {
+			dispatcher.destroy();
+		}
+	}
+	
+	@Test
+	public void rejectsTasksWhenQueueIsFull() throws Exception {
+		set("poolsize", "1");
+		set("maxQueueSize", "10");
+		SpaceTaskDispatcher dispatcher = createDispatcher();
+		try {
+			AtomicInteger rejectedCount = new AtomicInteger();
+			List<Integer> results = executeBurst(dispatcher, rejectedCount);
+			
+			SpaceTaskDispatcherMonitorMBean monitor = dispatcher.getMonitor();
+			assertTrue("Expected some tasks to be rejected", rejectedCount.get() > 0);
+			assertEquals(TASK_COUNT, results.size() + rejectedCount.get());
+			assertEquals(rejectedCount.get(), monitor.getRejectedCount());
+			assertEquals(results.size(), monitor.getDispatchedCount());
+			assertEquals(0, monitor.getQueueDepth());
+		} finally {
+			dispatcher.destroy();
+		}
+	}
+	
+	@Test
+	public void directSubmitDispatchesBurstOfTasksOnSubscribingThread() throws Exception {
+		set("directSubmit", "true");
+		SpaceTaskDispatcher dispatcher = createDispatcher();
+		try {
+			AtomicInteger rejectedCount = new AtomicInteger();
+			List<Integer> results = executeBurst(dispatcher, rejectedCount);
+			
+			assertEquals(TASK_COUNT, results.size());
+			assertEquals(0, rejectedCount.get());
+			assertEquals(TASK_COUNT, dispatcher.getMonitor().getDispatchedCount());
+		} finally {
+			dispatcher.destroy();
+		}
+	}
+	
+	private List<Integer> executeBurst(SpaceTaskDispatcher dispatcher, AtomicInteger rejectedCount) {
+		List<Observable<Integer>> executions = new ArrayList<>(TASK_COUNT);
+		for (int i = 0; i < TASK_COUNT; i++) {
+			executions.add(dispatcher.observe(new EchoTask(i), i).onErrorResumeNext(e -> {
+				if (e instanceof ServiceUnavailableException) {
+					rejectedCount.incrementAndGet();
+					return Observable.empty();
+				}
+				return Observable.error(e);
+			}));
+		}
+		return Observable.merge(executions).toList().toBlocking().single();
+	}
+	
+	private SpaceTaskDispatcher createDispatcher() {
+		return new SpaceTaskDispatcher(pu.getClusteredGigaSpace(), DynamicConfig.create(settings));
+	}
+
+	private void set(String spaceTaskDispatcherSetting, String value) {
+		settings.set("astrix.beans.gigaspace." + pu.getClusteredGigaSpace().getName() + ".spaceTaskDispatcher." + spaceTaskDispatcherSetting, value);
+	}
+	
+	public static class EchoTask implements Task<Integer> {
+		
+		private static final long serialVersionUID = 1L;
+		private final int value;
+
+		public EchoTask(int value) {
+			this.value = value;
+		}
+
+		@Override
+		public Integer execute() throws Exception {
+			return value;
+		}
+	}
+	
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty;
+
+import java.util.List;
+
+import com.avanza.astrix.beans.service.BoundServiceBeanInstance;
+import com.avanza.astrix.netty.client.NettyRemotingClientCache.NettyRemotingClientInstance;
+
+final class NettyBoundServiceBeanInstance<T> implements BoundServiceBeanInstance<T> {
+
+	private final T instance;
+	private final List<NettyRemotingClientInstance> clientInstances;
+	
+	NettyBoundServiceBeanInstance(T instance, List<NettyRemotingClientInstance> clientInstances) {
+		this.instance = instance;
+		this.clientInstances = clientInstances;
+	}
+
+	@Override
+	public T get() {
+		return instance;
+	}
+
+	@Override
+	public void release() {
+		for (NettyRemotingClientInstance clientInstance : clientInstances) {
+			clientInstance.release();
+		}
+	}
+}
@@ -17,17 +17,22 @@ package com.avanza.astrix.netty;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.avanza.astrix.beans.config.AstrixConfig;
 import com.avanza.astrix.beans.service.BoundServiceBeanInstance;
 import com.avanza.astrix.beans.service.ServiceComponent;
 import com.avanza.astrix.beans.service.ServiceDefinition;
 import com.avanza.astrix.beans.service.ServiceProperties;
-import com.avanza.astrix.beans.service.SimpleBoundServiceBeanInstance;
-import com.avanza.astrix.core.remoting.RoutingStrategy;
+import com.avanza.astrix.config.DynamicStringProperty;
+import com.avanza.astrix.config.StringSetting;
 import com.avanza.astrix.netty.client.NettyRemotingClient;
+import com.avanza.astrix.netty.client.NettyRemotingClientCache;
+import com.avanza.astrix.netty.client.NettyRemotingClientCache.NettyRemotingClientInstance;
 import com.avanza.astrix.netty.server.NettyRemotingServer;
 import com.avanza.astrix.remoting.client.RemotingProxyFactory;
 import com.avanza.astrix.remoting.server.AstrixServiceActivator;
@@ -35,7 +40,12 @@ import com.avanza.astrix.versioning.core.AstrixObjectSerializer;
 import com.avanza.astrix.versioning.core.ObjectSerializerFactory;
 
 /**
- * This component is in a (very) experimental state.
+ * This component is in a (very) experimental state. <p>
+ * 
+ * A service might be provided by a partitioned cluster of netty remoting servers. The 
+ * servers in such a cluster must all be configured with the same {@link #CLUSTER_ENDPOINTS}, 
+ * which lists the endpoint for each partition in partition order. Each server advertises 
+ * all endpoints in the cluster, which allows a consumer to connect to every partition.
  * 
  * @author Elias Lindholm
  *
@@ -44,42 +54,85 @@ public class NettyRemotingComponent implements ServiceComponent {
 	
 	private Logger log = LoggerFactory.getLogger(NettyRemotingComponent.class);
 
+	/**
+	 * Comma separated list of host:port for each partition in the cluster this server belongs to.
+	 * Defaults to the endpoint of this server, i.e a cluster with a single partition.
+	 */
+	public static final StringSetting CLUSTER_ENDPOINTS = StringSetting.create("astrix.netty.server.clusterEndpoints", null);
+	
 	private static final String NETTY_PORT = "astrix.netty.port";
 	private static final String NETTY_HOST = "astrix.netty.host";
+	private static final String NETTY_ENDPOINTS = "astrix.netty.endpoints";
 	public static final String NAME = "netty-remoting";
 	
 	private final RemotingProxyFactory remotingProxyFactory;
 	private final AstrixServiceActivator serviceActivator;
 	private final ObjectSerializerFactory objectSerializerFactory;
 	private final NettyRemotingServer remotingServer;
-	
+	private final NettyRemotingClientCache remotingClientCache;
+	private final DynamicStringProperty clusterEndpoints;
 
 	public NettyRemotingComponent(RemotingProxyFactory remotingProxyFactory, AstrixServiceActivator serviceActivator,
-			ObjectSerializerFactory objectSerializerFactory, NettyRemotingServer remotingServer) {
+			ObjectSerializerFactory objectSerializerFactory, NettyRemotingServer remotingServer,
+			NettyRemotingClientCache remotingClientCache, AstrixConfig config) {
 		this.remotingProxyFactory = remotingProxyFactory;
 		this.serviceActivator = serviceActivator;
 		this.objectSerializerFactory = objectSerializerFactory;
 		this.remotingServer = remotingServer;
+		this.remotingClientCache = remotingClientCache;
+		this.clusterEndpoints = config.get(CLUSTER_ENDPOINTS);
 	}
 
 	@Override
 	public <T> BoundServiceBeanInstance<T> bind(ServiceDefinition<T> serviceDefinition, ServiceProperties serviceProperties) {
-		String host = serviceProperties.getProperty(NETTY_HOST);
-		int port = Integer.valueOf(serviceProperties.getProperty(NETTY_PORT));
-		log.info("Connecting to: {}:{}", host, port);
-		NettyRemotingClient remotingClient = new NettyRemotingClient();
-		remotingClient.connect(host, port);
-		NettyRemotingTransport nettyRemotingTransport = new NettyRemotingTransport(remotingClient);
-		T serviceProxy = remotingProxyFactory.create(serviceDefinition, serviceProperties, nettyRemotingTransport, new RoutingStrategy.RoundRobin());
-		return new SimpleBoundServiceBeanInstance<T>(serviceProxy); // TODO: proper lifecycle-management of remotingClient instance
+		List<String> endpoints = getEndpoints(serviceProperties);
+		log.debug("Binding {} to: {}", serviceDefinition.getBeanKey(), endpoints);
+		List<NettyRemotingClientInstance> remotingClients = new ArrayList<>(endpoints.size());
+		try {
+			for (String endpoint : endpoints) {
+				int portSeparator = endpoint.lastIndexOf(':');
+				remotingClients.add(remotingClientCache.getClient(endpoint.substring(0, portSeparator), Integer.parseInt(endpoint.substring(portSeparator + 1))));
+			}
+		} catch (RuntimeException e) {
+			remotingClients.forEach(NettyRemotingClientInstance::release);
+			throw e;
+		}
+		List<NettyRemotingClient> partitions = new ArrayList<>(remotingClients.size());
+		for (NettyRemotingClientInstance remotingClient : remotingClients) {
+			partitions.add(remotingClient.get());
+		}
+		NettyRemotingTransport nettyRemotingTransport = new NettyRemotingTransport(partitions);
+		T serviceProxy = remotingProxyFactory.create(serviceDefinition, serviceProperties, nettyRemotingTransport, new NettyRoutingStrategy());
+		return new NettyBoundServiceBeanInstance<T>(serviceProxy, remotingClients);
+	}
+	
+	private static List<String> getEndpoints(ServiceProperties serviceProperties) {
+		List<String> result = new ArrayList<>();
+		String endpoints = serviceProperties.getProperty(NETTY_ENDPOINTS);
+		if (endpoints == null) {
+			// Single partition
+			result.add(serviceProperties.getProperty(NETTY_HOST) + ":" + serviceProperties.getProperty(NETTY_PORT));
+			return result;
+		}
+		for (String endpoint : endpoints.split(",")) {
+			if (!endpoint.trim().isEmpty()) {
+				result.add(endpoint.trim());
+			}
+		}
+		return result;
 	}
 
 	@Override
 	public ServiceProperties parseServiceProviderUri(String serviceProviderUri) {
-		String[] hostAndPort = serviceProviderUri.split(":");
+		// host:port[,host:port]*
+		String[] endpoints = serviceProviderUri.split(",");
+		String[] hostAndPort = endpoints[0].split(":");
 		ServiceProperties result = new ServiceProperties();
 		result.getProperties().put(NETTY_HOST, hostAndPort[0]);
 		result.getProperties().put(NETTY_PORT, hostAndPort[1]);
+		if (endpoints.length > 1) {
+			result.getProperties().put(NETTY_ENDPOINTS, serviceProviderUri);
+		}
 		return result;
 	}
 
@@ -88,6 +141,10 @@ public class NettyRemotingComponent implements ServiceComponent {
 		ServiceProperties properties = new ServiceProperties();
 		properties.getProperties().put(NETTY_HOST, getHostName()); // TODO
 		properties.getProperties().put(NETTY_PORT, Integer.toString(remotingServer.getPort()));
+		String clusterEndpoints = this.clusterEndpoints.get();
+		if (clusterEndpoints != null && !clusterEndpoints.trim().isEmpty()) {
+			properties.getProperties().put(NETTY_ENDPOINTS, clusterEndpoints);
+		}
 		return properties;
 	}
 
@@ -15,8 +15,10 @@
  */
 package com.avanza.astrix.netty;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.avanza.astrix.core.remoting.RoutingKey;
 import com.avanza.astrix.netty.client.NettyRemotingClient;
@@ -27,34 +29,73 @@ import com.avanza.astrix.remoting.client.RoutedServiceInvocationRequest;
 
 import rx.Observable;
 
+/**
+ * Transport for a (possibly partitioned) cluster of netty remoting servers. Each 
+ * {@link NettyRemotingClient} represents one partition, in partition order. <p>
+ * 
+ * Routed requests are sent to partition <code>routingKey.hashCode() % partitionCount</code>, and 
+ * partitioned and broadcast requests are sent to all target partitions in parallel.
+ * 
+ */
 public class NettyRemotingTransport implements RemotingTransportSpi {
 	
-	private NettyRemotingClient remotingClient;
+	private final List<NettyRemotingClient> partitions;
 
-	public NettyRemotingTransport(NettyRemotingClient remotingClient) {
-		this.remotingClient = remotingClient;
+	public NettyRemotingTransport(List<NettyRemotingClient> partitions) {
+		if (partitions.isEmpty()) {
+			throw new IllegalArgumentException("At least one partition required");
+		}
+		this.partitions = new ArrayList<>(partitions);
 	}
 
 	@Override
 	public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
-		return remotingClient.invokeService(request); // TODO: Add support for routing
+		return getPartition(routingKey).invokeService(request);
+	}
+
+	@Override
+	public CompletableFuture<AstrixServiceInvocationResponse> submitRoutedRequestAsync(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+		return getPartition(routingKey).invokeServiceAsync(request);
 	}
 
 	@Override
 	public Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequests(Collection<RoutedServiceInvocationRequest> requests) {
-		Observable<AstrixServiceInvocationResponse> result = submitRoutedRequest(requests.iterator().next().getRequest(), null);
-		return result.toList();
+		return streamRoutedRequests(requests).toList();
+	}
+	
+	@Override
+	public Observable<AstrixServiceInvocationResponse> streamRoutedRequests(Collection<RoutedServiceInvocationRequest> requests) {
+		List<Observable<AstrixServiceInvocationResponse>> responses = new ArrayList<>(requests.size());
+		for (RoutedServiceInvocationRequest request : requests) {
+			responses.add(submitRoutedRequest(request.getRequest(), request.getRoutingkey()));
+		}
+		return Observable.merge(responses);
 	}
 
 	@Override
 	public Observable<List<AstrixServiceInvocationResponse>> submitBroadcastRequest(AstrixServiceInvocationRequest request) {
-		Observable<AstrixServiceInvocationResponse> result = submitRoutedRequest(request, null);
-		return result.toList();
+		return streamBroadcastRequest(request).toList();
+	}
+	
+	@Override
+	public Observable<AstrixServiceInvocationResponse> streamBroadcastRequest(AstrixServiceInvocationRequest request) {
+		List<Observable<AstrixServiceInvocationResponse>> responses = new ArrayList<>(partitions.size());
+		for (NettyRemotingClient partition : partitions) {
+			responses.add(partition.invokeService(request));
+		}
+		return Observable.merge(responses);
+	}
+	
+	private NettyRemotingClient getPartition(RoutingKey routingKey) {
+		if (routingKey == null) {
+			return partitions.get(0);
+		}
+		return partitions.get(routingKey.hashCode() % partitions.size());
 	}
 
 	@Override
 	public int partitionCount() {
-		return 1;
+		return partitions.size();
 	}
 
 }
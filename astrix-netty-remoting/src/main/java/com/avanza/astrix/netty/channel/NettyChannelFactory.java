@@ -0,0 +1,170 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.channel;
+
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.avanza.astrix.beans.config.AstrixConfig;
+import com.avanza.astrix.config.BooleanSetting;
+import com.avanza.astrix.config.IntSetting;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+/**
+ * Creates the event loop groups and configures the channels used by the netty remoting client and server. <p>
+ * 
+ * The native epoll transport (edge-triggered) is used when enabled and available on the current
+ * platform, otherwise the NIO transport is used. Socket options with a value of 0 are left to
+ * the operating system defaults. <p>
+ * 
+ * All settings are read when the event loop group or bootstrap is created.
+ * 
+ */
+public final class NettyChannelFactory {
+	
+	public static final BooleanSetting EPOLL_ENABLED = BooleanSetting.create("astrix.netty.epoll.enabled", true);
+	public static final BooleanSetting TCP_NODELAY = BooleanSetting.create("astrix.netty.tcpNoDelay", true);
+	public static final IntSetting SO_SNDBUF = IntSetting.create("astrix.netty.soSndBuf", 0);
+	public static final IntSetting SO_RCVBUF = IntSetting.create("astrix.netty.soRcvBuf", 0);
+	public static final IntSetting WRITE_BUFFER_LOW_WATER_MARK = IntSetting.create("astrix.netty.writeBufferLowWaterMark", 32 * 1024);
+	public static final IntSetting WRITE_BUFFER_HIGH_WATER_MARK = IntSetting.create("astrix.netty.writeBufferHighWaterMark", 64 * 1024);
+	public static final BooleanSetting PREFER_DIRECT_BUFFERS = BooleanSetting.create("astrix.netty.preferDirectBuffers", true);
+	/**
+	 * Number of event loop threads used by the netty remoting client. 0 means netty default (2 * number of cores).
+	 */
+	public static final IntSetting CLIENT_WORKER_THREADS = IntSetting.create("astrix.netty.client.workerThreads", 0);
+	/**
+	 * Number of event loop threads used by the netty remoting server to serve connections. 0 means netty default (2 * number of cores).
+	 */
+	public static final IntSetting SERVER_WORKER_THREADS = IntSetting.create("astrix.netty.server.workerThreads", 0);
+	
+	private static final Logger log = LoggerFactory.getLogger(NettyChannelFactory.class);
+	private static final ByteBufAllocator POOLED_HEAP_ALLOCATOR = new PooledByteBufAllocator(false);
+	
+	private final AstrixConfig config;
+	private final boolean epoll;
+	
+	public NettyChannelFactory(AstrixConfig config) {
+		this.config = config;
+		this.epoll = config.get(EPOLL_ENABLED).get() && isEpollAvailable();
+	}
+
+	private static boolean isEpollAvailable() {
+		boolean available = Epoll.isAvailable();
+		if (!available) {
+			log.debug("Native epoll transport not available, using NIO", Epoll.unavailabilityCause());
+		}
+		return available;
+	}
+	
+	public boolean isEpoll() {
+		return epoll;
+	}
+	
+	public EventLoopGroup createClientEventLoopGroup(ThreadFactory threadFactory) {
+		return createEventLoopGroup(config.get(CLIENT_WORKER_THREADS).get(), threadFactory);
+	}
+	
+	public EventLoopGroup createServerEventLoopGroup(ThreadFactory threadFactory) {
+		return createEventLoopGroup(config.get(SERVER_WORKER_THREADS).get(), threadFactory);
+	}
+	
+	public EventLoopGroup createEventLoopGroup(int threads, ThreadFactory threadFactory) {
+		if (epoll) {
+			return new EpollEventLoopGroup(threads, threadFactory);
+		}
+		return new NioEventLoopGroup(threads, threadFactory);
+	}
+	
+	public Class<? extends SocketChannel> socketChannelType() {
+		return epoll ? EpollSocketChannel.class : NioSocketChannel.class;
+	}
+	
+	public Class<? extends ServerSocketChannel> serverSocketChannelType() {
+		return epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+	}
+	
+	/**
+	 * Sets the channel type and socket options on a client bootstrap.
+	 */
+	public Bootstrap configure(Bootstrap bootstrap) {
+		bootstrap.channel(socketChannelType());
+		bootstrap.option(ChannelOption.ALLOCATOR, allocator());
+		bootstrap.option(ChannelOption.TCP_NODELAY, config.get(TCP_NODELAY).get());
+		setIfPositive(bootstrap, ChannelOption.SO_SNDBUF, config.get(SO_SNDBUF).get());
+		setIfPositive(bootstrap, ChannelOption.SO_RCVBUF, config.get(SO_RCVBUF).get());
+		bootstrap.option(ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK, config.get(WRITE_BUFFER_HIGH_WATER_MARK).get());
+		bootstrap.option(ChannelOption.WRITE_BUFFER_LOW_WATER_MARK, config.get(WRITE_BUFFER_LOW_WATER_MARK).get());
+		if (epoll) {
+			bootstrap.option(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED);
+		}
+		return bootstrap;
+	}
+	
+	/**
+	 * Sets the channel type and socket options for the accepted connections on a server bootstrap.
+	 */
+	public ServerBootstrap configure(ServerBootstrap bootstrap) {
+		bootstrap.channel(serverSocketChannelType());
+		bootstrap.childOption(ChannelOption.ALLOCATOR, allocator());
+		bootstrap.childOption(ChannelOption.TCP_NODELAY, config.get(TCP_NODELAY).get());
+		int sndBuf = config.get(SO_SNDBUF).get();
+		if (sndBuf > 0) {
+			bootstrap.childOption(ChannelOption.SO_SNDBUF, sndBuf);
+		}
+		int rcvBuf = config.get(SO_RCVBUF).get();
+		if (rcvBuf > 0) {
+			// Set on server socket to apply to the TCP window negotiated for accepted connections
+			bootstrap.option(ChannelOption.SO_RCVBUF, rcvBuf);
+		}
+		bootstrap.childOption(ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK, config.get(WRITE_BUFFER_HIGH_WATER_MARK).get());
+		bootstrap.childOption(ChannelOption.WRITE_BUFFER_LOW_WATER_MARK, config.get(WRITE_BUFFER_LOW_WATER_MARK).get());
+		if (epoll) {
+			bootstrap.childOption(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED);
+		}
+		return bootstrap;
+	}
+	
+	private ByteBufAllocator allocator() {
+		return config.get(PREFER_DIRECT_BUFFERS).get() ? PooledByteBufAllocator.DEFAULT : POOLED_HEAP_ALLOCATOR;
+	}
+	
+	private static void setIfPositive(Bootstrap bootstrap, ChannelOption<Integer> option, int value) {
+		if (value > 0) {
+			bootstrap.option(option, value);
+		}
+	}
+
+}
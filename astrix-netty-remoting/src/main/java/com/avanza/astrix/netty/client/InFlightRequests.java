@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.client;
+
+import java.util.function.Consumer;
+
+/**
+ * Table of requests awaiting a response, keyed by the connection-scoped request id. <p>
+ * 
+ * Uses open addressing with linear probing over primitive long keys, so neither registering
+ * nor removing a request allocates any objects (unless the table has to grow). <p>
+ * 
+ * This class is NOT thread-safe. Each instance is owned by a single channel and must only be 
+ * accessed from that channel's event loop. <p>
+ *
+ * @param <T>
+ */
+final class InFlightRequests<T> {
+	
+	private static final long FREE = 0L; // Request ids are allocated from 1 and upwards
+	private static final int DEFAULT_INITIAL_CAPACITY = 64;
+	
+	private long[] keys;
+	private Object[] values;
+	private int mask;
+	private int size;
+	
+	InFlightRequests() {
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+	
+	InFlightRequests(int initialCapacity) {
+		int capacity = Integer.highestOneBit(Math.max(initialCapacity, 2) - 1) << 1;
+		this.keys = new long[capacity];
+		this.values = new Object[capacity];
+		this.mask = capacity - 1;
+	}
+	
+	void put(long requestId, T value) {
+		if (requestId == FREE) {
+			throw new IllegalArgumentException("Illegal request id: " + requestId);
+		}
+		if ((size + 1) * 2 > keys.length) {
+			resize(keys.length * 2);
+		}
+		int index = indexOf(requestId);
+		while (keys[index] != FREE) {
+			if (keys[index] == requestId) {
+				values[index] = value;
+				return;
+			}
+			index = (index + 1) & mask;
+		}
+		keys[index] = requestId;
+		values[index] = value;
+		size++;
+	}
+	
+	@SuppressWarnings("unchecked")
+	T get(long requestId) {
+		int index = indexOf(requestId);
+		while (keys[index] != FREE) {
+			if (keys[index] == requestId) {
+				return (T) values[index];
+			}
+			index = (index + 1) & mask;
+		}
+		return null;
+	}
+	
+	@SuppressWarnings("unchecked")
+	T remove(long requestId) {
+		int index = indexOf(requestId);
+		while (keys[index] != FREE) {
+			if (keys[index] == requestId) {
+				T result = (T) values[index];
+				removeAt(index);
+				return result;
+			}
+			index = (index + 1) & mask;
+		}
+		return null;
+	}
+	
+	int size() {
+		return size;
+	}
+	
+	/**
+	 * Removes all entries from this table, passing each removed value to the given consumer.
+	 */
+	@SuppressWarnings("unchecked")
+	void removeAll(Consumer<? super T> consumer) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new long[oldKeys.length];
+		values = new Object[oldValues.length];
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE) {
+				consumer.accept((T) oldValues[i]);
+			}
+		}
+	}
+
+	private void removeAt(int index) {
+		size--;
+		// Shift back entries following the removed slot to keep probe sequences unbroken
+		int free = index;
+		int next = (free + 1) & mask;
+		while (keys[next] != FREE) {
+			int home = indexOf(keys[next]);
+			if (((next - home) & mask) >= ((next - free) & mask)) {
+				keys[free] = keys[next];
+				values[free] = values[next];
+				free = next;
+			}
+			next = (next + 1) & mask;
+		}
+		keys[free] = FREE;
+		values[free] = null;
+	}
+	
+	private void resize(int newCapacity) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new long[newCapacity];
+		values = new Object[newCapacity];
+		mask = newCapacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE) {
+				int index = indexOf(oldKeys[i]);
+				while (keys[index] != FREE) {
+					index = (index + 1) & mask;
+				}
+				keys[index] = oldKeys[i];
+				values[index] = oldValues[i];
+			}
+		}
+	}
+	
+	private int indexOf(long requestId) {
+		// Request ids are sequential, spread them to avoid long probe sequences after wrap around
+		long hash = requestId * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+	
+	@Override
+	public String toString() {
+		return "InFlightRequests[size=" + size + ", capacity=" + keys.length + "]";
+	}
+
+}
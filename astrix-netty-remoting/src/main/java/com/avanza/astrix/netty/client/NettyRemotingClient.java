@@ -15,8 +15,22 @@
  */
 package com.avanza.astrix.netty.client;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.avanza.astrix.beans.config.AstrixConfig;
+import com.avanza.astrix.config.DynamicBooleanProperty;
+import com.avanza.astrix.config.DynamicIntProperty;
+import com.avanza.astrix.config.DynamicLongProperty;
+import com.avanza.astrix.config.IntSetting;
+import com.avanza.astrix.config.LongSetting;
+import com.avanza.astrix.core.ServiceUnavailableException;
+import com.avanza.astrix.netty.codec.FlushConsolidationHandler;
+import com.avanza.astrix.netty.codec.FlushMetrics;
+import com.avanza.astrix.netty.codec.NettyFrameDecoder;
+import com.avanza.astrix.netty.codec.NettyFrameEncoder;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationCodec;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
 
@@ -24,56 +38,141 @@ import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
-import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.codec.serialization.ClassResolvers;
-import io.netty.handler.codec.serialization.ObjectDecoder;
-import io.netty.handler.codec.serialization.ObjectEncoder;
+import io.netty.util.Timer;
 import rx.Observable;
 
+/**
+ * Client for a single remoting server endpoint. Maintains a fixed number of connections 
+ * to the endpoint and distributes invocations over the connections in a round-robin fashion. <p>
+ * 
+ * Each request is subject to a deadline, see {@link #REQUEST_TIMEOUT}, and the number of outstanding requests on
+ * each connection is bounded, see {@link #MAX_OUTSTANDING_REQUESTS_PER_CONNECTION}. Requests exceeding any of those limits
+ * fails with a {@link ServiceUnavailableException}. <p>
+ * 
+ * The client does not own the event loop group or {@link Timer} used by its connections, see {@link NettyRemotingClientCache}.
+ *
+ */
 public final class NettyRemotingClient {
+	
+	public static final IntSetting CONNECTIONS_PER_ENDPOINT = IntSetting.create("astrix.netty.client.connectionsPerEndpoint", 1);
+	public static final LongSetting REQUEST_TIMEOUT = LongSetting.create("astrix.netty.client.requestTimeout", 10_000L);
+	public static final IntSetting MAX_OUTSTANDING_REQUESTS_PER_CONNECTION = IntSetting.create("astrix.netty.client.maxOutstandingRequestsPerConnection", 10_000);
+	public static final IntSetting STREAM_WINDOW = IntSetting.create("astrix.netty.client.streamWindow", 64);
 
-	private final EventLoopGroup group = new NioEventLoopGroup();
-	private final NettyRemotingClientHandler nettyRemotingClientHandler = new NettyRemotingClientHandler();
+	private final Bootstrap bootstrap;
+	private final Timer timer;
+	private final DynamicLongProperty requestTimeout;
+	private final DynamicIntProperty maxOutstandingRequests;
+	private final DynamicIntProperty streamWindow;
+	private final DynamicBooleanProperty flushConsolidationEnabled;
+	private final DynamicIntProperty flushConsolidationMaxPendingMessages;
+	private final DynamicIntProperty flushConsolidationMaxPendingBytes;
+	private final FlushMetrics flushMetrics;
+	private final String host;
+	private final int port;
+	private final NettyRemotingClientHandler[] connections;
+	private final AstrixServiceInvocationCodec codec = new AstrixServiceInvocationCodec();
+	private final AtomicInteger nextConnection = new AtomicInteger();
+	
+	/**
+	 * @param bootstrap - bootstrap with event loop group, channel type and options set, will be cloned by this client
+	 */
+	public NettyRemotingClient(Bootstrap bootstrap, Timer timer, FlushMetrics flushMetrics, AstrixConfig config, String host, int port) {
+		this.bootstrap = bootstrap;
+		this.timer = timer;
+		this.flushMetrics = flushMetrics;
+		this.host = host;
+		this.port = port;
+		this.requestTimeout = config.get(REQUEST_TIMEOUT);
+		this.maxOutstandingRequests = config.get(MAX_OUTSTANDING_REQUESTS_PER_CONNECTION);
+		this.streamWindow = config.get(STREAM_WINDOW);
+		this.flushConsolidationEnabled = config.get(FlushConsolidationHandler.ENABLED);
+		this.flushConsolidationMaxPendingMessages = config.get(FlushConsolidationHandler.MAX_PENDING_MESSAGES);
+		this.flushConsolidationMaxPendingBytes = config.get(FlushConsolidationHandler.MAX_PENDING_BYTES);
+		this.connections = new NettyRemotingClientHandler[Math.max(1, config.get(CONNECTIONS_PER_ENDPOINT).get())];
+	}
 
-    public void connect(String host, int port) {
-        Bootstrap b = new Bootstrap();
-        b.group(group)
-         .channel(NioSocketChannel.class)
-         .handler(new ChannelInitializer<SocketChannel>() {
+    public void connect() {
+        Bootstrap b = bootstrap.clone();
+        b.handler(new ChannelInitializer<SocketChannel>() {
             @Override
             public void initChannel(SocketChannel ch) throws Exception {
                 ChannelPipeline p = ch.pipeline();
+                if (flushConsolidationEnabled.get()) {
+                	p.addLast(new FlushConsolidationHandler(flushConsolidationMaxPendingMessages.get(), flushConsolidationMaxPendingBytes.get(), flushMetrics));
+                }
 				p.addLast(
-                        new ObjectEncoder(),
-                        new ObjectDecoder(ClassResolvers.cacheDisabled(null)),
-                        nettyRemotingClientHandler);
+                        new NettyFrameEncoder(codec),
+                        new NettyFrameDecoder(codec),
+                        new NettyRemotingClientHandler(timer, requestTimeout, maxOutstandingRequests, streamWindow));
             }
          });
+        for (int i = 0; i < connections.length; i++) {
+        	connections[i] = connect(b);
+        }
+    }
 
-        // Start the connection attempt.
+	private NettyRemotingClientHandler connect(Bootstrap b) {
+		// Start the connection attempt.
         ChannelFuture channel = b.connect(host, port);
         try {
 			if (channel.await(1, TimeUnit.SECONDS)) {
 				if (channel.isSuccess()) {
-					return;
+					return channel.channel().pipeline().get(NettyRemotingClientHandler.class);
 				}
 			}
 		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
+        channel.channel().close();
         destroy();
         throw new IllegalArgumentException(String.format("Failed to connect to remoting server: %s:%d", host, port));
-    }
+	}
     
     public Observable<AstrixServiceInvocationResponse> invokeService(AstrixServiceInvocationRequest request) {
-    	return nettyRemotingClientHandler.sendInvocationRequest(request);
+    	NettyRemotingClientHandler connection = nextActiveConnection();
+    	if (connection == null) {
+    		return Observable.error(new ServiceUnavailableException(String.format("No active connection to remoting server: %s:%d", host, port)));
+    	}
+    	return connection.sendInvocationRequest(request);
+    }
+    
+    public CompletableFuture<AstrixServiceInvocationResponse> invokeServiceAsync(AstrixServiceInvocationRequest request) {
+    	NettyRemotingClientHandler connection = nextActiveConnection();
+    	if (connection == null) {
+    		CompletableFuture<AstrixServiceInvocationResponse> result = new CompletableFuture<>();
+    		result.completeExceptionally(new ServiceUnavailableException(String.format("No active connection to remoting server: %s:%d", host, port)));
+    		return result;
+    	}
+    	return connection.sendInvocationRequestAsync(request);
     }
     
+    private NettyRemotingClientHandler nextActiveConnection() {
+    	int first = nextConnection.getAndIncrement() & Integer.MAX_VALUE;
+    	for (int i = 0; i < connections.length; i++) {
+    		NettyRemotingClientHandler connection = connections[(first + i) % connections.length];
+    		if (connection != null && connection.isActive()) {
+    			return connection;
+    		}
+    	}
+    	return null;
+    }
+    
+    /**
+     * Closes all connections held by this client. 
+     */
     public void destroy() {
-    	group.shutdownGracefully();
+    	for (NettyRemotingClientHandler connection : connections) {
+    		if (connection != null) {
+    			connection.close();
+    		}
+    	}
+    }
+    
+    @Override
+    public String toString() {
+    	return "NettyRemotingClient[" + host + ":" + port + ", connections=" + connections.length + "]";
     }
     		
-    		
-}
\ No newline at end of file
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.avanza.astrix.beans.config.AstrixConfig;
+import com.avanza.astrix.context.mbeans.MBeanExporter;
+import com.avanza.astrix.modules.KeyLock;
+import com.avanza.astrix.modules.ObjectCache;
+import com.avanza.astrix.netty.channel.NettyChannelFactory;
+import com.avanza.astrix.netty.codec.FlushMetrics;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * Manages lifecycle for each {@link NettyRemotingClient} created by Astrix. <p>
+ * 
+ * One client is maintained per remote endpoint (host:port), and all clients share a
+ * single {@link EventLoopGroup} and a single {@link Timer} (used for request timeouts) which are
+ * created on first use and shut down when the owning AstrixContext is destroyed.
+ * 
+ */
+public final class NettyRemotingClientCache {
+	
+	private static final Logger log = LoggerFactory.getLogger(NettyRemotingClientCache.class);
+	private final ObjectCache objectCache = new ObjectCache();
+	private final KeyLock<String> clientByEndpointLock = new KeyLock<>();
+	private final AstrixConfig config;
+	private final FlushMetrics flushMetrics = new FlushMetrics();
+	private EventLoopGroup eventLoopGroup;
+	private Bootstrap bootstrap;
+	private Timer timer;
+	
+	public NettyRemotingClientCache(AstrixConfig config, MBeanExporter mbeanExporter) {
+		this.config = config;
+		mbeanExporter.registerMBean(flushMetrics, "NettyRemoting", "ClientFlushes");
+	}
+
+	/**
+	 * Retrieves the client for a given endpoint from the cache and creates (and connects) the client if it does not exist.
+	 * 
+	 * Every time a client is retrieved from the cache the consumer count will be incremented. The
+	 * client must be returned to the cache by invoking NettyRemotingClientInstance.release. When all instances
+	 * for a given endpoint are released, the client will be destroyed and all its connections closed. 
+	 * 
+	 * @param host
+	 * @param port
+	 * @return
+	 */
+	public NettyRemotingClientInstance getClient(final String host, final int port) {
+		final String endpoint = host + ":" + port;
+		clientByEndpointLock.lock(endpoint);
+		try {
+			NettyRemotingClientInstance clientInstance = objectCache.getInstance(endpoint, () -> {
+				NettyRemotingClient client = createClient(host, port);
+				log.info("Connecting: {}", client);
+				client.connect();
+				return new NettyRemotingClientInstance(endpoint, client);
+			});
+			clientInstance.incConsumerCount();
+			return clientInstance;
+		} finally {
+			clientByEndpointLock.unlock(endpoint);
+		}
+	}
+	
+	private synchronized NettyRemotingClient createClient(String host, int port) {
+		if (eventLoopGroup == null) {
+			NettyChannelFactory channelFactory = new NettyChannelFactory(config);
+			eventLoopGroup = channelFactory.createClientEventLoopGroup(new DefaultThreadFactory("astrix-netty-client", true));
+			bootstrap = channelFactory.configure(new Bootstrap().group(eventLoopGroup));
+			timer = new HashedWheelTimer(new DefaultThreadFactory("astrix-netty-client-timer", true), 10, TimeUnit.MILLISECONDS);
+		}
+		return new NettyRemotingClient(bootstrap, timer, flushMetrics, config, host, port);
+	}
+	
+	@PreDestroy
+	public void destroy() {
+		this.objectCache.destroy();
+		synchronized (this) {
+			if (eventLoopGroup != null) {
+				eventLoopGroup.shutdownGracefully();
+				timer.stop();
+			}
+		}
+	}
+	
+	public class NettyRemotingClientInstance {
+		
+		private final String endpoint;
+		private final NettyRemotingClient client;
+		private final AtomicInteger consumerCount = new AtomicInteger(0);
+		
+		private NettyRemotingClientInstance(String endpoint, NettyRemotingClient client) {
+			this.endpoint = endpoint;
+			this.client = client;
+		}
+		
+		public void incConsumerCount() {
+			this.consumerCount.incrementAndGet();
+		}
+		
+		public NettyRemotingClient get() {
+			return client;
+		}
+		
+		public void release() {
+			clientByEndpointLock.lock(endpoint);
+			try {
+				int count = this.consumerCount.decrementAndGet();
+				if (count == 0) {
+					// Destroy this instance in cache. That in turn will invoke @PreDestroy annotated methods
+					objectCache.destroyInCache(endpoint);
+				}
+			} finally {
+				clientByEndpointLock.unlock(endpoint);
+			}
+		}
+		
+		@PreDestroy
+		public void destroy() {
+			log.info("Closing connections to: {}", endpoint);
+			client.destroy();
+		}
+	}
+
+}
@@ -15,69 +15,358 @@
  */
 package com.avanza.astrix.netty.client;
 
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.avanza.astrix.config.DynamicIntProperty;
+import com.avanza.astrix.config.DynamicLongProperty;
+import com.avanza.astrix.core.ServiceUnavailableException;
+import com.avanza.astrix.netty.codec.CancelFrame;
+import com.avanza.astrix.netty.codec.CreditFrame;
+import com.avanza.astrix.netty.codec.RequestFrame;
+import com.avanza.astrix.netty.codec.ResponseFrame;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
 
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoop;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
 import rx.Observable;
+import rx.Observer;
 import rx.Subscriber;
+import rx.subscriptions.Subscriptions;
 
 public class NettyRemotingClientHandler extends ChannelInboundHandlerAdapter {
 	
-
-	public static final String NETTY_RESPONSE_SUBSCRIBER_ID = "netty.responseSubscriberId";
+	/*
+	 * IMPLEMENTATION NOTE:
+	 * 
+	 * The request id sequence and the table of in-flight requests are only accessed
+	 * from the event loop of the channel, hence no synchronization is required. Requests
+	 * submitted from other threads, timeouts and cancellations are handed over to the event 
+	 * loop before they touch the in-flight table.
+	 * 
+	 * An in-flight request is removed from the table exactly once, either when the (terminal) response
+	 * arrives, when it times out, when the subscriber unsubscribes or when the channel is closed.
+	 * 
+	 * Requests for streaming service methods are answered with a sequence of non-terminal response 
+	 * frames followed by a terminal frame. The server may only emit as many elements as the client has 
+	 * granted credits for, the initial window is sent in the request frame. Received elements are buffered
+	 * until the subscriber requests them (Producer.request), and credits are only granted back to the
+	 * server for elements that are actually delivered, once half the window has been delivered. Hence a
+	 * slow subscriber propagates backpressure all the way to the server, and the buffer never holds more
+	 * than one window of elements. The request timeout applies to the time between two consecutive frames,
+	 * but is suspended while the server has no credits left, i.e. while waiting for the subscriber.
+	 * A stream that is abandoned by the client before the terminal frame arrives is cancelled on the
+	 * server using a CancelFrame.
+	 */
+	
+	private static final Logger log = LoggerFactory.getLogger(NettyRemotingClientHandler.class);
+	private static final long NOT_SENT = 0L; // Request ids are allocated from 1 and upwards
+	
+	private final Timer timer;
+	private final DynamicLongProperty requestTimeout;
+	private final DynamicIntProperty maxOutstandingRequests;
+	private final DynamicIntProperty streamWindow;
 	private volatile ChannelHandlerContext ctx;
+	private long lastRequestId = 0;
+	private final InFlightRequests<InFlightRequest> inFlightRequests = new InFlightRequests<>();
 	
-	private ConcurrentMap<String, Subscriber<? super AstrixServiceInvocationResponse>> subscriberBySubscriberId = new ConcurrentHashMap<>(); 
+	public NettyRemotingClientHandler(Timer timer, DynamicLongProperty requestTimeout, DynamicIntProperty maxOutstandingRequests, DynamicIntProperty streamWindow) {
+		this.timer = timer;
+		this.requestTimeout = requestTimeout;
+		this.maxOutstandingRequests = maxOutstandingRequests;
+		this.streamWindow = streamWindow;
+	}
 
     @Override
-    public void channelActive(ChannelHandlerContext ctx) {
+    public void handlerAdded(ChannelHandlerContext ctx) {
 		this.ctx = ctx;
-//         Send the first message if this handler is a client-side handler.
-//        ctx.writeAndFlush();
+    }
+    
+    boolean isActive() {
+    	return ctx.channel().isActive();
+    }
+    
+    void close() {
+    	ctx.close();
     }
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
-    	AstrixServiceInvocationResponse response = (AstrixServiceInvocationResponse) msg;
-    	String invocationId = response.getHeader(NETTY_RESPONSE_SUBSCRIBER_ID);
-    	Subscriber<? super AstrixServiceInvocationResponse> subscriber = getSubscriber(invocationId);
-    	if (subscriber == null) {
+    	ResponseFrame responseFrame = (ResponseFrame) msg;
+    	long requestId = responseFrame.getRequestId();
+    	InFlightRequest inFlightRequest = responseFrame.isLast() ? inFlightRequests.remove(requestId) : inFlightRequests.get(requestId);
+    	if (inFlightRequest == null) {
+    		// Request already timed out or cancelled
+    		log.debug("Discarding response for request that is no longer in flight. requestId={}", requestId);
+    		return;
+    	}
+    	inFlightRequest.cancelTimeout();
+    	if (!responseFrame.isLast()) {
+    		inFlightRequest.outstandingCredits--;
+    		if (inFlightRequest.outstandingCredits > 0) {
+    			inFlightRequest.timeout = scheduleTimeout(requestId);
+    		}
+    		inFlightRequest.pending.add(responseFrame.getResponse());
+    	} else {
+    		if (responseFrame.getResponse() != null) {
+    			inFlightRequest.pending.add(responseFrame.getResponse());
+    		}
+    		inFlightRequest.completed = true;
+    	}
+    	drain(requestId, inFlightRequest);
+    }
+    
+    private void request(long requestId, InFlightRequest inFlightRequest, long n) {
+    	long requested = inFlightRequest.requested + n;
+    	inFlightRequest.requested = requested < 0 ? Long.MAX_VALUE : requested;
+    	drain(requestId, inFlightRequest);
+    	ctx.flush();
+    }
+    
+    /**
+     * Delivers buffered elements as long as the subscriber has outstanding demand. Re-entrant
+     * requests from within onNext only add to the demand, and are served by the outer loop.
+     */
+    private void drain(long requestId, InFlightRequest inFlightRequest) {
+    	if (inFlightRequest.draining) {
+    		return;
+    	}
+    	inFlightRequest.draining = true;
+    	try {
+    		while (inFlightRequest.requested > 0 && !inFlightRequest.pending.isEmpty()) {
+    			if (inFlightRequest.requested != Long.MAX_VALUE) {
+    				inFlightRequest.requested--;
+    			}
+    			inFlightRequest.deliveredCredits++;
+    			inFlightRequest.observer.onNext(inFlightRequest.pending.poll());
+    		}
+    	} finally {
+    		inFlightRequest.draining = false;
+    	}
+    	if (inFlightRequest.completed) {
+    		if (inFlightRequest.pending.isEmpty()) {
+    			inFlightRequest.completed = false;
+    			inFlightRequest.observer.onCompleted();
+    		}
     		return;
     	}
-    	subscriber.onNext(response);
-    	subscriber.onCompleted();
-        // Echo back the received object to the server.
-//        ctx.write(msg);
+    	grantCredits(requestId, inFlightRequest);
     }
 
-    private Subscriber<? super AstrixServiceInvocationResponse> getSubscriber(String invocationId) {
-    	Subscriber<? super AstrixServiceInvocationResponse> subscriber = this.subscriberBySubscriberId.remove(invocationId);
-		return subscriber;
+	private void grantCredits(long requestId, InFlightRequest inFlightRequest) {
+		if (inFlightRequest.deliveredCredits >= Math.max(1, inFlightRequest.streamWindow / 2) && inFlightRequests.get(requestId) == inFlightRequest) {
+			ctx.write(new CreditFrame(requestId, inFlightRequest.deliveredCredits));
+			inFlightRequest.outstandingCredits += inFlightRequest.deliveredCredits;
+			inFlightRequest.deliveredCredits = 0;
+			if (inFlightRequest.timeout == null) {
+				inFlightRequest.timeout = scheduleTimeout(requestId);
+			}
+		}
 	}
 
 	@Override
     public void channelReadComplete(ChannelHandlerContext ctx) {
         ctx.flush();
     }
+	
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		inFlightRequests.removeAll(inFlightRequest -> {
+			inFlightRequest.cancelTimeout();
+			inFlightRequest.pending.clear();
+			inFlightRequest.observer.onError(new ServiceUnavailableException("Connection to remoting server closed: " + ctx.channel().remoteAddress()));
+		});
+		super.channelInactive(ctx);
+	}
 
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
-        cause.printStackTrace();
+    	log.warn("Closing connection to remoting server: " + ctx.channel().remoteAddress(), cause);
         ctx.close();
     }
 
 	public Observable<AstrixServiceInvocationResponse> sendInvocationRequest(AstrixServiceInvocationRequest request) {
-		return Observable.create((subscriber) -> {
-			String invocationId = UUID.randomUUID().toString();
-			this.subscriberBySubscriberId.put(invocationId, subscriber);
-			request.setHeader(NETTY_RESPONSE_SUBSCRIBER_ID, invocationId);
-			ctx.writeAndFlush(request);
+		return Observable.create((subscriber) -> runInEventLoop(() -> send(request, subscriber)));
+	}
+	
+	/**
+	 * Sends a request for a service method that returns a single response. The returned
+	 * future is completed directly from the event loop when the response arrives. 
+	 */
+	public CompletableFuture<AstrixServiceInvocationResponse> sendInvocationRequestAsync(AstrixServiceInvocationRequest request) {
+		ResponseFuture response = new ResponseFuture();
+		runInEventLoop(() -> send(request, response));
+		return response;
+	}
+	
+	private void runInEventLoop(Runnable task) {
+		EventLoop eventLoop = ctx.channel().eventLoop();
+		if (eventLoop.inEventLoop()) {
+			task.run();
+		} else {
+			eventLoop.execute(task);
+		}
+	}
+
+	private void send(AstrixServiceInvocationRequest request, Subscriber<? super AstrixServiceInvocationResponse> subscriber) {
+		if (subscriber.isUnsubscribed()) {
+			return;
+		}
+		long requestId = sendRequest(request, subscriber, 0);
+		if (requestId != NOT_SENT) {
+			InFlightRequest inFlightRequest = inFlightRequests.get(requestId);
+			subscriber.add(Subscriptions.create(() -> cancel(requestId)));
+			subscriber.setProducer(n -> {
+				if (n > 0) {
+					runInEventLoop(() -> request(requestId, inFlightRequest, n));
+				}
+			});
+		}
+	}
+	
+	private void send(AstrixServiceInvocationRequest request, ResponseFuture response) {
+		if (response.isDone()) {
+			return;
+		}
+		response.requestId = sendRequest(request, response, Long.MAX_VALUE);
+		if (response.isCancelled() && response.requestId != NOT_SENT) {
+			// Cancelled before the request id was assigned
+			abandon(response.requestId);
+		}
+	}
+	
+	/**
+	 * @return the id of the in-flight request, or {@link #NOT_SENT} if the request was rejected
+	 */
+	private long sendRequest(AstrixServiceInvocationRequest request, Observer<? super AstrixServiceInvocationResponse> observer, long initialDemand) {
+		if (!ctx.channel().isActive()) {
+			observer.onError(new ServiceUnavailableException("Connection to remoting server closed: " + ctx.channel().remoteAddress()));
+			return NOT_SENT;
+		}
+		if (inFlightRequests.size() >= maxOutstandingRequests.get()) {
+			observer.onError(new ServiceUnavailableException("Too many outstanding requests to remoting server: " + ctx.channel().remoteAddress() 
+					+ " maxOutstandingRequests=" + maxOutstandingRequests.get()));
+			return NOT_SENT;
+		}
+		final long requestId = ++lastRequestId;
+		final int window = Math.max(1, streamWindow.get());
+		inFlightRequests.put(requestId, new InFlightRequest(observer, scheduleTimeout(requestId), window, initialDemand));
+		ctx.writeAndFlush(new RequestFrame(requestId, request, window)).addListener((ChannelFutureListener) future -> {
+			if (!future.isSuccess()) {
+				fail(requestId, new ServiceUnavailableException("Failed to send request to remoting server: " + ctx.channel().remoteAddress(), future.cause()));
+			}
 		});
+		return requestId;
+	}
+	
+	private Timeout scheduleTimeout(long requestId) {
+		final long timeoutMillis = requestTimeout.get();
+		return timer.newTimeout(t -> ctx.channel().eventLoop().execute(() -> {
+			fail(requestId, new ServiceUnavailableException("Request to remoting server timed out: " + ctx.channel().remoteAddress() + " timeout=" + timeoutMillis + "ms"));
+		}), timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	private void cancel(long requestId) {
+		EventLoop eventLoop = ctx.channel().eventLoop();
+		if (eventLoop.inEventLoop()) {
+			abandon(requestId);
+		} else {
+			eventLoop.execute(() -> abandon(requestId));
+		}
+	}
+	
+	private InFlightRequest abandon(long requestId) {
+		InFlightRequest inFlightRequest = remove(requestId);
+		if (inFlightRequest != null && ctx.channel().isActive()) {
+			// Stop the server from producing any more elements if the request targets a streaming service
+			ctx.writeAndFlush(new CancelFrame(requestId));
+		}
+		return inFlightRequest;
+	}
+	
+	private InFlightRequest remove(long requestId) {
+		InFlightRequest inFlightRequest = inFlightRequests.remove(requestId);
+		if (inFlightRequest != null) {
+			inFlightRequest.cancelTimeout();
+			inFlightRequest.pending.clear();
+		}
+		return inFlightRequest;
+	}
+	
+	private void fail(long requestId, ServiceUnavailableException cause) {
+		InFlightRequest inFlightRequest = abandon(requestId);
+		if (inFlightRequest != null) {
+			inFlightRequest.observer.onError(cause);
+		}
+	}
+	
+	private static final class InFlightRequest {
+		private final Observer<? super AstrixServiceInvocationResponse> observer;
+		private final int streamWindow;
+		private final Queue<AstrixServiceInvocationResponse> pending = new ArrayDeque<>();
+		private Timeout timeout; // null while the server has no credits left
+		private int outstandingCredits;
+		private int deliveredCredits = 0;
+		private long requested;
+		private boolean completed = false;
+		private boolean draining = false;
+		
+		public InFlightRequest(Observer<? super AstrixServiceInvocationResponse> observer, Timeout timeout, int streamWindow, long requested) {
+			this.observer = observer;
+			this.timeout = timeout;
+			this.streamWindow = streamWindow;
+			this.outstandingCredits = streamWindow;
+			this.requested = requested;
+		}
+		
+		void cancelTimeout() {
+			if (timeout != null) {
+				timeout.cancel();
+				timeout = null;
+			}
+		}
+	}
+	
+	/**
+	 * Completed with the first response frame. Cancelling the future abandons the in-flight request.
+	 */
+	private final class ResponseFuture extends CompletableFuture<AstrixServiceInvocationResponse> implements Observer<AstrixServiceInvocationResponse> {
+		
+		private volatile long requestId = NOT_SENT;
+		
+		@Override
+		public void onNext(AstrixServiceInvocationResponse response) {
+			complete(response);
+		}
+		
+		@Override
+		public void onError(Throwable e) {
+			completeExceptionally(e);
+		}
+		
+		@Override
+		public void onCompleted() {
+			completeExceptionally(new ServiceUnavailableException("Remoting server did not send a response"));
+		}
+		
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			long requestId = this.requestId;
+			if (cancelled && requestId != NOT_SENT) {
+				NettyRemotingClientHandler.this.cancel(requestId);
+			}
+			return cancelled;
+		}
 	}
-}
\ No newline at end of file
+}
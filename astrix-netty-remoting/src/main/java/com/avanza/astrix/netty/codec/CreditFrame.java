@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.codec;
+
+/**
+ * Sent by the client to allow the server to emit additional elements for a streaming response. 
+ *
+ */
+public final class CreditFrame {
+	
+	private final long requestId;
+	private final int credits;
+	
+	public CreditFrame(long requestId, int credits) {
+		this.requestId = requestId;
+		this.credits = credits;
+	}
+	
+	public long getRequestId() {
+		return requestId;
+	}
+	
+	public int getCredits() {
+		return credits;
+	}
+	
+	@Override
+	public String toString() {
+		return "CreditFrame[requestId=" + requestId + ", credits=" + credits + "]";
+	}
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.codec;
+
+import com.avanza.astrix.config.BooleanSetting;
+import com.avanza.astrix.config.IntSetting;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * Consolidates flushes in order to reduce the number of write syscalls when many small
+ * frames are written to a channel. <p>
+ * 
+ * A flush is deferred until either:
+ * <ul>
+ * <li>the current read batch completes (channelReadComplete), if the flush was requested while reading,</li>
+ * <li>the tasks currently queued on the event loop has executed, or</li>
+ * <li>the number of pending messages or bytes reaches the configured thresholds.</li>
+ * </ul>
+ * 
+ * Under low load each flush will carry a single message, whereas under high load the 
+ * number of messages per flush grows with the number of requests submitted during each event loop tick. <p>
+ * 
+ * Must be added in front of the {@link NettyFrameEncoder} in order to account for the number of pending bytes.
+ * 
+ */
+public final class FlushConsolidationHandler extends ChannelDuplexHandler {
+	
+	public static final BooleanSetting ENABLED = BooleanSetting.create("astrix.netty.flushConsolidation.enabled", true);
+	public static final IntSetting MAX_PENDING_MESSAGES = IntSetting.create("astrix.netty.flushConsolidation.maxPendingMessages", 256);
+	public static final IntSetting MAX_PENDING_BYTES = IntSetting.create("astrix.netty.flushConsolidation.maxPendingBytes", 64 * 1024);
+	
+	/*
+	 * IMPLEMENTATION NOTE:
+	 * 
+	 * All state is confined to the event loop of the channel.
+	 */
+	
+	private final int maxPendingMessages;
+	private final int maxPendingBytes;
+	private final FlushMetrics metrics;
+	private final Runnable flushTask = this::scheduledFlush;
+	private ChannelHandlerContext ctx;
+	private int pendingMessages;
+	private long pendingBytes;
+	private boolean flushPending;
+	private boolean flushScheduled;
+	private boolean readInProgress;
+	
+	public FlushConsolidationHandler(int maxPendingMessages, int maxPendingBytes, FlushMetrics metrics) {
+		this.maxPendingMessages = maxPendingMessages;
+		this.maxPendingBytes = maxPendingBytes;
+		this.metrics = metrics;
+	}
+	
+	@Override
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		this.ctx = ctx;
+	}
+	
+	@Override
+	public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+		pendingMessages++;
+		if (msg instanceof ByteBuf) {
+			pendingBytes += ByteBuf.class.cast(msg).readableBytes();
+		}
+		ctx.write(msg, promise);
+	}
+	
+	@Override
+	public void flush(ChannelHandlerContext ctx) throws Exception {
+		flushPending = true;
+		if (pendingMessages >= maxPendingMessages || pendingBytes >= maxPendingBytes) {
+			flushNow();
+			return;
+		}
+		if (readInProgress) {
+			// Flushed when read batch completes
+			return;
+		}
+		if (!flushScheduled) {
+			flushScheduled = true;
+			ctx.channel().eventLoop().execute(flushTask);
+		}
+	}
+	
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		readInProgress = true;
+		ctx.fireChannelRead(msg);
+	}
+	
+	@Override
+	public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+		ctx.fireChannelReadComplete();
+		readInProgress = false;
+		flushIfPending();
+	}
+	
+	@Override
+	public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+		if (!ctx.channel().isWritable()) {
+			flushIfPending();
+		}
+		ctx.fireChannelWritabilityChanged();
+	}
+	
+	@Override
+	public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+		flushIfPending();
+		ctx.close(promise);
+	}
+	
+	@Override
+	public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+		flushIfPending();
+		ctx.disconnect(promise);
+	}
+	
+	@Override
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		flushIfPending();
+	}
+	
+	private void scheduledFlush() {
+		flushScheduled = false;
+		if (!readInProgress) {
+			flushIfPending();
+		}
+	}
+
+	private void flushIfPending() {
+		if (flushPending) {
+			flushNow();
+		}
+	}
+
+	private void flushNow() {
+		if (pendingMessages > 0) {
+			metrics.recordFlush(pendingMessages, pendingBytes);
+		}
+		pendingMessages = 0;
+		pendingBytes = 0;
+		flushPending = false;
+		ctx.flush();
+	}
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.codec;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for the flushes performed by {@link FlushConsolidationHandler}. Shared by all
+ * channels of a netty remoting client or server.
+ *
+ */
+public final class FlushMetrics implements FlushMetricsMBean {
+	
+	private final LongAdder flushCount = new LongAdder();
+	private final LongAdder messageCount = new LongAdder();
+	private final LongAdder byteCount = new LongAdder();
+	
+	void recordFlush(int messages, long bytes) {
+		flushCount.increment();
+		messageCount.add(messages);
+		byteCount.add(bytes);
+	}
+
+	@Override
+	public long getFlushCount() {
+		return flushCount.sum();
+	}
+
+	@Override
+	public long getMessageCount() {
+		return messageCount.sum();
+	}
+	
+	@Override
+	public long getByteCount() {
+		return byteCount.sum();
+	}
+
+	@Override
+	public double getMessagesPerFlush() {
+		long flushes = flushCount.sum();
+		return flushes == 0 ? 0D : messageCount.sum() / (double) flushes;
+	}
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.codec;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * DataOutput used to encode a single frame. Everything is written into a pooled buffer, except for 
+ * byte arrays of at least <code>zeroCopyThreshold</code> bytes, i.e. large serialized payloads, which 
+ * are wrapped rather than copied. A frame containing a wrapped payload is emitted as a {@link CompositeByteBuf}. <p>
+ * 
+ * The wrapped arrays must not be modified until the frame is written to the channel, which holds
+ * for the (immutable) serialized arguments and response bodies. <p>
+ * 
+ */
+final class FrameOutput extends OutputStream implements DataOutput {
+	
+	private final ByteBufAllocator allocator;
+	private final int zeroCopyThreshold;
+	private CompositeByteBuf frame;
+	private ByteBuf current;
+	private ByteBufOutputStream currentOutput;
+	
+	FrameOutput(ByteBufAllocator allocator, int zeroCopyThreshold) {
+		this.allocator = allocator;
+		this.zeroCopyThreshold = zeroCopyThreshold;
+		newSegment();
+	}
+
+	/**
+	 * @return the encoded frame, the caller is responsible for releasing it
+	 */
+	ByteBuf finish() {
+		if (frame == null) {
+			return current;
+		}
+		addComponent(current);
+		current = null;
+		return frame;
+	}
+	
+	/**
+	 * Releases all buffers, used when encoding fails.
+	 */
+	void release() {
+		if (frame != null) {
+			frame.release();
+		}
+		if (current != null) {
+			current.release();
+		}
+	}
+	
+	@Override
+	public void write(byte[] b, int off, int len) {
+		if (len < zeroCopyThreshold) {
+			current.writeBytes(b, off, len);
+			return;
+		}
+		if (frame == null) {
+			frame = allocator.compositeBuffer(Integer.MAX_VALUE);
+		}
+		addComponent(current);
+		addComponent(Unpooled.wrappedBuffer(b, off, len));
+		newSegment();
+	}
+	
+	private void addComponent(ByteBuf buffer) {
+		// Adding a component does not increase the writer index in netty 4.0
+		frame.addComponent(buffer);
+		frame.writerIndex(frame.writerIndex() + buffer.readableBytes());
+	}
+	
+	private void newSegment() {
+		current = allocator.ioBuffer();
+		currentOutput = new ByteBufOutputStream(current);
+	}
+
+	@Override
+	public void write(byte[] b) {
+		write(b, 0, b.length);
+	}
+	
+	@Override
+	public void write(int b) {
+		current.writeByte(b);
+	}
+
+	@Override
+	public void writeBoolean(boolean v) {
+		current.writeBoolean(v);
+	}
+
+	@Override
+	public void writeByte(int v) {
+		current.writeByte(v);
+	}
+
+	@Override
+	public void writeShort(int v) {
+		current.writeShort(v);
+	}
+
+	@Override
+	public void writeChar(int v) {
+		current.writeChar(v);
+	}
+
+	@Override
+	public void writeInt(int v) {
+		current.writeInt(v);
+	}
+
+	@Override
+	public void writeLong(long v) {
+		current.writeLong(v);
+	}
+
+	@Override
+	public void writeFloat(float v) {
+		current.writeFloat(v);
+	}
+
+	@Override
+	public void writeDouble(double v) {
+		current.writeDouble(v);
+	}
+
+	@Override
+	public void writeBytes(String s) throws IOException {
+		currentOutput.writeBytes(s);
+	}
+
+	@Override
+	public void writeChars(String s) throws IOException {
+		currentOutput.writeChars(s);
+	}
+
+	@Override
+	public void writeUTF(String s) throws IOException {
+		currentOutput.writeUTF(s);
+	}
+
+}
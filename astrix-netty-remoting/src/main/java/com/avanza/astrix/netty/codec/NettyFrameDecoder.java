@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.codec;
+
+import java.io.IOException;
+
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationCodec;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+
+/**
+ * Decodes frames written by {@link NettyFrameEncoder} into {@link RequestFrame}, {@link ResponseFrame},
+ * {@link CreditFrame} and {@link CancelFrame} instances. <p>
+ *
+ */
+public final class NettyFrameDecoder extends LengthFieldBasedFrameDecoder {
+	
+	private final AstrixServiceInvocationCodec codec;
+	
+	public NettyFrameDecoder(AstrixServiceInvocationCodec codec) {
+		this(codec, NettyFrames.DEFAULT_MAX_FRAME_LENGTH);
+	}
+	
+	public NettyFrameDecoder(AstrixServiceInvocationCodec codec, int maxFrameLength) {
+		super(maxFrameLength, 0, NettyFrames.LENGTH_FIELD_LENGTH, 0, NettyFrames.LENGTH_FIELD_LENGTH);
+		this.codec = codec;
+	}
+	
+	@Override
+	protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+		ByteBuf frame = (ByteBuf) super.decode(ctx, in);
+		if (frame == null) {
+			return null;
+		}
+		try {
+			ByteBufInputStream frameInput = new ByteBufInputStream(frame);
+			byte frameType = frameInput.readByte();
+			long requestId = frameInput.readLong();
+			switch (frameType) {
+			case NettyFrames.REQUEST:
+				int streamCredits = frameInput.readInt();
+				return new RequestFrame(requestId, codec.readRequest(frameInput), streamCredits);
+			case NettyFrames.RESPONSE:
+				byte flags = frameInput.readByte();
+				AstrixServiceInvocationResponse response = (flags & NettyFrames.HAS_RESPONSE) != 0 ? codec.readResponse(frameInput) : null;
+				return new ResponseFrame(requestId, response, (flags & NettyFrames.LAST) != 0);
+			case NettyFrames.CREDIT:
+				return new CreditFrame(requestId, frameInput.readInt());
+			case NettyFrames.CANCEL:
+				return new CancelFrame(requestId);
+			default:
+				throw new IOException("Unknown frame type: " + frameType);
+			}
+		} finally {
+			frame.release();
+		}
+	}
+	
+	@Override
+	protected ByteBuf extractFrame(ChannelHandlerContext ctx, ByteBuf buffer, int index, int length) {
+		// The frame is fully decoded before decode returns, hence there is no need to copy it
+		return buffer.slice(index, length).retain();
+	}
+
+}
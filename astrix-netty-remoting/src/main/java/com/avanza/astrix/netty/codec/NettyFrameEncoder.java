@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.codec;
+
+import java.util.List;
+
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationCodec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageEncoder;
+
+/**
+ * Encodes {@link RequestFrame}, {@link ResponseFrame}, {@link CreditFrame} and {@link CancelFrame} 
+ * instances into length prefixed frames, see {@link NettyFrames}. <p>
+ * 
+ * The frame is written directly into a pooled ByteBuf. Serialized payloads (byte[] arguments and response bodies) 
+ * larger than the zero copy threshold are wrapped instead of copied, see {@link FrameOutput}. <p>
+ *
+ */
+@Sharable
+public final class NettyFrameEncoder extends MessageToMessageEncoder<Object> {
+	
+	static final int DEFAULT_ZERO_COPY_THRESHOLD = 8 * 1024;
+	
+	private final AstrixServiceInvocationCodec codec;
+	private final int zeroCopyThreshold;
+	
+	public NettyFrameEncoder(AstrixServiceInvocationCodec codec) {
+		this(codec, DEFAULT_ZERO_COPY_THRESHOLD);
+	}
+	
+	public NettyFrameEncoder(AstrixServiceInvocationCodec codec, int zeroCopyThreshold) {
+		this.codec = codec;
+		this.zeroCopyThreshold = zeroCopyThreshold;
+	}
+	
+	@Override
+	public boolean acceptOutboundMessage(Object msg) throws Exception {
+		return msg instanceof RequestFrame || msg instanceof ResponseFrame || msg instanceof CreditFrame || msg instanceof CancelFrame;
+	}
+
+	@Override
+	protected void encode(ChannelHandlerContext ctx, Object msg, List<Object> out) throws Exception {
+		FrameOutput frame = new FrameOutput(ctx.alloc(), zeroCopyThreshold);
+		try {
+			frame.writeInt(0); // Placeholder for length field
+			encode(msg, frame);
+		} catch (Exception | Error e) {
+			frame.release();
+			throw e;
+		}
+		ByteBuf result = frame.finish();
+		result.setInt(0, result.readableBytes() - NettyFrames.LENGTH_FIELD_LENGTH);
+		out.add(result);
+	}
+
+	private void encode(Object msg, FrameOutput frame) throws Exception {
+		if (msg instanceof RequestFrame) {
+			RequestFrame requestFrame = (RequestFrame) msg;
+			frame.writeByte(NettyFrames.REQUEST);
+			frame.writeLong(requestFrame.getRequestId());
+			frame.writeInt(requestFrame.getStreamCredits());
+			codec.writeRequest(requestFrame.getRequest(), frame);
+		} else if (msg instanceof ResponseFrame) {
+			ResponseFrame responseFrame = (ResponseFrame) msg;
+			frame.writeByte(NettyFrames.RESPONSE);
+			frame.writeLong(responseFrame.getRequestId());
+			int flags = (responseFrame.isLast() ? NettyFrames.LAST : 0) | (responseFrame.getResponse() != null ? NettyFrames.HAS_RESPONSE : 0);
+			frame.writeByte(flags);
+			if (responseFrame.getResponse() != null) {
+				codec.writeResponse(responseFrame.getResponse(), frame);
+			}
+		} else if (msg instanceof CreditFrame) {
+			CreditFrame creditFrame = (CreditFrame) msg;
+			frame.writeByte(NettyFrames.CREDIT);
+			frame.writeLong(creditFrame.getRequestId());
+			frame.writeInt(creditFrame.getCredits());
+		} else {
+			frame.writeByte(NettyFrames.CANCEL);
+			frame.writeLong(((CancelFrame) msg).getRequestId());
+		}
+	}
+
+}
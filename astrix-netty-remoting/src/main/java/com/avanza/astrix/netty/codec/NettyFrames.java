@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.codec;
+
+/**
+ * Defines the frame layout used by the netty remoting transport. <p>
+ * 
+ * Each frame is prefixed with a 4 byte length field followed by a single byte identifying
+ * the frame type and an 8 byte request id used to correlate responses with requests. The 
+ * remainder of the frame depends on the frame type:
+ * 
+ * <ul>
+ * <li>REQUEST - 4 byte initial stream credits followed by the request encoded using {@link com.avanza.astrix.remoting.client.AstrixServiceInvocationCodec}</li>
+ * <li>RESPONSE - 1 byte flags (LAST, HAS_RESPONSE) followed by the response, if any, encoded using {@link com.avanza.astrix.remoting.client.AstrixServiceInvocationCodec}</li>
+ * <li>CREDIT - 4 byte number of additional stream elements the client is ready to receive</li>
+ * <li>CANCEL - no additional content</li>
+ * </ul>
+ * 
+ * A request for a non-streaming service method is answered with a single RESPONSE frame with the LAST flag set. A
+ * request for a streaming service method is answered with one RESPONSE frame per element, followed by a 
+ * terminal RESPONSE frame with the LAST flag set, see {@link ResponseFrame}.
+ *
+ */
+final class NettyFrames {
+	
+	static final int LENGTH_FIELD_LENGTH = 4;
+	static final int DEFAULT_MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+	
+	static final byte REQUEST = 1;
+	static final byte RESPONSE = 2;
+	static final byte CREDIT = 3;
+	static final byte CANCEL = 4;
+	
+	static final byte LAST = 1;
+	static final byte HAS_RESPONSE = 2;
+
+	private NettyFrames() {
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.codec;
+
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
+
+/**
+ * An {@link AstrixServiceInvocationRequest} together with the connection-scoped id 
+ * used to correlate it with its {@link ResponseFrame}(s).
+ *
+ */
+public final class RequestFrame {
+	
+	private final long requestId;
+	private final AstrixServiceInvocationRequest request;
+	private final int streamCredits;
+	
+	public RequestFrame(long requestId, AstrixServiceInvocationRequest request) {
+		this(requestId, request, 0);
+	}
+	
+	/**
+	 * @param streamCredits - the number of elements the server might emit before awaiting a {@link CreditFrame}, only used
+	 * 						  when the request targets a streaming service method.
+	 */
+	public RequestFrame(long requestId, AstrixServiceInvocationRequest request, int streamCredits) {
+		this.requestId = requestId;
+		this.request = request;
+		this.streamCredits = streamCredits;
+	}
+	
+	public long getRequestId() {
+		return requestId;
+	}
+	
+	public AstrixServiceInvocationRequest getRequest() {
+		return request;
+	}
+	
+	public int getStreamCredits() {
+		return streamCredits;
+	}
+	
+	@Override
+	public String toString() {
+		return "RequestFrame[requestId=" + requestId + ", request=" + request + "]";
+	}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.codec;
+
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
+
+/**
+ * An {@link AstrixServiceInvocationResponse} together with the id of the {@link RequestFrame}
+ * it was created for. <p>
+ * 
+ * A response to a streaming service method is sent as a sequence of frames, one for each 
+ * element emitted by the service, terminated by a frame without response where {@link #isLast()} 
+ * is true. Responses to other service methods consists of a single frame where isLast() is true.
+ *
+ */
+public final class ResponseFrame {
+	
+	private final long requestId;
+	private final AstrixServiceInvocationResponse response;
+	private final boolean last;
+	
+	public ResponseFrame(long requestId, AstrixServiceInvocationResponse response) {
+		this(requestId, response, true);
+	}
+	
+	public ResponseFrame(long requestId, AstrixServiceInvocationResponse response, boolean last) {
+		this.requestId = requestId;
+		this.response = response;
+		this.last = last;
+	}
+	
+	public static ResponseFrame streamElement(long requestId, AstrixServiceInvocationResponse response) {
+		return new ResponseFrame(requestId, response, false);
+	}
+	
+	public static ResponseFrame endOfStream(long requestId) {
+		return new ResponseFrame(requestId, null, true);
+	}
+	
+	public long getRequestId() {
+		return requestId;
+	}
+	
+	/**
+	 * @return the response, or null for the terminal frame of a stream
+	 */
+	public AstrixServiceInvocationResponse getResponse() {
+		return response;
+	}
+	
+	public boolean isLast() {
+		return last;
+	}
+
+	@Override
+	public String toString() {
+		return "ResponseFrame[requestId=" + requestId + ", last=" + last + "]";
+	}
+
+}
@@ -26,6 +26,13 @@ import org.slf4j.LoggerFactory;
 
 import com.avanza.astrix.beans.config.AstrixConfig;
 import com.avanza.astrix.config.IntSetting;
+import com.avanza.astrix.context.mbeans.MBeanExporter;
+import com.avanza.astrix.netty.channel.NettyChannelFactory;
+import com.avanza.astrix.netty.codec.FlushConsolidationHandler;
+import com.avanza.astrix.netty.codec.FlushMetrics;
+import com.avanza.astrix.netty.codec.NettyFrameDecoder;
+import com.avanza.astrix.netty.codec.NettyFrameEncoder;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationCodec;
 import com.avanza.astrix.remoting.server.AstrixServiceActivator;
 
 import io.netty.bootstrap.ServerBootstrap;
@@ -36,14 +43,10 @@ import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.codec.serialization.ClassResolvers;
-import io.netty.handler.codec.serialization.ObjectDecoder;
-import io.netty.handler.codec.serialization.ObjectEncoder;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
+import io.netty.util.concurrent.DefaultThreadFactory;
 
 public final class NettyRemotingServer {
 	
@@ -55,10 +58,17 @@ public final class NettyRemotingServer {
 	private EventLoopGroup workerGroup;
 	private AtomicBoolean started = new AtomicBoolean(false);
 	private AstrixServiceActivator serviceActivator;
+	private final AstrixServiceInvocationCodec codec = new AstrixServiceInvocationCodec();
+	private final ServiceExecutors serviceExecutors;
+	private final AstrixConfig config;
+	private final FlushMetrics flushMetrics = new FlushMetrics();
 	
-	public NettyRemotingServer(AstrixServiceActivator serviceActivator, AstrixConfig config) {
+	public NettyRemotingServer(AstrixServiceActivator serviceActivator, AstrixConfig config, MBeanExporter mbeanExporter) {
+		this.config = config;
 		this.serviceActivator = serviceActivator;
 		this.port = config.get(NETTY_SERVER_BIND_PORT).get();
+		this.serviceExecutors = new ServiceExecutors(config.getConfig());
+		mbeanExporter.registerMBean(flushMetrics, "NettyRemoting", "ServerFlushes");
 	}
 
 	public void verifyStarted() {
@@ -68,21 +78,26 @@ public final class NettyRemotingServer {
 	}
 	
     public void start() {
-        bossGroup = new NioEventLoopGroup(1);
-        workerGroup = new NioEventLoopGroup();
-        ServerBootstrap b = new ServerBootstrap();
+        NettyChannelFactory channelFactory = new NettyChannelFactory(config);
+        bossGroup = channelFactory.createEventLoopGroup(1, new DefaultThreadFactory("astrix-netty-server-boss"));
+        workerGroup = channelFactory.createServerEventLoopGroup(new DefaultThreadFactory("astrix-netty-server"));
+        ServerBootstrap b = channelFactory.configure(new ServerBootstrap());
         b.group(bossGroup, workerGroup)
-         .channel(NioServerSocketChannel.class)
          .option(ChannelOption.SO_REUSEADDR, false)
          .handler(new LoggingHandler(LogLevel.INFO))
          .childHandler(new ChannelInitializer<SocketChannel>() {
 			@Override
             public void initChannel(SocketChannel ch) throws Exception {
                 ChannelPipeline p = ch.pipeline();
+                if (config.get(FlushConsolidationHandler.ENABLED).get()) {
+                	p.addLast(new FlushConsolidationHandler(config.get(FlushConsolidationHandler.MAX_PENDING_MESSAGES).get(), 
+                											config.get(FlushConsolidationHandler.MAX_PENDING_BYTES).get(), 
+                											flushMetrics));
+                }
                 p.addLast(
-                        new ObjectEncoder(),
-                        new ObjectDecoder(ClassResolvers.cacheDisabled(null)),
-                        new NettyRemotingServerHandler(serviceActivator));
+                        new NettyFrameEncoder(codec),
+                        new NettyFrameDecoder(codec),
+                        new NettyRemotingServerHandler(serviceActivator, serviceExecutors));
             }
          });
 
@@ -93,7 +108,7 @@ public final class NettyRemotingServer {
 			if (channel.await(2, TimeUnit.SECONDS)) {
 				if (channel.isSuccess()) {
 					port = InetSocketAddress.class.cast(channel.channel().localAddress()).getPort();
-					log.info("NettyRemotingServer started listening on port={}", port);
+					log.info("NettyRemotingServer started listening on port={} epoll={}", port, channelFactory.isEpoll());
 					return;
 				}
 			}
@@ -108,6 +123,7 @@ public final class NettyRemotingServer {
     		bossGroup.shutdownGracefully();
     		workerGroup.shutdownGracefully();
     	}
+    	serviceExecutors.destroy();
 	}
 
 	public int getPort() {
@@ -15,30 +15,156 @@
  */
 package com.avanza.astrix.netty.server;
 
-import com.avanza.astrix.netty.client.NettyRemotingClientHandler;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.avanza.astrix.netty.codec.CancelFrame;
+import com.avanza.astrix.netty.codec.CreditFrame;
+import com.avanza.astrix.netty.codec.RequestFrame;
+import com.avanza.astrix.netty.codec.ResponseFrame;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
 import com.avanza.astrix.remoting.server.AstrixServiceActivator;
 
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import rx.Subscriber;
 
 public class NettyRemotingServerHandler extends ChannelInboundHandlerAdapter {
+	
+	/*
+	 * IMPLEMENTATION NOTE:
+	 * 
+	 * Unless a service uses the INLINE execution mode the service is invoked on an executor
+	 * resolved by ServiceExecutors, and the response is handed back to the event loop of
+	 * the channel before it is written. Responses for inline invocations are flushed once
+	 * per read batch in channelReadComplete.
+	 * 
+	 * Invocations of streaming service methods (methods returning an Observable) are 
+	 * subscribed to on the same executor, and each emitted element is written as a separate
+	 * response frame followed by a terminal frame. The number of elements requested from the 
+	 * service is bounded by the credits granted by the client, and credits are requested
+	 * on the service executor to avoid running service code on the event loop. The table 
+	 * of active streams is only accessed from the event loop.
+	 * 
+	 * A connection is shared by many in-flight requests. Hence a failure to handle a given request 
+	 * is reported as an exception response for that request, and the connection is kept open.
+	 */
 
-	private AstrixServiceActivator serviceActivator;
+	private static final Logger log = LoggerFactory.getLogger(NettyRemotingServerHandler.class);
+	private final AstrixServiceActivator serviceActivator;
+	private final ServiceExecutors serviceExecutors;
+	private final Map<Long, ResponseStream> streams = new HashMap<>();
 	
-    public NettyRemotingServerHandler(AstrixServiceActivator serviceActivator) {
+    public NettyRemotingServerHandler(AstrixServiceActivator serviceActivator, ServiceExecutors serviceExecutors) {
 		this.serviceActivator = serviceActivator;
+		this.serviceExecutors = serviceExecutors;
 	}
     
 	@Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
-    	AstrixServiceInvocationRequest request = (AstrixServiceInvocationRequest) msg;
-		AstrixServiceInvocationResponse response = serviceActivator.invokeService(request);
-    	response.setHeader(NettyRemotingClientHandler.NETTY_RESPONSE_SUBSCRIBER_ID, request.getHeader(NettyRemotingClientHandler.NETTY_RESPONSE_SUBSCRIBER_ID));
-        ctx.write(response);
+    	if (msg instanceof CreditFrame) {
+    		CreditFrame creditFrame = (CreditFrame) msg;
+    		ResponseStream stream = streams.get(creditFrame.getRequestId());
+    		if (stream != null) {
+    			stream.grantCredits(creditFrame.getCredits());
+    		}
+    		return;
+    	}
+    	if (msg instanceof CancelFrame) {
+    		ResponseStream stream = streams.remove(((CancelFrame) msg).getRequestId());
+    		if (stream != null) {
+    			stream.unsubscribe();
+    		}
+    		return;
+    	}
+    	RequestFrame requestFrame = (RequestFrame) msg;
+    	try {
+    		handleRequest(ctx, requestFrame);
+    	} catch (RuntimeException | Error e) {
+    		// The connection is shared by other in-flight requests, hence only the failing request is failed
+    		ctx.write(new ResponseFrame(requestFrame.getRequestId(), failedInvocation(requestFrame.getRequest(), e)));
+    	}
     }
 
+	private void handleRequest(ChannelHandlerContext ctx, RequestFrame requestFrame) {
+		long requestId = requestFrame.getRequestId();
+		AstrixServiceInvocationRequest request = requestFrame.getRequest();
+		Executor executor = serviceExecutors.getExecutor(request.getServiceApi());
+		if (serviceActivator.isStreamingInvocation(request)) {
+			startStream(ctx, requestFrame, executor);
+			return;
+		}
+		if (executor == ServiceExecutors.INLINE) {
+			ctx.write(new ResponseFrame(requestId, serviceActivator.invokeService(request)));
+			return;
+		}
+		try {
+			executor.execute(() -> invokeService(ctx, requestId, request));
+		} catch (RejectedExecutionException e) {
+			ctx.write(new ResponseFrame(requestId, serviceActivator.rejectInvocation(request, "service executor saturated")));
+		}
+	}
+
+	private void invokeService(ChannelHandlerContext ctx, long requestId, AstrixServiceInvocationRequest request) {
+		AstrixServiceInvocationResponse response;
+		try {
+			response = serviceActivator.invokeService(request);
+		} catch (RuntimeException | Error e) {
+			response = failedInvocation(request, e);
+		}
+		AstrixServiceInvocationResponse result = response;
+		ctx.channel().eventLoop().execute(() -> ctx.writeAndFlush(new ResponseFrame(requestId, result)));
+	}
+	
+	/*
+	 * Creates an exception response for an invocation that failed outside of the service, i.e. 
+	 * that was not turned into an exception response by the service activator.
+	 */
+	private static AstrixServiceInvocationResponse failedInvocation(AstrixServiceInvocationRequest request, Throwable cause) {
+		AstrixServiceInvocationResponse response = new AstrixServiceInvocationResponse();
+		response.setThrownExceptionType(cause.getClass().getName());
+		response.setExceptionMsg(cause.getMessage());
+		response.setCorrelationId(UUID.randomUUID().toString());
+		log.warn(String.format("Service invocation failed. request=%s correlationId=%s", request, response.getCorrelationId()), cause);
+		return response;
+	}
+
+	private void startStream(ChannelHandlerContext ctx, RequestFrame requestFrame, Executor executor) {
+		long requestId = requestFrame.getRequestId();
+		AstrixServiceInvocationRequest request = requestFrame.getRequest();
+		ResponseStream stream = new ResponseStream(ctx, requestId, request, requestFrame.getStreamCredits(), executor);
+		streams.put(requestId, stream);
+		try {
+			executor.execute(() -> {
+				try {
+					serviceActivator.invokeServiceStream(request).subscribe(stream);
+				} catch (RuntimeException | Error e) {
+					stream.onError(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			streams.remove(requestId);
+			ctx.write(new ResponseFrame(requestId, serviceActivator.rejectInvocation(request, "service executor saturated")));
+		}
+	}
+
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		for (ResponseStream stream : new ArrayList<>(streams.values())) {
+			stream.unsubscribe();
+		}
+		streams.clear();
+		super.channelInactive(ctx);
+	}
+
     @Override
     public void channelReadComplete(ChannelHandlerContext ctx) {
         ctx.flush();
@@ -46,7 +172,63 @@ public class NettyRemotingServerHandler extends ChannelInboundHandlerAdapter {
 
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
-        cause.printStackTrace();
+    	log.warn("Closing connection to remoting client: " + ctx.channel().remoteAddress(), cause);
         ctx.close();
     }
-}
\ No newline at end of file
+    
+	private final class ResponseStream extends Subscriber<AstrixServiceInvocationResponse> {
+		
+		private final ChannelHandlerContext ctx;
+		private final long requestId;
+		private final AstrixServiceInvocationRequest request;
+		private final int initialCredits;
+		private final Executor executor;
+		
+		public ResponseStream(ChannelHandlerContext ctx, long requestId, AstrixServiceInvocationRequest request, int initialCredits, Executor executor) {
+			this.ctx = ctx;
+			this.requestId = requestId;
+			this.request = request;
+			this.initialCredits = initialCredits;
+			this.executor = executor;
+		}
+		
+		@Override
+		public void onStart() {
+			request(initialCredits > 0 ? initialCredits : Long.MAX_VALUE);
+		}
+		
+		void grantCredits(int credits) {
+			try {
+				executor.execute(() -> request(credits));
+			} catch (RejectedExecutionException e) {
+				streams.remove(requestId);
+				unsubscribe();
+				ctx.writeAndFlush(new ResponseFrame(requestId, serviceActivator.rejectInvocation(request, "service executor saturated")));
+			}
+		}
+
+		@Override
+		public void onNext(AstrixServiceInvocationResponse response) {
+			ctx.channel().eventLoop().execute(() -> ctx.writeAndFlush(ResponseFrame.streamElement(requestId, response)));
+		}
+
+		@Override
+		public void onCompleted() {
+			ctx.channel().eventLoop().execute(() -> {
+				if (streams.remove(requestId) != null) {
+					ctx.writeAndFlush(ResponseFrame.endOfStream(requestId));
+				}
+			});
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			AstrixServiceInvocationResponse response = failedInvocation(request, e);
+			ctx.channel().eventLoop().execute(() -> {
+				if (streams.remove(requestId) != null) {
+					ctx.writeAndFlush(new ResponseFrame(requestId, response));
+				}
+			});
+		}
+	}
+}
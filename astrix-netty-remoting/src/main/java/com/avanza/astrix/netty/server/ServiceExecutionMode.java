@@ -0,0 +1,40 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.server;
+
+/**
+ * Defines on what thread an exported service is invoked by the {@link NettyRemotingServer}. <p>
+ * 
+ * @see ServiceExecutors
+ */
+public enum ServiceExecutionMode {
+	/**
+	 * Invoke the service directly on the event loop of the channel that received the request. 
+	 * Only suitable for services that never block and completes quickly, since a slow invocation stalls
+	 * all other connections handled by the same event loop.
+	 */
+	INLINE,
+	/**
+	 * Invoke the service using a bounded thread pool dedicated to the exported service. Invocations that
+	 * can't be queued are rejected.
+	 */
+	BOUNDED,
+	/**
+	 * Invoke each request on a new virtual thread. Requires a JVM that supports virtual threads, otherwise
+	 * {@link #BOUNDED} is used.
+	 */
+	VIRTUAL_THREAD;
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.server;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.avanza.astrix.config.DynamicConfig;
+import com.avanza.astrix.config.DynamicIntProperty;
+import com.avanza.astrix.config.IntSetting;
+import com.avanza.astrix.config.StringSetting;
+import com.avanza.astrix.core.util.NamedThreadFactory;
+
+/**
+ * Resolves the {@link Executor} used to invoke each exported service on the {@link NettyRemotingServer}. <p>
+ * 
+ * The execution mode and thread pool size can be configured globally, or for a given service
+ * by prefixing the setting with the qualified name of the service api, for instance:
+ * 
+ * <pre>
+ * astrix.netty.server.executionMode=BOUNDED
+ * astrix.netty.server.com.acme.PingService.executionMode=INLINE
+ * astrix.netty.server.com.acme.SlowService.executor.poolSize=50
+ * </pre>
+ * 
+ * The settings are read when the first request for a given service is received. The pool size
+ * of a bounded executor can be changed at runtime. An invalid execution mode for a given service 
+ * falls back on the global execution mode, and an invalid global execution mode falls back on BOUNDED.
+ * 
+ */
+public final class ServiceExecutors {
+	
+	public static final StringSetting EXECUTION_MODE = StringSetting.create("astrix.netty.server.executionMode", ServiceExecutionMode.BOUNDED.name());
+	public static final IntSetting POOL_SIZE = IntSetting.create("astrix.netty.server.executor.poolSize", 10);
+	public static final IntSetting QUEUE_SIZE = IntSetting.create("astrix.netty.server.executor.queueSize", 1000);
+	
+	/**
+	 * Marker executor for services that are invoked on the event loop.
+	 */
+	static final Executor INLINE = Runnable::run;
+
+	private static final Logger log = LoggerFactory.getLogger(ServiceExecutors.class);
+	private final ConcurrentMap<String, Executor> executorByService = new ConcurrentHashMap<>();
+	private final DynamicConfig config;
+	private volatile ExecutorService virtualThreadExecutor;
+	
+	public ServiceExecutors(DynamicConfig config) {
+		this.config = config;
+	}
+	
+	Executor getExecutor(String serviceApi) {
+		Executor executor = executorByService.get(serviceApi);
+		if (executor != null) {
+			return executor;
+		}
+		return executorByService.computeIfAbsent(serviceApi, this::createExecutor);
+	}
+
+	private Executor createExecutor(String serviceApi) {
+		ServiceExecutionMode globalMode = parseExecutionMode(EXECUTION_MODE.getFrom(config).get(), ServiceExecutionMode.BOUNDED);
+		ServiceExecutionMode mode = parseExecutionMode(config.getStringProperty(serviceSettingName(serviceApi, "executionMode"), globalMode.name()).get(), globalMode);
+		log.info("Using execution mode {} for service {}", mode, serviceApi);
+		switch (mode) {
+		case INLINE:
+			return INLINE;
+		case VIRTUAL_THREAD:
+			ExecutorService result = getVirtualThreadExecutor();
+			if (result != null) {
+				return result;
+			}
+			log.warn("Virtual threads not supported by current JVM, using {} execution mode for service {}", ServiceExecutionMode.BOUNDED, serviceApi);
+			return createBoundedExecutor(serviceApi);
+		case BOUNDED:
+		default:
+			return createBoundedExecutor(serviceApi);
+		}
+	}
+
+	private static ServiceExecutionMode parseExecutionMode(String value, ServiceExecutionMode defaultMode) {
+		try {
+			return ServiceExecutionMode.valueOf(value.trim());
+		} catch (RuntimeException e) {
+			log.warn("Invalid execution mode: '{}', using {} execution mode. Valid modes: {}", value, defaultMode, Arrays.toString(ServiceExecutionMode.values()));
+			return defaultMode;
+		}
+	}
+
+	private ThreadPoolExecutor createBoundedExecutor(String serviceApi) {
+		DynamicIntProperty poolSize = config.getIntProperty(serviceSettingName(serviceApi, "executor.poolSize"), POOL_SIZE.getFrom(config).get());
+		int queueSize = config.getIntProperty(serviceSettingName(serviceApi, "executor.queueSize"), QUEUE_SIZE.getFrom(config).get()).get();
+		BlockingQueue<Runnable> queue = queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : new SynchronousQueue<>();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize.get(), 
+															 poolSize.get(), 
+															 0, 
+															 TimeUnit.SECONDS, 
+															 queue, 
+															 new NamedThreadFactory(String.format("NettyRemotingServer[%s]", serviceApi)));
+		poolSize.addListener(newValue -> {
+			log.info(String.format("Changing pool-size for service executor. service=%s newSize=%s, oldSize=%s", 
+								   serviceApi, newValue, executor.getMaximumPoolSize()));
+			if (newValue > executor.getMaximumPoolSize()) {
+				executor.setMaximumPoolSize(newValue);
+				executor.setCorePoolSize(newValue);
+			} else {
+				executor.setCorePoolSize(newValue);
+				executor.setMaximumPoolSize(newValue);
+			}
+		});
+		return executor;
+	}
+	
+	private synchronized ExecutorService getVirtualThreadExecutor() {
+		if (virtualThreadExecutor == null) {
+			try {
+				// Resolved reflectively to allow running on JVMs without virtual thread support
+				virtualThreadExecutor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (ReflectiveOperationException e) {
+				return null;
+			}
+		}
+		return virtualThreadExecutor;
+	}
+
+	private static String serviceSettingName(String serviceApi, String setting) {
+		return "astrix.netty.server." + serviceApi + "." + setting;
+	}
+	
+	public void destroy() {
+		for (Executor executor : executorByService.values()) {
+			if (executor instanceof ExecutorService) {
+				ExecutorService.class.cast(executor).shutdown();
+			}
+		}
+	}
+
+}
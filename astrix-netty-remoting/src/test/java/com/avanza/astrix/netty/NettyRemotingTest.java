@@ -17,6 +17,15 @@ package com.avanza.astrix.netty;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 import org.junit.After;
 import org.junit.Test;
 
@@ -25,6 +34,11 @@ import com.avanza.astrix.beans.registry.InMemoryServiceRegistry;
 import com.avanza.astrix.context.AstrixApplicationContext;
 import com.avanza.astrix.context.AstrixContext;
 import com.avanza.astrix.context.TestAstrixConfigurer;
+import com.avanza.astrix.core.AstrixBroadcast;
+import com.avanza.astrix.core.AstrixPartitionedRouting;
+import com.avanza.astrix.core.AstrixRouting;
+import com.avanza.astrix.netty.client.NettyRemotingClient;
+import com.avanza.astrix.netty.server.NettyRemotingServer;
 import com.avanza.astrix.provider.component.AstrixServiceComponentNames;
 import com.avanza.astrix.provider.core.AstrixApiProvider;
 import com.avanza.astrix.provider.core.AstrixApplication;
@@ -32,16 +46,22 @@ import com.avanza.astrix.provider.core.AstrixServiceExport;
 import com.avanza.astrix.provider.core.Service;
 import com.avanza.astrix.serviceunit.ServiceExporter;
 
+import rx.Observable;
+
 public class NettyRemotingTest {
 	
 	
 	InMemoryServiceRegistry registry = new InMemoryServiceRegistry();
 	private AstrixApplicationContext serverContext;
 	private AstrixContext clientContext;
+	private final List<AstrixApplicationContext> partitionContexts = new ArrayList<>();
 	
 	@After
 	public void cleanup() {
-		serverContext.destroy();
+		if (serverContext != null) {
+			serverContext.destroy();
+		}
+		partitionContexts.forEach(AstrixApplicationContext::destroy);
 		clientContext.destroy();
 	}
 	
@@ -50,7 +70,8 @@ public class NettyRemotingTest {
 		
 		serverContext = (AstrixApplicationContext) new TestAstrixConfigurer().setApplicationDescriptor(PingApp.class)
 				.set(AstrixSettings.SERVICE_REGISTRY_URI, registry.getServiceUri())
-				.set(AstrixSettings.SERVICE_ADMINISTRATOR_COMPONENT, AstrixServiceComponentNames.DIRECT).configure();
+				.set(AstrixSettings.SERVICE_ADMINISTRATOR_COMPONENT, AstrixServiceComponentNames.DIRECT)
+				.set(NettyRemotingServer.NETTY_SERVER_BIND_PORT, 0).configure();
 		serverContext.getInstance(ServiceExporter.class).addServiceProvider(new PingImpl());
 		serverContext.startServicePublisher();
 		
@@ -63,8 +84,133 @@ public class NettyRemotingTest {
 		
 	}
 	
+	@Test(timeout=5000)
+	public void distributesInvocationsOverMultipleConnectionsPerEndpoint() throws Exception {
+		serverContext = (AstrixApplicationContext) new TestAstrixConfigurer().setApplicationDescriptor(PingApp.class)
+				.set(AstrixSettings.SERVICE_REGISTRY_URI, registry.getServiceUri())
+				.set(AstrixSettings.SERVICE_ADMINISTRATOR_COMPONENT, AstrixServiceComponentNames.DIRECT)
+				.set(NettyRemotingServer.NETTY_SERVER_BIND_PORT, 0).configure();
+		serverContext.getInstance(ServiceExporter.class).addServiceProvider(new PingImpl());
+		serverContext.startServicePublisher();
+		
+		clientContext = new TestAstrixConfigurer().registerApiProvider(PingApi.class)
+																.set(AstrixSettings.SERVICE_REGISTRY_URI, registry.getServiceUri())
+																.set(AstrixSettings.BEAN_BIND_ATTEMPT_INTERVAL, 10L)
+																.set(NettyRemotingClient.CONNECTIONS_PER_ENDPOINT, 3)
+																.configure();
+		Ping ping = clientContext.waitForBean(Ping.class, 1000L);
+		for (int i = 0; i < 10; i++) {
+			assertEquals("foo-" + i, ping.ping("foo-" + i));
+		}
+	}
+	
+	@Test(timeout=5000)
+	public void streamsElementsEmittedByObservableReturningServices() throws Exception {
+		serverContext = (AstrixApplicationContext) new TestAstrixConfigurer().setApplicationDescriptor(PingApp.class)
+				.set(AstrixSettings.SERVICE_REGISTRY_URI, registry.getServiceUri())
+				.set(AstrixSettings.SERVICE_ADMINISTRATOR_COMPONENT, AstrixServiceComponentNames.DIRECT)
+				.set(NettyRemotingServer.NETTY_SERVER_BIND_PORT, 0).configure();
+		serverContext.getInstance(ServiceExporter.class).addServiceProvider(new PingImpl());
+		serverContext.startServicePublisher();
+		
+		clientContext = new TestAstrixConfigurer().registerApiProvider(PingApi.class)
+																.set(AstrixSettings.SERVICE_REGISTRY_URI, registry.getServiceUri())
+																.set(AstrixSettings.BEAN_BIND_ATTEMPT_INTERVAL, 10L)
+																.set(NettyRemotingClient.STREAM_WINDOW, 4)
+																.configure();
+		Ping ping = clientContext.waitForBean(Ping.class, 1000L);
+		List<Integer> expected = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+		assertEquals(expected, ping.count(100).toList().toBlocking().single());
+		assertEquals(Arrays.asList(0, 1, 2), ping.count(100).take(3).toList().toBlocking().single());
+		assertEquals(Collections.emptyList(), ping.count(0).toList().toBlocking().single());
+	}
+	
+	@Test(timeout=5000)
+	public void routesInvocationsToPartitionsInCluster() throws Exception {
+		int[] ports = { freePort(), freePort() };
+		String clusterEndpoints = "localhost:" + ports[0] + ",localhost:" + ports[1];
+		for (int partition = 0; partition < ports.length; partition++) {
+			AstrixApplicationContext partitionContext = (AstrixApplicationContext) new TestAstrixConfigurer().setApplicationDescriptor(PartitionedPingApp.class)
+					.set(AstrixSettings.SERVICE_REGISTRY_URI, registry.getServiceUri())
+					.set(AstrixSettings.SERVICE_ADMINISTRATOR_COMPONENT, AstrixServiceComponentNames.DIRECT)
+					.set(NettyRemotingServer.NETTY_SERVER_BIND_PORT, ports[partition])
+					.set(NettyRemotingComponent.CLUSTER_ENDPOINTS.name(), clusterEndpoints).configure();
+			partitionContexts.add(partitionContext);
+			partitionContext.getInstance(ServiceExporter.class).addServiceProvider(new PartitionedPingImpl(partition));
+			partitionContext.startServicePublisher();
+		}
+		
+		clientContext = new TestAstrixConfigurer().registerApiProvider(PartitionedPingApi.class)
+																.set(AstrixSettings.SERVICE_REGISTRY_URI, registry.getServiceUri())
+																.set(AstrixSettings.BEAN_BIND_ATTEMPT_INTERVAL, 10L)
+																.configure();
+		PartitionedPing ping = clientContext.waitForBean(PartitionedPing.class, 1000L);
+		
+		List<String> broadcastReplies = new ArrayList<>(ping.broadcastPing("foo"));
+		Collections.sort(broadcastReplies);
+		assertEquals(Arrays.asList("0:foo", "1:foo"), broadcastReplies);
+		
+		assertEquals("0:2", ping.routedPing(2));
+		assertEquals("1:3", ping.routedPing(3));
+		
+		List<String> partitionedReplies = new ArrayList<>(ping.partitionedPing(Arrays.asList(1, 2, 3, 4)));
+		Collections.sort(partitionedReplies);
+		assertEquals(Arrays.asList("0:2", "0:4", "1:1", "1:3"), partitionedReplies);
+	}
+	
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+	
+	public interface PartitionedPing {
+		@AstrixBroadcast
+		List<String> broadcastPing(String msg);
+		
+		String routedPing(@AstrixRouting int key);
+		
+		List<String> partitionedPing(@AstrixPartitionedRouting List<Integer> keys);
+	}
+	
+	@AstrixServiceExport(PartitionedPing.class)
+	public static class PartitionedPingImpl implements PartitionedPing {
+		
+		private final int partition;
+		
+		public PartitionedPingImpl(int partition) {
+			this.partition = partition;
+		}
+
+		@Override
+		public List<String> broadcastPing(String msg) {
+			return Arrays.asList(partition + ":" + msg);
+		}
+
+		@Override
+		public String routedPing(int key) {
+			return partition + ":" + key;
+		}
+
+		@Override
+		public List<String> partitionedPing(List<Integer> keys) {
+			return keys.stream().map(key -> partition + ":" + key).collect(Collectors.toList());
+		}
+	}
+	
+	@AstrixApiProvider
+	public static interface PartitionedPingApi {
+		@Service
+		PartitionedPing ping();
+	}
+	
+	@AstrixApplication(defaultServiceComponent = NettyRemotingComponent.NAME, exportsRemoteServicesFor = PartitionedPingApi.class)
+	public static class PartitionedPingApp {
+	}
+	
 	public interface Ping {
 		String ping(String msg);
+		Observable<Integer> count(int n);
 	}
 	
 	@AstrixServiceExport(Ping.class)
@@ -73,6 +219,11 @@ public class NettyRemotingTest {
 		public String ping(String msg) {
 			return msg;
 		}
+		
+		@Override
+		public Observable<Integer> count(int n) {
+			return Observable.range(0, n);
+		}
 	}
 
 	@AstrixApiProvider
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.avanza.astrix.beans.core.AstrixSettings;
+import com.avanza.astrix.beans.registry.InMemoryServiceRegistry;
+import com.avanza.astrix.context.AstrixApplicationContext;
+import com.avanza.astrix.context.AstrixContext;
+import com.avanza.astrix.context.TestAstrixConfigurer;
+import com.avanza.astrix.netty.NettyRemotingTest.Ping;
+import com.avanza.astrix.netty.NettyRemotingTest.PingApi;
+import com.avanza.astrix.netty.NettyRemotingTest.PingApp;
+import com.avanza.astrix.netty.NettyRemotingTest.PingImpl;
+import com.avanza.astrix.netty.channel.NettyChannelFactory;
+import com.avanza.astrix.netty.server.NettyRemotingServer;
+import com.avanza.astrix.provider.component.AstrixServiceComponentNames;
+import com.avanza.astrix.serviceunit.ServiceExporter;
+
+/**
+ * Measures throughput of synchronous service invocations over loopback using the
+ * NIO and native epoll transports. <p>
+ * 
+ * Run using the main method, or from an IDE with the jmh annotation processor enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class NettyTransportBenchmark {
+	
+	@Param({"false", "true"})
+	public boolean epoll;
+	
+	private AstrixApplicationContext serverContext;
+	private AstrixContext clientContext;
+	private Ping ping;
+	
+	@Setup
+	public void setup() throws Exception {
+		InMemoryServiceRegistry registry = new InMemoryServiceRegistry();
+		serverContext = (AstrixApplicationContext) new TestAstrixConfigurer().setApplicationDescriptor(PingApp.class)
+				.set(AstrixSettings.SERVICE_REGISTRY_URI, registry.getServiceUri())
+				.set(AstrixSettings.SERVICE_ADMINISTRATOR_COMPONENT, AstrixServiceComponentNames.DIRECT)
+				.set(NettyRemotingServer.NETTY_SERVER_BIND_PORT, 0)
+				.set(NettyChannelFactory.EPOLL_ENABLED, epoll).configure();
+		serverContext.getInstance(ServiceExporter.class).addServiceProvider(new PingImpl());
+		serverContext.startServicePublisher();
+		
+		clientContext = new TestAstrixConfigurer().registerApiProvider(PingApi.class)
+												  .set(AstrixSettings.SERVICE_REGISTRY_URI, registry.getServiceUri())
+												  .set(AstrixSettings.BEAN_BIND_ATTEMPT_INTERVAL, 10L)
+												  .set(NettyChannelFactory.EPOLL_ENABLED, epoll)
+												  .configure();
+		ping = clientContext.waitForBean(Ping.class, 5000L);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		clientContext.destroy();
+		serverContext.destroy();
+	}
+	
+	@Benchmark
+	public String ping() {
+		return ping.ping("foo");
+	}
+	
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(NettyTransportBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class InFlightRequestsTest {
+	
+	private final InFlightRequests<String> inFlightRequests = new InFlightRequests<>(4);
+	
+	@Test
+	public void putAndRemoveRequests() throws Exception {
+		inFlightRequests.put(1L, "1");
+		inFlightRequests.put(2L, "2");
+		
+		assertEquals(2, inFlightRequests.size());
+		assertEquals("2", inFlightRequests.remove(2L));
+		assertNull(inFlightRequests.remove(2L));
+		assertEquals("1", inFlightRequests.get(1L));
+		assertEquals(1, inFlightRequests.size());
+	}
+	
+	@Test
+	public void growsWhenFull() throws Exception {
+		for (long requestId = 1; requestId <= 1000; requestId++) {
+			inFlightRequests.put(requestId, Long.toString(requestId));
+		}
+		assertEquals(1000, inFlightRequests.size());
+		for (long requestId = 1; requestId <= 1000; requestId++) {
+			assertEquals(Long.toString(requestId), inFlightRequests.get(requestId));
+		}
+	}
+	
+	@Test
+	public void entriesRemainReachableAfterRemovingCollidingEntries() throws Exception {
+		// Interleave insertions and removals to exercise backward shift deletion in clusters
+		for (long requestId = 1; requestId <= 10_000; requestId++) {
+			inFlightRequests.put(requestId, Long.toString(requestId));
+			if (requestId % 3 != 0) {
+				assertEquals(Long.toString(requestId), inFlightRequests.remove(requestId));
+			}
+		}
+		for (long requestId = 3; requestId <= 10_000; requestId += 3) {
+			assertEquals(Long.toString(requestId), inFlightRequests.remove(requestId));
+		}
+		assertEquals(0, inFlightRequests.size());
+	}
+	
+	@Test
+	public void removeAllPassesEachRemovedEntryToConsumer() throws Exception {
+		inFlightRequests.put(5L, "5");
+		inFlightRequests.put(6L, "6");
+		List<String> removed = new ArrayList<>();
+		
+		inFlightRequests.removeAll(removed::add);
+		
+		assertEquals(2, removed.size());
+		assertEquals(0, inFlightRequests.size());
+		assertNull(inFlightRequests.get(5L));
+	}
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.avanza.astrix.config.DynamicIntProperty;
+import com.avanza.astrix.config.DynamicLongProperty;
+import com.avanza.astrix.core.ServiceUnavailableException;
+import com.avanza.astrix.netty.codec.CancelFrame;
+import com.avanza.astrix.netty.codec.CreditFrame;
+import com.avanza.astrix.netty.codec.RequestFrame;
+import com.avanza.astrix.netty.codec.ResponseFrame;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.HashedWheelTimer;
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+
+public class NettyRemotingClientHandlerTest {
+	
+	private final HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS);
+	private final DynamicLongProperty requestTimeout = new DynamicLongProperty(10_000);
+	private final DynamicIntProperty maxOutstandingRequests = new DynamicIntProperty(10);
+	private final DynamicIntProperty streamWindow = new DynamicIntProperty(4);
+	private final NettyRemotingClientHandler handler = new NettyRemotingClientHandler(timer, requestTimeout, maxOutstandingRequests, streamWindow);
+	private final EmbeddedChannel channel = new EmbeddedChannel(handler);
+	
+	@After
+	public void after() {
+		timer.stop();
+	}
+	
+	@Test
+	public void deliversResponseToSubscriber() throws Exception {
+		TestSubscriber<AstrixServiceInvocationResponse> subscriber = new TestSubscriber<>();
+		handler.sendInvocationRequest(new AstrixServiceInvocationRequest()).subscribe(subscriber);
+		
+		RequestFrame request = (RequestFrame) channel.readOutbound();
+		AstrixServiceInvocationResponse response = new AstrixServiceInvocationResponse();
+		channel.writeInbound(new ResponseFrame(request.getRequestId(), response));
+		
+		subscriber.assertValue(response);
+		subscriber.assertCompleted();
+	}
+	
+	@Test
+	public void deliversStreamedResponsesAndGrantsCreditsWhenHalfTheWindowIsConsumed() throws Exception {
+		TestSubscriber<AstrixServiceInvocationResponse> subscriber = new TestSubscriber<>();
+		handler.sendInvocationRequest(new AstrixServiceInvocationRequest()).subscribe(subscriber);
+		RequestFrame request = (RequestFrame) channel.readOutbound();
+		assertEquals(4, request.getStreamCredits());
+		
+		channel.writeInbound(ResponseFrame.streamElement(request.getRequestId(), new AstrixServiceInvocationResponse()));
+		assertNull(channel.readOutbound());
+		channel.writeInbound(ResponseFrame.streamElement(request.getRequestId(), new AstrixServiceInvocationResponse()));
+		CreditFrame credit = (CreditFrame) channel.readOutbound();
+		assertEquals(request.getRequestId(), credit.getRequestId());
+		assertEquals(2, credit.getCredits());
+		subscriber.assertValueCount(2);
+		subscriber.assertNoTerminalEvent();
+		
+		channel.writeInbound(ResponseFrame.endOfStream(request.getRequestId()));
+		subscriber.assertValueCount(2);
+		subscriber.assertCompleted();
+	}
+	
+	@Test
+	public void grantsCreditsOnlyForElementsRequestedBySubscriber() throws Exception {
+		TestSubscriber<AstrixServiceInvocationResponse> subscriber = new TestSubscriber<>(0L);
+		handler.sendInvocationRequest(new AstrixServiceInvocationRequest()).subscribe(subscriber);
+		RequestFrame request = (RequestFrame) channel.readOutbound();
+
+		for (int i = 0; i < 4; i++) {
+			channel.writeInbound(ResponseFrame.streamElement(request.getRequestId(), new AstrixServiceInvocationResponse()));
+		}
+		channel.writeInbound(ResponseFrame.endOfStream(request.getRequestId()));
+		subscriber.assertNoValues();
+		assertNull("No credits granted before the subscriber requests elements", channel.readOutbound());
+
+		subscriber.requestMore(1);
+		subscriber.assertValueCount(1);
+		assertNull(channel.readOutbound());
+
+		subscriber.requestMore(3);
+		subscriber.assertValueCount(4);
+		subscriber.assertCompleted();
+	}
+
+	@Test
+	public void grantsCreditsAsSubscriberRequestsBufferedElements() throws Exception {
+		TestSubscriber<AstrixServiceInvocationResponse> subscriber = new TestSubscriber<>(0L);
+		handler.sendInvocationRequest(new AstrixServiceInvocationRequest()).subscribe(subscriber);
+		RequestFrame request = (RequestFrame) channel.readOutbound();
+		for (int i = 0; i < 4; i++) {
+			channel.writeInbound(ResponseFrame.streamElement(request.getRequestId(), new AstrixServiceInvocationResponse()));
+		}
+		assertNull(channel.readOutbound());
+
+		subscriber.requestMore(2);
+
+		CreditFrame credit = (CreditFrame) channel.readOutbound();
+		assertEquals(request.getRequestId(), credit.getRequestId());
+		assertEquals(2, credit.getCredits());
+		subscriber.assertValueCount(2);
+		subscriber.assertNoTerminalEvent();
+	}
+
+	@Test
+	public void unsubscribeFromStreamSendsCancelFrame() throws Exception {
+		TestSubscriber<AstrixServiceInvocationResponse> subscriber = new TestSubscriber<>();
+		Subscription subscription = handler.sendInvocationRequest(new AstrixServiceInvocationRequest()).subscribe(subscriber);
+		RequestFrame request = (RequestFrame) channel.readOutbound();
+		channel.writeInbound(ResponseFrame.streamElement(request.getRequestId(), new AstrixServiceInvocationResponse()));
+		
+		subscription.unsubscribe();
+		channel.runPendingTasks();
+		
+		CancelFrame cancel = (CancelFrame) channel.readOutbound();
+		assertEquals(request.getRequestId(), cancel.getRequestId());
+		channel.writeInbound(ResponseFrame.streamElement(request.getRequestId(), new AstrixServiceInvocationResponse()));
+		subscriber.assertValueCount(1);
+	}
+	
+	@Test
+	public void failsRequestsThatTimesOut() throws Exception {
+		requestTimeout.set(20);
+		TestSubscriber<AstrixServiceInvocationResponse> subscriber = new TestSubscriber<>();
+		handler.sendInvocationRequest(new AstrixServiceInvocationRequest()).subscribe(subscriber);
+		RequestFrame request = (RequestFrame) channel.readOutbound();
+
+		long deadline = System.currentTimeMillis() + 2000;
+		while (subscriber.getOnErrorEvents().isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+			channel.runPendingTasks();
+		}
+		subscriber.assertError(ServiceUnavailableException.class);
+		
+		// Late response is discarded
+		channel.writeInbound(new ResponseFrame(request.getRequestId(), new AstrixServiceInvocationResponse()));
+		subscriber.assertNoValues();
+	}
+	
+	@Test
+	public void unsubscribeCancelsRequest() throws Exception {
+		maxOutstandingRequests.set(1);
+		TestSubscriber<AstrixServiceInvocationResponse> subscriber = new TestSubscriber<>();
+		Subscription subscription = handler.sendInvocationRequest(new AstrixServiceInvocationRequest()).subscribe(subscriber);
+		RequestFrame request = (RequestFrame) channel.readOutbound();
+		subscription.unsubscribe();
+		channel.runPendingTasks();
+
+		channel.writeInbound(new ResponseFrame(request.getRequestId(), new AstrixServiceInvocationResponse()));
+		subscriber.assertNoValues();
+		
+		// Cancelled request no longer counts as outstanding
+		TestSubscriber<AstrixServiceInvocationResponse> next = new TestSubscriber<>();
+		handler.sendInvocationRequest(new AstrixServiceInvocationRequest()).subscribe(next);
+		next.assertNoErrors();
+	}
+	
+	@Test
+	public void rejectsRequestsWhenMaxOutstandingRequestsIsReached() throws Exception {
+		maxOutstandingRequests.set(1);
+		TestSubscriber<AstrixServiceInvocationResponse> first = new TestSubscriber<>();
+		TestSubscriber<AstrixServiceInvocationResponse> second = new TestSubscriber<>();
+		handler.sendInvocationRequest(new AstrixServiceInvocationRequest()).subscribe(first);
+		handler.sendInvocationRequest(new AstrixServiceInvocationRequest()).subscribe(second);
+		
+		first.assertNoTerminalEvent();
+		second.assertError(ServiceUnavailableException.class);
+		assertEquals(1, channel.outboundMessages().size());
+	}
+	
+	@Test
+	public void failsInFlightRequestsWhenChannelIsClosed() throws Exception {
+		TestSubscriber<AstrixServiceInvocationResponse> subscriber = new TestSubscriber<>();
+		handler.sendInvocationRequest(new AstrixServiceInvocationRequest()).subscribe(subscriber);
+		
+		channel.close();
+		channel.runPendingTasks();
+		
+		subscriber.assertError(ServiceUnavailableException.class);
+		assertTrue(subscriber.getOnErrorEvents().get(0).getMessage().contains("closed"));
+		assertNull(channel.readInbound());
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.codec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class FlushConsolidationHandlerTest {
+	
+	private final FlushMetrics metrics = new FlushMetrics();
+	
+	@Test
+	public void consolidatesFlushesUntilQueuedEventLoopTasksHaveExecuted() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel(new FlushConsolidationHandler(100, 1024, metrics));
+		
+		channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[] { 1 }));
+		channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[] { 2 }));
+		channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[] { 3 }));
+		assertNull(channel.readOutbound());
+		
+		channel.runPendingTasks();
+		
+		assertEquals(3, channel.outboundMessages().size());
+		assertEquals(1, metrics.getFlushCount());
+		assertEquals(3, metrics.getMessageCount());
+		assertEquals(3D, metrics.getMessagesPerFlush(), 0.01D);
+	}
+	
+	@Test
+	public void flushesWhenMaxPendingMessagesIsReached() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel(new FlushConsolidationHandler(2, 1024, metrics));
+		
+		channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[] { 1 }));
+		assertEquals(0, channel.outboundMessages().size());
+		channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[] { 2 }));
+		
+		assertEquals(2, channel.outboundMessages().size());
+		assertEquals(1, metrics.getFlushCount());
+	}
+	
+	@Test
+	public void flushesWhenMaxPendingBytesIsReached() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel(new FlushConsolidationHandler(100, 8, metrics));
+		
+		channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[4]));
+		assertEquals(0, channel.outboundMessages().size());
+		channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[4]));
+		
+		assertEquals(2, channel.outboundMessages().size());
+		assertEquals(8, metrics.getByteCount());
+	}
+	
+	@Test
+	public void flushesWrittenResponsesWhenReadBatchCompletes() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel(new FlushConsolidationHandler(100, 1024, metrics), new ChannelInboundHandlerAdapter() {
+			@Override
+			public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+				ctx.writeAndFlush(msg);
+			}
+		});
+		
+		channel.writeInbound(Unpooled.wrappedBuffer(new byte[] { 1 }), Unpooled.wrappedBuffer(new byte[] { 2 }));
+
+		assertEquals(2, channel.outboundMessages().size());
+		assertEquals(1, metrics.getFlushCount());
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.codec;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationCodec;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
+import com.avanza.astrix.remoting.client.ServiceMethodDescriptor;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.serialization.ClassResolvers;
+import io.netty.handler.codec.serialization.ObjectDecoder;
+import io.netty.handler.codec.serialization.ObjectEncoder;
+
+/**
+ * Compares the binary frame codec with the java serialization based pipeline 
+ * (ObjectEncoder/ObjectDecoder) previously used by the netty remoting transport. <p>
+ * 
+ * Run using the main method, or from an IDE with the jmh annotation processor enabled.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NettyFrameCodecBenchmark {
+	
+	@Param({"16", "4096"})
+	public int argumentSize;
+	
+	private RequestFrame requestFrame;
+	private AstrixServiceInvocationRequest objectSerializationRequest;
+	private EmbeddedChannel objectSerializationPipeline;
+	private EmbeddedChannel binaryFramePipeline;
+	
+	@Setup
+	public void setup() {
+		AstrixServiceInvocationRequest request = new AstrixServiceInvocationRequest(ServiceMethodDescriptor.create("com.avanza.astrix.netty.Ping", 1, "ping(java.lang.String)"));
+		request.setArguments(new Object[] { json(argumentSize) });
+		requestFrame = new RequestFrame(1L, request);
+		// The java serialization based pipeline identified the target method and correlated responses using headers
+		objectSerializationRequest = new AstrixServiceInvocationRequest();
+		objectSerializationRequest.setHeader("apiVersion", "1");
+		objectSerializationRequest.setHeader("serviceApi", "com.avanza.astrix.netty.Ping");
+		objectSerializationRequest.setHeader("serviceMethodSignature", "ping(java.lang.String)");
+		objectSerializationRequest.setHeader("netty.responseSubscriberId", "0b3e76a6-2f0b-4d5e-9bfa-4b8a0b41ad6a");
+		objectSerializationRequest.setArguments(request.getArguments());
+		
+		objectSerializationPipeline = new EmbeddedChannel(new ObjectEncoder(), new ObjectDecoder(ClassResolvers.cacheDisabled(null)));
+		objectSerializationPipeline.config().setOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+		AstrixServiceInvocationCodec codec = new AstrixServiceInvocationCodec();
+		binaryFramePipeline = new EmbeddedChannel(new NettyFrameEncoder(codec), new NettyFrameDecoder(codec));
+		binaryFramePipeline.config().setOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+	}
+
+	@Benchmark
+	public Object objectEncoderRoundTrip() {
+		return roundTrip(objectSerializationPipeline, objectSerializationRequest);
+	}
+	
+	@Benchmark
+	public Object binaryFrameRoundTrip() {
+		return roundTrip(binaryFramePipeline, requestFrame);
+	}
+	
+	private Object roundTrip(EmbeddedChannel pipeline, Object message) {
+		pipeline.writeOutbound(message);
+		pipeline.writeInbound(pipeline.readOutbound());
+		return pipeline.readInbound();
+	}
+	
+	private static String json(int size) {
+		StringBuilder result = new StringBuilder(size + 2).append('"');
+		for (int i = 0; i < size; i++) {
+			result.append((char) ('a' + i % 26));
+		}
+		return result.append('"').toString();
+	}
+	
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(NettyFrameCodecBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
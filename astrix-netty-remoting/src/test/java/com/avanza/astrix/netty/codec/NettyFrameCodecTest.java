@@ -0,0 +1,155 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationCodec;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
+import com.avanza.astrix.remoting.client.ServiceMethodDescriptor;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class NettyFrameCodecTest {
+	
+	private final AstrixServiceInvocationCodec codec = new AstrixServiceInvocationCodec();
+	private final EmbeddedChannel channel = new EmbeddedChannel(new NettyFrameEncoder(codec), new NettyFrameDecoder(codec));
+	
+	@Test
+	public void encodesAndDecodesRequests() throws Exception {
+		AstrixServiceInvocationRequest request = new AstrixServiceInvocationRequest(ServiceMethodDescriptor.create("com.avanza.Ping", 2, "ping(java.lang.String)"));
+		request.setHeader("traceId", "1");
+		request.setArguments(new Object[] { "\"foo\"", new byte[] { 1, 2, 3 }, null, Arrays.asList(1, 2) });
+		
+		RequestFrame decodedFrame = roundTrip(new RequestFrame(21L, request));
+		AstrixServiceInvocationRequest decoded = decodedFrame.getRequest();
+		
+		assertEquals(21L, decodedFrame.getRequestId());
+		assertEquals("com.avanza.Ping", decoded.getServiceApi());
+		assertEquals(2, decoded.getApiVersion());
+		assertEquals(ServiceMethodDescriptor.methodId("ping(java.lang.String)"), decoded.getMethodId());
+		assertEquals(request.getHeaders(), decoded.getHeaders());
+		assertEquals("\"foo\"", decoded.getArguments()[0]);
+		assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) decoded.getArguments()[1]);
+		assertNull(decoded.getArguments()[2]);
+		assertEquals(Arrays.asList(1, 2), decoded.getArguments()[3]);
+	}
+	
+	@Test
+	public void largePayloadsAreWrappedInsteadOfCopied() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel(new NettyFrameEncoder(codec, 16), new NettyFrameDecoder(codec));
+		byte[] largePayload = new byte[100];
+		Arrays.fill(largePayload, (byte) 7);
+		AstrixServiceInvocationRequest request = new AstrixServiceInvocationRequest(ServiceMethodDescriptor.create("com.avanza.Ping", 2, "ping(byte[])"));
+		request.setArguments(new Object[] { new byte[] { 1, 2, 3 }, largePayload, "\"foo\"" });
+		
+		channel.writeOutbound(new RequestFrame(5L, request));
+		ByteBuf frame = (ByteBuf) channel.readOutbound();
+		assertTrue("Expected composite frame, got: " + frame.getClass(), frame instanceof CompositeByteBuf);
+		channel.writeInbound(frame);
+		AstrixServiceInvocationRequest decoded = ((RequestFrame) channel.readInbound()).getRequest();
+		
+		assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) decoded.getArguments()[0]);
+		assertArrayEquals(largePayload, (byte[]) decoded.getArguments()[1]);
+		assertEquals("\"foo\"", decoded.getArguments()[2]);
+	}
+	
+	@Test
+	public void encodesAndDecodesRequestsWithoutArguments() throws Exception {
+		AstrixServiceInvocationRequest decoded = roundTrip(new RequestFrame(1L, new AstrixServiceInvocationRequest())).getRequest();
+		
+		assertNull(decoded.getArguments());
+		assertNull(decoded.getServiceMethod());
+		assertTrue(decoded.getHeaders().isEmpty());
+	}
+	
+	@Test
+	public void encodesAndDecodesResponses() throws Exception {
+		AstrixServiceInvocationResponse response = new AstrixServiceInvocationResponse();
+		response.setResponseBody("\"bar\"");
+		response.setThrownExceptionType(IllegalArgumentException.class.getName());
+		response.setExceptionMsg("Invalid argument");
+		response.setCorrelationId("correlation-id");
+		response.setServiceUnavailable(true);
+		
+		ResponseFrame decodedFrame = roundTrip(new ResponseFrame(Long.MAX_VALUE, response));
+		AstrixServiceInvocationResponse decoded = decodedFrame.getResponse();
+		
+		assertEquals(Long.MAX_VALUE, decodedFrame.getRequestId());
+		assertEquals("\"bar\"", decoded.getResponseBody());
+		assertNull(decoded.getException());
+		assertEquals(IllegalArgumentException.class.getName(), decoded.getThrownExceptionType());
+		assertEquals("Invalid argument", decoded.getExceptionMsg());
+		assertEquals("correlation-id", decoded.getCorrelationId());
+		assertTrue(decoded.isServiceUnavailable());
+	}
+	
+	@Test
+	public void encodesAndDecodesStreamFrames() throws Exception {
+		assertEquals(16, roundTrip(new RequestFrame(1L, new AstrixServiceInvocationRequest(), 16)).getStreamCredits());
+		
+		AstrixServiceInvocationResponse response = new AstrixServiceInvocationResponse();
+		response.setResponseBody("\"bar\"");
+		ResponseFrame element = roundTrip(ResponseFrame.streamElement(2L, response));
+		assertFalse(element.isLast());
+		assertEquals("\"bar\"", element.getResponse().getResponseBody());
+		
+		ResponseFrame endOfStream = roundTrip(ResponseFrame.endOfStream(2L));
+		assertTrue(endOfStream.isLast());
+		assertNull(endOfStream.getResponse());
+		
+		CreditFrame credit = roundTrip(new CreditFrame(2L, 8));
+		assertEquals(2L, credit.getRequestId());
+		assertEquals(8, credit.getCredits());
+		
+		assertEquals(2L, roundTrip(new CancelFrame(2L)).getRequestId());
+	}
+	
+	@Test
+	public void decodesFramesSplitAcrossMultipleReads() throws Exception {
+		AstrixServiceInvocationResponse response = new AstrixServiceInvocationResponse();
+		response.setResponseBody("\"bar\"");
+		channel.writeOutbound(new ResponseFrame(3L, response));
+		ByteBuf frame = (ByteBuf) channel.readOutbound();
+		
+		channel.writeInbound(frame.readSlice(5).retain());
+		assertNull(channel.readInbound());
+		channel.writeInbound(frame);
+		
+		ResponseFrame decoded = (ResponseFrame) channel.readInbound();
+		assertEquals(3L, decoded.getRequestId());
+		assertEquals("\"bar\"", decoded.getResponse().getResponseBody());
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T roundTrip(T message) {
+		channel.writeOutbound(message);
+		channel.writeInbound(channel.readOutbound());
+		return (T) channel.readInbound();
+	}
+
+}
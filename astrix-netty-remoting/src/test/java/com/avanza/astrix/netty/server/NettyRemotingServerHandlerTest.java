@@ -0,0 +1,210 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.netty.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.avanza.astrix.config.DynamicConfig;
+import com.avanza.astrix.config.MapConfigSource;
+import com.avanza.astrix.netty.codec.RequestFrame;
+import com.avanza.astrix.netty.codec.ResponseFrame;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
+import com.avanza.astrix.remoting.server.AstrixServiceActivator;
+import com.avanza.astrix.versioning.core.AstrixObjectSerializer;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import rx.Observable;
+
+public class NettyRemotingServerHandlerTest {
+	
+	private final MapConfigSource settings = new MapConfigSource();
+	private final ServiceExecutors serviceExecutors = new ServiceExecutors(DynamicConfig.create(settings));
+	private final FakeServiceActivator serviceActivator = new FakeServiceActivator();
+	private final EmbeddedChannel channel = new EmbeddedChannel(new NettyRemotingServerHandler(serviceActivator, serviceExecutors));
+	
+	@After
+	public void after() {
+		serviceActivator.release.countDown();
+		serviceExecutors.destroy();
+	}
+	
+	@Test
+	public void inlineExecutionInvokesServiceOnEventLoop() throws Exception {
+		settings.set(ServiceExecutors.EXECUTION_MODE, ServiceExecutionMode.INLINE.name());
+		serviceActivator.release.countDown();
+		
+		channel.writeInbound(new RequestFrame(1, request("ping")));
+		
+		ResponseFrame response = (ResponseFrame) channel.readOutbound();
+		assertEquals(1, response.getRequestId());
+		assertEquals(Thread.currentThread(), serviceActivator.invokingThread.get());
+	}
+	
+	@Test
+	public void boundedExecutionInvokesServiceOnServiceExecutor() throws Exception {
+		serviceActivator.release.countDown();
+		
+		channel.writeInbound(new RequestFrame(1, request("ping")));
+		
+		ResponseFrame response = awaitResponse();
+		assertEquals(1, response.getRequestId());
+		assertFalse(response.getResponse().isServiceUnavailable());
+		assertTrue(serviceActivator.invokingThread.get().getName().contains("ping"));
+	}
+	
+	@Test
+	public void rejectsInvocationsWhenServiceExecutorIsSaturated() throws Exception {
+		settings.set("astrix.netty.server.ping.executor.poolSize", "1");
+		settings.set("astrix.netty.server.ping.executor.queueSize", "0");
+
+		channel.writeInbound(new RequestFrame(1, request("ping")));
+		channel.writeInbound(new RequestFrame(2, request("ping")));
+		
+		ResponseFrame rejected = (ResponseFrame) channel.readOutbound();
+		assertEquals(2, rejected.getRequestId());
+		assertTrue(rejected.getResponse().isServiceUnavailable());
+		assertEquals(1, serviceActivator.rejectedCount);
+		
+		serviceActivator.release.countDown();
+		ResponseFrame response = awaitResponse();
+		assertEquals(1, response.getRequestId());
+		assertFalse(response.getResponse().isServiceUnavailable());
+	}
+	
+	@Test
+	public void failingInlineInvocationIsReportedAsExceptionResponseWithoutClosingConnection() throws Exception {
+		settings.set(ServiceExecutors.EXECUTION_MODE, ServiceExecutionMode.INLINE.name());
+		serviceActivator.release.countDown();
+		serviceActivator.failure = new IllegalStateException("invocation failed");
+		
+		channel.writeInbound(new RequestFrame(1, request("ping")));
+		
+		ResponseFrame response = (ResponseFrame) channel.readOutbound();
+		assertEquals(1, response.getRequestId());
+		assertEquals(IllegalStateException.class.getName(), response.getResponse().getThrownExceptionType());
+		assertEquals("invocation failed", response.getResponse().getExceptionMsg());
+		assertTrue(channel.isOpen());
+		
+		serviceActivator.failure = null;
+		channel.writeInbound(new RequestFrame(2, request("ping")));
+		ResponseFrame next = (ResponseFrame) channel.readOutbound();
+		assertEquals(2, next.getRequestId());
+		assertNull(next.getResponse().getThrownExceptionType());
+	}
+	
+	@Test
+	public void failingInvocationOnServiceExecutorIsReportedAsExceptionResponseWithoutClosingConnection() throws Exception {
+		serviceActivator.release.countDown();
+		serviceActivator.failure = new IllegalStateException("invocation failed");
+		
+		channel.writeInbound(new RequestFrame(1, request("ping")));
+		
+		ResponseFrame response = awaitResponse();
+		assertEquals(1, response.getRequestId());
+		assertEquals(IllegalStateException.class.getName(), response.getResponse().getThrownExceptionType());
+		assertTrue(channel.isOpen());
+	}
+	
+	@Test
+	public void invalidExecutionModeFallsBackOnBoundedExecution() throws Exception {
+		settings.set(ServiceExecutors.EXECUTION_MODE, "NOT_A_MODE");
+		serviceActivator.release.countDown();
+		
+		channel.writeInbound(new RequestFrame(1, request("ping")));
+		
+		ResponseFrame response = awaitResponse();
+		assertEquals(1, response.getRequestId());
+		assertFalse(response.getResponse().isServiceUnavailable());
+		assertTrue(serviceActivator.invokingThread.get().getName().contains("ping"));
+		assertTrue(channel.isOpen());
+	}
+	
+	private ResponseFrame awaitResponse() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 2000;
+		while (System.currentTimeMillis() < deadline) {
+			channel.runPendingTasks();
+			ResponseFrame result = (ResponseFrame) channel.readOutbound();
+			if (result != null) {
+				return result;
+			}
+			Thread.sleep(5);
+		}
+		assertNull("No response received", channel.readOutbound());
+		return null;
+	}
+
+	private static AstrixServiceInvocationRequest request(String serviceApi) {
+		AstrixServiceInvocationRequest request = new AstrixServiceInvocationRequest();
+		request.setHeader("serviceApi", serviceApi);
+		return request;
+	}
+	
+	private static class FakeServiceActivator implements AstrixServiceActivator {
+		
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final AtomicReference<Thread> invokingThread = new AtomicReference<>();
+		private int rejectedCount = 0;
+		private volatile RuntimeException failure;
+
+		@Override
+		public AstrixServiceInvocationResponse invokeService(AstrixServiceInvocationRequest invocationRequest) {
+			invokingThread.set(Thread.currentThread());
+			try {
+				assertTrue(release.await(2, TimeUnit.SECONDS));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			return new AstrixServiceInvocationResponse();
+		}
+
+		@Override
+		public AstrixServiceInvocationResponse rejectInvocation(AstrixServiceInvocationRequest invocationRequest, String reason) {
+			rejectedCount++;
+			AstrixServiceInvocationResponse response = new AstrixServiceInvocationResponse();
+			response.setServiceUnavailable(true);
+			return response;
+		}
+
+		@Override
+		public boolean isStreamingInvocation(AstrixServiceInvocationRequest invocationRequest) {
+			return false;
+		}
+
+		@Override
+		public Observable<AstrixServiceInvocationResponse> invokeServiceStream(AstrixServiceInvocationRequest invocationRequest) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void register(Object provider, AstrixObjectSerializer objectSerializer, Class<?> publishedApi) {
+		}
+	}
+
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Compact binary wire format for {@link AstrixServiceInvocationRequest} and {@link AstrixServiceInvocationResponse}. <p>
+ *
+ * The headers and the already serialized arguments/response body are written as length prefixed
+ * fields, which avoids the overhead of java serialization for the request/response envelope.
+ * Values that are not of type String or byte[] (for instance when an {@link com.avanza.astrix.versioning.core.AstrixObjectSerializer}
+ * that does not produce a String/byte[] representation is used) falls back on java serialization, using a
+ * cached class lookup when deserializing. <p>
+ *
+ * A request is written as the headers (including the legacy headers identifying the target method, see
+ * {@link AstrixServiceInvocationRequestHeaders}), the arguments and finally the target {@link ServiceMethodDescriptor}
+ * as the service api name, api version and method id. Readers that does not know about method ids stops
+ * reading after the arguments, and requests written by such clients are resolved from the legacy headers. <p>
+ * 
+ * The codec does not define any framing, its up to the transport to delimit each message. A request must 
+ * therefore be read from an input that signals the end of the message (for instance by throwing EOFException). <p>
+ */
+public final class AstrixServiceInvocationCodec {
+
+	private static final byte NULL = 0;
+	private static final byte STRING = 1;
+	private static final byte BYTES = 2;
+	private static final byte SERIALIZED = 3;
+	private static final byte SERVICE_METHOD = 4;
+
+	private static final int NULL_LENGTH = -1;
+
+	private final ConcurrentMap<String, Class<?>> classByName = new ConcurrentHashMap<>();
+	private final ClassLoader classLoader;
+
+	public AstrixServiceInvocationCodec() {
+		this(AstrixServiceInvocationCodec.class.getClassLoader());
+	}
+
+	public AstrixServiceInvocationCodec(ClassLoader classLoader) {
+		this.classLoader = classLoader;
+	}
+
+	public void writeRequest(AstrixServiceInvocationRequest request, DataOutput out) throws IOException {
+		// Legacy headers first, which makes the message readable by servers that does not know about method ids
+		writeHeaders(request.getHeadersIncludingLegacyHeaders(), out);
+		Object[] arguments = request.getArguments();
+		if (arguments == null) {
+			out.writeInt(NULL_LENGTH);
+		} else {
+			out.writeInt(arguments.length);
+			for (Object argument : arguments) {
+				writeValue(argument, out);
+			}
+		}
+		writeServiceMethod(request.getServiceMethod(), out);
+	}
+
+	public AstrixServiceInvocationRequest readRequest(DataInput in) throws IOException {
+		AstrixServiceInvocationRequest request = new AstrixServiceInvocationRequest();
+		String legacyServiceApi = null;
+		String legacyApiVersion = null;
+		String legacyMethodSignature = null;
+		int headerCount = in.readInt();
+		for (int i = 0; i < headerCount; i++) {
+			String name = readString(in);
+			String value = readString(in);
+			if (AstrixServiceInvocationRequestHeaders.SERVICE_API.equals(name)) {
+				legacyServiceApi = value;
+			} else if (AstrixServiceInvocationRequestHeaders.API_VERSION.equals(name)) {
+				legacyApiVersion = value;
+			} else if (AstrixServiceInvocationRequestHeaders.SERVICE_METHOD_SIGNATURE.equals(name)) {
+				legacyMethodSignature = value;
+			} else {
+				request.setHeader(name, value);
+			}
+		}
+		int argumentCount = in.readInt();
+		if (argumentCount != NULL_LENGTH) {
+			Object[] arguments = new Object[argumentCount];
+			for (int i = 0; i < argumentCount; i++) {
+				arguments[i] = readValue(in);
+			}
+			request.setArguments(arguments);
+		}
+		String serviceApi = null;
+		int apiVersion = 0;
+		long methodId = 0;
+		// Messages from clients that does not know about method ids ends after the arguments
+		if (readOptionalByte(in) == SERVICE_METHOD) {
+			serviceApi = readString(in);
+			apiVersion = in.readInt();
+			methodId = in.readLong();
+		}
+		request.setServiceMethod(ServiceMethodDescriptor.received(serviceApi, apiVersion, methodId, legacyServiceApi, legacyApiVersion, legacyMethodSignature));
+		return request;
+	}
+
+	public void writeResponse(AstrixServiceInvocationResponse response, DataOutput out) throws IOException {
+		writeHeaders(response.getHeaders(), out);
+		writeValue(response.getResponseBody(), out);
+		writeValue(response.getException(), out);
+		writeString(response.getThrownExceptionType(), out);
+		writeString(response.getExceptionMsg(), out);
+		writeString(response.getCorrelationId(), out);
+	}
+
+	public AstrixServiceInvocationResponse readResponse(DataInput in) throws IOException {
+		AstrixServiceInvocationResponse response = new AstrixServiceInvocationResponse();
+		readHeaders(in, response.getHeaders());
+		response.setResponseBody(readValue(in));
+		response.setException(readValue(in));
+		response.setThrownExceptionType(readString(in));
+		response.setExceptionMsg(readString(in));
+		response.setCorrelationId(readString(in));
+		return response;
+	}
+
+	private static void writeServiceMethod(ServiceMethodDescriptor serviceMethod, DataOutput out) throws IOException {
+		if (serviceMethod == null) {
+			out.writeByte(NULL);
+			return;
+		}
+		out.writeByte(SERVICE_METHOD);
+		writeString(serviceMethod.getServiceApi(), out);
+		out.writeInt(serviceMethod.getApiVersion());
+		out.writeLong(serviceMethod.getMethodId());
+	}
+	
+	private static byte readOptionalByte(DataInput in) throws IOException {
+		try {
+			return in.readByte();
+		} catch (EOFException e) {
+			return NULL;
+		}
+	}
+
+	private void writeHeaders(Map<String, String> headers, DataOutput out) throws IOException {
+		out.writeInt(headers.size());
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			writeString(header.getKey(), out);
+			writeString(header.getValue(), out);
+		}
+	}
+
+	private void readHeaders(DataInput in, Map<String, String> target) throws IOException {
+		int headerCount = in.readInt();
+		for (int i = 0; i < headerCount; i++) {
+			target.put(readString(in), readString(in));
+		}
+	}
+
+	private void writeValue(Object value, DataOutput out) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof String) {
+			out.writeByte(STRING);
+			writeString((String) value, out);
+		} else if (value instanceof byte[]) {
+			out.writeByte(BYTES);
+			writeBytes((byte[]) value, out);
+		} else {
+			out.writeByte(SERIALIZED);
+			writeBytes(javaSerialize(value), out);
+		}
+	}
+
+	private Object readValue(DataInput in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+		case NULL:
+			return null;
+		case STRING:
+			return readString(in);
+		case BYTES:
+			return readBytes(in);
+		case SERIALIZED:
+			return javaDeserialize(readBytes(in));
+		default:
+			throw new IOException("Unknown value type in invocation message: " + type);
+		}
+	}
+
+	private static void writeString(String value, DataOutput out) throws IOException {
+		writeBytes(value != null ? value.getBytes(StandardCharsets.UTF_8) : null, out);
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		byte[] data = readBytes(in);
+		return data != null ? new String(data, StandardCharsets.UTF_8) : null;
+	}
+
+	private static void writeBytes(byte[] data, DataOutput out) throws IOException {
+		if (data == null) {
+			out.writeInt(NULL_LENGTH);
+			return;
+		}
+		out.writeInt(data.length);
+		out.write(data);
+	}
+
+	private static byte[] readBytes(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length == NULL_LENGTH) {
+			return null;
+		}
+		byte[] data = new byte[length];
+		in.readFully(data);
+		return data;
+	}
+
+	private static byte[] javaSerialize(Object value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(value);
+		}
+		return bytes.toByteArray();
+	}
+
+	private Object javaDeserialize(byte[] data) throws IOException {
+		try (ObjectInputStream in = new CachingClassResolverObjectInputStream(new ByteArrayInputStream(data))) {
+			return in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Failed to deserialize value in invocation message", e);
+		}
+	}
+
+	private Class<?> resolveClass(String className) throws ClassNotFoundException {
+		Class<?> result = classByName.get(className);
+		if (result != null) {
+			return result;
+		}
+		result = Class.forName(className, false, classLoader);
+		classByName.putIfAbsent(className, result);
+		return result;
+	}
+
+	private class CachingClassResolverObjectInputStream extends ObjectInputStream {
+
+		public CachingClassResolverObjectInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			try {
+				return AstrixServiceInvocationCodec.this.resolveClass(desc.getName());
+			} catch (ClassNotFoundException e) {
+				// Primitive types and arrays of primitives are handled by the default implementation
+				return super.resolveClass(desc);
+			}
+		}
+	}
+
+}
@@ -15,11 +15,26 @@
  */
 package com.avanza.astrix.remoting.client;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 /**
+ * A remote service invocation. <p>
+ * 
+ * The target service method is described by a {@link ServiceMethodDescriptor} that is shared between all
+ * invocations of the same method. Older clients and servers identifies the target method using 
+ * the headers defined in {@link AstrixServiceInvocationRequestHeaders}. Hence the serialized form of a
+ * request contains both the descriptor fields and the legacy headers, and a received request
+ * is resolved from whichever is present. <p>
+ * 
+ * The serialized form is a superset of the form used before the descriptor was introduced (a header
+ * map and the arguments), which is why the serialVersionUID is unchanged. <p>
  * 
  * @author Elias Lindholm (elilin)
  *
@@ -28,9 +43,26 @@ public class AstrixServiceInvocationRequest implements Serializable {
 	
 	private static final long serialVersionUID = 1L;
 	
-	private final Map<String, String> headers = new HashMap<>();
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("headers", Map.class),
+		new ObjectStreamField("arguments", Object[].class),
+		new ObjectStreamField("serviceApi", String.class),
+		new ObjectStreamField("apiVersion", Integer.TYPE),
+		new ObjectStreamField("methodId", Long.TYPE),
+	};
+	
+	// Lazily created since most requests does not carry any headers
+	private Map<String, String> headers;
+	private ServiceMethodDescriptor serviceMethod;
 	private Object[] arguments;
 	
+	public AstrixServiceInvocationRequest() {
+	}
+	
+	public AstrixServiceInvocationRequest(ServiceMethodDescriptor serviceMethod) {
+		this.serviceMethod = serviceMethod;
+	}
+	
 	public void setArguments(Object[] requestBody) {
 		this.arguments = requestBody;
 	}
@@ -38,26 +70,126 @@ public class AstrixServiceInvocationRequest implements Serializable {
 	public Object[] getArguments() {
 		return arguments;
 	}
+	
+	public ServiceMethodDescriptor getServiceMethod() {
+		return serviceMethod;
+	}
+	
+	public void setServiceMethod(ServiceMethodDescriptor serviceMethod) {
+		this.serviceMethod = serviceMethod;
+	}
+	
+	public String getServiceApi() {
+		if (serviceMethod != null) {
+			return serviceMethod.getServiceApi();
+		}
+		return getHeader(AstrixServiceInvocationRequestHeaders.SERVICE_API);
+	}
+	
+	public int getApiVersion() {
+		if (serviceMethod != null) {
+			return serviceMethod.getApiVersion();
+		}
+		return Integer.parseInt(getHeader(AstrixServiceInvocationRequestHeaders.API_VERSION));
+	}
+	
+	/**
+	 * @return the id of the target service method, see {@link ServiceMethodDescriptor#methodId(String)}
+	 */
+	public long getMethodId() {
+		if (serviceMethod != null) {
+			return serviceMethod.getMethodId();
+		}
+		String signature = getHeader(AstrixServiceInvocationRequestHeaders.SERVICE_METHOD_SIGNATURE);
+		return signature != null ? ServiceMethodDescriptor.methodId(signature) : 0L;
+	}
+	
+	/**
+	 * @return the signature of the target service method, or null if not known
+	 */
+	public String getServiceMethodSignature() {
+		if (serviceMethod != null) {
+			return serviceMethod.getMethodSignature();
+		}
+		return getHeader(AstrixServiceInvocationRequestHeaders.SERVICE_METHOD_SIGNATURE);
+	}
 
 	public void setHeader(String name, String value) {
+		if (this.headers == null) {
+			this.headers = new HashMap<>(4);
+		}
 		this.headers.put(name, value);
 	}
 	
 	public String getHeader(String name) {
-		return this.headers.get(name);
+		return this.headers != null ? this.headers.get(name) : null;
 	}
 	
 	@Override
 	public String toString() {
-		return "Invocation Request. headers=" + this.headers.toString() + ", arguments=" + Arrays.toString(arguments);
+		return "Invocation Request. serviceMethod=" + this.serviceMethod + ", headers=" + getHeaders() + ", arguments=" + Arrays.toString(arguments);
 	}
 
+	/**
+	 * @return an unmodifiable view of the headers of this request
+	 */
 	public Map<String, String> getHeaders() {
-		return this.headers;
+		return this.headers != null ? Collections.unmodifiableMap(this.headers) : Collections.emptyMap();
+	}
+
+	/**
+	 * @return the headers of this request including the legacy headers identifying the target method
+	 */
+	Map<String, String> getHeadersIncludingLegacyHeaders() {
+		if (serviceMethod == null || serviceMethod.getLegacyHeaders().isEmpty()) {
+			return getHeaders();
+		}
+		if (headers == null) {
+			return serviceMethod.getLegacyHeaders();
+		}
+		Map<String, String> result = new HashMap<>(serviceMethod.getLegacyHeaders());
+		result.putAll(headers);
+		return result;
+	}
+	
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		// Older servers expects a mutable map
+		fields.put("headers", new HashMap<>(getHeadersIncludingLegacyHeaders()));
+		fields.put("arguments", arguments);
+		if (serviceMethod != null) {
+			fields.put("serviceApi", serviceMethod.getServiceApi());
+			fields.put("apiVersion", serviceMethod.getApiVersion());
+			fields.put("methodId", serviceMethod.getMethodId());
+		}
+		out.writeFields();
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		Map<String, String> receivedHeaders = (Map<String, String>) fields.get("headers", null);
+		this.arguments = (Object[]) fields.get("arguments", null);
+		String legacyServiceApi = null;
+		String legacyApiVersion = null;
+		String legacyMethodSignature = null;
+		if (receivedHeaders != null) {
+			legacyServiceApi = receivedHeaders.remove(AstrixServiceInvocationRequestHeaders.SERVICE_API);
+			legacyApiVersion = receivedHeaders.remove(AstrixServiceInvocationRequestHeaders.API_VERSION);
+			legacyMethodSignature = receivedHeaders.remove(AstrixServiceInvocationRequestHeaders.SERVICE_METHOD_SIGNATURE);
+			this.headers = receivedHeaders.isEmpty() ? null : receivedHeaders;
+		}
+		this.serviceMethod = ServiceMethodDescriptor.received((String) fields.get("serviceApi", null), fields.get("apiVersion", 0), fields.get("methodId", 0L), 
+															  legacyServiceApi, legacyApiVersion, legacyMethodSignature);
 	}
 
 	public void setAllHeaders(Map<String, String> headers) {
-		this.headers.putAll(headers);
+		if (headers.isEmpty()) {
+			return;
+		}
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			setHeader(header.getKey(), header.getValue());
+		}
 	}
 
 	
@@ -23,6 +23,7 @@ import rx.Observable;
 import rx.functions.Func1;
 
 import com.avanza.astrix.core.AstrixRemoteResult;
+import com.avanza.astrix.core.IncrementalRemoteResultReducer;
 import com.avanza.astrix.core.RemoteResultReducer;
 import com.avanza.astrix.core.util.ReflectionUtil;
 
@@ -38,12 +39,15 @@ public class BroadcastedRemoteServiceMethod implements RemoteServiceMethod {
 	private final Class<? extends RemoteResultReducer> reducer;
 	private final RemotingEngine remotingEngine;
 	private final Type returnType;
+	private final PartialResultPolicy partialResultPolicy;
 	
 	public BroadcastedRemoteServiceMethod(String signature,
 			Class<? extends RemoteResultReducer> reducer,
 			RemotingEngine remotingEngine, 
-			Type returnType) {
+			Type returnType,
+			PartialResultPolicy partialResultPolicy) {
 		this.signature = signature;
+		this.partialResultPolicy = partialResultPolicy;
 		this.reducer = reducer;
 		this.remotingEngine = remotingEngine;
 		this.returnType = returnType;
@@ -66,14 +70,19 @@ public class BroadcastedRemoteServiceMethod implements RemoteServiceMethod {
 			AstrixServiceInvocationRequest request, Object[] args) throws InstantiationException,
 			IllegalAccessException {
 		request.setArguments(remotingEngine.marshall(args));
-		final RemoteResultReducer<T> reducer = (RemoteResultReducer<T>) newReducer();
-		Observable<List<AstrixServiceInvocationResponse>> responesObservable = remotingEngine.submitBroadcastRequest(request);
 		if (returnType.equals(Void.TYPE) || returnType.equals(Void.class)) {
-			return responesObservable.map(responses -> {
+			return submitBroadcastRequest(request).map(responses -> {
 				readResponses(responses);
 				return null;
 			});
 		}
+		if (IncrementalRemoteResultReducer.class.isAssignableFrom(this.reducer)) {
+			return remotingEngine.reduceIncrementally(streamBroadcastRequest(request), 
+													  () -> (IncrementalRemoteResultReducer<T>) newReducer(), 
+													  returnType);
+		}
+		final RemoteResultReducer<T> reducer = (RemoteResultReducer<T>) newReducer();
+		Observable<List<AstrixServiceInvocationResponse>> responesObservable = submitBroadcastRequest(request);
 		return responesObservable.map(responses -> {
 			List<AstrixRemoteResult<T>> unmarshalledResponses = new ArrayList<>();
 			for (AstrixServiceInvocationResponse response : responses) {
@@ -84,8 +93,28 @@ public class BroadcastedRemoteServiceMethod implements RemoteServiceMethod {
 		});
 	}
 
+	private Observable<List<AstrixServiceInvocationResponse>> submitBroadcastRequest(AstrixServiceInvocationRequest request) {
+		if (partialResultPolicy != null) {
+			return partialResultPolicy.submitBroadcastRequest(remotingEngine, request).toList();
+		}
+		return remotingEngine.submitBroadcastRequest(request);
+	}
+	
+	private Observable<AstrixServiceInvocationResponse> streamBroadcastRequest(AstrixServiceInvocationRequest request) {
+		if (partialResultPolicy != null) {
+			return partialResultPolicy.submitBroadcastRequest(remotingEngine, request);
+		}
+		return remotingEngine.streamBroadcastRequest(request);
+	}
+
 	private void readResponses(List<AstrixServiceInvocationResponse> responses) {
-		responses.forEach(res -> remotingEngine.toRemoteResult(res, returnType).getResult());
+		for (AstrixServiceInvocationResponse response : responses) {
+			if (partialResultPolicy != null && response.isServiceUnavailable()) {
+				// Missing partitions are ignored for void methods
+				continue;
+			}
+			remotingEngine.toRemoteResult(response, returnType).getResult();
+		}
 	}
 
 }
\ No newline at end of file
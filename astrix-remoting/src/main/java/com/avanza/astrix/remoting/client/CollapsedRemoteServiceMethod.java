@@ -0,0 +1,222 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import com.avanza.astrix.core.AstrixCollapsed;
+import com.avanza.astrix.core.remoting.Router;
+import com.avanza.astrix.core.remoting.RoutingKey;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.schedulers.Schedulers;
+
+/**
+ * A routed service method annotated with {@link AstrixCollapsed}. Invocations are queued per target 
+ * partition, and each batch is sent as a single invocation of the batch method when the collapsing
+ * window closes, or when the batch is full. <p>
+ * 
+ * The batch request carries the headers of the collapsed invocations, hence invocations with different
+ * headers are never collapsed into the same batch. <p>
+ * 
+ * The collapsing window of each batch is timed using a worker that is created for the batch, and 
+ * released as soon as the batch is sent. Hence no scheduler resources are held while no batch is pending.
+ * 
+ */
+public class CollapsedRemoteServiceMethod implements RemoteServiceMethod {
+
+	private final String signature;
+	private final String batchMethodSignature;
+	private final Router router;
+	private final RemotingEngine remotingEngine;
+	private final Type batchReturnType;
+	private final long windowMillis;
+	private final int maxBatchSize;
+	private final Scheduler scheduler;
+	private final Map<BatchKey, Batch> pendingBatchByKey = new HashMap<>();
+
+	public CollapsedRemoteServiceMethod(String signature,
+										String batchMethodSignature,
+										Router router,
+										RemotingEngine remotingEngine,
+										Type batchReturnType,
+										long windowMillis,
+										int maxBatchSize,
+										Scheduler scheduler) {
+		this.signature = signature;
+		this.batchMethodSignature = batchMethodSignature;
+		this.router = router;
+		this.remotingEngine = remotingEngine;
+		this.batchReturnType = batchReturnType;
+		this.windowMillis = windowMillis;
+		this.maxBatchSize = maxBatchSize;
+		this.scheduler = scheduler;
+	}
+	
+	public CollapsedRemoteServiceMethod(String signature,
+										String batchMethodSignature,
+										Router router,
+										RemotingEngine remotingEngine,
+										Type batchReturnType,
+										AstrixCollapsed collapsed) {
+		this(signature, batchMethodSignature, router, remotingEngine, batchReturnType, collapsed.window(), collapsed.maxBatchSize(), Schedulers.computation());
+	}
+
+	@Override
+	public String getSignature() {
+		return signature;
+	}
+
+	@Override
+	public Observable<?> invoke(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		RoutingKey routingKey = router.getRoutingKey(args);
+		if (routingKey == null) {
+			throw new IllegalStateException(String.format("Service method is routed but the defined remotingKey value was null: method=%s", signature));
+		}
+		int partition = routingKey.hashCode() % remotingEngine.partitionCount();
+		return Observable.create(subscriber -> enqueue(partition, invocationRequest, args[0], subscriber));
+	}
+
+	private void enqueue(int partition, AstrixServiceInvocationRequest invocationRequest, Object argument, Subscriber<? super Object> subscriber) {
+		BatchKey key = new BatchKey(partition, invocationRequest.getHeaders());
+		Batch fullBatch = null;
+		synchronized (pendingBatchByKey) {
+			Batch batch = pendingBatchByKey.get(key);
+			if (batch == null) {
+				Batch newBatch = new Batch(key, invocationRequest, scheduler.createWorker());
+				pendingBatchByKey.put(key, newBatch);
+				newBatch.window.schedule(() -> windowClosed(newBatch), windowMillis, TimeUnit.MILLISECONDS);
+				batch = newBatch;
+			}
+			batch.add(argument, subscriber);
+			if (batch.size() >= maxBatchSize) {
+				pendingBatchByKey.remove(key);
+				fullBatch = batch;
+			}
+		}
+		if (fullBatch != null) {
+			fullBatch.window.unsubscribe();
+			submit(fullBatch);
+		}
+	}
+
+	private void windowClosed(Batch batch) {
+		batch.window.unsubscribe();
+		synchronized (pendingBatchByKey) {
+			if (pendingBatchByKey.get(batch.key) != batch) {
+				// Already sent since it was full
+				return;
+			}
+			pendingBatchByKey.remove(batch.key);
+		}
+		submit(batch);
+	}
+
+	private void submit(Batch batch) {
+		ServiceMethodDescriptor serviceMethod = batch.invocationRequest.getServiceMethod();
+		AstrixServiceInvocationRequest batchRequest = new AstrixServiceInvocationRequest(
+				ServiceMethodDescriptor.create(serviceMethod.getServiceApi(), serviceMethod.getApiVersion(), batchMethodSignature));
+		batchRequest.setAllHeaders(batch.invocationRequest.getHeaders());
+		batchRequest.setArguments(remotingEngine.marshall(new Object[] { batch.arguments }));
+		remotingEngine.submitRoutedRequest(batchRequest, RoutingKey.create(batch.key.partition))
+					  .map(response -> remotingEngine.<List<Object>>toRemoteResult(response, batchReturnType).getResult())
+					  .subscribe(batch::complete, batch::fail);
+	}
+	
+	private static final class BatchKey {
+		
+		private final int partition;
+		private final Map<String, String> headers;
+		
+		public BatchKey(int partition, Map<String, String> headers) {
+			this.partition = partition;
+			this.headers = new HashMap<>(headers);
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hash(partition, headers);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof BatchKey)) {
+				return false;
+			}
+			BatchKey other = (BatchKey) obj;
+			return partition == other.partition && headers.equals(other.headers);
+		}
+	}
+	
+	private static final class Batch {
+		
+		private final BatchKey key;
+		private final AstrixServiceInvocationRequest invocationRequest;
+		private final Scheduler.Worker window;
+		private final List<Object> arguments = new ArrayList<>();
+		private final List<Subscriber<? super Object>> subscribers = new ArrayList<>();
+		
+		public Batch(BatchKey key, AstrixServiceInvocationRequest invocationRequest, Scheduler.Worker window) {
+			this.key = key;
+			this.invocationRequest = invocationRequest;
+			this.window = window;
+		}
+
+		void add(Object argument, Subscriber<? super Object> subscriber) {
+			arguments.add(argument);
+			subscribers.add(subscriber);
+		}
+		
+		int size() {
+			return arguments.size();
+		}
+		
+		void complete(List<Object> results) {
+			if (results == null || results.size() != subscribers.size()) {
+				fail(new IllegalStateException(String.format("Expected batch method to return one result for each argument: arguments=%d, results=%s", 
+						subscribers.size(), results == null ? null : results.size())));
+				return;
+			}
+			for (int i = 0; i < subscribers.size(); i++) {
+				Subscriber<? super Object> subscriber = subscribers.get(i);
+				if (!subscriber.isUnsubscribed()) {
+					subscriber.onNext(results.get(i));
+					subscriber.onCompleted();
+				}
+			}
+		}
+		
+		void fail(Throwable e) {
+			for (Subscriber<? super Object> subscriber : subscribers) {
+				if (!subscriber.isUnsubscribed()) {
+					subscriber.onError(e);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+
+import rx.Observable;
+import rx.Subscription;
+
+final class CompletableFutures {
+	
+	private CompletableFutures() {
+	}
+	
+	/**
+	 * Eagerly subscribes to the given observable and returns a future that is completed with
+	 * the first emitted item. Emitting no item at all is considered a failure, in line with
+	 * {@link rx.observables.BlockingObservable#first()}. Cancelling the returned future unsubscribes
+	 * from the observable.
+	 */
+	static <T> CompletableFuture<T> fromSingle(Observable<T> observable) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		Subscription subscription = observable.subscribe(result::complete, 
+														 result::completeExceptionally, 
+														 () -> result.completeExceptionally(new NoSuchElementException("Sequence contains no elements")));
+		result.whenComplete((r, e) -> {
+			if (result.isCancelled()) {
+				subscription.unsubscribe();
+			}
+		});
+		return result;
+	}
+
+}
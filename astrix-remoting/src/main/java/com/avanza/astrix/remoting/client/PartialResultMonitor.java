@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps track of the number of invocations of a service method annotated with 
+ * {@link com.avanza.astrix.core.AstrixPartialResult} that completed with a partial 
+ * result, i.e where at least one partition did not respond in time. <p>
+ * 
+ */
+public class PartialResultMonitor implements PartialResultMonitorMBean {
+	
+	private final LongAdder invocationCount = new LongAdder();
+	private final LongAdder partialInvocationCount = new LongAdder();
+	private final LongAdder unavailablePartitionCount = new LongAdder();
+	
+	void record(int unavailablePartitions) {
+		invocationCount.increment();
+		if (unavailablePartitions > 0) {
+			partialInvocationCount.increment();
+			unavailablePartitionCount.add(unavailablePartitions);
+		}
+	}
+
+	@Override
+	public long getInvocationCount() {
+		return invocationCount.sum();
+	}
+
+	@Override
+	public long getPartialInvocationCount() {
+		return partialInvocationCount.sum();
+	}
+
+	@Override
+	public long getUnavailablePartitionCount() {
+		return unavailablePartitionCount.sum();
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.avanza.astrix.core.AstrixPartialResult;
+import com.avanza.astrix.core.remoting.RoutingKey;
+
+import rx.Observable;
+
+/**
+ * Submits each partition request of a service method annotated with {@link AstrixPartialResult}
+ * separately, with its own deadline. A partition that fails or does not respond within the deadline
+ * is replaced by a service unavailable response. <p>
+ * 
+ */
+final class PartialResultPolicy {
+	
+	private final long partitionTimeoutMillis;
+	private final PartialResultMonitor monitor;
+	
+	PartialResultPolicy(long partitionTimeoutMillis, PartialResultMonitor monitor) {
+		if (partitionTimeoutMillis <= 0) {
+			throw new IllegalArgumentException("@AstrixPartialResult.partitionTimeout must be positive, was: " + partitionTimeoutMillis);
+		}
+		this.partitionTimeoutMillis = partitionTimeoutMillis;
+		this.monitor = monitor;
+	}
+	
+	Observable<AstrixServiceInvocationResponse> submitRoutedRequests(RemotingEngine remotingEngine, List<RoutedServiceInvocationRequest> requests) {
+		return Observable.defer(() -> {
+			AtomicInteger unavailablePartitions = new AtomicInteger();
+			List<Observable<AstrixServiceInvocationResponse>> responses = new ArrayList<>(requests.size());
+			for (RoutedServiceInvocationRequest request : requests) {
+				responses.add(remotingEngine.submitRoutedRequest(request.getRequest(), request.getRoutingkey())
+											.timeout(partitionTimeoutMillis, TimeUnit.MILLISECONDS)
+											.onErrorReturn(e -> {
+												unavailablePartitions.incrementAndGet();
+												return unavailable(request, e);
+											}));
+			}
+			return Observable.merge(responses)
+							 .doOnCompleted(() -> monitor.record(unavailablePartitions.get()));
+		});
+	}
+	
+	Observable<AstrixServiceInvocationResponse> submitBroadcastRequest(RemotingEngine remotingEngine, AstrixServiceInvocationRequest request) {
+		// A broadcast is equivalent to routing the same request to each partition
+		int partitionCount = remotingEngine.partitionCount();
+		List<RoutedServiceInvocationRequest> requests = new ArrayList<>(partitionCount);
+		for (int partition = 0; partition < partitionCount; partition++) {
+			requests.add(new RoutedServiceInvocationRequest(request, RoutingKey.create(partition)));
+		}
+		return submitRoutedRequests(remotingEngine, requests);
+	}
+	
+	private AstrixServiceInvocationResponse unavailable(RoutedServiceInvocationRequest request, Throwable cause) {
+		AstrixServiceInvocationResponse response = new AstrixServiceInvocationResponse();
+		response.setServiceUnavailable(true);
+		response.setExceptionMsg(String.format("No response from partition %s within %d ms: %s", request.getRoutingkey(), partitionTimeoutMillis, cause));
+		response.setCorrelationId(UUID.randomUUID().toString());
+		return response;
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Marshalls the arguments for each partition of a partitioned service invocation. <p>
+ * 
+ */
+public interface PartitionMarshaller {
+	
+	/**
+	 * Marshalls all partitions on the calling thread.
+	 */
+	PartitionMarshaller CALLER_RUNS = new PartitionMarshaller() {
+		@Override
+		public <T> List<T> marshall(List<Supplier<T>> tasks, int elementCount) {
+			List<T> result = new ArrayList<>(tasks.size());
+			for (Supplier<T> task : tasks) {
+				result.add(task.get());
+			}
+			return result;
+		}
+	};
+	
+	/**
+	 * Runs the marshalling of each partition and returns the results in the same order
+	 * as the given tasks. 
+	 * 
+	 * @param tasks - one marshalling task per partition
+	 * @param elementCount - the total number of elements in the partitioned argument
+	 * @return
+	 */
+	<T> List<T> marshall(List<Supplier<T>> tasks, int elementCount);
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import com.avanza.astrix.beans.config.AstrixConfig;
+import com.avanza.astrix.config.DynamicIntProperty;
+import com.avanza.astrix.config.IntSetting;
+import com.avanza.astrix.core.util.NamedThreadFactory;
+import com.avanza.astrix.modules.AstrixInject;
+
+/**
+ * Default {@link PartitionMarshaller}. Invocations where the partitioned argument contains at least
+ * {@link #PARALLEL_MARSHALLING_THRESHOLD} elements are marshalled in parallel, one task per partition, on a bounded thread pool shared by all
+ * remoting proxies in the AstrixContext. Smaller invocations are marshalled on the calling thread. When 
+ * the pool is saturated the marshalling falls back on the calling thread. Once destroyed, parallel marshalling
+ * is rejected with an IllegalStateException. <p>
+ * 
+ */
+public final class PartitionMarshallerImpl implements PartitionMarshaller {
+	
+	public static final IntSetting PARALLEL_MARSHALLING_THRESHOLD = IntSetting.create("astrix.remoting.client.parallelMarshallingThreshold", 10_000);
+	public static final IntSetting MARSHALLING_POOL_SIZE = IntSetting.create("astrix.remoting.client.marshallingPoolSize", 4);
+	
+	private static final int QUEUE_SIZE_PER_THREAD = 64;
+	
+	private final ThreadPoolExecutor executor;
+	private final DynamicIntProperty parallelMarshallingThreshold;
+	
+	@AstrixInject
+	public PartitionMarshallerImpl(AstrixConfig config) {
+		this(config.get(MARSHALLING_POOL_SIZE).get(), config.get(PARALLEL_MARSHALLING_THRESHOLD));
+	}
+	
+	PartitionMarshallerImpl(int poolSize, DynamicIntProperty parallelMarshallingThreshold) {
+		this.parallelMarshallingThreshold = parallelMarshallingThreshold;
+		this.executor = new ThreadPoolExecutor(poolSize, 
+											   poolSize, 
+											   60, 
+											   TimeUnit.SECONDS, 
+											   new ArrayBlockingQueue<>(poolSize * QUEUE_SIZE_PER_THREAD), 
+											   new NamedThreadFactory("RemotingPartitionMarshaller", true),
+											   PartitionMarshallerImpl::callerRunsUnlessShutdown);
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+	
+	@Override
+	public <T> List<T> marshall(List<Supplier<T>> tasks, int elementCount) {
+		if (tasks.size() < 2 || elementCount < parallelMarshallingThreshold.get()) {
+			return CALLER_RUNS.marshall(tasks, elementCount);
+		}
+		List<T> result = new ArrayList<>(tasks.size());
+		List<CompletableFuture<T>> pending = new ArrayList<>(tasks.size());
+		try {
+			for (Supplier<T> task : tasks) {
+				pending.add(CompletableFuture.supplyAsync(task, executor));
+			}
+		} catch (RejectedExecutionException e) {
+			throw new IllegalStateException("Can't marshall invocation, PartitionMarshaller is destroyed", e);
+		}
+		try {
+			for (CompletableFuture<T> marshalledPartition : pending) {
+				result.add(marshalledPartition.join());
+			}
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw e;
+		}
+		return result;
+	}
+	
+	/*
+	 * Unlike CallerRunsPolicy, which silently discards the task after shutdown and thereby leaves
+	 * its CompletableFuture incomplete forever, this rejects the task.
+	 */
+	private static void callerRunsUnlessShutdown(Runnable task, ThreadPoolExecutor executor) {
+		if (executor.isShutdown()) {
+			throw new RejectedExecutionException("PartitionMarshaller is destroyed");
+		}
+		task.run();
+	}
+	
+	@PreDestroy
+	public void destroy() {
+		this.executor.shutdown();
+	}
+
+}
@@ -21,10 +21,12 @@ import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.*;
-import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 import com.avanza.astrix.core.AstrixPartitionedRouting;
 import com.avanza.astrix.core.AstrixRemoteResult;
+import com.avanza.astrix.core.IncrementalRemoteResultReducer;
 import com.avanza.astrix.core.RemoteResultReducer;
 import com.avanza.astrix.core.remoting.RoutingKey;
 import com.avanza.astrix.core.util.ReflectionUtil;
@@ -45,14 +47,17 @@ public class PartitionedRemoteServiceMethod implements RemoteServiceMethod {
 	private final ContainerType partitionedArgumentContainerType;
 	private final PartitionedRouter router;
 	private final Method proxiedMethod;
+	private final PartialResultPolicy partialResultPolicy;
 
 	public PartitionedRemoteServiceMethod(int partitionedArgumentIndex,
 										  Method proxiedMethod,
 										  String methodSignature,
 										  RemotingEngine remotingEngine,
 										  Type targetReturnType,
-										  Method targetServiceMethod) {
+										  Method targetServiceMethod,
+										  PartialResultPolicy partialResultPolicy) {
 		this.partitionedArgumentIndex = partitionedArgumentIndex;
+		this.partialResultPolicy = partialResultPolicy;
 		this.proxiedMethod = proxiedMethod;
 		this.methodSignature = methodSignature;
 		this.remotingEngine = remotingEngine;
@@ -82,7 +87,7 @@ public class PartitionedRemoteServiceMethod implements RemoteServiceMethod {
 	private ContainerType getPartitionedArgumentContainerType(Method proxiedMethod, AstrixPartitionedRouting partitionBy) {
 		Class<?> partitionedArgumentType = proxiedMethod.getParameterTypes()[partitionedArgumentIndex];
 		if (partitionedArgumentType.isArray()) {
-			return new ArrayContainerType(partitionedArgumentType.getComponentType());
+			return arrayContainerType(partitionedArgumentType.getComponentType());
 		}
 		Class<? extends Collection<?>> collectionFactory = (Class<? extends Collection<?>>) partitionBy.collectionFactory();
 		if (!proxiedMethod.getParameterTypes()[partitionedArgumentIndex].isAssignableFrom(collectionFactory)) {
@@ -128,17 +133,39 @@ public class PartitionedRemoteServiceMethod implements RemoteServiceMethod {
 		 */
 		ServiceInvocationPartitioner serviceInvocationPartitioner = new ServiceInvocationPartitioner();
 		List<RoutedServiceInvocationRequest> partitionInvocationRequest = serviceInvocationPartitioner.partitionInvocationRequest(invocationRequest, args);
-		Observable<List<AstrixServiceInvocationResponse>> serviceInvocationResponses = remotingEngine.submitRoutedRequests(partitionInvocationRequest);
-		return reduce(serviceInvocationResponses);
-	}
-
-	private <T> Observable<T> reduce(Observable<List<AstrixServiceInvocationResponse>> responses) {
-		if (targetReturnType.equals(Void.TYPE) || targetReturnType.equals(Void.class)) {
-			return responses.map(responseList -> {
+		if (isVoidReturnType()) {
+			return submitRoutedRequests(partitionInvocationRequest).map(responseList -> {
 				readResults(responseList);
 				return null;
 			});
 		}
+		if (IncrementalRemoteResultReducer.class.isAssignableFrom(reducerType)) {
+			return remotingEngine.reduceIncrementally(streamRoutedRequests(partitionInvocationRequest), 
+													  () -> (IncrementalRemoteResultReducer<Object>) newRemoteResultReducer(), 
+													  targetReturnType);
+		}
+		return reduce(submitRoutedRequests(partitionInvocationRequest));
+	}
+	
+	private Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequests(List<RoutedServiceInvocationRequest> requests) {
+		if (partialResultPolicy != null) {
+			return partialResultPolicy.submitRoutedRequests(remotingEngine, requests).toList();
+		}
+		return remotingEngine.submitRoutedRequests(requests);
+	}
+	
+	private Observable<AstrixServiceInvocationResponse> streamRoutedRequests(List<RoutedServiceInvocationRequest> requests) {
+		if (partialResultPolicy != null) {
+			return partialResultPolicy.submitRoutedRequests(remotingEngine, requests);
+		}
+		return remotingEngine.streamRoutedRequests(requests);
+	}
+	
+	private boolean isVoidReturnType() {
+		return targetReturnType.equals(Void.TYPE) || targetReturnType.equals(Void.class);
+	}
+
+	private <T> Observable<T> reduce(Observable<List<AstrixServiceInvocationResponse>> responses) {
 		final RemoteResultReducer<T> reducer = newRemoteResultReducer();
 		return responses.map(responseList -> {
 			List<AstrixRemoteResult<T>> unmarshalledResponses = new ArrayList<>(responseList.size());
@@ -152,7 +179,13 @@ public class PartitionedRemoteServiceMethod implements RemoteServiceMethod {
 	}
 
 	private void readResults(List<AstrixServiceInvocationResponse> responseList) {
-		responseList.forEach(res -> remotingEngine.toRemoteResult(res, targetReturnType).getResult());
+		for (AstrixServiceInvocationResponse response : responseList) {
+			if (partialResultPolicy != null && response.isServiceUnavailable()) {
+				// Missing partitions are ignored for void methods
+				continue;
+			}
+			remotingEngine.toRemoteResult(response, targetReturnType).getResult();
+		}
 	}
 
 	@SuppressWarnings("unchecked")
@@ -160,149 +193,270 @@ public class PartitionedRemoteServiceMethod implements RemoteServiceMethod {
 		return (RemoteResultReducer<T>) ReflectionUtil.newInstance(this.reducerType);
 	}
 
-	private ContainerBuilder newCollectionInstance() {
-		return partitionedArgumentContainerType.newInstance();
+	private static int expectedPartitionSize(int elementCount, int partitionCount) {
+		// Leave some room for an uneven distribution of the routing keys
+		int mean = elementCount / partitionCount;
+		return mean + (mean >> 2) + 4;
 	}
 
-	private class RoutedServiceInvocationRequestBuilder {
-		private final ContainerBuilder routingKeys;
-		private final RoutingKey targetPartitionRoutingKey;
+	private class ServiceInvocationPartitioner {
+
+		private final ContainerBuilder[] keysByPartition;
+		private int expectedPartitionSize;
 
-		public RoutedServiceInvocationRequestBuilder(ContainerBuilder keys, int targetPartition) {
-			this.routingKeys = keys;
-			this.targetPartitionRoutingKey = RoutingKey.create(targetPartition);
+		public ServiceInvocationPartitioner() {
+			this.keysByPartition = new ContainerBuilder[remotingEngine.partitionCount()];
 		}
 
-		public void addKey(Object requestedKey) {
-			this.routingKeys.add(requestedKey);
+		public List<RoutedServiceInvocationRequest> partitionInvocationRequest(AstrixServiceInvocationRequest invocationRequest, Object[] args) {
+			Object container = args[partitionedArgumentIndex];
+			int elementCount = partitionedArgumentContainerType.size(container);
+			this.expectedPartitionSize = expectedPartitionSize(elementCount, keysByPartition.length);
+			partitionedArgumentContainerType.split(container, this);
+			List<Supplier<RoutedServiceInvocationRequest>> marshallingTasks = new ArrayList<>(keysByPartition.length);
+			for (int partition = 0; partition < keysByPartition.length; partition++) {
+				ContainerBuilder keys = keysByPartition[partition];
+				if (keys != null) {
+					RoutingKey targetPartitionRoutingKey = RoutingKey.create(partition);
+					marshallingTasks.add(() -> createInvocationRequest(invocationRequest, args, keys.buildTarget(), targetPartitionRoutingKey));
+				}
+			}
+			return remotingEngine.marshallPartitions(marshallingTasks, elementCount);
 		}
-		
-		private RoutedServiceInvocationRequest createInvocationRequest(
-				AstrixServiceInvocationRequest invocationRequest,
-				Object[] unpartitionedArguments) {
-			AstrixServiceInvocationRequest partitionedRequest = new AstrixServiceInvocationRequest();
+
+		private RoutedServiceInvocationRequest createInvocationRequest(AstrixServiceInvocationRequest invocationRequest,
+																	   Object[] unpartitionedArguments,
+																	   Object partitionedArgument,
+																	   RoutingKey targetPartitionRoutingKey) {
+			AstrixServiceInvocationRequest partitionedRequest = new AstrixServiceInvocationRequest(invocationRequest.getServiceMethod());
 			partitionedRequest.setAllHeaders(invocationRequest.getHeaders());
 			Object[] requestForPartition = Arrays.copyOf(unpartitionedArguments, unpartitionedArguments.length);
-			requestForPartition[partitionedArgumentIndex] = this.routingKeys.buildTarget();
+			requestForPartition[partitionedArgumentIndex] = partitionedArgument;
 			partitionedRequest.setArguments(remotingEngine.marshall(requestForPartition));
 			return new RoutedServiceInvocationRequest(partitionedRequest, targetPartitionRoutingKey);
 		}
-	}
-	
-	private class ServiceInvocationPartitioner {
-		private final RoutedServiceInvocationRequestBuilder[] requests;
-		
-		public ServiceInvocationPartitioner() {
-			this.requests = new RoutedServiceInvocationRequestBuilder[remotingEngine.partitionCount()];
-		}
 
-		public List<RoutedServiceInvocationRequest> partitionInvocationRequest(AstrixServiceInvocationRequest invocationRequest, Object[] args) {
-			partitionedArgumentContainerType.iterateContainer(getContainerInstance(args), new Consumer<Object>() {
-				@Override
-				public void accept(Object element) {
-					addElement(element);
-				}
-			});
-			List<RoutedServiceInvocationRequest> result = new LinkedList<>();
-			for (RoutedServiceInvocationRequestBuilder routedInvocationReqeustBuilder : requests) {
-				if (routedInvocationReqeustBuilder != null) {
-					result.add(routedInvocationReqeustBuilder.createInvocationRequest(invocationRequest, args));
-				}
-			}
-			return result;
+		ContainerBuilder keysFor(Object element) {
+			return keysFor(router.getRoutingKey(element));
 		}
-		
-		private Object getContainerInstance(Object[] args) {
-			return args[partitionedArgumentIndex];
-		}
-
-		public void addElement(Object element) {
-			RoutingKey routingKey = router.getRoutingKey(element);
-			int targetPartition = routingKey.hashCode() % requests.length;
-			RoutedServiceInvocationRequestBuilder invocationRequestBuilderForPartition = this.requests[targetPartition];
-			if (invocationRequestBuilderForPartition == null) {
-				invocationRequestBuilderForPartition = new RoutedServiceInvocationRequestBuilder(newCollectionInstance(), targetPartition);
-				this.requests[targetPartition] = invocationRequestBuilderForPartition;
-				
+
+		ContainerBuilder keysFor(RoutingKey routingKey) {
+			int targetPartition = routingKey.hashCode() % keysByPartition.length;
+			ContainerBuilder keys = this.keysByPartition[targetPartition];
+			if (keys == null) {
+				keys = partitionedArgumentContainerType.newInstance(expectedPartitionSize);
+				this.keysByPartition[targetPartition] = keys;
 			}
-			invocationRequestBuilderForPartition.addKey(element);
+			return keys;
 		}
 
 	}
-	
+
 	private interface ContainerType {
-		ContainerBuilder newInstance();
-		void iterateContainer(Object container, Consumer<Object> consumer);
+		ContainerBuilder newInstance(int expectedSize);
+		int size(Object container);
+		void split(Object container, ServiceInvocationPartitioner partitioner);
 		Class<?> getElementType();
 	}
-	
+
+	private static ContainerType arrayContainerType(Class<?> elementType) {
+		if (!elementType.isPrimitive()) {
+			return new ObjectArrayContainerType(elementType);
+		}
+		if (elementType.equals(int.class)) {
+			return new IntArrayContainerType();
+		}
+		if (elementType.equals(long.class)) {
+			return new LongArrayContainerType();
+		}
+		return new ArrayContainerType(elementType);
+	}
+
 	private static class CollectionContainerType implements ContainerType {
 		private final Class<?> elementType;
-		private final Class<? extends Collection<?>> collectionFactory;
-		
+		private final IntFunction<Collection<? super Object>> collectionFactory;
+
 		public CollectionContainerType(Class<? extends Collection<?>> collectionFactory, Class<?> elementType) {
-			this.collectionFactory = Objects.requireNonNull(collectionFactory);
+			this.collectionFactory = createCollectionFactory(Objects.requireNonNull(collectionFactory));
 			this.elementType = Objects.requireNonNull(elementType);
 		}
 
+		private static IntFunction<Collection<? super Object>> createCollectionFactory(Class<? extends Collection<?>> collectionType) {
+			if (collectionType.equals(ArrayList.class)) {
+				return ArrayList::new;
+			}
+			if (collectionType.equals(HashSet.class)) {
+				return expectedSize -> new HashSet<>(expectedSize * 4 / 3 + 1);
+			}
+			return expectedSize -> (Collection<? super Object>) ReflectionUtil.newInstance(collectionType);
+		}
+
 		@Override
-		public ContainerBuilder newInstance() {
-			return new CollectionContainerBuilder((Collection<? super Object>) ReflectionUtil.newInstance(this.collectionFactory));
+		public ContainerBuilder newInstance(int expectedSize) {
+			return new CollectionContainerBuilder(collectionFactory.apply(expectedSize));
 		}
 
 		@Override
-		public void iterateContainer(Object container, Consumer<Object> consumer) {
-			for (Object element : (Collection<? extends Object>) container) {
-				consumer.accept(element);
+		public int size(Object container) {
+			return ((Collection<?>) container).size();
+		}
+
+		@Override
+		public void split(Object container, ServiceInvocationPartitioner partitioner) {
+			for (Object element : (Collection<?>) container) {
+				partitioner.keysFor(element).add(element);
 			}
 		}
-		
+
 		@Override
 		public Class<?> getElementType() {
 			return elementType;
 		}
 	}
-	
+
+	private static class ObjectArrayContainerType implements ContainerType {
+
+		private final Class<?> elementType;
+		private final Class<? extends Object[]> arrayType;
+
+		public ObjectArrayContainerType(Class<?> elementType) {
+			this.elementType = elementType;
+			this.arrayType = (Class<? extends Object[]>) Array.newInstance(elementType, 0).getClass();
+		}
+
+		@Override
+		public ContainerBuilder newInstance(int expectedSize) {
+			return new ObjectArrayContainerBuilder(arrayType, expectedSize);
+		}
+
+		@Override
+		public int size(Object container) {
+			return ((Object[]) container).length;
+		}
+
+		@Override
+		public void split(Object container, ServiceInvocationPartitioner partitioner) {
+			for (Object element : (Object[]) container) {
+				partitioner.keysFor(element).add(element);
+			}
+		}
+
+		@Override
+		public Class<?> getElementType() {
+			return this.elementType;
+		}
+	}
+
+	private static class IntArrayContainerType implements ContainerType {
+
+		@Override
+		public ContainerBuilder newInstance(int expectedSize) {
+			return new IntArrayContainerBuilder(expectedSize);
+		}
+
+		@Override
+		public int size(Object container) {
+			return ((int[]) container).length;
+		}
+
+		@Override
+		public void split(Object container, ServiceInvocationPartitioner partitioner) {
+			for (int element : (int[]) container) {
+				// Same routing key as for a boxed Integer
+				IntArrayContainerBuilder.class.cast(partitioner.keysFor(RoutingKey.create(Integer.hashCode(element)))).addInt(element);
+			}
+		}
+
+		@Override
+		public Class<?> getElementType() {
+			return int.class;
+		}
+	}
+
+	private static class LongArrayContainerType implements ContainerType {
+
+		@Override
+		public ContainerBuilder newInstance(int expectedSize) {
+			return new LongArrayContainerBuilder(expectedSize);
+		}
+
+		@Override
+		public int size(Object container) {
+			return ((long[]) container).length;
+		}
+
+		@Override
+		public void split(Object container, ServiceInvocationPartitioner partitioner) {
+			for (long element : (long[]) container) {
+				// Same routing key as for a boxed Long
+				LongArrayContainerBuilder.class.cast(partitioner.keysFor(RoutingKey.create(Long.hashCode(element)))).addLong(element);
+			}
+		}
+
+		@Override
+		public Class<?> getElementType() {
+			return long.class;
+		}
+	}
+
+	/**
+	 * Fallback for arrays of the remaining primitive types.
+	 */
 	private static class ArrayContainerType implements ContainerType {
-		
+
 		private final Class<?> elementType;
-		
+
 		public ArrayContainerType(Class<?> elementType) {
 			this.elementType = elementType;
 		}
 
 		@Override
-		public ContainerBuilder newInstance() {
-			return new ArrayContainerBuilder(elementType);
+		public ContainerBuilder newInstance(int expectedSize) {
+			return new ArrayContainerBuilder(elementType, expectedSize);
+		}
+
+		@Override
+		public int size(Object container) {
+			return Array.getLength(container);
 		}
 
 		@Override
-		public void iterateContainer(Object container, Consumer<Object> consumer) {
-			for (int i = 0; i < Array.getLength(container); i++) {
-				consumer.accept(Array.get(container, i));
+		public void split(Object container, ServiceInvocationPartitioner partitioner) {
+			int length = Array.getLength(container);
+			for (int i = 0; i < length; i++) {
+				Object element = Array.get(container, i);
+				partitioner.keysFor(element).add(element);
 			}
 		}
-		
+
 		@Override
 		public Class<?> getElementType() {
 			return this.elementType;
 		}
 	}
-	
+
+	private static abstract class ContainerBuilder {
+
+		abstract void add(Object element);
+
+		abstract Object buildTarget();
+	}
+
 	private static class ArrayContainerBuilder extends ContainerBuilder {
-		
+
 		private final Class<?> elementType;
-		private final List<Object> elements = new ArrayList<>();
-		
-		public ArrayContainerBuilder(Class<?> elementType) {
+		private final List<Object> elements;
+
+		public ArrayContainerBuilder(Class<?> elementType, int expectedSize) {
 			this.elementType = elementType;
+			this.elements = new ArrayList<>(expectedSize);
 		}
-		
+
 		@Override
 		void add(Object element) {
 			elements.add(element);
 		}
-		
+
 		@Override
 		Object buildTarget() {
 			Object array = Array.newInstance(elementType, elements.size());
@@ -314,30 +468,106 @@ public class PartitionedRemoteServiceMethod implements RemoteServiceMethod {
 			return array;
 		}
 	}
-	
-	private static abstract class ContainerBuilder {
-		
-		abstract void add(Object element);
-		
-		abstract Object buildTarget();
+
+	private static class ObjectArrayContainerBuilder extends ContainerBuilder {
+
+		private final Class<? extends Object[]> arrayType;
+		private Object[] elements;
+		private int size;
+
+		public ObjectArrayContainerBuilder(Class<? extends Object[]> arrayType, int expectedSize) {
+			this.arrayType = arrayType;
+			this.elements = new Object[expectedSize];
+		}
+
+		@Override
+		void add(Object element) {
+			if (size == elements.length) {
+				elements = Arrays.copyOf(elements, grow(size));
+			}
+			elements[size++] = element;
+		}
+
+		@Override
+		Object buildTarget() {
+			return Arrays.copyOf(elements, size, arrayType);
+		}
 	}
-	
+
+	private static class IntArrayContainerBuilder extends ContainerBuilder {
+
+		private int[] elements;
+		private int size;
+
+		public IntArrayContainerBuilder(int expectedSize) {
+			this.elements = new int[expectedSize];
+		}
+
+		@Override
+		void add(Object element) {
+			addInt((Integer) element);
+		}
+
+		void addInt(int element) {
+			if (size == elements.length) {
+				elements = Arrays.copyOf(elements, grow(size));
+			}
+			elements[size++] = element;
+		}
+
+		@Override
+		Object buildTarget() {
+			return Arrays.copyOf(elements, size);
+		}
+	}
+
+	private static class LongArrayContainerBuilder extends ContainerBuilder {
+
+		private long[] elements;
+		private int size;
+
+		public LongArrayContainerBuilder(int expectedSize) {
+			this.elements = new long[expectedSize];
+		}
+
+		@Override
+		void add(Object element) {
+			addLong((Long) element);
+		}
+
+		void addLong(long element) {
+			if (size == elements.length) {
+				elements = Arrays.copyOf(elements, grow(size));
+			}
+			elements[size++] = element;
+		}
+
+		@Override
+		Object buildTarget() {
+			return Arrays.copyOf(elements, size);
+		}
+	}
+
+	private static int grow(int currentSize) {
+		return currentSize + (currentSize >> 1) + 1;
+	}
+
 	private static class CollectionContainerBuilder extends ContainerBuilder {
 		private Collection<? super Object> collection;
 
 		public CollectionContainerBuilder(Collection<? super Object> collection) {
 			this.collection = collection;
 		}
-		
+
 		@Override
 		void add(Object element) {
 			this.collection.add(element);
 		}
-		
+
 		@Override
 		Object buildTarget() {
 			return collection;
 		}
 	}
-	
+
 }
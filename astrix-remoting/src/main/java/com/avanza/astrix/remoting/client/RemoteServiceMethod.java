@@ -15,6 +15,8 @@
  */
 package com.avanza.astrix.remoting.client;
 
+import java.util.concurrent.CompletableFuture;
+
 import rx.Observable;
 
 /**
@@ -25,4 +27,15 @@ import rx.Observable;
 public interface RemoteServiceMethod {
 	String getSignature();
 	Observable<?> invoke(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception;
+	
+	/**
+	 * Invokes the remote service method and returns a future that is completed with the result. <p>
+	 * 
+	 * Used for service methods returning a single value, i.e. for synchronous, {@link java.util.concurrent.Future}
+	 * and {@link CompletableFuture} return types. The default implementation eagerly subscribes to 
+	 * {@link #invoke(AstrixServiceInvocationRequest, Object[])}.
+	 */
+	default CompletableFuture<?> invokeAsync(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		return CompletableFutures.fromSingle(invoke(invocationRequest, args));
+	}
 }
\ No newline at end of file
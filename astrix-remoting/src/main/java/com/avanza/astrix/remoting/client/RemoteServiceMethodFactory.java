@@ -18,8 +18,10 @@ package com.avanza.astrix.remoting.client;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.util.List;
 
 import com.avanza.astrix.core.*;
+import com.avanza.astrix.core.remoting.Router;
 import com.avanza.astrix.core.remoting.RoutingStrategy;
 import com.avanza.astrix.core.util.ReflectionUtil;
 /**
@@ -45,18 +47,58 @@ public class RemoteServiceMethodFactory {
 			Method targetServiceMethod = ReflectionUtil.getMethod(targetServiceType, proxiedMethod.getName(),proxiedMethod.getParameterTypes());
 			return new BroadcastedRemoteServiceMethod(methodSignature,
 					getRemoteResultReducerClass(targetServiceMethod),
-					remotingEngine, targetReturnType);
+					remotingEngine, targetReturnType, getPartialResultPolicy(proxiedMethod, targetServiceMethod));
 		}
 		int partitionedByArgumentIndex = getPartitionedByAnnotation(proxiedMethod);
 		if (partitionedByArgumentIndex >= 0) {
 			Method targetServiceMethod = ReflectionUtil.getMethod(targetServiceType, proxiedMethod.getName(),proxiedMethod.getParameterTypes());
-			return new PartitionedRemoteServiceMethod(partitionedByArgumentIndex, proxiedMethod, methodSignature, remotingEngine, targetReturnType, targetServiceMethod);
+			return new PartitionedRemoteServiceMethod(partitionedByArgumentIndex, proxiedMethod, methodSignature, remotingEngine, targetReturnType, targetServiceMethod, 
+					getPartialResultPolicy(proxiedMethod, targetServiceMethod));
 		}
+		if (proxiedMethod.isAnnotationPresent(AstrixPartialResult.class)) {
+			throw new IllegalServiceMetadataException("@AstrixPartialResult is only supported on broadcasted and partitioned service methods: " + proxiedMethod);
+		}
+		Router router;
 		if (proxiedMethod.isAnnotationPresent(AstrixRoutingStrategy.class)) {
-			RoutingStrategy routingStrategy = createRoutingStrategy(proxiedMethod);
-			return new RoutedRemoteServiceMethod(methodSignature, routingStrategy.create(proxiedMethod), remotingEngine, targetReturnType);
+			router = createRoutingStrategy(proxiedMethod).create(proxiedMethod);
+		} else {
+			router = defaultRoutingStrategy.create(proxiedMethod);
+		}
+		AstrixCollapsed collapsed = getCollapsedAnnotation(targetServiceType, proxiedMethod);
+		if (collapsed != null) {
+			Method batchMethod = getBatchMethod(targetServiceType, proxiedMethod, collapsed);
+			return new CollapsedRemoteServiceMethod(methodSignature, ReflectionUtil.methodSignatureWithoutReturnType(batchMethod), router, 
+													remotingEngine, batchMethod.getGenericReturnType(), collapsed);
+		}
+		return new RoutedRemoteServiceMethod(methodSignature, router, remotingEngine, targetReturnType);
+	}
+	
+	private AstrixCollapsed getCollapsedAnnotation(Class<?> targetServiceType, Method proxiedMethod) {
+		AstrixCollapsed collapsed = proxiedMethod.getAnnotation(AstrixCollapsed.class);
+		if (collapsed != null) {
+			return collapsed;
+		}
+		return ReflectionUtil.getMethod(targetServiceType, proxiedMethod.getName(), proxiedMethod.getParameterTypes()).getAnnotation(AstrixCollapsed.class);
+	}
+	
+	private Method getBatchMethod(Class<?> targetServiceType, Method proxiedMethod, AstrixCollapsed collapsed) {
+		if (proxiedMethod.getParameterTypes().length != 1) {
+			throw new IllegalServiceMetadataException("@AstrixCollapsed is only supported on service methods with exactly one argument: " + proxiedMethod);
 		}
-		return new RoutedRemoteServiceMethod(methodSignature, defaultRoutingStrategy.create(proxiedMethod), remotingEngine, targetReturnType);
+		if (collapsed.window() < 0 || collapsed.maxBatchSize() < 1) {
+			throw new IllegalServiceMetadataException("Illegal @AstrixCollapsed window or maxBatchSize: " + proxiedMethod);
+		}
+		Method batchMethod;
+		try {
+			batchMethod = targetServiceType.getMethod(collapsed.batchMethod(), List.class);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalServiceMetadataException(String.format("Batch method not found. Expected method with a single List argument: batchMethod=%s serviceType=%s", 
+					collapsed.batchMethod(), targetServiceType.getName()), e);
+		}
+		if (!List.class.equals(batchMethod.getReturnType())) {
+			throw new IllegalServiceMetadataException("Batch method must return a List: " + batchMethod);
+		}
+		return batchMethod;
 	}
 
 	private RoutingStrategy createRoutingStrategy(Method proxiedMethod) {
@@ -69,6 +111,22 @@ public class RemoteServiceMethodFactory {
 		}
 	}
 	
+	/**
+	 * Returns null if the method is not annotated with {@link AstrixPartialResult}.
+	 */
+	private PartialResultPolicy getPartialResultPolicy(Method proxiedMethod, Method targetServiceMethod) {
+		AstrixPartialResult partialResult = proxiedMethod.getAnnotation(AstrixPartialResult.class);
+		if (partialResult == null) {
+			partialResult = targetServiceMethod.getAnnotation(AstrixPartialResult.class);
+		}
+		if (partialResult == null) {
+			return null;
+		}
+		PartialResultMonitor monitor = new PartialResultMonitor();
+		remotingEngine.registerMBean(monitor, "PartialResults", targetServiceMethod.getDeclaringClass().getName() + "#" + targetServiceMethod.getName());
+		return new PartialResultPolicy(partialResult.partitionTimeout(), monitor);
+	}
+	
 	public static int getPartitionedByAnnotation(Method m) {
 		int partitionedByIndex = -1;
 		for (int argumentIndex = 0; argumentIndex < m.getParameterTypes().length; argumentIndex++) {
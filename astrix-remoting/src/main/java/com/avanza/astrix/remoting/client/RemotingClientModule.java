@@ -18,8 +18,10 @@ package com.avanza.astrix.remoting.client;
 
 import org.kohsuke.MetaInfServices;
 
+import com.avanza.astrix.beans.config.AstrixConfig;
 import com.avanza.astrix.beans.core.ReactiveTypeConverter;
 import com.avanza.astrix.context.AstrixContextPlugin;
+import com.avanza.astrix.context.mbeans.MBeanExporter;
 import com.avanza.astrix.modules.ModuleContext;
 import com.avanza.astrix.versioning.core.ObjectSerializerFactory;
 
@@ -29,10 +31,14 @@ public class RemotingClientModule implements AstrixContextPlugin {
 	@Override
 	public void prepare(ModuleContext moduleContext) {
 		moduleContext.bind(RemotingProxyFactory.class, RemotingProxyFactoryImpl.class);
+		moduleContext.bind(PartitionMarshaller.class, PartitionMarshallerImpl.class);
 		
+		moduleContext.importType(AstrixConfig.class);
 		moduleContext.importType(ObjectSerializerFactory.class);
 		moduleContext.importType(ReactiveTypeConverter.class);
+		moduleContext.importType(MBeanExporter.class);
 		
 		moduleContext.export(RemotingProxyFactory.class);
+		moduleContext.export(PartitionMarshaller.class);
 	}
 }
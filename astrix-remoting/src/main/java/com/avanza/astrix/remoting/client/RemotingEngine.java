@@ -19,9 +19,13 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
+import com.avanza.astrix.context.mbeans.MBeanExporter;
 import com.avanza.astrix.core.AstrixRemoteResult;
 import com.avanza.astrix.core.CorrelationId;
+import com.avanza.astrix.core.IncrementalRemoteResultReducer;
 import com.avanza.astrix.core.RemoteServiceInvocationException;
 import com.avanza.astrix.core.ServiceInvocationException;
 import com.avanza.astrix.core.remoting.RoutingKey;
@@ -36,11 +40,19 @@ public final class RemotingEngine {
 	private final RemotingTransport serviceTransport;
 	private final AstrixObjectSerializer objectSerializer;
 	private final int apiVersion;
+	private final PartitionMarshaller partitionMarshaller;
+	private final MBeanExporter mbeanExporter;
 	
 	public RemotingEngine(RemotingTransport serviceTransport, AstrixObjectSerializer objectSerializer, int apiVersion) {
+		this(serviceTransport, objectSerializer, apiVersion, PartitionMarshaller.CALLER_RUNS, new MBeanExporter.NoExporter());
+	}
+	
+	public RemotingEngine(RemotingTransport serviceTransport, AstrixObjectSerializer objectSerializer, int apiVersion, PartitionMarshaller partitionMarshaller, MBeanExporter mbeanExporter) {
 		this.serviceTransport = serviceTransport;
 		this.objectSerializer = objectSerializer;
 		this.apiVersion = apiVersion;
+		this.partitionMarshaller = partitionMarshaller;
+		this.mbeanExporter = mbeanExporter;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -97,6 +109,10 @@ public final class RemotingEngine {
 		return result;
 	}
 
+	final <T> List<T> marshallPartitions(List<Supplier<T>> marshallingTasks, int elementCount) {
+		return this.partitionMarshaller.marshall(marshallingTasks, elementCount);
+	}
+
 	private <T> T unmarshall(AstrixServiceInvocationResponse response, Type returnType, int version) {
 		return objectSerializer.deserialize(response.getResponseBody(), returnType, version);
 	}
@@ -115,6 +131,10 @@ public final class RemotingEngine {
 		return this.serviceTransport.submitRoutedRequest(request, routingKey);
 	}
 	
+	final CompletableFuture<AstrixServiceInvocationResponse> submitRoutedRequestAsync(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+		return this.serviceTransport.submitRoutedRequestAsync(request, routingKey);
+	}
+	
 	final Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequests(List<RoutedServiceInvocationRequest> requests) {
 		return this.serviceTransport.submitRoutedRequests(requests);
 	}
@@ -123,6 +143,29 @@ public final class RemotingEngine {
 		return this.serviceTransport.submitBroadcastRequest(request);
 	}
 
+	final Observable<AstrixServiceInvocationResponse> streamRoutedRequests(List<RoutedServiceInvocationRequest> requests) {
+		return this.serviceTransport.streamRoutedRequests(requests);
+	}
+
+	final Observable<AstrixServiceInvocationResponse> streamBroadcastRequest(AstrixServiceInvocationRequest request) {
+		return this.serviceTransport.streamBroadcastRequest(request);
+	}
+
+	/**
+	 * Folds each response into a new reducer (one per subscription) as soon as it is received, 
+	 * and emits the reduced result when all responses are received.
+	 */
+	final <T> Observable<T> reduceIncrementally(Observable<AstrixServiceInvocationResponse> responses, 
+												Supplier<IncrementalRemoteResultReducer<T>> reducerFactory, 
+												Type returnType) {
+		return responses.collect(reducerFactory::get, (reducer, response) -> reducer.accumulate(toRemoteResult(response, returnType)))
+						.map(IncrementalRemoteResultReducer::finish);
+	}
+
+	final void registerMBean(Object mbean, String folder, String name) {
+		this.mbeanExporter.registerMBean(mbean, folder, name);
+	}
+
 	public int partitionCount() {
 		return this.serviceTransport.partitionCount();
 	}
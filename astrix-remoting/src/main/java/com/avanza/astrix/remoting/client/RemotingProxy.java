@@ -20,23 +20,20 @@ import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import com.avanza.astrix.beans.core.ReactiveTypeConverter;
+import com.avanza.astrix.context.mbeans.MBeanExporter;
 import com.avanza.astrix.core.AstrixCallStackTrace;
 import com.avanza.astrix.core.remoting.RoutingStrategy;
 import com.avanza.astrix.core.util.ReflectionUtil;
 import com.avanza.astrix.versioning.core.AstrixObjectSerializer;
 
 import rx.Observable;
-import rx.functions.Action1;
-import rx.subjects.ReplaySubject;
 /**
  * 
  * @author Elias Lindholm (elilin)
@@ -46,12 +43,16 @@ public class RemotingProxy implements InvocationHandler {
 	
 	private final int apiVersion;
 	private final String serviceApi;
-	private final ConcurrentMap<Method, RemoteServiceMethod> remoteServiceMethodByMethod = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Method, ProxiedMethod> proxiedMethodByMethod = new ConcurrentHashMap<>();
 	private final RemoteServiceMethodFactory remoteServiceMethodFactory;
 	private final ReactiveTypeConverter reactiveTypeConverter;
 
 	public static <T> T create(Class<T> proxyApi, Class<?> targetApi, RemotingTransport transport, AstrixObjectSerializer objectSerializer, RoutingStrategy defaultRoutingStrategy, ReactiveTypeConverter reactiveTypeConverter) {
-		RemotingProxy handler = new RemotingProxy(proxyApi, targetApi, objectSerializer, transport, defaultRoutingStrategy, reactiveTypeConverter);
+		return create(proxyApi, targetApi, transport, objectSerializer, defaultRoutingStrategy, reactiveTypeConverter, PartitionMarshaller.CALLER_RUNS, new MBeanExporter.NoExporter());
+	}
+	
+	public static <T> T create(Class<T> proxyApi, Class<?> targetApi, RemotingTransport transport, AstrixObjectSerializer objectSerializer, RoutingStrategy defaultRoutingStrategy, ReactiveTypeConverter reactiveTypeConverter, PartitionMarshaller partitionMarshaller, MBeanExporter mbeanExporter) {
+		RemotingProxy handler = new RemotingProxy(proxyApi, targetApi, objectSerializer, transport, defaultRoutingStrategy, reactiveTypeConverter, partitionMarshaller, mbeanExporter);
 		T serviceProxy = (T) Proxy.newProxyInstance(RemotingProxy.class.getClassLoader(), new Class[]{proxyApi}, handler);
 		return serviceProxy;
 	}
@@ -61,11 +62,13 @@ public class RemotingProxy implements InvocationHandler {
 							    AstrixObjectSerializer objectSerializer,
 							    RemotingTransport AstrixServiceTransport,
 							    RoutingStrategy defaultRoutingStrategy,
-							    ReactiveTypeConverter reactiveTypeConverter) {
+							    ReactiveTypeConverter reactiveTypeConverter,
+							    PartitionMarshaller partitionMarshaller,
+							    MBeanExporter mbeanExporter) {
 		this.reactiveTypeConverter = reactiveTypeConverter;
 		this.serviceApi = targetServiceApi.getName();
 		this.apiVersion = objectSerializer.version();
-		RemotingEngine remotingEngine = new RemotingEngine(AstrixServiceTransport, objectSerializer, apiVersion);
+		RemotingEngine remotingEngine = new RemotingEngine(AstrixServiceTransport, objectSerializer, apiVersion, partitionMarshaller, mbeanExporter);
 		this.remoteServiceMethodFactory = new RemoteServiceMethodFactory(remotingEngine, defaultRoutingStrategy);
 		/*
 		 * For each of the following services the "targetServiceType" resolves to MyService:
@@ -77,7 +80,8 @@ public class RemotingProxy implements InvocationHandler {
 		for (Method proxiedMethod : proxiedServiceApi.getMethods()) {
 			Type returnType = getReturnType(proxiedMethod);
 			RemoteServiceMethod remoteServiceMethod = this.remoteServiceMethodFactory.createRemoteServiceMethod(targetServiceType, proxiedMethod, returnType);
-			remoteServiceMethodByMethod.put(proxiedMethod, remoteServiceMethod);
+			ServiceMethodDescriptor serviceMethod = ServiceMethodDescriptor.create(this.serviceApi, this.apiVersion, remoteServiceMethod.getSignature());
+			proxiedMethodByMethod.put(proxiedMethod, new ProxiedMethod(remoteServiceMethod, serviceMethod));
 		}
 	}
 
@@ -91,34 +95,23 @@ public class RemotingProxy implements InvocationHandler {
 		if (method.getDeclaringClass().equals(Object.class)) {
 			return ReflectionUtil.invokeMethod(method, this, args);
 		}
-		RemoteServiceMethod remoteServiceMethod = this.remoteServiceMethodByMethod.get(method);
-		
-		AstrixServiceInvocationRequest invocationRequest = new AstrixServiceInvocationRequest();
-		
-		invocationRequest.setHeader("apiVersion", Integer.toString(this.apiVersion));
-		invocationRequest.setHeader("serviceMethodSignature", remoteServiceMethod.getSignature());
-		invocationRequest.setHeader("serviceApi", this.serviceApi);
-		
-		Observable<?> result = remoteServiceMethod.invoke(invocationRequest, args);
-		if (isObservableType(method.getReturnType())) {
-			return result;
+		ProxiedMethod proxiedMethod = this.proxiedMethodByMethod.get(method);
+		AstrixServiceInvocationRequest invocationRequest = new AstrixServiceInvocationRequest(proxiedMethod.serviceMethod);
+		Class<?> returnType = method.getReturnType();
+		if (isObservableType(returnType)) {
+			return proxiedMethod.remoteServiceMethod.invoke(invocationRequest, args);
 		}
-		if (isReactiveType(method.getReturnType())) {
-			ReplaySubject<Object> subject = ReplaySubject.create();
-	        // eagerly kick off subscription
-	        result.subscribe(subject);
-	        // return the subject that can be subscribed to later while the execution has already started
-			return reactiveTypeConverter.toCustomReactiveType(method.getReturnType(), subject);
+		if (Future.class.equals(returnType) || CompletableFuture.class.equals(returnType)) {
+			// The invocation is started eagerly, and the future is completed directly by the transport
+			return proxiedMethod.remoteServiceMethod.invokeAsync(invocationRequest, args);
 		}
-		if (Future.class.equals(method.getReturnType())) {
-			ReplaySubject<Object> subject = ReplaySubject.create();
-	        // eagerly kick off subscription
-	        result.subscribe(subject);
-	        // return the subject that can be subscribed to later while the execution has already started
-			return new FutureAdapter<>(subject);
+		if (isReactiveType(returnType)) {
+			// Eagerly subscribes to the result
+			return reactiveTypeConverter.toCustomReactiveType(returnType, (Observable<Object>) proxiedMethod.remoteServiceMethod.invoke(invocationRequest, args));
 		}
+		CompletableFuture<?> result = proxiedMethod.remoteServiceMethod.invokeAsync(invocationRequest, args);
 		try {
-			return result.toBlocking().first();
+			return awaitResult(result);
 		} catch (Exception e) {
 			// Append invocation call stack
 			appendStackTrace(e, new AstrixCallStackTrace());
@@ -126,6 +119,26 @@ public class RemotingProxy implements InvocationHandler {
 		}
 	}
 
+	private static Object awaitResult(CompletableFuture<?> result) {
+		try {
+			return result.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RuntimeException(cause);
+		} catch (InterruptedException e) {
+			// Abandon the invocation, nobody is waiting for the result anymore
+			result.cancel(false);
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for service invocation to complete", e);
+		}
+	}
+
 	private static void appendStackTrace(Throwable exception, AstrixCallStackTrace trace) {
 		Throwable lastThowableInChain = exception;
 		while (lastThowableInChain.getCause() != null) {
@@ -154,66 +167,14 @@ public class RemotingProxy implements InvocationHandler {
 		return this.reactiveTypeConverter.isReactiveType(asyncType);
 	}
 	
-	private static class FutureAdapter<T> implements Future<T> {
+	private static final class ProxiedMethod {
+		private final RemoteServiceMethod remoteServiceMethod;
+		private final ServiceMethodDescriptor serviceMethod;
 		
-		private final CountDownLatch done = new CountDownLatch(1);
-		private volatile T result;
-		private volatile Throwable exception;
-		
-		public FutureAdapter(Observable<T> obs) {
-			obs.subscribe(new Action1<T>() {
-				@Override
-				public void call(T t1) {
-					result = t1;
-					done.countDown();
-				}
-			}, new Action1<Throwable>() {
-
-				@Override
-				public void call(Throwable t1) {
-					exception = t1;
-					done.countDown();
-				}
-				
-			});
+		public ProxiedMethod(RemoteServiceMethod remoteServiceMethod, ServiceMethodDescriptor serviceMethod) {
+			this.remoteServiceMethod = remoteServiceMethod;
+			this.serviceMethod = serviceMethod;
 		}
-
-		@Override
-		public boolean cancel(boolean mayInterruptIfRunning) {
-			return false;
-		}
-		
-		@Override
-		public boolean isCancelled() {
-			return false;
-		}
-
-		@Override
-		public boolean isDone() {
-			return done.getCount() == 0;
-		}
-
-		@Override
-		public T get() throws InterruptedException, ExecutionException {
-			done.await();
-			return getResult();
-		}
-
-		@Override
-		public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-			if (!done.await(timeout, unit)) {
-				throw new TimeoutException();
-			}
-			return getResult();
-		}
-
-		private T getResult() throws ExecutionException {
-			if (exception != null) {
-				throw new ExecutionException(exception);
-			}
-			return result;		
-		}
-		
 	}
 	
 }
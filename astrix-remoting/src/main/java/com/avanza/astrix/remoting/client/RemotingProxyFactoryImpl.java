@@ -18,6 +18,7 @@ package com.avanza.astrix.remoting.client;
 import com.avanza.astrix.beans.core.ReactiveTypeConverter;
 import com.avanza.astrix.beans.service.ServiceDefinition;
 import com.avanza.astrix.beans.service.ServiceProperties;
+import com.avanza.astrix.context.mbeans.MBeanExporter;
 import com.avanza.astrix.core.remoting.RoutingStrategy;
 import com.avanza.astrix.core.util.ReflectionUtil;
 import com.avanza.astrix.versioning.core.AstrixObjectSerializer;
@@ -27,10 +28,14 @@ public class RemotingProxyFactoryImpl implements RemotingProxyFactory {
 	
 	private final ObjectSerializerFactory objectSerializerFactory;
 	private final ReactiveTypeConverter reactiveTypeConverter;
+	private final PartitionMarshaller partitionMarshaller;
+	private final MBeanExporter mbeanExporter;
 	
-	public RemotingProxyFactoryImpl(ObjectSerializerFactory objectSerializerFactory, ReactiveTypeConverter reactiveTypeConverter) {
+	public RemotingProxyFactoryImpl(ObjectSerializerFactory objectSerializerFactory, ReactiveTypeConverter reactiveTypeConverter, PartitionMarshaller partitionMarshaller, MBeanExporter mbeanExporter) {
 		this.objectSerializerFactory = objectSerializerFactory;
 		this.reactiveTypeConverter = reactiveTypeConverter;
+		this.partitionMarshaller = partitionMarshaller;
+		this.mbeanExporter = mbeanExporter;
 	}
 
 	@Override
@@ -39,7 +44,7 @@ public class RemotingProxyFactoryImpl implements RemotingProxyFactory {
 		AstrixObjectSerializer objectSerializer = objectSerializerFactory.create(serviceDefinition.getObjectSerializerDefinition());
 		RemotingTransport remotingTransport = RemotingTransport.create(remotingTransportSpi);
 		return RemotingProxy.create(serviceDefinition.getServiceType(), ReflectionUtil.classForName(serviceProperties.getProperty(ServiceProperties.API))
-				, remotingTransport, objectSerializer, routingStrategy, reactiveTypeConverter);
+				, remotingTransport, objectSerializer, routingStrategy, reactiveTypeConverter, partitionMarshaller, mbeanExporter);
 	}
 
 }
@@ -16,6 +16,7 @@
 package com.avanza.astrix.remoting.client;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.avanza.astrix.core.remoting.RoutingKey;
 
@@ -41,6 +42,10 @@ public class RemotingTransport {
 		return impl.submitRoutedRequest(request, routingKey);
 	}
 	
+	public CompletableFuture<AstrixServiceInvocationResponse> submitRoutedRequestAsync(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+		return impl.submitRoutedRequestAsync(request, routingKey);
+	}
+	
 	public Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequests(List<RoutedServiceInvocationRequest> requests) {
 		return impl.submitRoutedRequests(requests);
 	}
@@ -49,6 +54,14 @@ public class RemotingTransport {
 		return impl.submitBroadcastRequest(request);
 	}
 
+	public Observable<AstrixServiceInvocationResponse> streamRoutedRequests(List<RoutedServiceInvocationRequest> requests) {
+		return impl.streamRoutedRequests(requests);
+	}
+	
+	public Observable<AstrixServiceInvocationResponse> streamBroadcastRequest(AstrixServiceInvocationRequest request) {
+		return impl.streamBroadcastRequest(request);
+	}
+
 	public int partitionCount() {
 		return this.impl.partitionCount();
 	}
@@ -17,6 +17,7 @@ package com.avanza.astrix.remoting.client;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.avanza.astrix.core.remoting.RoutingKey;
 
@@ -47,6 +48,10 @@ public interface RemotingTransportSpi {
 	 * second event to be emitted. Therefore, in order to ensure that service invocation are protected
 	 * with a timeout, the RemotingTransportSpi has been designed to only emit one event with all responses,
 	 * or non at all.
+	 * 
+	 * The streaming variants, RemotingTransportSpi#streamRoutedRequests and RemotingTransportSpi#streamBroadcastRequest,
+	 * are only used to fold the responses into an IncrementalRemoteResultReducer as they arrive. The
+	 * reduced result is still emitted as a single event, hence the timeout still applies.
 	 */
 	
 	/**
@@ -58,6 +63,20 @@ public interface RemotingTransportSpi {
 	 */
 	Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey);
 	
+	/**
+	 * Send a single routed invocation request to the target cluster member, and completes the
+	 * returned future directly when the response is received. <p>
+	 * 
+	 * The default implementation eagerly subscribes to {@link #submitRoutedRequest(AstrixServiceInvocationRequest, RoutingKey)}.
+	 * 
+	 * @param request
+	 * @param routingKey
+	 * @return a future that will be completed with the response from the given invocation request.
+	 */
+	default CompletableFuture<AstrixServiceInvocationResponse> submitRoutedRequestAsync(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+		return CompletableFutures.fromSingle(submitRoutedRequest(request, routingKey));
+	}
+	
 	/**
 	 * Sends each service invocation to the associate target cluster member.
 	 * 
@@ -75,6 +94,32 @@ public interface RemotingTransportSpi {
 	 */
 	Observable<List<AstrixServiceInvocationResponse>> submitBroadcastRequest(AstrixServiceInvocationRequest request);
 	
+	/**
+	 * Sends each service invocation to the associate target cluster member, and emits each
+	 * response as soon as it is received. <p>
+	 * 
+	 * The default implementation emits the responses when all invocations are completed.
+	 * 
+	 * @param requests
+	 * @return an Observable that will emit one item for the response from each invocation
+	 */
+	default Observable<AstrixServiceInvocationResponse> streamRoutedRequests(Collection<RoutedServiceInvocationRequest> requests) {
+		return submitRoutedRequests(requests).flatMapIterable(responses -> responses);
+	}
+	
+	/**
+	 * Sends a service invocation request to each member in the cluster, and emits each 
+	 * response as soon as it is received. <p>
+	 * 
+	 * The default implementation emits the responses when all invocations are completed.
+	 * 
+	 * @param request
+	 * @return an Observable that will emit one item for the response from each member in the cluster 
+	 */
+	default Observable<AstrixServiceInvocationResponse> streamBroadcastRequest(AstrixServiceInvocationRequest request) {
+		return submitBroadcastRequest(request).flatMapIterable(responses -> responses);
+	}
+	
 	/**
 	 * 
 	 * @return the number of members in the target cluster.
@@ -16,6 +16,7 @@
 package com.avanza.astrix.remoting.client;
 
 import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
 
 import com.avanza.astrix.core.remoting.Router;
 import com.avanza.astrix.core.remoting.RoutingKey;
@@ -45,12 +46,42 @@ public class RoutedRemoteServiceMethod implements RemoteServiceMethod {
 	
 	@Override
 	public Observable<?> invoke(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		return submitRoutedRequest(invocationRequest, prepareRoutedRequest(invocationRequest, args));
+	}
+	
+	@Override
+	public CompletableFuture<?> invokeAsync(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
+		RoutingKey routingKey = prepareRoutedRequest(invocationRequest, args);
+		CompletableFuture<Object> result = new CompletableFuture<>();
+		CompletableFuture<AstrixServiceInvocationResponse> transportResult = remotingEngine.submitRoutedRequestAsync(invocationRequest, routingKey);
+		// Complete the result directly from the transport callback, without wrapping the exception in a CompletionException
+		transportResult.whenComplete((response, error) -> {
+			if (error != null) {
+				result.completeExceptionally(error);
+				return;
+			}
+			try {
+				result.complete(remotingEngine.toRemoteResult(response, returnType).getResult());
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		});
+		// Cancelling the result abandons the request in the transport
+		result.whenComplete((r, e) -> {
+			if (result.isCancelled()) {
+				transportResult.cancel(false);
+			}
+		});
+		return result;
+	}
+
+	private RoutingKey prepareRoutedRequest(AstrixServiceInvocationRequest invocationRequest, Object[] args) throws Exception {
 		invocationRequest.setArguments(remotingEngine.marshall(args));
 		RoutingKey routingKey = router.getRoutingKey(args);
 		if (routingKey == null) {
 			throw new IllegalStateException(String.format("Service method is routed but the defined remotingKey value was null: method=%s", signature));
 		}
-		return submitRoutedRequest(invocationRequest, routingKey);
+		return routingKey;
 	}
 	
 	protected Observable<Object> submitRoutedRequest(AstrixServiceInvocationRequest request,
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable description of the target of a service invocation, created once for each 
+ * proxied method and shared by all {@link AstrixServiceInvocationRequest}s for that method. <p>
+ * 
+ * The method is identified by a 64-bit id derived from its signature (without return type), 
+ * which allows the client and server to agree on method ids without any additional communication,
+ * see {@link #methodId(String)}. Since the id is a hash, two different signatures might share
+ * the same id. A server rejects a service api where two methods collide, and until clients and
+ * servers negotiate the request format each request also carries the legacy headers 
+ * (see {@link AstrixServiceInvocationRequestHeaders}), including the method signature, which
+ * allows a server to detect that the id of a request collides with a method it does not know about,
+ * and allows servers that does not know about method ids to serve upgraded clients. <p>
+ * 
+ */
+public final class ServiceMethodDescriptor {
+	
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	
+	private final String serviceApi;
+	private final int apiVersion;
+	private final long methodId;
+	private final String methodSignature;
+	private final Map<String, String> legacyHeaders;
+	
+	private ServiceMethodDescriptor(String serviceApi, int apiVersion, long methodId, String methodSignature) {
+		this.serviceApi = serviceApi;
+		this.apiVersion = apiVersion;
+		this.methodId = methodId;
+		this.methodSignature = methodSignature;
+		this.legacyHeaders = createLegacyHeaders(serviceApi, apiVersion, methodSignature);
+	}
+	
+	public static ServiceMethodDescriptor create(String serviceApi, int apiVersion, String methodSignature) {
+		return new ServiceMethodDescriptor(serviceApi, apiVersion, methodId(methodSignature), methodSignature);
+	}
+	
+	/**
+	 * Creates a descriptor for a received invocation request, i.e. where the method signature
+	 * is not known.
+	 */
+	public static ServiceMethodDescriptor create(String serviceApi, int apiVersion, long methodId) {
+		return new ServiceMethodDescriptor(serviceApi, apiVersion, methodId, null);
+	}
+	
+	/**
+	 * Creates a descriptor for a received invocation request from the descriptor fields (if sent by the
+	 * client) and the legacy headers (if sent by the client).
+	 * 
+	 * @return the descriptor, or null if the client sent neither
+	 */
+	static ServiceMethodDescriptor received(String serviceApi, int apiVersion, long methodId, 
+											String legacyServiceApi, String legacyApiVersion, String legacyMethodSignature) {
+		if (serviceApi != null) {
+			return new ServiceMethodDescriptor(serviceApi, apiVersion, methodId, legacyMethodSignature);
+		}
+		if (legacyServiceApi == null || legacyApiVersion == null || legacyMethodSignature == null) {
+			return null;
+		}
+		return create(legacyServiceApi, Integer.parseInt(legacyApiVersion), legacyMethodSignature);
+	}
+	
+	private static Map<String, String> createLegacyHeaders(String serviceApi, int apiVersion, String methodSignature) {
+		if (methodSignature == null) {
+			return Collections.emptyMap();
+		}
+		Map<String, String> result = new HashMap<>(4);
+		result.put(AstrixServiceInvocationRequestHeaders.SERVICE_API, serviceApi);
+		result.put(AstrixServiceInvocationRequestHeaders.API_VERSION, Integer.toString(apiVersion));
+		result.put(AstrixServiceInvocationRequestHeaders.SERVICE_METHOD_SIGNATURE, methodSignature);
+		return Collections.unmodifiableMap(result);
+	}
+	
+	static boolean isLegacyHeader(String name) {
+		return AstrixServiceInvocationRequestHeaders.SERVICE_API.equals(name) 
+				|| AstrixServiceInvocationRequestHeaders.API_VERSION.equals(name) 
+				|| AstrixServiceInvocationRequestHeaders.SERVICE_METHOD_SIGNATURE.equals(name);
+	}
+	
+	/**
+	 * Computes the id of a service method as the 64-bit FNV-1a hash of its signature.
+	 * 
+	 * @param methodSignature - the method signature, see {@link com.avanza.astrix.core.util.ReflectionUtil#methodSignatureWithoutReturnType(java.lang.reflect.Method)}
+	 * @return
+	 */
+	public static long methodId(String methodSignature) {
+		long hash = FNV_OFFSET_BASIS;
+		for (byte b : methodSignature.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= (b & 0xff);
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+	
+	public String getServiceApi() {
+		return serviceApi;
+	}
+	
+	public int getApiVersion() {
+		return apiVersion;
+	}
+	
+	public long getMethodId() {
+		return methodId;
+	}
+	
+	/**
+	 * @return the method signature, or null if not known, i.e. when received from a client that only sent the method id
+	 */
+	public String getMethodSignature() {
+		return methodSignature;
+	}
+	
+	/**
+	 * The headers used to identify the target method by clients that does not send a 
+	 * method id, see {@link AstrixServiceInvocationRequestHeaders}. 
+	 * 
+	 * @return an unmodifiable map with the legacy headers, or an empty map if the method signature is not known
+	 */
+	Map<String, String> getLegacyHeaders() {
+		return legacyHeaders;
+	}
+	
+	@Override
+	public String toString() {
+		return "ServiceMethod[serviceApi=" + serviceApi + ", apiVersion=" + apiVersion + ", methodId=" + methodId 
+				+ (methodSignature != null ? ", signature=" + methodSignature : "") + "]";
+	}
+
+}
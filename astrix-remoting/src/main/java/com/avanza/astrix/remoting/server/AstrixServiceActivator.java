@@ -19,9 +19,46 @@ import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
 import com.avanza.astrix.versioning.core.AstrixObjectSerializer;
 
+import rx.Observable;
+
 public interface AstrixServiceActivator {
 
 	AstrixServiceInvocationResponse invokeService(AstrixServiceInvocationRequest invocationRequest);
+	
+	/**
+	 * Returns true if the given request targets a service method returning an {@link Observable}, 
+	 * which might be invoked using {@link #invokeServiceStream(AstrixServiceInvocationRequest)} by
+	 * transports that support streaming responses.
+	 * 
+	 * @param invocationRequest
+	 * @return
+	 */
+	boolean isStreamingInvocation(AstrixServiceInvocationRequest invocationRequest);
+	
+	/**
+	 * Invokes a service method returning an {@link Observable} and emits one response 
+	 * for each element emitted by the service. An error emitted by the service is
+	 * emitted as a response holding the exception, i.e the returned Observable 
+	 * always completes normally. <p>
+	 * 
+	 * The service method is invoked on subscription, and backpressure requests 
+	 * are propagated to the Observable returned by the service.
+	 * 
+	 * @param invocationRequest
+	 * @return
+	 */
+	Observable<AstrixServiceInvocationResponse> invokeServiceStream(AstrixServiceInvocationRequest invocationRequest);
+
+	/**
+	 * Creates a "service unavailable" response for an invocation that will not be executed, 
+	 * for instance because the server is saturated, and records the rejection in the 
+	 * metrics for the target service.
+	 * 
+	 * @param invocationRequest
+	 * @param reason
+	 * @return
+	 */
+	AstrixServiceInvocationResponse rejectInvocation(AstrixServiceInvocationRequest invocationRequest, String reason);
 
 	void register(Object provider, AstrixObjectSerializer objectSerializer, Class<?> publishedApi);
 
@@ -34,9 +34,12 @@ import org.slf4j.LoggerFactory;
 import com.avanza.astrix.beans.config.AstrixConfig;
 import com.avanza.astrix.beans.core.AstrixSettings;
 import com.avanza.astrix.config.DynamicBooleanProperty;
+import com.avanza.astrix.config.DynamicConfig;
+import com.avanza.astrix.config.MapConfigSource;
 import com.avanza.astrix.context.mbeans.MBeanExporter;
 import com.avanza.astrix.context.metrics.Metrics;
 import com.avanza.astrix.context.metrics.Timer;
+import com.avanza.astrix.core.AstrixCacheable;
 import com.avanza.astrix.core.ServiceInvocationException;
 import com.avanza.astrix.core.function.Command;
 import com.avanza.astrix.core.util.ReflectionUtil;
@@ -45,7 +48,10 @@ import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponseHeaders;
 import com.avanza.astrix.remoting.client.MissingServiceMethodException;
+import com.avanza.astrix.remoting.client.ServiceMethodDescriptor;
 import com.avanza.astrix.versioning.core.AstrixObjectSerializer;
+
+import rx.Observable;
 /**
  * Server side component used to invoke exported services. <p> 
  * 
@@ -60,15 +66,29 @@ class AstrixServiceActivatorImpl implements AstrixServiceActivator {
 	private final MBeanExporter mbeanExporter;
 	private final ServiceInvocationMonitor allServicesAggregated;
 	private final DynamicBooleanProperty exportedServiceMetricsEnabled;
+	private final ResponseCache responseCache;
+	private final DynamicConfig config;
 
 	@AstrixInject
 	public AstrixServiceActivatorImpl(AstrixConfig astrixConfig, Metrics metrics, MBeanExporter mbeanExporter) {
-		this(astrixConfig.get(AstrixSettings.EXPORTED_SERVICE_METRICS_ENABLED), metrics, mbeanExporter);
+		this(astrixConfig.get(AstrixSettings.EXPORTED_SERVICE_METRICS_ENABLED), astrixConfig.getConfig(), metrics, mbeanExporter, 
+			 new ResponseCache(astrixConfig.get(ResponseCache.MAX_BYTES).get()));
 	}
 	
 	// For testnig
 	AstrixServiceActivatorImpl(DynamicBooleanProperty exportedServiceMetricsEnabled, Metrics metrics, MBeanExporter mbeanExporter) {
+		this(exportedServiceMetricsEnabled, new DynamicConfig(new MapConfigSource()), metrics, mbeanExporter);
+	}
+	
+	// For testnig
+	AstrixServiceActivatorImpl(DynamicBooleanProperty exportedServiceMetricsEnabled, DynamicConfig config, Metrics metrics, MBeanExporter mbeanExporter) {
+		this(exportedServiceMetricsEnabled, config, metrics, mbeanExporter, new ResponseCache(ResponseCache.MAX_BYTES.defaultValue()));
+	}
+	
+	private AstrixServiceActivatorImpl(DynamicBooleanProperty exportedServiceMetricsEnabled, DynamicConfig config, Metrics metrics, MBeanExporter mbeanExporter, ResponseCache responseCache) {
 		this.exportedServiceMetricsEnabled = exportedServiceMetricsEnabled;
+		this.config = config;
+		this.responseCache = responseCache;
 		this.metrics = metrics;
 		this.mbeanExporter = mbeanExporter;
 		// Monitor for aggregated stats for all exported services
@@ -94,19 +114,65 @@ class AstrixServiceActivatorImpl implements AstrixServiceActivator {
 			}
 			return execution;
 		}
+		
+		public void recordRejectedInvocation() {
+			for (ServiceInvocationMonitor monitor : monitor) {
+				monitor.recordRejectedInvocation();
+			}
+		}
+		
+		public void recordCacheHit() {
+			for (ServiceInvocationMonitor monitor : monitor) {
+				monitor.recordCacheHit();
+			}
+		}
+		
+		public void recordCacheMiss() {
+			for (ServiceInvocationMonitor monitor : monitor) {
+				monitor.recordCacheMiss();
+			}
+		}
+		
+		public void recordQueueTime(long queueTimeNanos) {
+			for (ServiceInvocationMonitor monitor : monitor) {
+				monitor.recordQueueTime(queueTimeNanos);
+			}
+		}
 	}
 	
 	private static class PublishedServiceMethod<T> {
 		private final ServiceInvocationMonitors serviceInvocationMonitors;
 		private final Method serviceMethod;
+		private final String signature;
 		private final AstrixObjectSerializer objectSerializer;
-		private final T service;
+		private final ServiceMethodInvoker invoker;
+		private final Type[] parameterTypes;
+		private final boolean streaming;
+		private final boolean voidReturnType;
+		private final boolean optionalReturnType;
+		private final ResponseCache responseCache;
+		private final long cacheTimeToLive;
 		
-		public PublishedServiceMethod(ServiceInvocationMonitors serviceInvocationMonitors, Method method, AstrixObjectSerializer objectSerializer, T service) {
+		public PublishedServiceMethod(ServiceInvocationMonitors serviceInvocationMonitors, Method method, AstrixObjectSerializer objectSerializer, T service, ResponseCache responseCache) {
 			this.serviceInvocationMonitors = serviceInvocationMonitors;
 			this.serviceMethod = method;
+			this.signature = ReflectionUtil.methodSignatureWithoutReturnType(method);
 			this.objectSerializer = objectSerializer;
-			this.service = service;
+			this.invoker = ServiceMethodInvoker.create(service, method);
+			this.parameterTypes = method.getGenericParameterTypes();
+			this.streaming = Observable.class.equals(method.getReturnType());
+			this.voidReturnType = method.getReturnType().equals(Void.TYPE);
+			this.optionalReturnType = method.getReturnType().equals(Optional.class);
+			AstrixCacheable cacheable = method.getAnnotation(AstrixCacheable.class);
+			if (cacheable != null && (streaming || voidReturnType)) {
+				throw new IllegalArgumentException("Only methods returning a single value can be cacheable: " + method);
+			}
+			if (cacheable != null && objectSerializer.version() == AstrixObjectSerializer.NoVersioningSupport.NO_VERSIONING) {
+				// Arguments and responses would be live objects, i.e. cache keys based on identity and cached responses shared between callers
+				throw new IllegalArgumentException("Cacheable methods requires a versioned object serializer: " + method);
+			}
+			this.responseCache = cacheable != null ? responseCache : null;
+			this.cacheTimeToLive = cacheable != null ? cacheable.timeToLive() : 0;
 		}
 		
 		private AstrixServiceInvocationResponse timeInvocation(AstrixServiceInvocationRequest request, int version) {
@@ -114,32 +180,75 @@ class AstrixServiceActivatorImpl implements AstrixServiceActivator {
 		}
 		
 		private AstrixServiceInvocationResponse invoke(AstrixServiceInvocationRequest request, int version) {
+			if (streaming) {
+				return createExceptionResponse(request, new UnsupportedOperationException("Streaming service method can only be invoked using a transport that supports streaming: " + serviceMethod), version);
+			}
 			try {
+				if (responseCache != null) {
+					return invokeCached(request, version);
+				}
 				return invokeService(request, version);
-			} catch (Exception e) {
-				Throwable exceptionThrownByService = resolveException(e);
-				AstrixServiceInvocationResponse invocationResponse = new AstrixServiceInvocationResponse();
-				invocationResponse.setExceptionMsg(exceptionThrownByService.getMessage());
-				invocationResponse.setCorrelationId(UUID.randomUUID().toString());
-				if (exceptionThrownByService instanceof ServiceInvocationException) {
-					invocationResponse.setException(this.objectSerializer.serialize(exceptionThrownByService, version));
-				} else {
-					invocationResponse.setThrownExceptionType(exceptionThrownByService.getClass().getName());
+			} catch (Exception | Error e) {
+				// Errors are not wrapped in an InvocationTargetException when invoked through a method handle
+				return createExceptionResponse(request, resolveException(e), version);
+			}
+		}
+		
+		private AstrixServiceInvocationResponse invokeCached(AstrixServiceInvocationRequest request, int version) throws Exception {
+			ResponseCache.Key key = new ResponseCache.Key(request.getServiceApi(), version, request.getMethodId(), request.getArguments());
+			AstrixServiceInvocationResponse cachedResponse = responseCache.get(key);
+			if (cachedResponse != null) {
+				serviceInvocationMonitors.recordCacheHit();
+				return cachedResponse;
+			}
+			serviceInvocationMonitors.recordCacheMiss();
+			// Only successful invocations gets here, failures are propagated as exceptions
+			AstrixServiceInvocationResponse response = invokeService(request, version);
+			responseCache.put(key, response, cacheTimeToLive);
+			return response;
+		}
+		
+		private Observable<AstrixServiceInvocationResponse> invokeStream(AstrixServiceInvocationRequest request, int version) {
+			return Observable.defer(() -> {
+				Observable<?> result;
+				try {
+					Object[] arguments = unmarshal(request.getArguments(), parameterTypes, version);
+					result = (Observable<?>) invoker.invoke(arguments);
+				} catch (Exception | Error e) {
+					return Observable.just(createExceptionResponse(request, resolveException(e), version));
 				}
-				logger.info(String.format("Service invocation ended with exception. request=%s correlationId=%s", request, invocationResponse.getCorrelationId()), exceptionThrownByService);
-				return invocationResponse;
+				if (result == null) {
+					return Observable.empty();
+				}
+				return result.map(element -> {
+					AstrixServiceInvocationResponse invocationResponse = new AstrixServiceInvocationResponse();
+					invocationResponse.setResponseBody(objectSerializer.serialize(element, version));
+					return invocationResponse;
+				}).onErrorReturn(e -> createExceptionResponse(request, e, version));
+			});
+		}
+		
+		private AstrixServiceInvocationResponse createExceptionResponse(AstrixServiceInvocationRequest request, Throwable exceptionThrownByService, int version) {
+			AstrixServiceInvocationResponse invocationResponse = new AstrixServiceInvocationResponse();
+			invocationResponse.setExceptionMsg(exceptionThrownByService.getMessage());
+			invocationResponse.setCorrelationId(UUID.randomUUID().toString());
+			if (exceptionThrownByService instanceof ServiceInvocationException) {
+				invocationResponse.setException(this.objectSerializer.serialize(exceptionThrownByService, version));
+			} else {
+				invocationResponse.setThrownExceptionType(exceptionThrownByService.getClass().getName());
 			}
+			logger.info(String.format("Service invocation ended with exception. request=%s correlationId=%s", request, invocationResponse.getCorrelationId()), exceptionThrownByService);
+			return invocationResponse;
 		}
 
-		private AstrixServiceInvocationResponse invokeService(AstrixServiceInvocationRequest request, int version) throws IllegalAccessException,
-				InvocationTargetException {
-			Object[] arguments = unmarshal(request.getArguments(), serviceMethod.getGenericParameterTypes(), version);
-			Object result = serviceMethod.invoke(service, arguments);
+		private AstrixServiceInvocationResponse invokeService(AstrixServiceInvocationRequest request, int version) throws Exception {
+			Object[] arguments = unmarshal(request.getArguments(), parameterTypes, version);
+			Object result = invoker.invoke(arguments);
 			AstrixServiceInvocationResponse invocationResponse = new AstrixServiceInvocationResponse();
-			if (serviceMethod.getReturnType().equals(Void.TYPE)) {
+			if (voidReturnType) {
 				return invocationResponse;
 			}
-			if (serviceMethod.getReturnType().equals(Optional.class)) {
+			if (optionalReturnType) {
 				if (result == null) {
 					invocationResponse.setHeader(AstrixServiceInvocationResponseHeaders.OPTIONAL_RETURN_VALUE_IS_NULL, "true");
 				} else {
@@ -163,7 +272,7 @@ class AstrixServiceActivatorImpl implements AstrixServiceActivator {
 
 	class PublishedService<T> {
 
-		private final Map<String, PublishedServiceMethod<T>> methodBySignature = new HashMap<>();
+		private final Map<Long, PublishedServiceMethod<T>> methodById = new HashMap<>();
 		/*
 		 * Overloaded service methods share the same Metrics
 		 */
@@ -171,16 +280,22 @@ class AstrixServiceActivatorImpl implements AstrixServiceActivator {
 		private final AstrixObjectSerializer objectSerializer;
 		private Class<?> providedApi;
 		private ServiceInvocationMonitor serviceMonitor;
+		private final ServiceConcurrencyLimit concurrencyLimit;
 
 		public PublishedService(T service, AstrixObjectSerializer serializer, Class<?> providedApi) {
 			this.objectSerializer = serializer;
 			this.providedApi = providedApi;
+			this.concurrencyLimit = ServiceConcurrencyLimit.create(config, providedApi.getName());
 			// Monitor for service-level metrics (aggregated stats for all methods)
 			this.serviceMonitor = new ServiceInvocationMonitor(metrics.createTimer());
 			mbeanExporter.registerMBean(this.serviceMonitor, "ExportedServices", providedApi.getName());
 			for (Method m : providedApi.getMethods()) {
 				ServiceInvocationMonitors serviceInvocationMonitors = serviceInvocationMonitorsByMethodName.computeIfAbsent(m.getName(), this::createServiceInvocationMonitors);
-				methodBySignature.put(ReflectionUtil.methodSignatureWithoutReturnType(m), new PublishedServiceMethod<>(serviceInvocationMonitors, m, objectSerializer, service));
+				String signature = ReflectionUtil.methodSignatureWithoutReturnType(m);
+				PublishedServiceMethod<T> previous = methodById.put(ServiceMethodDescriptor.methodId(signature), new PublishedServiceMethod<>(serviceInvocationMonitors, m, objectSerializer, service, responseCache));
+				if (previous != null && !previous.signature.equals(signature)) {
+					throw new IllegalArgumentException(String.format("Method id collision in service: %s. Rename one of the methods: %s, %s", providedApi.getName(), previous.serviceMethod, m));
+				}
 			}
 		}
 
@@ -194,12 +309,50 @@ class AstrixServiceActivatorImpl implements AstrixServiceActivator {
 		}
 		
 		private AstrixServiceInvocationResponse invoke(AstrixServiceInvocationRequest request, int version, String serviceApi) {
-			String serviceMethodSignature = request.getHeader("serviceMethodSignature");
-			PublishedServiceMethod<T> serviceMethod = methodBySignature.get(serviceMethodSignature);
-			if (serviceMethod == null) {
-				throw new MissingServiceMethodException(String.format("Missing service method: service=%s method=%s", serviceApi, serviceMethodSignature));
+			PublishedServiceMethod<T> serviceMethod = getServiceMethod(request, serviceApi);
+			if (!concurrencyLimit.isLimited()) {
+				return serviceMethod.timeInvocation(request, version);
+			}
+			long queueStart = System.nanoTime();
+			if (!concurrencyLimit.tryAcquire()) {
+				return rejectInvocation(request, "concurrency limit reached");
+			}
+			try {
+				serviceMethod.serviceInvocationMonitors.recordQueueTime(System.nanoTime() - queueStart);
+				return serviceMethod.timeInvocation(request, version);
+			} finally {
+				concurrencyLimit.release();
+			}
+		}
+		
+		private Observable<AstrixServiceInvocationResponse> invokeStream(AstrixServiceInvocationRequest request, int version, String serviceApi) {
+			return getServiceMethod(request, serviceApi).invokeStream(request, version);
+		}
+		
+		private boolean isStreaming(AstrixServiceInvocationRequest request) {
+			PublishedServiceMethod<T> serviceMethod = methodById.get(request.getMethodId());
+			return serviceMethod != null && serviceMethod.streaming;
+		}
+
+		private PublishedServiceMethod<T> getServiceMethod(AstrixServiceInvocationRequest request, String serviceApi) {
+			PublishedServiceMethod<T> serviceMethod = methodById.get(request.getMethodId());
+			String serviceMethodSignature = request.getServiceMethodSignature();
+			// Method ids are hashes of the signature, hence the id of an unknown method might collide with a published method
+			if (serviceMethod == null || (serviceMethodSignature != null && !serviceMethodSignature.equals(serviceMethod.signature))) {
+				throw new MissingServiceMethodException(String.format("Missing service method: service=%s method=%s", serviceApi, 
+						serviceMethodSignature != null ? serviceMethodSignature : "id:" + request.getMethodId()));
+			}
+			return serviceMethod;
+		}
+		
+		private void recordRejectedInvocation(AstrixServiceInvocationRequest request) {
+			PublishedServiceMethod<T> serviceMethod = methodById.get(request.getMethodId());
+			if (serviceMethod != null) {
+				serviceMethod.serviceInvocationMonitors.recordRejectedInvocation();
+			} else {
+				serviceMonitor.recordRejectedInvocation();
+				allServicesAggregated.recordRejectedInvocation();
 			}
-			return serviceMethod.timeInvocation(request, version);
 		}
 		
 	}
@@ -219,25 +372,63 @@ class AstrixServiceActivatorImpl implements AstrixServiceActivator {
 	 */
 	@Override
 	public AstrixServiceInvocationResponse invokeService(final AstrixServiceInvocationRequest request) {
-		final int version = Integer.parseInt(request.getHeader("apiVersion"));
-		final String serviceApi = request.getHeader("serviceApi");
+		final int version = request.getApiVersion();
+		final String serviceApi = request.getServiceApi();
 		final PublishedService<?> publishedService = this.serviceByType.get(serviceApi);
 		if (publishedService == null) {
 			/*
 			 * Service not available. This might happen in rare conditions when a processing unit
 			 * is restarted and old clients connects to the space before the framework is fully initialized. 
 			 */
-			AstrixServiceInvocationResponse invocationResponse = new AstrixServiceInvocationResponse();
-			invocationResponse.setServiceUnavailable(true);;
-			invocationResponse.setExceptionMsg("Service not available in service activator: " + serviceApi);
-			invocationResponse.setCorrelationId(UUID.randomUUID().toString());
-			logger.info(String.format("Service not available. request=%s correlationId=%s", request, invocationResponse.getCorrelationId()));
-			return invocationResponse;
+			return createServiceUnavailableResponse(request, serviceApi);
 		}
 		return publishedService.invoke(request, version, serviceApi);
 	}
+	
+	@Override
+	public boolean isStreamingInvocation(AstrixServiceInvocationRequest request) {
+		final PublishedService<?> publishedService = this.serviceByType.get(request.getServiceApi());
+		return publishedService != null && publishedService.isStreaming(request);
+	}
+	
+	@Override
+	public Observable<AstrixServiceInvocationResponse> invokeServiceStream(AstrixServiceInvocationRequest request) {
+		final int version = request.getApiVersion();
+		final String serviceApi = request.getServiceApi();
+		final PublishedService<?> publishedService = this.serviceByType.get(serviceApi);
+		if (publishedService == null) {
+			return Observable.just(createServiceUnavailableResponse(request, serviceApi));
+		}
+		return publishedService.invokeStream(request, version, serviceApi);
+	}
+
+	private AstrixServiceInvocationResponse createServiceUnavailableResponse(AstrixServiceInvocationRequest request, String serviceApi) {
+		AstrixServiceInvocationResponse invocationResponse = new AstrixServiceInvocationResponse();
+		invocationResponse.setServiceUnavailable(true);
+		invocationResponse.setExceptionMsg("Service not available in service activator: " + serviceApi);
+		invocationResponse.setCorrelationId(UUID.randomUUID().toString());
+		logger.info(String.format("Service not available. request=%s correlationId=%s", request, invocationResponse.getCorrelationId()));
+		return invocationResponse;
+	}
+
+	@Override
+	public AstrixServiceInvocationResponse rejectInvocation(AstrixServiceInvocationRequest request, String reason) {
+		final String serviceApi = request.getServiceApi();
+		final PublishedService<?> publishedService = this.serviceByType.get(serviceApi);
+		if (publishedService != null) {
+			publishedService.recordRejectedInvocation(request);
+		} else {
+			allServicesAggregated.recordRejectedInvocation();
+		}
+		AstrixServiceInvocationResponse invocationResponse = new AstrixServiceInvocationResponse();
+		invocationResponse.setServiceUnavailable(true);
+		invocationResponse.setExceptionMsg(String.format("Service invocation rejected: service=%s reason=%s", serviceApi, reason));
+		invocationResponse.setCorrelationId(UUID.randomUUID().toString());
+		logger.debug(String.format("Service invocation rejected. request=%s reason=%s correlationId=%s", request, reason, invocationResponse.getCorrelationId()));
+		return invocationResponse;
+	}
 
-	private static Throwable resolveException(Exception e) {
+	private static Throwable resolveException(Throwable e) {
 		if (e instanceof InvocationTargetException) {
 			// Invoked service threw an exception
 			return InvocationTargetException.class.cast(e).getTargetException();
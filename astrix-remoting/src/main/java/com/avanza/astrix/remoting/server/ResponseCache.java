@@ -0,0 +1,334 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.server;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import com.avanza.astrix.config.LongSetting;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
+
+/**
+ * Size bounded cache for serialized responses of {@link com.avanza.astrix.core.AstrixCacheable} service methods. <p>
+ * 
+ * Eviction follows the W-TinyLFU scheme: new entries are admitted to a small LRU window, and an entry 
+ * leaving the window only replaces the least recently used entry of the main region if it has been
+ * requested more frequently, as estimated by a count-min sketch. This keeps one-off requests from 
+ * flushing the frequently requested responses out of the cache. <p>
+ * 
+ * Lookups never block. The access order and frequency of a hit is recorded when the policy lock is 
+ * uncontended, and skipped otherwise. <p>
+ * 
+ */
+final class ResponseCache {
+	
+	public static final LongSetting MAX_BYTES = LongSetting.create("astrix.remoting.server.responseCacheMaxBytes", 64L * 1024 * 1024);
+	
+	private static final int ENTRY_OVERHEAD = 128;
+	
+	private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+	private final ReentrantLock policyLock = new ReentrantLock();
+	// Guarded by policyLock. Both regions are kept in LRU order, least recently used first 
+	private final LinkedHashMap<Key, Entry> window = new LinkedHashMap<>();
+	private final LinkedHashMap<Key, Entry> main = new LinkedHashMap<>();
+	private final FrequencySketch sketch;
+	private final long maxWindowBytes;
+	private final long maxMainBytes;
+	private final LongSupplier nanoTime;
+	private long windowBytes;
+	private long mainBytes;
+	
+	ResponseCache(long maxBytes) {
+		this(maxBytes, System::nanoTime);
+	}
+	
+	ResponseCache(long maxBytes, LongSupplier nanoTime) {
+		this.maxWindowBytes = maxBytes / 100;
+		this.maxMainBytes = maxBytes - maxWindowBytes;
+		this.nanoTime = nanoTime;
+		// Sized for the largest number of entries that fits in the cache
+		this.sketch = new FrequencySketch((int) Math.min(maxBytes / ENTRY_OVERHEAD, 1 << 20));
+	}
+
+	/**
+	 * @return a copy of the cached response, or null if no valid response is cached for the given key
+	 */
+	AstrixServiceInvocationResponse get(Key key) {
+		Entry entry = entries.get(key);
+		if (entry != null && entry.expiresAt - nanoTime.getAsLong() <= 0) {
+			remove(entry);
+			entry = null;
+		}
+		recordAccess(key, entry);
+		return entry != null ? entry.createResponse() : null;
+	}
+
+	void put(Key key, AstrixServiceInvocationResponse response, long timeToLiveMillis) {
+		Entry entry = new Entry(key, response, nanoTime.getAsLong() + TimeUnit.MILLISECONDS.toNanos(timeToLiveMillis));
+		if (entry.weight > maxMainBytes) {
+			return;
+		}
+		policyLock.lock();
+		try {
+			Entry previous = entries.put(key, entry);
+			if (previous != null) {
+				unlink(previous);
+			}
+			entry.inWindow = true;
+			window.put(key, entry);
+			windowBytes += entry.weight;
+			while (windowBytes > maxWindowBytes) {
+				Entry candidate = removeEldest(window);
+				windowBytes -= candidate.weight;
+				admit(candidate);
+			}
+		} finally {
+			policyLock.unlock();
+		}
+	}
+	
+	int size() {
+		return entries.size();
+	}
+	
+	long weightedSize() {
+		policyLock.lock();
+		try {
+			return windowBytes + mainBytes;
+		} finally {
+			policyLock.unlock();
+		}
+	}
+	
+	private void admit(Entry candidate) {
+		long now = nanoTime.getAsLong();
+		while (mainBytes + candidate.weight > maxMainBytes) {
+			Entry victim = main.values().iterator().next();
+			boolean victimExpired = victim.expiresAt - now <= 0;
+			if (!victimExpired && sketch.frequency(candidate.key.hash) <= sketch.frequency(victim.key.hash)) {
+				entries.remove(candidate.key, candidate);
+				return;
+			}
+			main.remove(victim.key);
+			mainBytes -= victim.weight;
+			entries.remove(victim.key, victim);
+		}
+		candidate.inWindow = false;
+		main.put(candidate.key, candidate);
+		mainBytes += candidate.weight;
+	}
+	
+	private void recordAccess(Key key, Entry entry) {
+		if (!policyLock.tryLock()) {
+			return;
+		}
+		try {
+			sketch.increment(key.hash);
+			if (entry != null) {
+				LinkedHashMap<Key, Entry> region = entry.inWindow ? window : main;
+				if (region.remove(key, entry)) {
+					region.put(key, entry);
+				}
+			}
+		} finally {
+			policyLock.unlock();
+		}
+	}
+	
+	private void remove(Entry entry) {
+		policyLock.lock();
+		try {
+			if (entries.remove(entry.key, entry)) {
+				unlink(entry);
+			}
+		} finally {
+			policyLock.unlock();
+		}
+	}
+	
+	private void unlink(Entry entry) {
+		if (entry.inWindow) {
+			if (window.remove(entry.key, entry)) {
+				windowBytes -= entry.weight;
+			}
+		} else if (main.remove(entry.key, entry)) {
+			mainBytes -= entry.weight;
+		}
+	}
+	
+	private static Entry removeEldest(LinkedHashMap<Key, Entry> region) {
+		Iterator<Entry> eldest = region.values().iterator();
+		Entry result = eldest.next();
+		eldest.remove();
+		return result;
+	}
+	
+	private static long weigh(Object value) {
+		if (value instanceof String) {
+			return 40 + 2L * ((String) value).length();
+		}
+		if (value instanceof byte[]) {
+			return 16 + ((byte[]) value).length;
+		}
+		return value == null ? 0 : 64;
+	}
+	
+	static final class Key {
+		
+		private final String serviceApi;
+		private final int version;
+		private final long methodId;
+		private final Object[] arguments;
+		private final int hash;
+		
+		Key(String serviceApi, int version, long methodId, Object[] arguments) {
+			this.serviceApi = Objects.requireNonNull(serviceApi);
+			this.version = version;
+			this.methodId = methodId;
+			this.arguments = arguments;
+			this.hash = 31 * (31 * (31 * serviceApi.hashCode() + version) + Long.hashCode(methodId)) + Arrays.deepHashCode(arguments);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hash == other.hash 
+					&& methodId == other.methodId 
+					&& version == other.version 
+					&& serviceApi.equals(other.serviceApi) 
+					&& Arrays.deepEquals(arguments, other.arguments);
+		}
+		
+	}
+	
+	private static final class Entry {
+		
+		private final Key key;
+		private final Object responseBody;
+		private final Map<String, String> headers;
+		private final long expiresAt;
+		private final long weight;
+		private boolean inWindow;
+		
+		Entry(Key key, AstrixServiceInvocationResponse response, long expiresAt) {
+			this.key = key;
+			this.responseBody = response.getResponseBody();
+			this.headers = response.getHeaders().isEmpty() ? null : new HashMap<>(response.getHeaders());
+			this.expiresAt = expiresAt;
+			long weight = ENTRY_OVERHEAD + weigh(responseBody);
+			if (key.arguments != null) {
+				for (Object argument : key.arguments) {
+					weight += weigh(argument);
+				}
+			}
+			if (headers != null) {
+				for (Map.Entry<String, String> header : headers.entrySet()) {
+					weight += weigh(header.getKey()) + weigh(header.getValue());
+				}
+			}
+			this.weight = weight;
+		}
+		
+		AstrixServiceInvocationResponse createResponse() {
+			AstrixServiceInvocationResponse response = new AstrixServiceInvocationResponse();
+			response.setResponseBody(responseBody);
+			if (headers != null) {
+				response.getHeaders().putAll(headers);
+			}
+			return response;
+		}
+	}
+	
+	/**
+	 * Count-min sketch with four rows of 4-bit saturating counters. All counters are halved 
+	 * once the number of recorded accesses reaches ten times the width of the sketch, which
+	 * lets the frequency estimates follow changes in the popularity of the cached responses.
+	 */
+	private static final class FrequencySketch {
+		
+		private static final int[] SEEDS = { 0x97cb3127, 0xe3a5c85d, 0x5f356495, 0x8ebc6af1 };
+		private static final int MAX_COUNT = 15;
+		
+		private final byte[][] table;
+		private final int mask;
+		private final int sampleSize;
+		private int additions;
+		
+		FrequencySketch(int expectedEntries) {
+			int width = Integer.highestOneBit(Math.max(expectedEntries, 64) - 1) << 1;
+			this.table = new byte[SEEDS.length][width];
+			this.mask = width - 1;
+			this.sampleSize = 10 * width;
+		}
+		
+		void increment(int hash) {
+			boolean added = false;
+			for (int row = 0; row < table.length; row++) {
+				int index = index(hash, row);
+				if (table[row][index] < MAX_COUNT) {
+					table[row][index]++;
+					added = true;
+				}
+			}
+			if (added && ++additions == sampleSize) {
+				reset();
+			}
+		}
+		
+		int frequency(int hash) {
+			int result = MAX_COUNT;
+			for (int row = 0; row < table.length; row++) {
+				result = Math.min(result, table[row][index(hash, row)]);
+			}
+			return result;
+		}
+		
+		private void reset() {
+			for (byte[] row : table) {
+				for (int i = 0; i < row.length; i++) {
+					row[i] >>= 1;
+				}
+			}
+			additions /= 2;
+		}
+		
+		private int index(int hash, int row) {
+			int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+			return (h ^ (h >>> 16)) & mask;
+		}
+	}
+
+}
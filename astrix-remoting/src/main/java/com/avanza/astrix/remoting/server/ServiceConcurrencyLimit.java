@@ -0,0 +1,149 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.avanza.astrix.config.DynamicConfig;
+import com.avanza.astrix.config.DynamicIntProperty;
+import com.avanza.astrix.config.DynamicLongProperty;
+import com.avanza.astrix.config.IntSetting;
+import com.avanza.astrix.config.LongSetting;
+
+/**
+ * Limits the number of concurrent invocations of a given exported service, which prevents
+ * a heavyweight service from occupying all threads used by the transport to invoke services
+ * (for instance the task threads of a space). <p>
+ * 
+ * Invocations exceeding the limit are queued for at most maxQueueTime milliseconds, after which
+ * they are rejected. Both settings can be configured globally, or for a given service by prefixing
+ * the setting with the qualified name of the service api, for instance:
+ * 
+ * <pre>
+ * astrix.remoting.server.maxConcurrentInvocations=20
+ * astrix.remoting.server.com.acme.SlowService.maxConcurrentInvocations=2
+ * astrix.remoting.server.com.acme.SlowService.maxQueueTime=500
+ * </pre>
+ * 
+ * A service that has no (or a negative) service specific value for a setting uses the global setting,
+ * which is read on each invocation. A maxConcurrentInvocations of zero means that the service is
+ * not limited. All settings can be changed at runtime. <p>
+ * 
+ * Note that a queued invocation waits on the thread used by the transport to invoke the service, i.e. it
+ * occupies that thread (for instance a task thread of a space) while waiting for a permit. Therefore
+ * maxQueueTime defaults to zero, which rejects invocations exceeding the limit immediately. <p>
+ */
+final class ServiceConcurrencyLimit {
+	
+	public static final IntSetting MAX_CONCURRENT_INVOCATIONS = IntSetting.create("astrix.remoting.server.maxConcurrentInvocations", 0);
+	public static final LongSetting MAX_QUEUE_TIME = LongSetting.create("astrix.remoting.server.maxQueueTime", 0);
+	
+	private static final int USE_GLOBAL_SETTING = -1;
+	
+	private final DynamicIntProperty serviceMaxConcurrentInvocations;
+	private final DynamicIntProperty maxConcurrentInvocations;
+	private final DynamicLongProperty serviceMaxQueueTime;
+	private final DynamicLongProperty maxQueueTime;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition permitReleased = lock.newCondition();
+	private int activeInvocations;
+	
+	ServiceConcurrencyLimit(DynamicIntProperty serviceMaxConcurrentInvocations, DynamicIntProperty maxConcurrentInvocations,
+							DynamicLongProperty serviceMaxQueueTime, DynamicLongProperty maxQueueTime) {
+		this.serviceMaxConcurrentInvocations = serviceMaxConcurrentInvocations;
+		this.maxConcurrentInvocations = maxConcurrentInvocations;
+		this.serviceMaxQueueTime = serviceMaxQueueTime;
+		this.maxQueueTime = maxQueueTime;
+		// Queued invocations re-evaluate the limit when it is changed
+		this.serviceMaxConcurrentInvocations.addListener(newValue -> signalAll());
+		this.maxConcurrentInvocations.addListener(newValue -> signalAll());
+	}
+	
+	static ServiceConcurrencyLimit create(DynamicConfig config, String serviceApi) {
+		return new ServiceConcurrencyLimit(
+				config.getIntProperty(serviceSettingName(serviceApi, "maxConcurrentInvocations"), USE_GLOBAL_SETTING),
+				MAX_CONCURRENT_INVOCATIONS.getFrom(config),
+				config.getLongProperty(serviceSettingName(serviceApi, "maxQueueTime"), USE_GLOBAL_SETTING),
+				MAX_QUEUE_TIME.getFrom(config));
+	}
+	
+	private static String serviceSettingName(String serviceApi, String setting) {
+		return "astrix.remoting.server." + serviceApi + "." + setting;
+	}
+	
+	boolean isLimited() {
+		return maxConcurrentInvocations() > 0;
+	}
+	
+	private int maxConcurrentInvocations() {
+		int serviceValue = serviceMaxConcurrentInvocations.get();
+		return serviceValue >= 0 ? serviceValue : maxConcurrentInvocations.get();
+	}
+	
+	private long maxQueueTime() {
+		long serviceValue = serviceMaxQueueTime.get();
+		return serviceValue >= 0 ? serviceValue : maxQueueTime.get();
+	}
+	
+	/**
+	 * Waits at most maxQueueTime for a permit to invoke the service. Each successful
+	 * call must be followed by a call to {@link #release()}. A permit is granted
+	 * immediately if the limit is removed while waiting. <p>
+	 * 
+	 * @return false if no permit could be acquired within maxQueueTime
+	 */
+	boolean tryAcquire() {
+		long remainingNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueTime());
+		lock.lock();
+		try {
+			while (isLimited() && activeInvocations >= maxConcurrentInvocations()) {
+				if (remainingNanos <= 0) {
+					return false;
+				}
+				remainingNanos = permitReleased.awaitNanos(remainingNanos);
+			}
+			activeInvocations++;
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	void release() {
+		lock.lock();
+		try {
+			activeInvocations--;
+			permitReleased.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	private void signalAll() {
+		lock.lock();
+		try {
+			permitReleased.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
@@ -26,6 +26,12 @@ public class ServiceInvocationMonitor implements ServiceInvocationMonitorMBean {
 	
 	private Timer timer;
 	private AtomicLong errorCount = new AtomicLong();
+	private final AtomicLong rejectedCount = new AtomicLong();
+	private final AtomicLong cacheHitCount = new AtomicLong();
+	private final AtomicLong cacheMissCount = new AtomicLong();
+	private final AtomicLong queuedCount = new AtomicLong();
+	private final AtomicLong totalQueueTimeNanos = new AtomicLong();
+	private final AtomicLong maxQueueTimeNanos = new AtomicLong();
 	
 	public ServiceInvocationMonitor(Timer timer) {
 		this.timer = timer;
@@ -41,6 +47,38 @@ public class ServiceInvocationMonitor implements ServiceInvocationMonitorMBean {
 		};
 	}
 	
+	/**
+	 * Records an invocation that was rejected before reaching the service, for instance
+	 * because the executor used to run the service is saturated.
+	 */
+	public void recordRejectedInvocation() {
+		rejectedCount.incrementAndGet();
+	}
+	
+	/**
+	 * Records an invocation of a cacheable service method that was served from the response cache.
+	 */
+	public void recordCacheHit() {
+		cacheHitCount.incrementAndGet();
+	}
+	
+	/**
+	 * Records an invocation of a cacheable service method that was not found in the response cache.
+	 */
+	public void recordCacheMiss() {
+		cacheMissCount.incrementAndGet();
+	}
+	
+	/**
+	 * Records the time an invocation of a service with a concurrency limit waited before
+	 * it was allowed to invoke the service.
+	 */
+	public void recordQueueTime(long queueTimeNanos) {
+		queuedCount.incrementAndGet();
+		totalQueueTimeNanos.addAndGet(queueTimeNanos);
+		maxQueueTimeNanos.accumulateAndGet(queueTimeNanos, Math::max);
+	}
+	
 	public ServiceInvocationMonitor(Timer timer, AtomicLong errorCount) {
 		this.timer = timer;
 		this.errorCount = errorCount;
@@ -56,6 +94,36 @@ public class ServiceInvocationMonitor implements ServiceInvocationMonitorMBean {
 		return errorCount.get();
 	}
 
+	@Override
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+	
+	@Override
+	public long getCacheHitCount() {
+		return cacheHitCount.get();
+	}
+	
+	@Override
+	public long getCacheMissCount() {
+		return cacheMissCount.get();
+	}
+
+	@Override
+	public double getMeanQueueTime() {
+		long count = queuedCount.get();
+		return count == 0 ? 0D : toMillis(totalQueueTimeNanos.get()) / count;
+	}
+	
+	@Override
+	public double getMaxQueueTime() {
+		return toMillis(maxQueueTimeNanos.get());
+	}
+	
+	private static double toMillis(long nanos) {
+		return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
 	@Override
 	public double get50thPercentile() {
 		return timer.get50thPercentileLatency();
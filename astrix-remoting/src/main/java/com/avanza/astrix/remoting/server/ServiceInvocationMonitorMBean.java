@@ -23,6 +23,22 @@ public interface ServiceInvocationMonitorMBean {
 	
 	long getErrorCount();
 	
+	long getRejectedCount();
+	
+	long getCacheHitCount();
+	
+	long getCacheMissCount();
+	
+	/**
+	 * Mean time in milliseconds that invocations waited for the concurrency limit of the service.
+	 */
+	double getMeanQueueTime();
+	
+	/**
+	 * Max time in milliseconds that an invocation waited for the concurrency limit of the service.
+	 */
+	double getMaxQueueTime();
+	
 	double get50thPercentile();
 
 	double get90thPercentile();
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.server;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Invokes a given method on a published service instance. <p>
+ * 
+ * The default implementation is created once for each published method and dispatches through a 
+ * {@link MethodHandle} bound to the service instance and adapted to the (Object[])Object signature, 
+ * which avoids the access checks, argument array copying and megamorphic dispatch performed by 
+ * {@link Method#invoke(Object, Object...)}. Exceptions and errors thrown by the service are propagated as is, 
+ * i.e they are not wrapped in an {@link java.lang.reflect.InvocationTargetException}, hence callers must
+ * handle {@link Error}s thrown by the service as well.
+ * 
+ */
+@FunctionalInterface
+interface ServiceMethodInvoker {
+	
+	Object invoke(Object[] arguments) throws Exception;
+	
+	static ServiceMethodInvoker create(Object service, Method method) {
+		try {
+			return methodHandleInvoker(service, method);
+		} catch (IllegalAccessException | RuntimeException e) {
+			LoggerFactory.getLogger(ServiceMethodInvoker.class).warn("Failed to create method handle for service method, falling back on reflection. method=" + method, e);
+			return reflectiveInvoker(service, method);
+		}
+	}
+	
+	static ServiceMethodInvoker methodHandleInvoker(Object service, Method method) throws IllegalAccessException {
+		method.setAccessible(true);
+		MethodHandle methodHandle = MethodHandles.lookup().unreflect(method)
+															  .bindTo(service)
+															  .asSpreader(Object[].class, method.getParameterCount())
+															  .asType(MethodType.methodType(Object.class, Object[].class));
+		return arguments -> {
+			try {
+				return (Object) methodHandle.invokeExact(arguments);
+			} catch (Exception | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new UndeclaredThrowableException(e);
+			}
+		};
+	}
+	
+	static ServiceMethodInvoker reflectiveInvoker(Object service, Method method) {
+		return arguments -> method.invoke(service, arguments);
+	}
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.avanza.astrix.context.JavaSerializationSerializer;
+import com.avanza.astrix.core.util.ReflectionUtil;
+import com.avanza.astrix.remoting.server.AstrixRemotingDriver;
+import com.avanza.astrix.versioning.core.AstrixObjectSerializer;
+
+public class AstrixServiceInvocationCodecTest {
+	
+	private static final String PING_SIGNATURE = "ping(java.lang.String)";
+	
+	private final AstrixServiceInvocationCodec codec = new AstrixServiceInvocationCodec();
+	
+	@Test
+	public void requestsCarryLegacyHeadersReadableByServersThatDoesNotKnowAboutMethodIds() throws Exception {
+		AstrixServiceInvocationRequest request = new AstrixServiceInvocationRequest(ServiceMethodDescriptor.create("com.avanza.Ping", 2, PING_SIGNATURE));
+		request.setHeader("traceId", "1");
+		request.setArguments(new Object[] { "\"foo\"" });
+		
+		DataInputStream legacyReader = new DataInputStream(new ByteArrayInputStream(encode(request)));
+		
+		Map<String, String> headers = new HashMap<>();
+		int headerCount = legacyReader.readInt();
+		for (int i = 0; i < headerCount; i++) {
+			headers.put(readString(legacyReader), readString(legacyReader));
+		}
+		assertEquals("com.avanza.Ping", headers.get(AstrixServiceInvocationRequestHeaders.SERVICE_API));
+		assertEquals("2", headers.get(AstrixServiceInvocationRequestHeaders.API_VERSION));
+		assertEquals(PING_SIGNATURE, headers.get(AstrixServiceInvocationRequestHeaders.SERVICE_METHOD_SIGNATURE));
+		assertEquals("1", headers.get("traceId"));
+		assertEquals(1, legacyReader.readInt());
+	}
+	
+	@Test
+	public void decodesRequestsWithMethodId() throws Exception {
+		AstrixServiceInvocationRequest request = new AstrixServiceInvocationRequest(ServiceMethodDescriptor.create("com.avanza.Ping", 2, PING_SIGNATURE));
+		request.setHeader("traceId", "1");
+		request.setArguments(new Object[] { "\"foo\"" });
+		
+		AstrixServiceInvocationRequest decoded = codec.readRequest(new DataInputStream(new ByteArrayInputStream(encode(request))));
+		
+		assertEquals("com.avanza.Ping", decoded.getServiceApi());
+		assertEquals(2, decoded.getApiVersion());
+		assertEquals(ServiceMethodDescriptor.methodId(PING_SIGNATURE), decoded.getMethodId());
+		assertEquals(PING_SIGNATURE, decoded.getServiceMethodSignature());
+		assertEquals("Legacy headers are not exposed as request headers", Collections.singletonMap("traceId", "1"), decoded.getHeaders());
+		assertEquals("\"foo\"", decoded.getArguments()[0]);
+	}
+	
+	@Test
+	public void decodesRequestsFromClientsThatDoesNotKnowAboutMethodIds() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream legacyWriter = new DataOutputStream(bytes);
+		legacyWriter.writeInt(3);
+		writeString(AstrixServiceInvocationRequestHeaders.SERVICE_API, legacyWriter);
+		writeString("com.avanza.Ping", legacyWriter);
+		writeString(AstrixServiceInvocationRequestHeaders.API_VERSION, legacyWriter);
+		writeString("2", legacyWriter);
+		writeString(AstrixServiceInvocationRequestHeaders.SERVICE_METHOD_SIGNATURE, legacyWriter);
+		writeString(PING_SIGNATURE, legacyWriter);
+		legacyWriter.writeInt(-1); // No arguments
+		
+		AstrixServiceInvocationRequest decoded = codec.readRequest(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		
+		assertEquals("com.avanza.Ping", decoded.getServiceApi());
+		assertEquals(2, decoded.getApiVersion());
+		assertEquals(ServiceMethodDescriptor.methodId(PING_SIGNATURE), decoded.getMethodId());
+		assertEquals(Collections.emptyMap(), decoded.getHeaders());
+		assertNull(decoded.getArguments());
+	}
+	
+	@Test
+	public void javaSerializedRequestsCarryBothMethodIdAndLegacyHeaders() throws Exception {
+		AstrixServiceInvocationRequest request = new AstrixServiceInvocationRequest(ServiceMethodDescriptor.create("com.avanza.Ping", 2, PING_SIGNATURE));
+		request.setHeader("traceId", "1");
+		request.setArguments(new Object[] { "\"foo\"" });
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(request);
+		}
+		AstrixServiceInvocationRequest deserialized;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			deserialized = (AstrixServiceInvocationRequest) in.readObject();
+		}
+		
+		assertEquals("com.avanza.Ping", deserialized.getServiceApi());
+		assertEquals(2, deserialized.getApiVersion());
+		assertEquals(ServiceMethodDescriptor.methodId(PING_SIGNATURE), deserialized.getMethodId());
+		assertEquals(PING_SIGNATURE, deserialized.getServiceMethodSignature());
+		assertEquals(Collections.singletonMap("traceId", "1"), deserialized.getHeaders());
+		assertEquals("\"foo\"", deserialized.getArguments()[0]);
+	}
+	
+	@Test
+	public void rejectsRequestsWhereMethodIdDoesNotMatchSignature() throws Exception {
+		AstrixRemotingDriver remotingDriver = new AstrixRemotingDriver();
+		remotingDriver.registerServer(Ping.class, (Ping) msg -> msg);
+		AstrixObjectSerializer serializer = new JavaSerializationSerializer(1);
+		AstrixServiceInvocationRequest request = new AstrixServiceInvocationRequest(
+				ServiceMethodDescriptor.received(Ping.class.getName(), 1, ServiceMethodDescriptor.methodId(ReflectionUtil.methodSignatureWithoutReturnType(Ping.class.getMethod("ping", String.class))), 
+												 null, null, "unknownMethod(java.lang.String)"));
+		request.setArguments(new Object[] { serializer.serialize("foo", 1) });
+		
+		try {
+			remotingDriver.serviceActivator().invokeService(request);
+			fail("Expected MissingServiceMethodException");
+		} catch (MissingServiceMethodException e) {
+			// Expected
+		}
+	}
+	
+	public interface Ping {
+		String ping(String msg);
+	}
+	
+	private byte[] encode(AstrixServiceInvocationRequest request) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		codec.writeRequest(request, new DataOutputStream(bytes));
+		return bytes.toByteArray();
+	}
+	
+	private static String readString(DataInputStream in) throws Exception {
+		byte[] data = new byte[in.readInt()];
+		in.readFully(data);
+		return new String(data, "UTF-8");
+	}
+	
+	private static void writeString(String value, DataOutputStream out) throws Exception {
+		byte[] data = value.getBytes("UTF-8");
+		out.writeInt(data.length);
+		out.write(data);
+	}
+
+}
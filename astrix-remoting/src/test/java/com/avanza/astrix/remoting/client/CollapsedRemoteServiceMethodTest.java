@@ -0,0 +1,170 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.avanza.astrix.context.JavaSerializationSerializer;
+import com.avanza.astrix.core.remoting.RoutingKey;
+import com.avanza.astrix.versioning.core.AstrixObjectSerializer;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+public class CollapsedRemoteServiceMethodTest {
+	
+	private final AstrixObjectSerializer objectSerializer = new JavaSerializationSerializer(1);
+	private final RecordingTransport transport = new RecordingTransport();
+	private final WorkerTrackingScheduler scheduler = new WorkerTrackingScheduler();
+	private final CollapsedRemoteServiceMethod squareMethod = new CollapsedRemoteServiceMethod("square(java.lang.Integer)", "squares(java.util.List)", 
+			args -> RoutingKey.create((Integer) args[0]), new RemotingEngine(RemotingTransport.create(transport), objectSerializer, 1), List.class, 10, 3, scheduler);
+	
+	@Test
+	public void windowWorkerIsReleasedWhenWindowCloses() throws Exception {
+		TestSubscriber<Object> first = invoke(squareRequest(), 2);
+		TestSubscriber<Object> second = invoke(squareRequest(), 4);
+		assertEquals(1, scheduler.activeWorkers.get());
+		
+		scheduler.delegate.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+		
+		first.assertValue(2);
+		second.assertValue(4);
+		assertEquals(1, transport.requests.size());
+		assertEquals(0, scheduler.activeWorkers.get());
+	}
+	
+	@Test
+	public void windowWorkerIsReleasedWhenFullBatchIsSent() throws Exception {
+		invoke(squareRequest(), 2);
+		invoke(squareRequest(), 4);
+		invoke(squareRequest(), 6);
+		
+		assertEquals(1, transport.requests.size());
+		assertEquals(0, scheduler.activeWorkers.get());
+	}
+	
+	@Test
+	public void invocationsWithDifferentHeadersAreSentInSeparateBatches() throws Exception {
+		AstrixServiceInvocationRequest fooRequest = squareRequest();
+		fooRequest.setHeader("tenant", "foo");
+		AstrixServiceInvocationRequest barRequest = squareRequest();
+		barRequest.setHeader("tenant", "bar");
+		TestSubscriber<Object> foo = invoke(fooRequest, 2);
+		TestSubscriber<Object> bar = invoke(barRequest, 4);
+		
+		scheduler.delegate.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+		
+		foo.assertValue(2);
+		bar.assertValue(4);
+		assertEquals(2, transport.requests.size());
+		for (AstrixServiceInvocationRequest batchRequest : transport.requests) {
+			String tenant = batchRequest.getHeader("tenant");
+			List<?> arguments = (List<?>) objectSerializer.deserialize(batchRequest.getArguments()[0], List.class, 1);
+			assertEquals("foo".equals(tenant) ? 2 : 4, arguments.get(0));
+		}
+		assertEquals(0, scheduler.activeWorkers.get());
+	}
+	
+	private TestSubscriber<Object> invoke(AstrixServiceInvocationRequest request, int argument) throws Exception {
+		TestSubscriber<Object> subscriber = new TestSubscriber<>();
+		squareMethod.invoke(request, new Object[] { argument }).subscribe(subscriber);
+		return subscriber;
+	}
+	
+	private static AstrixServiceInvocationRequest squareRequest() {
+		return new AstrixServiceInvocationRequest(ServiceMethodDescriptor.create("SquareService", 1, "square(java.lang.Integer)"));
+	}
+	
+	/**
+	 * Responds to each batch request with the batch arguments, i.e the result for each argument is the argument itself.
+	 */
+	private class RecordingTransport implements RemotingTransportSpi {
+		
+		private final List<AstrixServiceInvocationRequest> requests = new ArrayList<>();
+		
+		@Override
+		public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+			requests.add(request);
+			AstrixServiceInvocationResponse response = new AstrixServiceInvocationResponse();
+			response.setResponseBody(request.getArguments()[0]);
+			return Observable.just(response);
+		}
+		
+		@Override
+		public Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequests(Collection<RoutedServiceInvocationRequest> requests) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public Observable<List<AstrixServiceInvocationResponse>> submitBroadcastRequest(AstrixServiceInvocationRequest request) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public int partitionCount() {
+			return 1;
+		}
+	}
+	
+	private static class WorkerTrackingScheduler extends Scheduler {
+		
+		private final TestScheduler delegate = new TestScheduler();
+		private final AtomicInteger activeWorkers = new AtomicInteger();
+		
+		@Override
+		public Worker createWorker() {
+			Worker worker = delegate.createWorker();
+			activeWorkers.incrementAndGet();
+			return new Worker() {
+				@Override
+				public void unsubscribe() {
+					if (!worker.isUnsubscribed()) {
+						activeWorkers.decrementAndGet();
+					}
+					worker.unsubscribe();
+				}
+				
+				@Override
+				public boolean isUnsubscribed() {
+					return worker.isUnsubscribed();
+				}
+				
+				@Override
+				public Subscription schedule(Action0 action, long delayTime, TimeUnit unit) {
+					return worker.schedule(action, delayTime, unit);
+				}
+				
+				@Override
+				public Subscription schedule(Action0 action) {
+					return worker.schedule(action);
+				}
+			};
+		}
+	}
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+import com.avanza.astrix.beans.core.ReactiveTypeConverterImpl;
+import com.avanza.astrix.context.JavaSerializationSerializer;
+import com.avanza.astrix.context.mbeans.MBeanExporter;
+import com.avanza.astrix.core.AstrixBroadcast;
+import com.avanza.astrix.core.AstrixPartialResult;
+import com.avanza.astrix.core.AstrixPartitionedRouting;
+import com.avanza.astrix.core.AstrixRemoteResult;
+import com.avanza.astrix.core.IllegalServiceMetadataException;
+import com.avanza.astrix.core.RemoteResultReducer;
+import com.avanza.astrix.core.ServiceUnavailableException;
+import com.avanza.astrix.core.remoting.RoutingKey;
+import com.avanza.astrix.versioning.core.AstrixObjectSerializer;
+
+import rx.Observable;
+
+public class PartialResultTest {
+	
+	private final AstrixObjectSerializer objectSerializer = new JavaSerializationSerializer(1);
+	private final Map<String, Object> mbeanByName = new ConcurrentHashMap<>();
+	private final MBeanExporter mbeanExporter = (mbean, folder, name) -> mbeanByName.put(folder + "/" + name, mbean);
+	
+	@Test
+	public void reducerReceivesUnavailableResultForPartitionsThatDoesNotRespondInTime() throws Exception {
+		// Partition 1 never responds
+		PingService pingService = createProxy(PingService.class, new FakeTransport(3, 1));
+		
+		assertThat(pingService.ping("foo"), containsInAnyOrder("foo-0", "foo-2", "unavailable"));
+		
+		PartialResultMonitor monitor = (PartialResultMonitor) mbeanByName.get("PartialResults/" + PingService.class.getName() + "#ping");
+		assertEquals(1, monitor.getInvocationCount());
+		assertEquals(1, monitor.getPartialInvocationCount());
+		assertEquals(1, monitor.getUnavailablePartitionCount());
+	}
+	
+	@Test
+	public void partitionsThatRespondsInTimeAreNotCountedAsPartial() throws Exception {
+		PingService pingService = createProxy(PingService.class, new FakeTransport(2));
+		
+		assertThat(pingService.ping("foo"), containsInAnyOrder("foo-0", "foo-1"));
+		
+		PartialResultMonitor monitor = (PartialResultMonitor) mbeanByName.get("PartialResults/" + PingService.class.getName() + "#ping");
+		assertEquals(1, monitor.getInvocationCount());
+		assertEquals(0, monitor.getPartialInvocationCount());
+	}
+	
+	@Test
+	public void partitionedRequestsAreGivenOneDeadlinePerPartition() throws Exception {
+		PartitionedPingService pingService = createProxy(PartitionedPingService.class, new FakeTransport(2, 0));
+		
+		assertThat(pingService.ping(Collections.singletonList(1)), containsInAnyOrder("[1]-1"));
+		assertThat(pingService.ping(Collections.singletonList(0)), containsInAnyOrder("unavailable"));
+		
+		PartialResultMonitor monitor = (PartialResultMonitor) mbeanByName.get("PartialResults/" + PartitionedPingService.class.getName() + "#ping");
+		assertEquals(2, monitor.getInvocationCount());
+		assertEquals(1, monitor.getPartialInvocationCount());
+	}
+	
+	@Test
+	public void missingPartitionsAreIgnoredForVoidMethods() throws Exception {
+		PartitionedPingService pingService = createProxy(PartitionedPingService.class, new FakeTransport(2, 0));
+		
+		pingService.pingVoid(Collections.singletonList(0));
+	}
+	
+	@Test(expected = IllegalServiceMetadataException.class)
+	public void partialResultIsOnlySupportedForBroadcastAndPartitionedMethods() throws Exception {
+		createProxy(RoutedPingService.class, new FakeTransport(1));
+	}
+	
+	private <T> T createProxy(Class<T> api, RemotingTransportSpi transport) {
+		return RemotingProxy.create(api, api, RemotingTransport.create(transport), objectSerializer, new DefaultAstrixRoutingStrategy(), 
+				new ReactiveTypeConverterImpl(Collections.emptyList()), PartitionMarshaller.CALLER_RUNS, mbeanExporter);
+	}
+	
+	public interface PingService {
+		@AstrixBroadcast(reducer = AvailableResultsReducer.class)
+		@AstrixPartialResult(partitionTimeout = 50)
+		List<String> ping(String msg);
+	}
+	
+	public interface PartitionedPingService {
+		@AstrixPartialResult(partitionTimeout = 50)
+		List<String> ping(@AstrixPartitionedRouting(reducer = AvailableResultsReducer.class) List<Integer> nums);
+		
+		@AstrixPartialResult(partitionTimeout = 50)
+		void pingVoid(@AstrixPartitionedRouting List<Integer> nums);
+	}
+	
+	public interface RoutedPingService {
+		@AstrixPartialResult(partitionTimeout = 50)
+		String ping(String msg);
+	}
+	
+	public static class AvailableResultsReducer implements RemoteResultReducer<List<String>> {
+		@Override
+		public List<String> reduce(List<AstrixRemoteResult<List<String>>> results) {
+			List<String> result = new ArrayList<>();
+			for (AstrixRemoteResult<List<String>> partitionResult : results) {
+				if (partitionResult.getThrownException() instanceof ServiceUnavailableException) {
+					result.add("unavailable");
+				} else {
+					result.addAll(partitionResult.getResult());
+				}
+			}
+			return result;
+		}
+	}
+	
+	/**
+	 * Responds with a list containing the first argument and the partition, except for 
+	 * the given non responding partitions.
+	 */
+	private class FakeTransport implements RemotingTransportSpi {
+		
+		private final int partitionCount;
+		private final List<Integer> nonRespondingPartitions = new ArrayList<>();
+
+		public FakeTransport(int partitionCount, Integer... nonRespondingPartitions) {
+			this.partitionCount = partitionCount;
+			Collections.addAll(this.nonRespondingPartitions, nonRespondingPartitions);
+		}
+
+		@Override
+		public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+			int partition = routingKey.hashCode() % partitionCount;
+			if (nonRespondingPartitions.contains(partition)) {
+				return Observable.never();
+			}
+			Object argument = objectSerializer.deserialize(request.getArguments()[0], Object.class, 1);
+			AstrixServiceInvocationResponse response = new AstrixServiceInvocationResponse();
+			response.setResponseBody(objectSerializer.serialize(Collections.singletonList(argument + "-" + partition), 1));
+			return Observable.just(response);
+		}
+
+		@Override
+		public Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequests(Collection<RoutedServiceInvocationRequest> requests) {
+			throw new AssertionError("Each partition should be submitted separately");
+		}
+
+		@Override
+		public Observable<List<AstrixServiceInvocationResponse>> submitBroadcastRequest(AstrixServiceInvocationRequest request) {
+			throw new AssertionError("Each partition should be submitted separately");
+		}
+
+		@Override
+		public int partitionCount() {
+			return partitionCount;
+		}
+	}
+
+}
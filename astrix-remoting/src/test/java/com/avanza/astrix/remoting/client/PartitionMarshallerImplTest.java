@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.avanza.astrix.config.DynamicIntProperty;
+
+public class PartitionMarshallerImplTest {
+	
+	private final PartitionMarshallerImpl partitionMarshaller = new PartitionMarshallerImpl(2, new DynamicIntProperty(100));
+	
+	@After
+	public void after() {
+		partitionMarshaller.destroy();
+	}
+	
+	@Test
+	public void marshallsSmallInvocationsOnCallingThread() throws Exception {
+		List<Supplier<Thread>> tasks = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			tasks.add(Thread::currentThread);
+		}
+		for (Thread marshallingThread : partitionMarshaller.marshall(tasks, 99)) {
+			assertEquals(Thread.currentThread(), marshallingThread);
+		}
+	}
+	
+	@Test
+	public void marshallsLargeInvocationsInParallelPreservingPartitionOrder() throws Exception {
+		List<Supplier<Integer>> tasks = new ArrayList<>();
+		List<Thread> marshallingThreads = new ArrayList<>();
+		for (int i = 0; i < 32; i++) {
+			int partition = i;
+			tasks.add(() -> {
+				synchronized (marshallingThreads) {
+					marshallingThreads.add(Thread.currentThread());
+				}
+				return partition;
+			});
+		}
+		List<Integer> result = partitionMarshaller.marshall(tasks, 100);
+		for (int i = 0; i < 32; i++) {
+			assertEquals(Integer.valueOf(i), result.get(i));
+		}
+		assertNotEquals(32, marshallingThreads.stream().filter(Thread.currentThread()::equals).count());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void rethrowsMarshallingExceptions() throws Exception {
+		List<Supplier<Integer>> tasks = new ArrayList<>();
+		tasks.add(() -> 1);
+		tasks.add(() -> {
+			throw new IllegalArgumentException("Not serializable");
+		});
+		partitionMarshaller.marshall(tasks, 100);
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void rejectsParallelMarshallingAfterDestroy() throws Exception {
+		partitionMarshaller.destroy();
+		List<Supplier<Integer>> tasks = new ArrayList<>();
+		tasks.add(() -> 1);
+		tasks.add(() -> 2);
+		partitionMarshaller.marshall(tasks, 100);
+	}
+
+}
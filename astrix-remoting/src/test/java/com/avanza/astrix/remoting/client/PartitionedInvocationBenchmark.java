@@ -0,0 +1,153 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.avanza.astrix.beans.core.ReactiveTypeConverterImpl;
+import com.avanza.astrix.config.DynamicIntProperty;
+import com.avanza.astrix.context.JavaSerializationSerializer;
+import com.avanza.astrix.context.mbeans.MBeanExporter;
+import com.avanza.astrix.core.AstrixPartitionedRouting;
+import com.avanza.astrix.core.remoting.RoutingKey;
+
+import rx.Observable;
+
+/**
+ * Measures the client side cost of splitting a partitioned invocation into one request per 
+ * partition, including marshalling of the arguments for each partition. The requests are 
+ * answered immediately by a transport that does not send them anywhere. <p>
+ * 
+ * Run using the main method, or from an IDE with the jmh annotation processor enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PartitionedInvocationBenchmark {
+	
+	@Param({"32"})
+	public int partitionCount;
+	
+	@Param({"1000", "100000"})
+	public int keyCount;
+	
+	@Param({"false", "true"})
+	public boolean parallelMarshalling;
+	
+	private PartitionMarshaller partitionMarshaller;
+	private KeyValueStore store;
+	private List<Integer> keyList;
+	private int[] keyArray;
+	private Integer[] boxedKeyArray;
+	
+	@Setup
+	public void setup() {
+		partitionMarshaller = parallelMarshalling ? new PartitionMarshallerImpl(4, new DynamicIntProperty(10_000)) : PartitionMarshaller.CALLER_RUNS;
+		store = RemotingProxy.create(KeyValueStore.class, KeyValueStore.class, RemotingTransport.create(new DiscardingTransport(partitionCount)), 
+				new JavaSerializationSerializer(1), new DefaultAstrixRoutingStrategy(), new ReactiveTypeConverterImpl(Collections.emptyList()), partitionMarshaller, new MBeanExporter.NoExporter());
+		keyList = new ArrayList<>();
+		IntStream.range(0, keyCount).forEach(keyList::add);
+		keyArray = IntStream.range(0, keyCount).toArray();
+		boxedKeyArray = keyList.toArray(new Integer[keyCount]);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		if (partitionMarshaller instanceof PartitionMarshallerImpl) {
+			PartitionMarshallerImpl.class.cast(partitionMarshaller).destroy();
+		}
+	}
+	
+	@Benchmark
+	public void list() {
+		store.removeAll(keyList);
+	}
+	
+	@Benchmark
+	public void primitiveArray() {
+		store.removeAll(keyArray);
+	}
+	
+	@Benchmark
+	public void objectArray() {
+		store.removeAll(boxedKeyArray);
+	}
+	
+	public interface KeyValueStore {
+		void removeAll(@AstrixPartitionedRouting List<Integer> keys);
+		void removeAll(@AstrixPartitionedRouting int[] keys);
+		void removeAll(@AstrixPartitionedRouting Integer[] keys);
+	}
+	
+	private static final class DiscardingTransport implements RemotingTransportSpi {
+		
+		private final int partitionCount;
+		
+		public DiscardingTransport(int partitionCount) {
+			this.partitionCount = partitionCount;
+		}
+
+		@Override
+		public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+			return Observable.just(new AstrixServiceInvocationResponse());
+		}
+
+		@Override
+		public Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequests(Collection<RoutedServiceInvocationRequest> requests) {
+			List<AstrixServiceInvocationResponse> responses = new ArrayList<>(requests.size());
+			requests.forEach(request -> responses.add(new AstrixServiceInvocationResponse()));
+			return Observable.just(responses);
+		}
+
+		@Override
+		public Observable<List<AstrixServiceInvocationResponse>> submitBroadcastRequest(AstrixServiceInvocationRequest request) {
+			return Observable.just(Collections.nCopies(partitionCount, new AstrixServiceInvocationResponse()));
+		}
+
+		@Override
+		public int partitionCount() {
+			return partitionCount;
+		}
+	}
+	
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(PartitionedInvocationBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.avanza.astrix.beans.core.ReactiveTypeConverterImpl;
+import com.avanza.astrix.context.JavaSerializationSerializer;
+import com.avanza.astrix.context.mbeans.MBeanExporter;
+import com.avanza.astrix.core.remoting.RoutingKey;
+
+import rx.Observable;
+
+public class RoutedRemoteServiceMethodTest {
+	
+	private final NonRespondingTransport transport = new NonRespondingTransport();
+	
+	@After
+	public void clearInterruptedFlag() {
+		Thread.interrupted();
+	}
+	
+	@Test
+	public void cancellingReturnedFutureAbandonsRequestInTransport() throws Exception {
+		PingServiceAsync pingService = createProxy(PingServiceAsync.class);
+		
+		CompletableFuture<String> result = pingService.ping("foo");
+		result.cancel(false);
+		
+		assertEquals(0, transport.abandoned.getCount());
+	}
+	
+	@Test
+	public void interruptedSynchronousInvocationAbandonsRequestInTransport() throws Exception {
+		PingService pingService = createProxy(PingService.class);
+		
+		Thread.currentThread().interrupt();
+		try {
+			pingService.ping("foo");
+			fail("Expected interrupted invocation to fail");
+		} catch (RuntimeException e) {
+			assertTrue(e.getCause() instanceof InterruptedException);
+		}
+		
+		assertTrue("Interrupted flag should be restored", Thread.currentThread().isInterrupted());
+		assertEquals(0, transport.abandoned.getCount());
+	}
+	
+	private <T> T createProxy(Class<T> api) {
+		return RemotingProxy.create(api, PingService.class, RemotingTransport.create(transport), new JavaSerializationSerializer(1), method -> args -> RoutingKey.create(0), 
+				new ReactiveTypeConverterImpl(Collections.emptyList()), PartitionMarshaller.CALLER_RUNS, new MBeanExporter.NoExporter());
+	}
+	
+	public interface PingService {
+		String ping(String msg);
+	}
+	
+	public interface PingServiceAsync {
+		CompletableFuture<String> ping(String msg);
+	}
+	
+	private static class NonRespondingTransport implements RemotingTransportSpi {
+		
+		private final CountDownLatch abandoned = new CountDownLatch(1);
+
+		@Override
+		public Observable<AstrixServiceInvocationResponse> submitRoutedRequest(AstrixServiceInvocationRequest request, RoutingKey routingKey) {
+			return Observable.<AstrixServiceInvocationResponse>never().doOnUnsubscribe(abandoned::countDown);
+		}
+
+		@Override
+		public Observable<List<AstrixServiceInvocationResponse>> submitRoutedRequests(Collection<RoutedServiceInvocationRequest> requests) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Observable<List<AstrixServiceInvocationResponse>> submitBroadcastRequest(AstrixServiceInvocationRequest request) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int partitionCount() {
+			return 1;
+		}
+	}
+
+}
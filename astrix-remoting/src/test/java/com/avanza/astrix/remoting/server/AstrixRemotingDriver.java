@@ -33,6 +33,8 @@ import com.avanza.astrix.beans.core.ReactiveTypeConverter;
 import com.avanza.astrix.beans.core.ReactiveTypeConverterImpl;
 import com.avanza.astrix.beans.core.ReactiveTypeHandlerPlugin;
 import com.avanza.astrix.config.DynamicBooleanProperty;
+import com.avanza.astrix.config.DynamicConfig;
+import com.avanza.astrix.config.MapConfigSource;
 import com.avanza.astrix.context.JavaSerializationSerializer;
 import com.avanza.astrix.context.mbeans.MBeanExporter;
 import com.avanza.astrix.context.metrics.Metrics;
@@ -46,6 +48,7 @@ import com.avanza.astrix.core.remoting.RoutingKey;
 import com.avanza.astrix.core.remoting.RoutingStrategy;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
 import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
+import com.avanza.astrix.remoting.client.PartitionMarshaller;
 import com.avanza.astrix.remoting.client.RemotingProxy;
 import com.avanza.astrix.remoting.client.RemotingTransport;
 import com.avanza.astrix.remoting.client.RemotingTransportSpi;
@@ -73,6 +76,7 @@ public class AstrixRemotingDriver {
 	};
 	private ReactiveTypeConverter reactiveTypeConverter = new ReactiveTypeConverterImpl(Collections.<ReactiveTypeHandlerPlugin<?>>emptyList());
 	private DynamicBooleanProperty exportedServiceMetricsEnabled = new DynamicBooleanProperty(true);
+	private MapConfigSource config = new MapConfigSource();
 	
 	private AstrixServiceActivatorImpl[] partitions;
 	
@@ -82,7 +86,7 @@ public class AstrixRemotingDriver {
 	
 	public AstrixRemotingDriver(int partitionCount) {
 		this.partitions = new AstrixServiceActivatorImpl[partitionCount];
-		IntStream.range(0, partitionCount).forEach(index -> partitions[index] = new AstrixServiceActivatorImpl(exportedServiceMetricsEnabled, metrics, exporter));
+		IntStream.range(0, partitionCount).forEach(index -> partitions[index] = new AstrixServiceActivatorImpl(exportedServiceMetricsEnabled, new DynamicConfig(config), metrics, exporter));
 	}
 	
 	public <T> T hasExportedMbeanOfType(Class<T> expectedType, MBeanKey key) {
@@ -100,7 +104,7 @@ public class AstrixRemotingDriver {
 	}
 
 	public <T> T createRemotingProxy(Class<T> proxyApi, Class<?> targetApi) {
-		return RemotingProxy.create(proxyApi, targetApi, directTransport(), objectSerializer, new NoRoutingStrategy(), reactiveTypeConverter);
+		return RemotingProxy.create(proxyApi, targetApi, directTransport(), objectSerializer, new NoRoutingStrategy(), reactiveTypeConverter, PartitionMarshaller.CALLER_RUNS, exporter);
 	}
 	
 	public <T> T createRemotingProxy(Class<T> proxyApi, Class<?> targetApi,	AstrixObjectSerializer objectSerializerOverride) {
@@ -122,6 +126,12 @@ public class AstrixRemotingDriver {
 		this.partitions[paritionIndex].register(provider, objectSerializer, publishedApi);
 	}
 	
+	/**
+	 * Returns the service activator for the first partition
+	 */
+	public AstrixServiceActivator serviceActivator() {
+		return this.partitions[0];
+	}
 	
 	private RemotingTransport directTransport() {
 		return RemotingTransport.create(new PartitionedDirectTransport(Arrays.asList(this.partitions)));
@@ -233,5 +243,9 @@ public class AstrixRemotingDriver {
 	public void setExportedServiceMetricsEnabled(boolean enabled) {
 		this.exportedServiceMetricsEnabled.set(enabled);
 	}
+	
+	public void setServerConfig(String setting, String value) {
+		this.config.set(setting, value);
+	}
 
 }
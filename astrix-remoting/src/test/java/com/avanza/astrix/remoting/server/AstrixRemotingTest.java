@@ -34,6 +34,8 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -42,9 +44,11 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.avanza.astrix.core.AstrixBroadcast;
+import com.avanza.astrix.core.AstrixCollapsed;
 import com.avanza.astrix.core.AstrixPartitionedRouting;
 import com.avanza.astrix.core.AstrixRemoteResult;
 import com.avanza.astrix.core.AstrixRoutingStrategy;
+import com.avanza.astrix.core.IncrementalRemoteResultReducer;
 import com.avanza.astrix.core.RemoteResultReducer;
 import com.avanza.astrix.core.RemoteServiceInvocationException;
 import com.avanza.astrix.core.ServiceInvocationException;
@@ -55,6 +59,7 @@ import com.avanza.astrix.core.remoting.RoutingStrategy;
 import com.avanza.astrix.remoting.client.IncompatibleRemoteResultReducerException;
 import com.avanza.astrix.versioning.core.AstrixObjectSerializer;
 
+import rx.Notification;
 import rx.Observable;
 
 /**
@@ -103,6 +108,26 @@ public class AstrixRemotingTest {
 		}
 	}
 	
+	@Test
+	public void routedRequest_throwsError() throws Exception {
+		AstrixRemotingDriver remotingDriver = new AstrixRemotingDriver();
+		try {
+			TestService impl = new TestService() {
+				@Override
+				public HelloResponse hello(HelloRequest message) {
+					throw new AssertionError("Remote service error message");
+				}
+			};
+			remotingDriver.registerServer(TestService.class, impl);
+
+			TestService testService = remotingDriver.createRemotingProxy(TestService.class);
+			testService.hello(new HelloRequest("foo"));
+			fail("Expected remote service exception to be thrown");
+		} catch (RemoteServiceInvocationException e) {
+			assertEquals(AssertionError.class.getName(), e.getExceptionType());
+		}
+	}
+
 	@Test
 	public void routedRequest_throwsExceptionOfServiceInvocationType() throws Exception {
 		AstrixRemotingDriver remotingDriver = new AstrixRemotingDriver();
@@ -183,6 +208,67 @@ public class AstrixRemotingTest {
 		assertEquals(1 + 4 + 9 + 16 + 25, squareSum);
 	}
 	
+	@Test
+	public void partitionedRequest_IncrementalReducer_accumulatesResultFromEachPartition() throws Exception {
+		AstrixRemotingDriver remotingDriver = new AstrixRemotingDriver(2);
+		IncrementalCalculatorListService calculator = nums -> nums.stream().mapToInt(num -> num * num).sum();
+		remotingDriver.registerServerPartition(0, IncrementalCalculatorListService.class, calculator);
+		remotingDriver.registerServerPartition(1, IncrementalCalculatorListService.class, calculator);
+
+		IncrementalCalculatorListService calculatorService = remotingDriver.createRemotingProxy(IncrementalCalculatorListService.class);
+		int squareSum = calculatorService.squareSum(Arrays.asList(1, 2, 3, 4, 5));
+		assertEquals(1 + 4 + 9 + 16 + 25, squareSum);
+	}
+	
+	@Test
+	public void collapsedRequest_ConcurrentInvocationsAreBatchedPerPartition() throws Exception {
+		AstrixRemotingDriver remotingDriver = new AstrixRemotingDriver(2);
+		CollapsedSquareServiceImpl evenPartition = new CollapsedSquareServiceImpl();
+		CollapsedSquareServiceImpl oddPartition = new CollapsedSquareServiceImpl();
+		remotingDriver.registerServerPartition(0, CollapsedSquareService.class, evenPartition);
+		remotingDriver.registerServerPartition(1, CollapsedSquareService.class, oddPartition);
+		
+		ObservableCollapsedSquareService squareService = remotingDriver.createRemotingProxy(ObservableCollapsedSquareService.class, CollapsedSquareService.class, 
+				method -> args -> RoutingKey.create((Integer) args[0]));
+		List<Integer> squares = Observable.merge(squareService.square(1), squareService.square(2), squareService.square(3), squareService.square(4))
+										  .toList().toBlocking().first();
+		
+		assertThat(squares, containsInAnyOrder(1, 4, 9, 16));
+		assertEquals(Arrays.asList(Arrays.asList(2, 4)), evenPartition.batches);
+		assertEquals(Arrays.asList(Arrays.asList(1, 3)), oddPartition.batches);
+	}
+	
+	@Test
+	public void collapsedRequest_FullBatchIsSentWithoutWaitingForWindowToClose() throws Exception {
+		AstrixRemotingDriver remotingDriver = new AstrixRemotingDriver(1);
+		CollapsedSquareServiceImpl server = new CollapsedSquareServiceImpl();
+		remotingDriver.registerServer(CollapsedSquareService.class, server);
+		
+		ObservableCollapsedSquareService squareService = remotingDriver.createRemotingProxy(ObservableCollapsedSquareService.class, CollapsedSquareService.class, 
+				method -> args -> RoutingKey.create((Integer) args[0]));
+		List<Integer> squares = Observable.merge(squareService.squareLongWindow(2), squareService.squareLongWindow(3))
+										  .toList().toBlocking().toFuture().get(5, TimeUnit.SECONDS);
+		
+		assertThat(squares, containsInAnyOrder(4, 9));
+	}
+	
+	@Test
+	public void collapsedRequest_FailedBatchFailsEachInvocation() throws Exception {
+		AstrixRemotingDriver remotingDriver = new AstrixRemotingDriver(1);
+		CollapsedSquareServiceImpl server = new CollapsedSquareServiceImpl();
+		remotingDriver.registerServer(CollapsedSquareService.class, server);
+		
+		ObservableCollapsedSquareService squareService = remotingDriver.createRemotingProxy(ObservableCollapsedSquareService.class, CollapsedSquareService.class, 
+				method -> args -> RoutingKey.create((Integer) args[0]));
+		List<Notification<Integer>> results = Observable.merge(squareService.square(-1).materialize(), squareService.square(2).materialize())
+														.filter(Notification::isOnError)
+														.toList().toBlocking().first();
+		
+		assertEquals(2, results.size());
+		assertEquals(RemoteServiceInvocationException.class, results.get(0).getThrowable().getClass());
+		assertEquals(RemoteServiceInvocationException.class, results.get(1).getThrowable().getClass());
+	}
+	
 	@Test
 	public void customRoutingRequest() throws Exception {
 		AstrixRemotingDriver remotingDriver = new AstrixRemotingDriver(2);
@@ -498,6 +584,27 @@ public class AstrixRemotingTest {
 		assertEquals("reply-kalle", response.get().getGreeting());
 	}
 	
+	@Test
+	public void completableFutureVersionOfAServiceIsCompletedWithTheUnwrappedServiceException() throws Exception {
+		AstrixRemotingDriver remotingDriver = new AstrixRemotingDriver();
+		TestService impl = new TestService() {
+			@Override
+			public HelloResponse hello(HelloRequest message) {
+				if (message.getMesssage().isEmpty()) {
+					throw new IllegalArgumentException("Empty message");
+				}
+				return new HelloResponse("reply-" + message.getMesssage());
+			}
+		};
+		remotingDriver.registerServer(TestService.class, impl);
+		
+		TestServiceCompletableFuture service = remotingDriver.createRemotingProxy(TestServiceCompletableFuture.class, TestService.class);
+		assertEquals("reply-kalle", service.hello(new HelloRequest("kalle")).get().getGreeting());
+		
+		Throwable error = service.hello(new HelloRequest("")).handle((response, e) -> e).get();
+		assertEquals(RemoteServiceInvocationException.class, error.getClass());
+	}
+	
 	@Test(expected = RuntimeException.class)
 	public void ioExceptionThrownDuringDeserializationAreProppagatedAsRuntimeExceptions() throws Exception {
 		AstrixRemotingDriver remotingDriver = new AstrixRemotingDriver();
@@ -868,6 +975,49 @@ public class AstrixRemotingTest {
 		List<HelloResponse> hello(List<HelloRequest> greeting);
 	}
 	
+	public interface CollapsedSquareService {
+		@AstrixCollapsed(batchMethod = "squares", window = 50)
+		Integer square(Integer num);
+		
+		@AstrixCollapsed(batchMethod = "squares", window = 60_000, maxBatchSize = 2)
+		Integer squareLongWindow(Integer num);
+		
+		List<Integer> squares(List<Integer> nums);
+	}
+	
+	public interface ObservableCollapsedSquareService {
+		Observable<Integer> square(Integer num);
+		Observable<Integer> squareLongWindow(Integer num);
+	}
+	
+	public static class CollapsedSquareServiceImpl implements CollapsedSquareService {
+		
+		private final List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+		
+		@Override
+		public Integer square(Integer num) {
+			throw new AssertionError("Expected invocation to be collapsed");
+		}
+		
+		@Override
+		public Integer squareLongWindow(Integer num) {
+			throw new AssertionError("Expected invocation to be collapsed");
+		}
+		
+		@Override
+		public List<Integer> squares(List<Integer> nums) {
+			batches.add(nums);
+			List<Integer> result = new ArrayList<>();
+			for (Integer num : nums) {
+				if (num < 0) {
+					throw new IllegalArgumentException("Negative number: " + num);
+				}
+				result.add(num * num);
+			}
+			return result;
+		}
+	}
+	
 	interface PingService {
 		@AstrixBroadcast
 		List<String> ping(String msg);
@@ -877,6 +1027,10 @@ public class AstrixRemotingTest {
 		Integer squareSum(@AstrixPartitionedRouting(reducer = SummingReducer.class) Collection<Integer> nums);
 	}
 	
+	interface IncrementalCalculatorListService {
+		Integer squareSum(@AstrixPartitionedRouting(reducer = IncrementalSummingReducer.class) Collection<Integer> nums);
+	}
+	
 	interface CalculatorArrayPojoService {
 		Integer squareSum(@AstrixPartitionedRouting(routingMethod="getNum", reducer = SummingReducer.class) NumPojo... nums);
 	}
@@ -1036,6 +1190,27 @@ public class AstrixRemotingTest {
 		
 	}
 	
+	public static class IncrementalSummingReducer implements IncrementalRemoteResultReducer<Integer> {
+		
+		private int sum = 0;
+		
+		@Override
+		public Integer reduce(List<AstrixRemoteResult<Integer>> results) {
+			throw new AssertionError("Expected each result to be accumulated");
+		}
+
+		@Override
+		public void accumulate(AstrixRemoteResult<Integer> result) {
+			sum += result.getResult();
+		}
+
+		@Override
+		public Integer finish() {
+			return sum;
+		}
+		
+	}
+	
 	interface BroadcastingGenericReturnTypeServiceAsync {
 		@AstrixBroadcast
 		Future<List<HelloResponse>> hello(List<HelloRequest> greeting);
@@ -1109,6 +1284,10 @@ public class AstrixRemotingTest {
 		Observable<HelloResponse> hello(HelloRequest message);
 	}
 	
+	interface TestServiceCompletableFuture {
+		CompletableFuture<HelloResponse> hello(HelloRequest message);
+	}
+	
 	interface TestServiceAsync {
 		Future<HelloResponse> hello(HelloRequest message);
 	}
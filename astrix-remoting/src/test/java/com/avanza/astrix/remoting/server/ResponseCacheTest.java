@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponseHeaders;
+
+public class ResponseCacheTest {
+	
+	private final AtomicLong nanoTime = new AtomicLong();
+	
+	@Test
+	public void returnsCopyOfCachedResponse() throws Exception {
+		ResponseCache cache = new ResponseCache(100_000, nanoTime::get);
+		AstrixServiceInvocationResponse response = response("bar");
+		response.setHeader(AstrixServiceInvocationResponseHeaders.OPTIONAL_RETURN_VALUE_IS_NULL, "true");
+		cache.put(key("foo"), response, 1000);
+		
+		AstrixServiceInvocationResponse cached = cache.get(key("foo"));
+		
+		assertEquals("bar", cached.getResponseBody());
+		assertEquals("true", cached.getHeader(AstrixServiceInvocationResponseHeaders.OPTIONAL_RETURN_VALUE_IS_NULL));
+		assertTrue(cached != cache.get(key("foo")));
+		assertNull(cache.get(key("bar")));
+	}
+	
+	@Test
+	public void keysIncludeApiVersionAndMethod() throws Exception {
+		ResponseCache cache = new ResponseCache(100_000, nanoTime::get);
+		cache.put(new ResponseCache.Key("Api", 1, 1L, new Object[] { "foo".getBytes() }), response("bar"), 1000);
+		
+		assertNotNull(cache.get(new ResponseCache.Key("Api", 1, 1L, new Object[] { "foo".getBytes() })));
+		assertNull(cache.get(new ResponseCache.Key("Api", 2, 1L, new Object[] { "foo".getBytes() })));
+		assertNull(cache.get(new ResponseCache.Key("Api", 1, 2L, new Object[] { "foo".getBytes() })));
+		assertNull(cache.get(new ResponseCache.Key("OtherApi", 1, 1L, new Object[] { "foo".getBytes() })));
+	}
+	
+	@Test
+	public void cachedResponsesExpireAfterTimeToLive() throws Exception {
+		ResponseCache cache = new ResponseCache(100_000, nanoTime::get);
+		cache.put(key("foo"), response("bar"), 1000);
+		
+		nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+		assertNotNull(cache.get(key("foo")));
+		
+		nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+		assertNull(cache.get(key("foo")));
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.weightedSize());
+	}
+	
+	@Test
+	public void cacheIsBoundedByEstimatedSizeOfResponses() throws Exception {
+		ResponseCache cache = new ResponseCache(10_000, nanoTime::get);
+		for (int i = 0; i < 1000; i++) {
+			cache.put(key("key-" + i), response("response-" + i), 1000);
+		}
+		
+		assertTrue(cache.size() > 0);
+		assertTrue("Cache size: " + cache.weightedSize(), cache.weightedSize() <= 10_000);
+	}
+	
+	@Test
+	public void responsesLargerThanCacheAreNeverCached() throws Exception {
+		ResponseCache cache = new ResponseCache(10_000, nanoTime::get);
+		cache.put(key("foo"), response(new byte[10_000]), 1000);
+		
+		assertNull(cache.get(key("foo")));
+		assertEquals(0, cache.weightedSize());
+	}
+	
+	@Test
+	public void frequentlyRequestedResponsesAreNotEvictedByOneOffRequests() throws Exception {
+		ResponseCache cache = new ResponseCache(10_000, nanoTime::get);
+		for (int i = 0; i < 10; i++) {
+			cache.get(key("popular"));
+		}
+		cache.put(key("popular"), response("popular"), 1000);
+		
+		for (int i = 0; i < 1000; i++) {
+			cache.get(key("key-" + i));
+			cache.put(key("key-" + i), response("response-" + i), 1000);
+		}
+		
+		assertNotNull(cache.get(key("popular")));
+	}
+	
+	private static ResponseCache.Key key(String argument) {
+		return new ResponseCache.Key("Api", 1, 1L, new Object[] { argument });
+	}
+
+	private static AstrixServiceInvocationResponse response(Object body) {
+		AstrixServiceInvocationResponse response = new AstrixServiceInvocationResponse();
+		response.setResponseBody(body);
+		return response;
+	}
+
+}
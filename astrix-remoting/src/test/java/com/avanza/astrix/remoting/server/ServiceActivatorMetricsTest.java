@@ -16,9 +16,23 @@
 package com.avanza.astrix.remoting.server;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
+import com.avanza.astrix.context.JavaSerializationSerializer;
+import com.avanza.astrix.core.AstrixCacheable;
+import com.avanza.astrix.core.util.ReflectionUtil;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationRequest;
+import com.avanza.astrix.remoting.client.AstrixServiceInvocationResponse;
+import com.avanza.astrix.versioning.core.AstrixObjectSerializer;
+
 public class ServiceActivatorMetricsTest {
 	
 	@Test
@@ -146,10 +160,155 @@ public class ServiceActivatorMetricsTest {
 		assertEquals(0, aggregatedMonitor.getInvocationCount());
 	}
 	
+	@Test
+	public void exportedMBeansTracksRejectedInvocations() throws Exception {
+		AstrixRemotingDriver remotingDriver = new AstrixRemotingDriver();
+		remotingDriver.registerServer(Ping.class, new Ping() {
+			@Override
+			public String ping(String msg) {
+				return msg;
+			}
+		});
+		
+		ServiceInvocationMonitorMBean pingMethodMonitor = remotingDriver.hasExportedMbeanOfType(ServiceInvocationMonitorMBean.class, new MBeanKey("ExportedServices", Ping.class.getName() + "#ping"));
+		ServiceInvocationMonitorMBean pingServiceMonitor = remotingDriver.hasExportedMbeanOfType(ServiceInvocationMonitorMBean.class, new MBeanKey("ExportedServices", Ping.class.getName()));
+		ServiceInvocationMonitorMBean aggregatedMonitor = remotingDriver.hasExportedMbeanOfType(ServiceInvocationMonitorMBean.class, new MBeanKey("ExportedServices", "AllServicesAggregated"));
+		
+		AstrixServiceInvocationRequest request = new AstrixServiceInvocationRequest();
+		request.setHeader("serviceApi", Ping.class.getName());
+		request.setHeader("serviceMethodSignature", ReflectionUtil.methodSignatureWithoutReturnType(Ping.class.getMethod("ping", String.class)));
+		AstrixServiceInvocationResponse response = remotingDriver.serviceActivator().rejectInvocation(request, "queue full");
+		
+		assertTrue(response.isServiceUnavailable());
+		assertEquals(1, pingMethodMonitor.getRejectedCount());
+		assertEquals(1, pingServiceMonitor.getRejectedCount());
+		assertEquals(1, aggregatedMonitor.getRejectedCount());
+		assertEquals(0, pingMethodMonitor.getInvocationCount());
+	}
+	
+	@Test
+	public void cacheableMethodsAreServedFromResponseCacheForRepeatedArguments() throws Exception {
+		AtomicInteger invocationCount = new AtomicInteger();
+		AstrixRemotingDriver remotingDriver = new AstrixRemotingDriver();
+		remotingDriver.registerServer(CachedPing.class, new CachedPing() {
+			@Override
+			public String ping(String msg) {
+				invocationCount.incrementAndGet();
+				return msg;
+			}
+		});
+		
+		CachedPing ping = remotingDriver.createRemotingProxy(CachedPing.class);
+		
+		ServiceInvocationMonitorMBean pingMethodMonitor = remotingDriver.hasExportedMbeanOfType(ServiceInvocationMonitorMBean.class, new MBeanKey("ExportedServices", CachedPing.class.getName() + "#ping"));
+		
+		assertEquals("foo", ping.ping("foo"));
+		assertEquals("foo", ping.ping("foo"));
+		assertEquals("bar", ping.ping("bar"));
+		
+		assertEquals(2, invocationCount.get());
+		assertEquals(1, pingMethodMonitor.getCacheHitCount());
+		assertEquals(2, pingMethodMonitor.getCacheMissCount());
+		assertEquals(3, pingMethodMonitor.getInvocationCount());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void cacheableMethodsAreRejectedForServicesWithoutVersioning() throws Exception {
+		AstrixRemotingDriver remotingDriver = new AstrixRemotingDriver();
+		remotingDriver.serviceActivator().register((CachedPing) msg -> msg, new AstrixObjectSerializer.NoVersioningSupport(), CachedPing.class);
+	}
+	
+	@Test
+	public void invocationsExceedingTheConcurrencyLimitOfAServiceAreRejected() throws Exception {
+		CountDownLatch invocationStarted = new CountDownLatch(1);
+		CountDownLatch releaseInvocation = new CountDownLatch(1);
+		AstrixRemotingDriver remotingDriver = new AstrixRemotingDriver();
+		remotingDriver.setServerConfig("astrix.remoting.server." + Ping.class.getName() + ".maxConcurrentInvocations", "1");
+		remotingDriver.setServerConfig("astrix.remoting.server." + Ping.class.getName() + ".maxQueueTime", "0");
+		remotingDriver.registerServer(Ping.class, new Ping() {
+			@Override
+			public String ping(String msg) {
+				invocationStarted.countDown();
+				await(releaseInvocation);
+				return msg;
+			}
+		});
+		
+		ServiceInvocationMonitorMBean pingServiceMonitor = remotingDriver.hasExportedMbeanOfType(ServiceInvocationMonitorMBean.class, new MBeanKey("ExportedServices", Ping.class.getName()));
+		
+		CompletableFuture<AstrixServiceInvocationResponse> first = CompletableFuture.supplyAsync(() -> remotingDriver.serviceActivator().invokeService(pingRequest("foo")));
+		assertTrue(invocationStarted.await(5, TimeUnit.SECONDS));
+		
+		AstrixServiceInvocationResponse rejected = remotingDriver.serviceActivator().invokeService(pingRequest("bar"));
+		releaseInvocation.countDown();
+		
+		assertTrue(rejected.isServiceUnavailable());
+		assertFalse(first.get(5, TimeUnit.SECONDS).isServiceUnavailable());
+		assertEquals(1, pingServiceMonitor.getRejectedCount());
+		assertEquals(1, pingServiceMonitor.getInvocationCount());
+	}
+	
+	@Test
+	public void invocationsExceedingTheConcurrencyLimitOfAServiceAreQueued() throws Exception {
+		CountDownLatch invocationStarted = new CountDownLatch(1);
+		CountDownLatch releaseInvocation = new CountDownLatch(1);
+		AstrixRemotingDriver remotingDriver = new AstrixRemotingDriver();
+		remotingDriver.setServerConfig("astrix.remoting.server." + Ping.class.getName() + ".maxConcurrentInvocations", "1");
+		remotingDriver.setServerConfig("astrix.remoting.server." + Ping.class.getName() + ".maxQueueTime", "5000");
+		remotingDriver.registerServer(Ping.class, new Ping() {
+			@Override
+			public String ping(String msg) {
+				invocationStarted.countDown();
+				await(releaseInvocation);
+				return msg;
+			}
+		});
+		
+		ServiceInvocationMonitorMBean pingServiceMonitor = remotingDriver.hasExportedMbeanOfType(ServiceInvocationMonitorMBean.class, new MBeanKey("ExportedServices", Ping.class.getName()));
+		
+		CompletableFuture<AstrixServiceInvocationResponse> first = CompletableFuture.supplyAsync(() -> remotingDriver.serviceActivator().invokeService(pingRequest("foo")));
+		assertTrue(invocationStarted.await(5, TimeUnit.SECONDS));
+		CompletableFuture<AstrixServiceInvocationResponse> queued = CompletableFuture.supplyAsync(() -> remotingDriver.serviceActivator().invokeService(pingRequest("bar")));
+		Thread.sleep(50);
+		releaseInvocation.countDown();
+		
+		assertFalse(first.get(5, TimeUnit.SECONDS).isServiceUnavailable());
+		assertFalse(queued.get(5, TimeUnit.SECONDS).isServiceUnavailable());
+		assertEquals(0, pingServiceMonitor.getRejectedCount());
+		assertEquals(2, pingServiceMonitor.getInvocationCount());
+		assertTrue("Expected queued invocation to wait for the first invocation", pingServiceMonitor.getMaxQueueTime() > 0D);
+	}
+	
+	private static AstrixServiceInvocationRequest pingRequest(String msg) {
+		try {
+			AstrixServiceInvocationRequest request = new AstrixServiceInvocationRequest();
+			request.setHeader("serviceApi", Ping.class.getName());
+			request.setHeader("serviceMethodSignature", ReflectionUtil.methodSignatureWithoutReturnType(Ping.class.getMethod("ping", String.class)));
+			request.setHeader("apiVersion", "1");
+			request.setArguments(new Object[] { new JavaSerializationSerializer(1).serialize(msg, 1) });
+			return request;
+		} catch (NoSuchMethodException e) {
+			throw new AssertionError(e);
+		}
+	}
+	
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
 	public interface Ping {
 		String ping(String msg);
 	}
 	
+	public interface CachedPing {
+		@AstrixCacheable(timeToLive = 60_000)
+		String ping(String msg);
+	}
+	
 	public interface Pong {
 		String ping(String msg);
 	}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.server;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.avanza.astrix.config.DynamicConfig;
+import com.avanza.astrix.config.MapConfigSource;
+
+public class ServiceConcurrencyLimitTest {
+	
+	private static final String SERVICE_API = "com.acme.SlowService";
+	
+	private final MapConfigSource settings = new MapConfigSource();
+	private final ServiceConcurrencyLimit limit = ServiceConcurrencyLimit.create(DynamicConfig.create(settings), SERVICE_API);
+	
+	@Test
+	public void notLimitedByDefault() throws Exception {
+		assertFalse(limit.isLimited());
+	}
+	
+	@Test
+	public void usesGlobalSettingsChangedAfterServiceWasExported() throws Exception {
+		settings.set("astrix.remoting.server.maxConcurrentInvocations", "1");
+		
+		assertTrue(limit.isLimited());
+		assertTrue(limit.tryAcquire());
+		assertFalse(limit.tryAcquire());
+	}
+	
+	@Test
+	public void serviceSpecificSettingOverridesGlobalSetting() throws Exception {
+		settings.set("astrix.remoting.server.maxConcurrentInvocations", "1");
+		settings.set("astrix.remoting.server." + SERVICE_API + ".maxConcurrentInvocations", "2");
+		assertTrue(limit.tryAcquire());
+		assertTrue(limit.tryAcquire());
+		assertFalse(limit.tryAcquire());
+		
+		settings.set("astrix.remoting.server." + SERVICE_API + ".maxConcurrentInvocations", "0");
+		assertFalse(limit.isLimited());
+	}
+	
+	@Test
+	public void queuedInvocationIsGrantedPermitWhenLimitIsRemoved() throws Exception {
+		settings.set("astrix.remoting.server.maxConcurrentInvocations", "1");
+		settings.set("astrix.remoting.server.maxQueueTime", "10000");
+		assertTrue(limit.tryAcquire());
+		
+		CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(limit::tryAcquire);
+		Thread.sleep(50);
+		assertFalse(queued.isDone());
+		settings.set("astrix.remoting.server.maxConcurrentInvocations", "0");
+		
+		assertTrue(queued.get(5, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void queuedInvocationIsGrantedPermitWhenReleased() throws Exception {
+		settings.set("astrix.remoting.server.maxConcurrentInvocations", "1");
+		settings.set("astrix.remoting.server." + SERVICE_API + ".maxQueueTime", "10000");
+		assertTrue(limit.tryAcquire());
+		
+		CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(limit::tryAcquire);
+		Thread.sleep(50);
+		assertFalse(queued.isDone());
+		limit.release();
+		
+		assertTrue(queued.get(5, TimeUnit.SECONDS));
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2014 Avanza Bank AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.avanza.astrix.remoting.server;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.avanza.astrix.core.util.ReflectionUtil;
+import com.avanza.astrix.remoting.client.ServiceMethodDescriptor;
+import com.avanza.astrix.versioning.core.AstrixObjectSerializer;
+
+/**
+ * Compares the server side dispatch of a service invocation using a {@link ServiceMethodInvoker} and
+ * method id lookup with the previous reflection based dispatch, i.e. lookup by method signature, resolving
+ * the generic parameter types on each invocation and invoking the method using {@link Method#invoke(Object, Object...)}. <p>
+ * 
+ * Argument unmarshalling uses a pass-through serializer to isolate the dispatch overhead. Several
+ * service methods are invoked to make the reflective call site megamorphic, as on a server 
+ * with many published services. <p>
+ * 
+ * Run using the main method, or from an IDE with the jmh annotation processor enabled.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceMethodDispatchBenchmark {
+	
+	private final AstrixObjectSerializer serializer = new AstrixObjectSerializer.NoVersioningSupport();
+	private final Map<String, Method> methodBySignature = new HashMap<>();
+	private final Map<Long, DispatchTarget> targetById = new HashMap<>();
+	private String[] signatures;
+	private long[] methodIds;
+	private Object[][] arguments;
+	private Calculator service;
+	
+	@Setup
+	public void setup() throws Exception {
+		service = new CalculatorImpl();
+		Method[] methods = {
+			Calculator.class.getMethod("add", int.class, int.class),
+			Calculator.class.getMethod("negate", long.class),
+			Calculator.class.getMethod("concat", String.class, String.class),
+			Calculator.class.getMethod("length", String.class),
+		};
+		arguments = new Object[][] { { 1, 2 }, { 3L }, { "a", "b" }, { "abc" } };
+		signatures = new String[methods.length];
+		methodIds = new long[methods.length];
+		for (int i = 0; i < methods.length; i++) {
+			signatures[i] = ReflectionUtil.methodSignatureWithoutReturnType(methods[i]);
+			methodIds[i] = ServiceMethodDescriptor.methodId(signatures[i]);
+			methodBySignature.put(signatures[i], methods[i]);
+			targetById.put(methodIds[i], new DispatchTarget(ServiceMethodInvoker.create(service, methods[i]), methods[i].getGenericParameterTypes()));
+		}
+	}
+	
+	@Benchmark
+	public Object reflection() throws Exception {
+		Object result = null;
+		for (int i = 0; i < signatures.length; i++) {
+			Method method = methodBySignature.get(signatures[i]);
+			result = method.invoke(service, unmarshal(arguments[i], method.getGenericParameterTypes()));
+		}
+		return result;
+	}
+	
+	@Benchmark
+	public Object invoker() throws Exception {
+		Object result = null;
+		for (int i = 0; i < methodIds.length; i++) {
+			DispatchTarget target = targetById.get(methodIds[i]);
+			result = target.invoker.invoke(unmarshal(arguments[i], target.parameterTypes));
+		}
+		return result;
+	}
+	
+	private Object[] unmarshal(Object[] elements, Type[] types) {
+		Object[] result = new Object[elements.length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = serializer.deserialize(elements[i], types[i], AstrixObjectSerializer.NoVersioningSupport.NO_VERSIONING);
+		}
+		return result;
+	}
+	
+	private static final class DispatchTarget {
+		private final ServiceMethodInvoker invoker;
+		private final Type[] parameterTypes;
+		
+		public DispatchTarget(ServiceMethodInvoker invoker, Type[] parameterTypes) {
+			this.invoker = invoker;
+			this.parameterTypes = parameterTypes;
+		}
+	}
+	
+	public interface Calculator {
+		int add(int a, int b);
+		long negate(long a);
+		String concat(String a, String b);
+		int length(String a);
+	}
+	
+	public static class CalculatorImpl implements Calculator {
+		@Override
+		public int add(int a, int b) {
+			return a + b;
+		}
+		@Override
+		public long negate(long a) {
+			return -a;
+		}
+		@Override
+		public String concat(String a, String b) {
+			return a + b;
+		}
+		@Override
+		public int length(String a) {
+			return a.length();
+		}
+	}
+	
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(ServiceMethodDispatchBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
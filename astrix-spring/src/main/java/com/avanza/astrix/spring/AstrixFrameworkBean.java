@@ -15,15 +15,25 @@
  */
 package com.avanza.astrix.spring;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.annotation.PreDestroy;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
@@ -39,12 +49,17 @@ import org.springframework.core.Ordered;
 import com.avanza.astrix.beans.core.AstrixBeanSettings.BeanSetting;
 import com.avanza.astrix.beans.core.AstrixBeanKey;
 import com.avanza.astrix.beans.core.AstrixSettings;
+import com.avanza.astrix.beans.config.AstrixConfig;
 import com.avanza.astrix.config.DynamicConfig;
+import com.avanza.astrix.config.IntSetting;
+import com.avanza.astrix.config.LongSetting;
 import com.avanza.astrix.config.Setting;
 import com.avanza.astrix.context.Astrix;
 import com.avanza.astrix.context.AstrixApplicationContext;
 import com.avanza.astrix.context.AstrixConfigurer;
 import com.avanza.astrix.context.AstrixContext;
+import com.avanza.astrix.core.ServiceUnavailableException;
+import com.avanza.astrix.core.util.NamedThreadFactory;
 import com.avanza.astrix.serviceunit.AstrixApplicationDescriptor;
 import com.avanza.astrix.serviceunit.ServiceExporter;
 
@@ -77,8 +92,22 @@ public class AstrixFrameworkBean implements BeanFactoryPostProcessor, Applicatio
 	 * 
 	 * Note that this class (AstrixFrameworkBean) is the only class in the framework that will recieve spring-lifecylce events.
 	 * 
+	 * Creating a consumedAstrixBean binds the bean to its service provider, which might involve creating a
+	 * proxy against a remote space. The consumedAstrixBeans are therefore created in parallel (bounded
+	 * by astrix.spring.consumedBeansWarmUpConcurrency) before they are registered in the BeanFactory.
+	 * 
+	 * The whole warm-up shares one deadline (astrix.spring.consumedBeansWarmUpTimeout). A bean that is
+	 * still being created when the deadline passes is registered as a placeholder that throws
+	 * ServiceUnavailableException until the creation completes, after which it delegates to the created
+	 * bean. A bean that fails to bind during creation is left unbound and the lease manager retries the bind.
+	 * 
 	 */
 	
+	public static final IntSetting CONSUMED_BEANS_WARM_UP_CONCURRENCY = IntSetting.create("astrix.spring.consumedBeansWarmUpConcurrency", 10);
+	public static final LongSetting CONSUMED_BEANS_WARM_UP_TIMEOUT = LongSetting.create("astrix.spring.consumedBeansWarmUpTimeout", 60_000L);
+	
+	private static final Logger log = LoggerFactory.getLogger(AstrixFrameworkBean.class);
+	
 	private List<Class<?>> consumedAstrixBeans = new ArrayList<>();
 	private String subsystem;
 	private Map<String, String> settings = new HashMap<>();
@@ -96,8 +125,9 @@ public class AstrixFrameworkBean implements BeanFactoryPostProcessor, Applicatio
 		astrixContext = createAstrixContext(getDynamicConfig(applicationContext));
 		astrixContext.getInstance(AstrixSpringContext.class).setApplicationContext(applicationContext);
 		astrixContext.getInstance(AstrixSpringContext.class).setAstrixContext(astrixContext);
+		Map<Class<?>, Object> consumedBeans = createConsumedBeans();
 		for (Class<?> consumedAstrixBean : this.consumedAstrixBeans) {
-			beanFactory.registerSingleton(consumedAstrixBean.getName(), astrixContext.getBean(consumedAstrixBean));
+			beanFactory.registerSingleton(consumedAstrixBean.getName(), consumedBeans.get(consumedAstrixBean));
 		}
 		beanFactory.registerSingleton(AstrixSpringContext.class.getName(), astrixContext.getInstance(AstrixSpringContext.class));
 		beanFactory.registerSingleton(AstrixContext.class.getName(), astrixContext);
@@ -106,6 +136,90 @@ public class AstrixFrameworkBean implements BeanFactoryPostProcessor, Applicatio
 		}
 	}
 
+	private Map<Class<?>, Object> createConsumedBeans() {
+		Map<Class<?>, Object> result = new HashMap<>();
+		int concurrency = Math.min(this.consumedAstrixBeans.size(), astrixContext.getInstance(AstrixConfig.class).get(CONSUMED_BEANS_WARM_UP_CONCURRENCY).get());
+		if (concurrency <= 1) {
+			for (Class<?> consumedAstrixBean : this.consumedAstrixBeans) {
+				result.put(consumedAstrixBean, astrixContext.getBean(consumedAstrixBean));
+			}
+			return result;
+		}
+		ExecutorService warmUpExecutor = Executors.newFixedThreadPool(concurrency, new NamedThreadFactory("AstrixConsumedBeansWarmUp"));
+		try {
+			Map<Class<?>, Future<?>> beanCreations = new HashMap<>();
+			for (Class<?> consumedAstrixBean : this.consumedAstrixBeans) {
+				beanCreations.put(consumedAstrixBean, warmUpExecutor.submit(() -> astrixContext.getBean(consumedAstrixBean)));
+			}
+			long timeoutMillis = astrixContext.getInstance(AstrixConfig.class).get(CONSUMED_BEANS_WARM_UP_TIMEOUT).get();
+			long deadline = System.currentTimeMillis() + timeoutMillis;
+			List<Class<?>> pendingBeans = new ArrayList<>();
+			for (Map.Entry<Class<?>, Future<?>> beanCreation : beanCreations.entrySet()) {
+				long remainingMillis = Math.max(0, deadline - System.currentTimeMillis());
+				try {
+					result.put(beanCreation.getKey(), awaitBean(beanCreation.getValue(), remainingMillis));
+				} catch (TimeoutException e) {
+					pendingBeans.add(beanCreation.getKey());
+					result.put(beanCreation.getKey(), pendingBean(beanCreation.getKey(), beanCreation.getValue()));
+				}
+			}
+			if (!pendingBeans.isEmpty()) {
+				log.warn(String.format("Consumed astrix beans not created within warm-up timeout, they will be available once created. timeoutMillis=%s pendingBeans=%s", 
+						timeoutMillis, pendingBeans));
+			}
+			return result;
+		} finally {
+			// Pending bean creations are allowed to complete
+			warmUpExecutor.shutdown();
+		}
+	}
+
+	private static Object awaitBean(Future<?> beanCreation, long timeoutMillis) throws TimeoutException {
+		try {
+			return beanCreation.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while creating consumed astrix beans", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Failed to create consumed astrix bean", e.getCause());
+		}
+	}
+	
+	private static Object pendingBean(Class<?> beanType, Future<?> beanCreation) {
+		if (!beanType.isInterface()) {
+			// Not possible to create a placeholder, wait for the creation to complete
+			log.warn("Waiting for creation of consumed astrix bean without warm-up timeout since it is not an interface. bean=" + beanType.getName());
+			try {
+				return awaitBean(beanCreation, Long.MAX_VALUE);
+			} catch (TimeoutException e) {
+				throw new IllegalStateException("Failed to create consumed astrix bean: " + beanType.getName(), e);
+			}
+		}
+		return Proxy.newProxyInstance(beanType.getClassLoader(), new Class<?>[] { beanType }, (proxy, method, args) -> {
+			if (method.getDeclaringClass().equals(Object.class)) {
+				switch (method.getName()) {
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return "PendingAstrixBean[" + beanType.getName() + "]";
+				}
+			}
+			if (!beanCreation.isDone()) {
+				throw new ServiceUnavailableException("Consumed astrix bean is still being created. bean=" + beanType.getName());
+			}
+			try {
+				return method.invoke(awaitBean(beanCreation, 0), args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		});
+	}
+
 	/**
 	 * All consumedAstrixBeans will be created (see {@link Astrix#getBean(Class)} and registered in the spring ApplicationContext at
 	 * startup. All consumedAstrixBeans will be available as autowiring candidates for other beans in the current spring ApplicationContext.<p>
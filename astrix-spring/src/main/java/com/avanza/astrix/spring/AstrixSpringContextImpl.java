@@ -15,6 +15,9 @@
  */
 package com.avanza.astrix.spring;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.springframework.context.ApplicationContext;
 
 import com.avanza.astrix.context.AstrixApplicationContext;
@@ -32,6 +35,11 @@ public class AstrixSpringContextImpl implements AstrixSpringContext {
 	
 	private ApplicationContext applicationContext;
 	private AstrixApplicationContext astrixContext;
+	/*
+	 * Instances are cached since getInstance is used on hot paths, for instance 
+	 * by each task that invokes an exported service on a processing unit.
+	 */
+	private final ConcurrentMap<Class<?>, Object> instanceByType = new ConcurrentHashMap<>();
 
 	public void setApplicationContext(ApplicationContext applicationContext) {
 		this.applicationContext = applicationContext;
@@ -40,6 +48,7 @@ public class AstrixSpringContextImpl implements AstrixSpringContext {
 	@Override
 	public void setAstrixContext(AstrixContext astrixContext) {
 		this.astrixContext = (AstrixApplicationContext) astrixContext;
+		this.instanceByType.clear();
 	}
 	
 	public ApplicationContext getApplicationContext() {
@@ -47,7 +56,12 @@ public class AstrixSpringContextImpl implements AstrixSpringContext {
 	}
 	
 	public <T> T getInstance(Class<T> type) {
-		return astrixContext.getInstance(type);
+		Object instance = instanceByType.get(type);
+		if (instance == null) {
+			instance = astrixContext.getInstance(type);
+			instanceByType.putIfAbsent(type, instance);
+		}
+		return type.cast(instance);
 	}
 	
 }
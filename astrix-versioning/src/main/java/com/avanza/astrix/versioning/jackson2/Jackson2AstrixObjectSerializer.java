@@ -26,12 +26,15 @@ class Jackson2AstrixObjectSerializer implements AstrixObjectSerializer {
 
 	private JsonObjectMapper objectMapper;
 	private int version;
+	private boolean binaryFormat;
 
 	public Jackson2AstrixObjectSerializer(ObjectSerializerDefinition serializerDefinition) {
 		Class<? extends AstrixObjectSerializerConfigurer> serializerBuilder = serializerDefinition.getObjectSerializerConfigurerClass();
 		this.version = serializerDefinition.version();
 		try {
-			this.objectMapper = buildObjectMapper(Jackson2ObjectSerializerConfigurer.class.cast(serializerBuilder.newInstance()));
+			Jackson2ObjectSerializerConfigurer configurer = Jackson2ObjectSerializerConfigurer.class.cast(serializerBuilder.newInstance());
+			this.objectMapper = buildObjectMapper(configurer);
+			this.binaryFormat = configurer.binaryFormat();
 		} catch (Exception e) {
 			throw new RuntimeException("Failed to init JsonObjectMapper", e);
 		}
@@ -48,6 +51,9 @@ class Jackson2AstrixObjectSerializer implements AstrixObjectSerializer {
 		if (fromVersion == NoVersioningSupport.NO_VERSIONING) {
 			return (T) element;
 		}
+		if (element instanceof byte[]) {
+			return objectMapper.deserializeBinary((byte[]) element, type, fromVersion);
+		}
 		return objectMapper.deserialize((String) element, type, fromVersion);
 	}
 
@@ -56,6 +62,9 @@ class Jackson2AstrixObjectSerializer implements AstrixObjectSerializer {
 		if (version == NoVersioningSupport.NO_VERSIONING) {
 			return element;
 		}
+		if (binaryFormat) {
+			return objectMapper.serializeBinary(element, version);
+		}
 		return objectMapper.serialize(element, version);
 	}
 
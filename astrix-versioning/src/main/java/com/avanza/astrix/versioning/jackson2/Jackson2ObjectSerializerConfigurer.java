@@ -26,4 +26,24 @@ import com.avanza.astrix.versioning.core.AstrixObjectSerializerConfigurer;
 public interface Jackson2ObjectSerializerConfigurer extends AstrixObjectSerializerConfigurer {
 	List<? extends AstrixJsonApiMigration> apiMigrations();
 	void configure(JacksonObjectMapperBuilder objectMapperBuilder);
+	
+	/**
+	 * Whether objects should be serialized to the binary Smile format (byte[]) rather than
+	 * to a json String. The binary form is carried as raw bytes by the remoting transports,
+	 * which avoids encoding the payload a second time. <p>
+	 * 
+	 * Both forms are always accepted when deserializing, but only by versions of astrix that know about the
+	 * binary format. Older versions expect a json String, hence a server with the binary format enabled sends
+	 * responses that old consumers fail to deserialize, and vice versa for requests. The binary format should
+	 * therefore be enabled in two steps:
+	 * <ol>
+	 * <li>Upgrade astrix on all servers providing the api <em>and</em> on all consumers of the api, with the binary format disabled.</li>
+	 * <li>Enable the binary format for the api once no server or consumer runs an older version.</li>
+	 * </ol>
+	 *
+	 * @return true if the binary Smile format should be used, defaults to false
+	 */
+	default boolean binaryFormat() {
+		return false;
+	}
 }
@@ -53,6 +53,22 @@ public class JsonObjectMapper {
 		}
 	}
 	
+	public byte[] serializeBinary(Object object, int toVersion) {
+		try {
+			return impl.serializeBinary(object, toVersion);
+		} catch (Exception e) {
+			throw new RuntimeException("Failed to serialize: " + object + ".", e);
+		}
+	}
+	
+	public <T> T deserializeBinary(byte[] data, Type target, int fromVersion) {
+		try {
+			return impl.deserializeBinary(data, target, fromVersion);
+		} catch (Exception e) {
+			throw new RuntimeException("Failed to deserialize binary data (" + data.length + " bytes) into type: " + target, e);
+		}
+	}
+	
 	public static JsonObjectMapper create(Impl impl) {
 		return new JsonObjectMapper(impl);
 	}
@@ -61,6 +77,8 @@ public class JsonObjectMapper {
 	public interface Impl {
 		String serialize(Object object, int toVersion) throws Exception;
 		<T> T deserialize(String json, Type target, int fromVersion) throws Exception;
+		byte[] serializeBinary(Object object, int toVersion) throws Exception;
+		<T> T deserializeBinary(byte[] data, Type target, int fromVersion) throws Exception;
 	}
 	
 }
@@ -32,16 +32,27 @@ import com.fasterxml.jackson.core.Version;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 
 public class VersionedJsonObjectMapper implements JsonObjectMapper.Impl {
 	
 	private ObjectMapper migratingMapper;
+	private ObjectMapper binaryMigratingMapper;
 	private ThreadLocal<Integer> versionHolder;
+	// Resolving the JavaType for generic types is expensive, and the set of types is bounded by the published service methods
+	private final ConcurrentMap<Type, JavaType> javaTypeByType = new ConcurrentHashMap<>();
 	
 	public VersionedJsonObjectMapper(ThreadLocal<Integer> versionHolder,
 								 ObjectMapper migratingMapper) {
+		this(versionHolder, migratingMapper, null);
+	}
+	
+	public VersionedJsonObjectMapper(ThreadLocal<Integer> versionHolder,
+								 ObjectMapper migratingMapper,
+								 ObjectMapper binaryMigratingMapper) {
 				this.versionHolder = versionHolder;
 				this.migratingMapper = migratingMapper;
+				this.binaryMigratingMapper = binaryMigratingMapper;
 	}
 
 	@Override
@@ -58,13 +69,41 @@ public class VersionedJsonObjectMapper implements JsonObjectMapper.Impl {
 	public <T> T deserialize(String json, Type target, int fromVersion) throws Exception {
 		versionHolder.set(fromVersion);
 		try {
-			JavaType javaType = migratingMapper.getTypeFactory().constructType(target);
+			JavaType javaType = javaTypeByType.computeIfAbsent(target, migratingMapper.getTypeFactory()::constructType);
 			return migratingMapper.readValue(json, javaType);
 		} finally {
 			versionHolder.remove();
 		}
 	}
 	
+	@Override
+	public byte[] serializeBinary(Object object, int toVersion) throws Exception {
+		versionHolder.set(toVersion);
+		try {
+			return binaryMapper().writeValueAsBytes(object);
+		} finally {
+			versionHolder.remove();
+		}
+	}
+	
+	@Override
+	public <T> T deserializeBinary(byte[] data, Type target, int fromVersion) throws Exception {
+		versionHolder.set(fromVersion);
+		try {
+			JavaType javaType = javaTypeByType.computeIfAbsent(target, migratingMapper.getTypeFactory()::constructType);
+			return binaryMapper().readValue(data, javaType);
+		} finally {
+			versionHolder.remove();
+		}
+	}
+	
+	private ObjectMapper binaryMapper() {
+		if (binaryMigratingMapper == null) {
+			throw new IllegalStateException("No binary ObjectMapper configured");
+		}
+		return binaryMigratingMapper;
+	}
+	
 	// TODO: document whats going on in this class (the migrating object mapper)
 	
 	static class JsonSerializerHolder<T> {
@@ -218,11 +257,13 @@ public class VersionedJsonObjectMapper implements JsonObjectMapper.Impl {
 		public VersionedJsonObjectMapper build() {
 			ThreadLocal<Integer> versionHolder = new ThreadLocal<>();
 			ObjectMapper rawMapper = buildRaw();
-			ObjectMapper migratingMapper = buildMigratingMapper(rawMapper, versionHolder);
-			return new VersionedJsonObjectMapper(versionHolder, migratingMapper);
+			ObjectMapper migratingMapper = buildMigratingMapper(rawMapper, versionHolder, new ObjectMapper());
+			// The migrations operate on the tree model, hence the same migrations applies to the binary format
+			ObjectMapper binaryMigratingMapper = buildMigratingMapper(rawMapper, versionHolder, new ObjectMapper(new SmileFactory()));
+			return new VersionedJsonObjectMapper(versionHolder, migratingMapper, binaryMigratingMapper);
 		}
 		
-		private ObjectMapper buildMigratingMapper(ObjectMapper rawMapper, ThreadLocal<Integer> versionHolder) {
+		private ObjectMapper buildMigratingMapper(ObjectMapper rawMapper, ThreadLocal<Integer> versionHolder, ObjectMapper result) {
 			SimpleModule module = new SimpleModule("Astrix-migratingModule", new Version(1, 0, 0, "", null, null));
 			for (JsonMessageMigrator<?> migrator : this.migratorsByType.values()) {
 				registerSerializerAndDeserializer(rawMapper, versionHolder, module, migrator);
@@ -239,7 +280,6 @@ public class VersionedJsonObjectMapper implements JsonObjectMapper.Impl {
 				}
 			}
 
-			ObjectMapper result = new ObjectMapper();
 			result.registerModule(module);
 			return result;
 		}
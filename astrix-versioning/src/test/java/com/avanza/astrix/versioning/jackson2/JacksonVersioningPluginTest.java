@@ -57,6 +57,29 @@ public class JacksonVersioningPluginTest {
 		assertEquals(null, deserializedPojo.getBar()); // bar is stripped during downgrade
 	}
 	
+	@Test
+	public void binaryFormatSerializesToSmileAndUpgradesV1Objects() throws Exception {
+		AstrixObjectSerializer astrixObjectSerializer = new Jackson2SerializerPlugin().create(ObjectSerializerDefinition.versionedService(2, BinaryTestObjectMapperConfigurer.class));
+		
+		Object serializedV1 = astrixObjectSerializer.serialize(new TestPojoV1("foo"), 1);
+		assertEquals(byte[].class, serializedV1.getClass());
+		TestPojoV2 deserializedPojo = astrixObjectSerializer.deserialize(serializedV1, TestPojoV2.class, 1);
+		assertEquals("foo", deserializedPojo.getFoo());
+		assertEquals("defaultBar", deserializedPojo.getBar());
+	}
+	
+	@Test
+	public void binaryFormatStillDeserializesJsonStrings() throws Exception {
+		AstrixObjectSerializer jsonSerializer = new Jackson2SerializerPlugin().create(ObjectSerializerDefinition.versionedService(2, TestObjectMapperConfigurer.class));
+		AstrixObjectSerializer binarySerializer = new Jackson2SerializerPlugin().create(ObjectSerializerDefinition.versionedService(2, BinaryTestObjectMapperConfigurer.class));
+		
+		Object serialized = jsonSerializer.serialize(new TestPojoV2("foo", "bar"), 2);
+		assertEquals(String.class, serialized.getClass());
+		TestPojoV2 deserializedPojo = binarySerializer.deserialize(serialized, TestPojoV2.class, 2);
+		assertEquals("foo", deserializedPojo.getFoo());
+		assertEquals("bar", deserializedPojo.getBar());
+	}
+	
 	public static class FakeDescriptor {
 	}
 	
@@ -72,6 +95,13 @@ public class JacksonVersioningPluginTest {
 		}
 	}
 	
+	public static class BinaryTestObjectMapperConfigurer extends TestObjectMapperConfigurer {
+		@Override
+		public boolean binaryFormat() {
+			return true;
+		}
+	}
+	
 	public static class TestPojoV1ToV2Migration implements AstrixJsonApiMigration {
 		@Override
 		public AstrixJsonMessageMigration<?>[] getMigrations() {